@@ -1,5 +1,6 @@
 import React, { createContext, useContext, useState, useEffect, ReactNode } from 'react';
 import { AuthResponse } from '../types';
+import { api } from '../services/api';
 
 interface AuthContextType {
   user: AuthResponse | null;
@@ -33,13 +34,18 @@ export const AuthProvider: React.FC<{ children: ReactNode }> = ({ children }) =>
 
   const login = (data: AuthResponse) => {
     localStorage.setItem('token', data.token);
+    if (data.refreshToken) {
+      localStorage.setItem('refreshToken', data.refreshToken);
+    }
     localStorage.setItem('userEmail', data.email);
     localStorage.setItem('userRole', data.role);
     setUser(data);
   };
 
   const logout = () => {
+    api.auth.logout().catch(() => undefined);
     localStorage.removeItem('token');
+    localStorage.removeItem('refreshToken');
     localStorage.removeItem('userEmail');
     localStorage.removeItem('userRole');
     setUser(null);
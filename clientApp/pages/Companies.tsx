@@ -65,7 +65,10 @@ const Companies: React.FC = () => {
   const handleDelete = async (nit: string) => {
     if (!window.confirm('Are you sure you want to delete this company?')) return;
     try {
-      await api.companies.delete(nit);
+      const res = await api.companies.delete(nit);
+      if (res.data && res.data.estado !== 'COMPLETADA') {
+        alert(`Deleting ${res.data.totalProductos} products in the background; the company will disappear when it finishes.`);
+      }
       fetchCompanies();
     } catch (error) {
       alert('Failed to delete');
@@ -34,13 +34,11 @@ const Dashboard: React.FC = () => {
   useEffect(() => {
     const fetchData = async () => {
       try {
-        const [companiesRes, productsRes] = await Promise.all([
-          api.companies.getAll(),
-          api.products.getAll()
-        ]);
+        const companiesRes = await api.companies.getAll();
+        const companies = companiesRes.data || [];
         setCounts({
-          companies: companiesRes.data?.length || 0,
-          products: productsRes.data?.length || 0
+          companies: companies.length,
+          products: companies.reduce((total, c) => total + (c.productCount || 0), 0)
         });
       } catch (error) {
         console.error("Failed to load dashboard stats", error);
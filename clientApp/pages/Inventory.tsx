@@ -1,6 +1,6 @@
 import React, { useState, useEffect } from 'react';
 import { api } from '../services/api';
-import { EmpresaDTO } from '../types';
+import { EmpresaDTO, InventoryReportJobDTO } from '../types';
 import { Button, Input, Select } from '../components/UI';
 import { Send, FileText, CheckCircle2 } from 'lucide-react';
 
@@ -9,6 +9,7 @@ const Inventory: React.FC = () => {
   const [loading, setLoading] = useState(false);
   const [success, setSuccess] = useState('');
   const [error, setError] = useState('');
+  const [job, setJob] = useState<InventoryReportJobDTO | null>(null);
 
   const [formData, setFormData] = useState({
     toEmail: '',
@@ -23,6 +24,36 @@ const Inventory: React.FC = () => {
     });
   }, []);
 
+  const jobActive = job !== null && (job.estado === 'PENDIENTE' || job.estado === 'EN_PROCESO');
+
+  // Poll the queued report until it finishes
+  useEffect(() => {
+    if (!job || !jobActive) return;
+    const timer = setTimeout(async () => {
+      try {
+        const res = await api.inventory.getJob(job.id);
+        if (res.success) {
+          setJob(res.data);
+          if (res.data.estado === 'COMPLETADA') setSuccess(`Report sent to ${res.data.destinatario}`);
+          if (res.data.estado === 'FALLIDA') setError(res.data.error || 'Failed to send report');
+        }
+      } catch (err) {
+        setError('An error occurred while communicating with the server.');
+      }
+    }, 2000);
+    return () => clearTimeout(timer);
+  }, [job, jobActive]);
+
+  const handleCancel = async () => {
+    if (!job) return;
+    try {
+      const res = await api.inventory.cancelJob(job.id);
+      if (res.success) setJob(res.data);
+    } catch (err) {
+      setError(err instanceof Error ? err.message : 'Failed to cancel report');
+    }
+  };
+
   const handleSubmit = async (e: React.FormEvent) => {
     e.preventDefault();
     setLoading(true);
@@ -32,7 +63,7 @@ const Inventory: React.FC = () => {
     try {
       const res = await api.inventory.sendReport(formData);
       if (res.success) {
-        setSuccess('Report sent successfully!');
+        setJob(res.data);
         setFormData(prev => ({ ...prev, toEmail: '' })); // clear email
       } else {
         setError(res.message || 'Failed to send report');
@@ -109,8 +140,20 @@ const Inventory: React.FC = () => {
             </div>
           )}
 
+          {jobActive && job && (
+            <div className="bg-blue-50 text-blue-700 p-3 rounded-lg text-sm space-y-2">
+              <div className="flex items-center justify-between">
+                <span>Generating report for {job.destinatario}... {job.porcentaje}%</span>
+                <button type="button" onClick={handleCancel} className="text-blue-700 underline">Cancel</button>
+              </div>
+              <div className="w-full bg-blue-100 rounded-full h-2">
+                <div className="bg-blue-600 h-2 rounded-full" style={{ width: `${job.porcentaje}%` }} />
+              </div>
+            </div>
+          )}
+
           <div className="flex justify-end pt-4">
-            <Button type="submit" isLoading={loading}>
+            <Button type="submit" isLoading={loading || jobActive}>
               <Send size={16} className="mr-2" />
               Send Report
             </Button>
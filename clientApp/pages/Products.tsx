@@ -11,6 +11,8 @@ const Products: React.FC = () => {
   const [isModalOpen, setIsModalOpen] = useState(false);
   const [editingId, setEditingId] = useState<number | null>(null);
   const [filterCompany, setFilterCompany] = useState('');
+  const [nextCursor, setNextCursor] = useState<string | null>(null);
+  const [loadingMore, setLoadingMore] = useState(false);
 
   const initialFormState: ProductoDTO = {
     codigo: '',
@@ -24,14 +26,20 @@ const Products: React.FC = () => {
 
   const [formData, setFormData] = useState<ProductoDTO>(initialFormState);
 
+  const fetchProducts = (cursor?: string) =>
+    filterCompany ? api.products.getByCompany(filterCompany, { cursor }) : api.products.getAll({ cursor });
+
   const fetchData = async () => {
     setLoading(true);
     try {
       const [prodRes, compRes] = await Promise.all([
-        filterCompany ? api.products.getByCompany(filterCompany) : api.products.getAll(),
+        fetchProducts(),
         api.companies.getAll()
       ]);
-      if (prodRes.success) setProducts(prodRes.data);
+      if (prodRes.success) {
+        setProducts(prodRes.data.items);
+        setNextCursor(prodRes.data.nextCursor || null);
+      }
       if (compRes.success) setCompanies(compRes.data);
     } catch (error) {
       console.error(error);
@@ -40,6 +48,22 @@ const Products: React.FC = () => {
     }
   };
 
+  const loadMore = async () => {
+    if (!nextCursor) return;
+    setLoadingMore(true);
+    try {
+      const prodRes = await fetchProducts(nextCursor);
+      if (prodRes.success) {
+        setProducts(prev => [...prev, ...prodRes.data.items]);
+        setNextCursor(prodRes.data.nextCursor || null);
+      }
+    } catch (error) {
+      console.error(error);
+    } finally {
+      setLoadingMore(false);
+    }
+  };
+
   useEffect(() => {
     fetchData();
   }, [filterCompany]);
@@ -129,6 +153,14 @@ const Products: React.FC = () => {
         </Table>
       )}
 
+      {!loading && nextCursor && (
+        <div className="flex justify-center">
+          <Button variant="secondary" onClick={loadMore} disabled={loadingMore}>
+            {loadingMore ? 'Loading...' : 'Load more'}
+          </Button>
+        </div>
+      )}
+
       <Modal 
         isOpen={isModalOpen} 
         onClose={() => setIsModalOpen(false)} 
@@ -2,14 +2,29 @@ import {
   AuthRequest, 
   AuthResponse, 
   ApiResponse, 
+  CursorPage,
   EmpresaDTO, 
+  EmpresaDeletionDTO,
+  EmpresaStatsDTO,
   ProductoDTO, 
+  ProductoPageQuery,
+  ProductoFacets,
   InventoryReportRequest,
+  InventoryReportJobDTO,
   UsuarioDTO
 } from '../types';
 
 const API_URL = import.meta.env.VITE_API_URL || 'http://localhost:8080/api';
 
+const toQueryString = (query: ProductoPageQuery = {}) => {
+  const params = new URLSearchParams();
+  Object.entries(query).forEach(([key, value]) => {
+    if (value !== undefined && value !== null && value !== '') params.append(key, String(value));
+  });
+  const qs = params.toString();
+  return qs ? `?${qs}` : '';
+};
+
 const getHeaders = () => {
   const headers: HeadersInit = {
     'Content-Type': 'application/json',
@@ -21,9 +36,50 @@ const getHeaders = () => {
   return headers;
 };
 
+let refreshInFlight: Promise<boolean> | null = null;
+
+// Refresh tokens rotate on every use, so concurrent 401s must share a single refresh call
+const refreshAccessToken = (): Promise<boolean> => {
+  if (!refreshInFlight) {
+    refreshInFlight = (async () => {
+      const refreshToken = localStorage.getItem('refreshToken');
+      if (!refreshToken) {
+        return false;
+      }
+      const res = await fetch(`${API_URL}/auth/refresh`, {
+        method: 'POST',
+        headers: { 'Content-Type': 'application/json' },
+        body: JSON.stringify({ refreshToken }),
+      });
+      if (!res.ok) {
+        localStorage.removeItem('refreshToken');
+        return false;
+      }
+      const data: ApiResponse<AuthResponse> = await res.json();
+      localStorage.setItem('token', data.data.token);
+      if (data.data.refreshToken) {
+        localStorage.setItem('refreshToken', data.data.refreshToken);
+      }
+      return true;
+    })().finally(() => {
+      refreshInFlight = null;
+    });
+  }
+  return refreshInFlight;
+};
+
+const authFetch = async (url: string, init: RequestInit = {}): Promise<Response> => {
+  const res = await fetch(url, { ...init, headers: getHeaders() });
+  if (res.status === 401 && await refreshAccessToken()) {
+    return fetch(url, { ...init, headers: getHeaders() });
+  }
+  return res;
+};
+
 const handleResponse = async <T>(response: Response): Promise<T> => {
   if (response.status === 401) {
     localStorage.removeItem('token');
+    localStorage.removeItem('refreshToken');
     window.location.hash = '#/login';
     throw new Error('Unauthorized');
   }
@@ -44,6 +100,13 @@ export const api = {
       });
       return handleResponse(res);
     },
+    logout: async (): Promise<void> => {
+      await fetch(`${API_URL}/auth/logout`, {
+        method: 'POST',
+        headers: getHeaders(),
+        body: JSON.stringify({ refreshToken: localStorage.getItem('refreshToken') }),
+      });
+    },
     register: async (user: UsuarioDTO): Promise<ApiResponse<UsuarioDTO>> => {
       const res = await fetch(`${API_URL}/auth/register`, {
         method: 'POST',
@@ -55,78 +118,91 @@ export const api = {
   },
   companies: {
     getAll: async (): Promise<ApiResponse<EmpresaDTO[]>> => {
-      const res = await fetch(`${API_URL}/empresas`, { headers: getHeaders() });
+      const res = await authFetch(`${API_URL}/empresas`);
       return handleResponse(res);
     },
     getOne: async (nit: string): Promise<ApiResponse<EmpresaDTO>> => {
-      const res = await fetch(`${API_URL}/empresas/${nit}`, { headers: getHeaders() });
+      const res = await authFetch(`${API_URL}/empresas/${nit}`);
+      return handleResponse(res);
+    },
+    getStats: async (nit: string): Promise<ApiResponse<EmpresaStatsDTO>> => {
+      const res = await authFetch(`${API_URL}/empresas/${nit}/stats`);
       return handleResponse(res);
     },
     create: async (company: EmpresaDTO): Promise<ApiResponse<EmpresaDTO>> => {
-      const res = await fetch(`${API_URL}/empresas`, {
+      const res = await authFetch(`${API_URL}/empresas`, {
         method: 'POST',
-        headers: getHeaders(),
         body: JSON.stringify(company),
       });
       return handleResponse(res);
     },
     update: async (nit: string, company: EmpresaDTO): Promise<ApiResponse<EmpresaDTO>> => {
-      const res = await fetch(`${API_URL}/empresas/${nit}`, {
+      const res = await authFetch(`${API_URL}/empresas/${nit}`, {
         method: 'PUT',
-        headers: getHeaders(),
         body: JSON.stringify(company),
       });
       return handleResponse(res);
     },
-    delete: async (nit: string): Promise<ApiResponse<void>> => {
-      const res = await fetch(`${API_URL}/empresas/${nit}`, {
+    delete: async (nit: string): Promise<ApiResponse<EmpresaDeletionDTO>> => {
+      const res = await authFetch(`${API_URL}/empresas/${nit}`, {
         method: 'DELETE',
-        headers: getHeaders(),
       });
       return handleResponse(res);
+    },
+    getDeletion: async (id: number): Promise<ApiResponse<EmpresaDeletionDTO>> => {
+      const res = await authFetch(`${API_URL}/empresas/deletions/${id}`);
+      return handleResponse(res);
     }
   },
   products: {
-    getAll: async (): Promise<ApiResponse<ProductoDTO[]>> => {
-      const res = await fetch(`${API_URL}/productos`, { headers: getHeaders() });
+    getAll: async (query?: ProductoPageQuery): Promise<ApiResponse<CursorPage<ProductoDTO>>> => {
+      const res = await authFetch(`${API_URL}/productos${toQueryString(query)}`);
+      return handleResponse(res);
+    },
+    getFacets: async (query?: ProductoPageQuery): Promise<ApiResponse<ProductoFacets>> => {
+      const res = await authFetch(`${API_URL}/productos/facets${toQueryString(query)}`);
       return handleResponse(res);
     },
-    getByCompany: async (nit: string): Promise<ApiResponse<ProductoDTO[]>> => {
-      const res = await fetch(`${API_URL}/productos/empresa/${nit}`, { headers: getHeaders() });
+    getByCompany: async (nit: string, query?: ProductoPageQuery): Promise<ApiResponse<CursorPage<ProductoDTO>>> => {
+      const res = await authFetch(`${API_URL}/productos/empresa/${nit}${toQueryString(query)}`);
       return handleResponse(res);
     },
     create: async (product: ProductoDTO): Promise<ApiResponse<ProductoDTO>> => {
-      const res = await fetch(`${API_URL}/productos`, {
+      const res = await authFetch(`${API_URL}/productos`, {
         method: 'POST',
-        headers: getHeaders(),
         body: JSON.stringify(product),
       });
       return handleResponse(res);
     },
     update: async (id: number, product: ProductoDTO): Promise<ApiResponse<ProductoDTO>> => {
-      const res = await fetch(`${API_URL}/productos/${id}`, {
+      const res = await authFetch(`${API_URL}/productos/${id}`, {
         method: 'PUT',
-        headers: getHeaders(),
         body: JSON.stringify(product),
       });
       return handleResponse(res);
     },
     delete: async (id: number): Promise<ApiResponse<void>> => {
-      const res = await fetch(`${API_URL}/productos/${id}`, {
+      const res = await authFetch(`${API_URL}/productos/${id}`, {
         method: 'DELETE',
-        headers: getHeaders(),
       });
       return handleResponse(res);
     }
   },
   inventory: {
-    sendReport: async (report: InventoryReportRequest): Promise<ApiResponse<string>> => {
-      const res = await fetch(`${API_URL}/inventory/report/send`, {
+    sendReport: async (report: InventoryReportRequest): Promise<ApiResponse<InventoryReportJobDTO>> => {
+      const res = await authFetch(`${API_URL}/inventory/report/send`, {
         method: 'POST',
-        headers: getHeaders(),
         body: JSON.stringify(report),
       });
       return handleResponse(res);
+    },
+    getJob: async (id: number): Promise<ApiResponse<InventoryReportJobDTO>> => {
+      const res = await authFetch(`${API_URL}/inventory/report/jobs/${id}`);
+      return handleResponse(res);
+    },
+    cancelJob: async (id: number): Promise<ApiResponse<InventoryReportJobDTO>> => {
+      const res = await authFetch(`${API_URL}/inventory/report/jobs/${id}`, { method: 'DELETE' });
+      return handleResponse(res);
     }
   }
 };
\ No newline at end of file
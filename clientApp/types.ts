@@ -4,6 +4,7 @@ export interface ProductoDTO {
   nombre: string;
   precio: number;
   moneda?: string;
+  precioUsd?: number;
   caracteristicas?: string;
   empresaNit?: string;
   categoriaId?: number;
@@ -15,6 +16,7 @@ export interface EmpresaDTO {
   direccion?: string;
   telefono?: string;
   productos?: ProductoDTO[];
+  productCount?: number;
 }
 
 export interface UsuarioDTO {
@@ -32,6 +34,7 @@ export interface AuthRequest {
 
 export interface AuthResponse {
   token: string;
+  refreshToken?: string;
   type: string;
   expiresIn: number;
   role: string;
@@ -45,7 +48,68 @@ export interface InventoryReportRequest {
   empresaNit?: string;
 }
 
+export interface InventoryReportJobDTO {
+  id: number;
+  empresaNit?: string;
+  destinatario: string;
+  estado: 'PENDIENTE' | 'EN_PROCESO' | 'COMPLETADA' | 'FALLIDA' | 'CANCELADA';
+  totalProductos: number;
+  productosProcesados: number;
+  porcentaje: number;
+  error?: string;
+  fechaCreacion: string;
+  fechaActualizacion: string;
+}
+
+// Cursor-paginated list returned by the product endpoints
+export interface CursorPage<T> {
+  items: T[];
+  nextCursor?: string | null;
+  hasNext: boolean;
+  size: number;
+}
+
+export interface ProductoPageQuery {
+  cursor?: string;
+  size?: number;
+  sort?: 'id' | 'nombre' | 'precio';
+  direction?: 'asc' | 'desc';
+  categoriaId?: number;
+  minPrecio?: number;
+  maxPrecio?: number;
+  // Currency of minPrecio/maxPrecio (USD by default); prices are compared in USD
+  moneda?: string;
+}
+
+// Product counts per category id, company NIT and USD price bucket
+export interface ProductoFacets {
+  total: number;
+  categorias: Record<string, number>;
+  empresas: Record<string, number>;
+  precios: { desde: number; hasta?: number | null; count: number }[];
+}
+
 // Generic API Response wrapper
+export interface EmpresaStatsDTO {
+  empresaNit: string;
+  productos: number;
+  valorPorMoneda: Record<string, number>;
+  productosPorCategoria: Record<string, number>;
+  revision: number;
+  fechaActualizacion: string;
+  pendiente: boolean;
+}
+
+export interface EmpresaDeletionDTO {
+  id?: number;
+  empresaNit: string;
+  estado: 'PENDIENTE' | 'EN_PROCESO' | 'COMPLETADA' | 'FALLIDA';
+  totalProductos: number;
+  productosEliminados: number;
+  error?: string;
+  fechaActualizacion: string;
+}
+
 export interface ApiResponse<T> {
   success: boolean;
   message: string;
@@ -0,0 +1,38 @@
+package manuel.pruebatecnica.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import manuel.pruebatecnica.infrastructure.dto.ApiResponse;
+import manuel.pruebatecnica.infrastructure.dto.ProductoDTO;
+import manuel.pruebatecnica.infrastructure.mapper.EntityMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ApiResponseSerializationBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int size;
+
+    // Configured like the ObjectMapper Spring MVC uses for responses
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private ApiResponse<List<ProductoDTO>> response;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<ProductoDTO> productos = new EntityMapper().toProductoDTOList(BenchmarkFixtures.productos(size));
+        response = ApiResponse.success(productos);
+    }
+
+    @Benchmark
+    public byte[] serializeProductList() throws Exception {
+        return objectMapper.writeValueAsBytes(response);
+    }
+}
@@ -0,0 +1,94 @@
+package manuel.pruebatecnica.benchmark;
+
+import manuel.pruebatecnica.domain.model.Categoria;
+import manuel.pruebatecnica.domain.model.Empresa;
+import manuel.pruebatecnica.domain.model.Producto;
+import manuel.pruebatecnica.infrastructure.repository.RevokedTokenRepository;
+import manuel.pruebatecnica.security.JwtTokenUtil;
+import manuel.pruebatecnica.security.TokenRevocationService;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+final class BenchmarkFixtures {
+
+    static final String JWT_SECRET = "benchmarkSecretKey1234567890123456789012345";
+
+    private BenchmarkFixtures() {
+    }
+
+    static JwtTokenUtil jwtTokenUtil() {
+        JwtTokenUtil util = new JwtTokenUtil();
+        ReflectionTestUtils.setField(util, "jwtSecret", JWT_SECRET);
+        ReflectionTestUtils.setField(util, "jwtExpiration", 3600000L);
+        ReflectionTestUtils.setField(util, "verifiedCacheMaxSize", 10000);
+        ReflectionTestUtils.invokeMethod(util, "init");
+        return util;
+    }
+
+    // Backed by an empty repository, so only the in-memory revocation check is measured
+    static TokenRevocationService tokenRevocationService() {
+        TokenRevocationService service = new TokenRevocationService(Mockito.mock(RevokedTokenRepository.class));
+        ReflectionTestUtils.setField(service, "initialCapacity", 10000);
+        ReflectionTestUtils.invokeMethod(service, "init");
+        return service;
+    }
+
+    static List<Producto> productos(int count) {
+        Empresa empresa = empresa("900123456");
+        Categoria categoria = new Categoria();
+        categoria.setId(1L);
+        categoria.setNombre("General");
+
+        List<Producto> productos = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            productos.add(producto(i, empresa, categoria));
+        }
+        return productos;
+    }
+
+    static List<Empresa> empresas(int totalProductos, int productosPorEmpresa) {
+        Categoria categoria = new Categoria();
+        categoria.setId(1L);
+        categoria.setNombre("General");
+
+        int empresasCount = Math.max(1, totalProductos / productosPorEmpresa);
+        List<Empresa> empresas = new ArrayList<>(empresasCount);
+        long id = 0;
+        for (int e = 0; e < empresasCount; e++) {
+            Empresa empresa = empresa(String.valueOf(900000000 + e));
+            List<Producto> productos = new ArrayList<>(productosPorEmpresa);
+            for (int p = 0; p < productosPorEmpresa; p++) {
+                productos.add(producto(id++, empresa, categoria));
+            }
+            empresa.setProductos(productos);
+            empresas.add(empresa);
+        }
+        return empresas;
+    }
+
+    private static Empresa empresa(String nit) {
+        Empresa empresa = new Empresa();
+        empresa.setNit(nit);
+        empresa.setNombre("Empresa " + nit);
+        empresa.setDireccion("Calle 123 #45-67");
+        empresa.setTelefono("6011234567");
+        return empresa;
+    }
+
+    private static Producto producto(long id, Empresa empresa, Categoria categoria) {
+        Producto producto = new Producto();
+        producto.setId(id);
+        producto.setCodigo("PROD" + id);
+        producto.setNombre("Producto " + id);
+        producto.setCaracteristicas("Caracteristicas del producto " + id);
+        producto.setPrecio(BigDecimal.valueOf(1000 + id % 5000, 2));
+        producto.setMoneda("USD");
+        producto.setEmpresa(empresa);
+        producto.setCategorias(List.of(categoria));
+        return producto;
+    }
+}
@@ -0,0 +1,43 @@
+package manuel.pruebatecnica.benchmark;
+
+import manuel.pruebatecnica.domain.model.Empresa;
+import manuel.pruebatecnica.domain.model.Producto;
+import manuel.pruebatecnica.infrastructure.dto.EmpresaDTO;
+import manuel.pruebatecnica.infrastructure.dto.ProductoDTO;
+import manuel.pruebatecnica.infrastructure.mapper.EntityMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class EntityMapperBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int size;
+
+    private final EntityMapper entityMapper = new EntityMapper();
+    private List<Producto> productos;
+    private List<Empresa> empresas;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        productos = BenchmarkFixtures.productos(size);
+        empresas = BenchmarkFixtures.empresas(size, 100);
+    }
+
+    @Benchmark
+    public List<ProductoDTO> toProductoDTOList() {
+        return entityMapper.toProductoDTOList(productos);
+    }
+
+    @Benchmark
+    public List<EmpresaDTO> toEmpresaDTOList() {
+        return entityMapper.toEmpresaDTOList(empresas);
+    }
+}
@@ -0,0 +1,41 @@
+package manuel.pruebatecnica.benchmark;
+
+import manuel.pruebatecnica.security.JwtClaims;
+import manuel.pruebatecnica.security.JwtTokenUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtTokenUtilBenchmark {
+
+    private JwtTokenUtil jwtTokenUtil;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtTokenUtil = BenchmarkFixtures.jwtTokenUtil();
+        token = jwtTokenUtil.generateToken("admin@example.com", "ADMIN");
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtTokenUtil.generateToken("admin@example.com", "ADMIN");
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return jwtTokenUtil.validateToken(token);
+    }
+
+    @Benchmark
+    public Optional<JwtClaims> verifyToken() {
+        return jwtTokenUtil.verify(token);
+    }
+}
@@ -4,8 +4,10 @@ import lombok.ToString;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication(exclude={SecurityAutoConfiguration.class})
+@EnableScheduling
 public class PruebaTecnicaApplication {
 
     public static void main(String[] args) {
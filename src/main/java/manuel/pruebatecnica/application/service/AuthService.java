@@ -1,9 +1,11 @@
 package manuel.pruebatecnica.application.service;
 
 import lombok.RequiredArgsConstructor;
+import manuel.pruebatecnica.application.service.UserCredentialCache.UserCredential;
 import manuel.pruebatecnica.domain.model.Usuario;
 import manuel.pruebatecnica.infrastructure.repository.UsuarioRepository;
 import manuel.pruebatecnica.security.JwtTokenUtil;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
@@ -16,41 +18,30 @@ public class AuthService {
     private final UsuarioRepository usuarioRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtTokenUtil jwtTokenUtil;
+    private final UserCredentialCache credentialCache;
 
     public String login(String email, String password) {
-        Optional<Usuario> usuarioOpt = usuarioRepository.findByEmail(email);
-        
-        if (usuarioOpt.isEmpty()) {
-            throw new RuntimeException("Usuario no encontrado");
-        }
-        
-        Usuario usuario = usuarioOpt.get();
-        
-        if (!passwordEncoder.matches(password, usuario.getPassword())) {
-            throw new RuntimeException("Contraseña incorrecta");
-        }
+        Usuario usuario = authenticate(email, password);
         
         return jwtTokenUtil.generateToken(usuario.getEmail(), usuario.getRol().name());
     }
 
     public Usuario authenticate(String email, String password) {
-        Optional<Usuario> usuarioOpt = usuarioRepository.findByEmail(email);
-        
-        if (usuarioOpt.isEmpty()) {
-            throw new RuntimeException("Usuario no encontrado");
-        }
+        UserCredential credential = findCredential(email)
+                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
         
-        Usuario usuario = usuarioOpt.get();
-        
-        if (!passwordEncoder.matches(password, usuario.getPassword())) {
+        if (!passwordEncoder.matches(password, credential.passwordHash())) {
             throw new RuntimeException("Contraseña incorrecta");
         }
         
+        Usuario usuario = credential.toUsuario();
+        rehashIfNeeded(usuario, password);
+        
         return usuario;
     }
 
     public Usuario register(String email, String password, Usuario.Role role) {
-        if (usuarioRepository.existsByEmail(email)) {
+        if (credentialCache.get(email) != null) {
             throw new RuntimeException("El email ya está registrado");
         }
         
@@ -59,6 +50,33 @@ public class AuthService {
         usuario.setPassword(passwordEncoder.encode(password));
         usuario.setRol(role);
         
-        return usuarioRepository.save(usuario);
+        // The unique constraint on usuarios.email decides, no separate existence query
+        try {
+            Usuario saved = usuarioRepository.saveAndFlush(usuario);
+            credentialCache.invalidate(email);
+            return saved;
+        } catch (DataIntegrityViolationException e) {
+            throw new RuntimeException("El email ya está registrado");
+        }
+    }
+
+    private Optional<UserCredential> findCredential(String email) {
+        UserCredential cached = credentialCache.get(email);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        
+        Optional<UserCredential> loaded = usuarioRepository.findByEmail(email).map(UserCredential::from);
+        loaded.ifPresent(credentialCache::put);
+        return loaded;
+    }
+
+    // Stored hashes with a different BCrypt cost are re-encoded while the raw password is at hand
+    private void rehashIfNeeded(Usuario usuario, String password) {
+        if (passwordEncoder.upgradeEncoding(usuario.getPassword())) {
+            usuario.setPassword(passwordEncoder.encode(password));
+            usuarioRepository.updatePassword(usuario.getId(), usuario.getPassword());
+            credentialCache.invalidate(usuario.getEmail());
+        }
     }
 }
@@ -0,0 +1,66 @@
+package manuel.pruebatecnica.application.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import org.springframework.http.MediaType;
+
+/**
+ * Wire formats accepted by the catalog import and produced by the catalog export.
+ */
+public enum CatalogFormat {
+
+    CSV(new MediaType("text", "csv"), "csv"),
+    NDJSON(new MediaType("application", "x-ndjson"), "ndjson");
+
+    static final CsvMapper CSV_MAPPER = CsvMapper.builder()
+            .enable(CsvParser.Feature.TRIM_SPACES)
+            .enable(CsvParser.Feature.EMPTY_STRING_AS_NULL)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+
+    // Column order of exported files; imports read columns by header name
+    static final CsvSchema CSV_SCHEMA = CsvSchema.builder()
+            .addColumn("id")
+            .addColumn("codigo")
+            .addColumn("nombre")
+            .addColumn("precio")
+            .addColumn("moneda")
+            .addColumn("precioUsd")
+            .addColumn("caracteristicas")
+            .addColumn("empresaNit")
+            .addColumn("categoriaId")
+            .addColumn("version")
+            .build()
+            .withHeader();
+
+    private final MediaType mediaType;
+    private final String extension;
+
+    CatalogFormat(MediaType mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static CatalogFormat fromContentType(String contentType) {
+        return MediaType.parseMediaType(contentType).isCompatibleWith(CSV.mediaType) ? CSV : NDJSON;
+    }
+
+    public static CatalogFormat fromParameter(String value) {
+        for (CatalogFormat format : values()) {
+            if (format.extension.equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Formato no soportado: " + value);
+    }
+}
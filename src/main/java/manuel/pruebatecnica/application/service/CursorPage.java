@@ -0,0 +1,10 @@
+package manuel.pruebatecnica.application.service;
+
+import java.util.List;
+
+public record CursorPage<T>(List<T> items, String nextCursor) {
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
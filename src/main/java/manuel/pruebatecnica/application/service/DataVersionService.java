@@ -0,0 +1,135 @@
+package manuel.pruebatecnica.application.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import manuel.pruebatecnica.domain.model.DataVersion;
+import manuel.pruebatecnica.infrastructure.repository.DataVersionRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-aggregate version stamps used as ETags for the read endpoints. A write transaction
+ * only registers the bump; the data_versions row is incremented after the write commits, in
+ * its own short transaction, so writers never hold that row's lock for the length of their
+ * own transaction. Because the stamp moves only once the data is visible, a tag read before
+ * the data can be older than the data but never newer. Endpoints answer conditional
+ * requests from an in-memory mirror, so a 304 never touches the database: local writes
+ * advance it right after their bump, and other nodes' writes are picked up by the poll,
+ * so a node may keep answering 304 for at most one poll interval after a remote write.
+ */
+@Slf4j
+@Service
+public class DataVersionService {
+
+    public static final String PRODUCTOS = "productos";
+    public static final String EMPRESAS = "empresas";
+    public static final String EXCHANGE_RATES = "exchange_rates";
+
+    private static final List<String> AGGREGATES = List.of(PRODUCTOS, EMPRESAS, EXCHANGE_RATES);
+
+    private final DataVersionRepository dataVersionRepository;
+    private final TransactionTemplate bumpTransaction;
+    private final Map<String, Long> versions = new ConcurrentHashMap<>();
+
+    public DataVersionService(DataVersionRepository dataVersionRepository,
+                              PlatformTransactionManager transactionManager) {
+        this.dataVersionRepository = dataVersionRepository;
+        this.bumpTransaction = new TransactionTemplate(transactionManager);
+        this.bumpTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @PostConstruct
+    void init() {
+        for (String aggregate : AGGREGATES) {
+            if (!dataVersionRepository.existsById(aggregate)) {
+                try {
+                    dataVersionRepository.saveAndFlush(new DataVersion(aggregate, 0));
+                } catch (DataIntegrityViolationException e) {
+                    // Another node seeded it first
+                }
+            }
+            // Covers a bump lost when a node stopped between a commit and its bump
+            bump(aggregate);
+        }
+        refresh();
+        log.info("Loaded data versions {}", versions);
+    }
+
+    public long current(String aggregate) {
+        return versions.getOrDefault(aggregate, 0L);
+    }
+
+    /**
+     * Marks the aggregate as changed once the current transaction commits; nothing is
+     * written if it rolls back, and several bumps in one transaction increment once. Without
+     * a transaction the stamp moves immediately.
+     */
+    public void bump(String aggregate) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            increment(Set.of(aggregate));
+            return;
+        }
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingBump pending) {
+                pending.aggregates.add(aggregate);
+                return;
+            }
+        }
+        TransactionSynchronizationManager.registerSynchronization(new PendingBump(aggregate));
+    }
+
+    @Scheduled(fixedDelayString = "${data-versions.poll-interval-ms:2000}")
+    public void refresh() {
+        dataVersionRepository.findAll().forEach(row -> advance(row.getAggregate(), row.getVersion()));
+    }
+
+    private void increment(Set<String> aggregates) {
+        Map<String, Long> bumped = bumpTransaction.execute(status -> {
+            Map<String, Long> result = new HashMap<>();
+            for (String aggregate : aggregates) {
+                dataVersionRepository.increment(aggregate);
+                result.put(aggregate, dataVersionRepository.findVersion(aggregate));
+            }
+            return result;
+        });
+        if (bumped != null) {
+            bumped.forEach(this::advance);
+        }
+    }
+
+    private void advance(String aggregate, long version) {
+        versions.merge(aggregate, version, Math::max);
+    }
+
+    private class PendingBump implements TransactionSynchronization {
+
+        private final Set<String> aggregates = new LinkedHashSet<>();
+
+        PendingBump(String aggregate) {
+            aggregates.add(aggregate);
+        }
+
+        @Override
+        public void afterCommit() {
+            try {
+                increment(aggregates);
+            } catch (RuntimeException e) {
+                // The write is already committed; the next bump or the startup bump moves the stamp
+                log.warn("Could not bump data versions {} after commit", aggregates, e);
+            }
+        }
+    }
+}
@@ -1,5 +1,11 @@
 package manuel.pruebatecnica.application.service;
 
+import java.nio.file.Path;
+
 public interface EmailService {
-    void sendEmailWithAttachment(String to, String subject, String body, byte[] attachment, String attachmentName);
+    /**
+     * Sends, or queues for sending, a message with an optional attachment. The attachment is
+     * read before the call returns; the file stays with the caller.
+     */
+    void sendEmailWithAttachment(String to, String subject, String body, Path attachment, String attachmentName);
 }
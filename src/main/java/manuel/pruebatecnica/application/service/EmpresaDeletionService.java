@@ -0,0 +1,261 @@
+package manuel.pruebatecnica.application.service;
+
+import lombok.extern.slf4j.Slf4j;
+import manuel.pruebatecnica.domain.model.EmpresaDeletion;
+import manuel.pruebatecnica.infrastructure.exception.ConflictException;
+import manuel.pruebatecnica.infrastructure.repository.EmpresaDeletionRepository;
+import manuel.pruebatecnica.infrastructure.repository.EmpresaRepository;
+import manuel.pruebatecnica.infrastructure.repository.ProductoRepository;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Deletes a company and its products with set-based statements over chunks of product
+ * ids (join-table rows first, then the products), so no product is loaded into the
+ * persistence context. Small companies are deleted in the request transaction. Above
+ * empresas.delete.async-threshold products a persisted job is created and processed on a
+ * background thread, one chunk per transaction, so locks are held for one chunk at a time.
+ * <p>
+ * Every deleting transaction first locks the company row, which conflicts with the lock a
+ * product insert or move takes on the company it references: a product written meanwhile
+ * is either seen by the next chunk or fails once the company is gone, never between the
+ * last chunk and the company delete. Product writes for a company with an active job are
+ * rejected up front.
+ * <p>
+ * A job is processed by the node that holds its lease (empresas.delete.lease-ms), renewed
+ * with every chunk. Each node polls for active jobs nobody holds, so a job interrupted by a
+ * stopped node is resumed by whichever node claims it first; a chunk is idempotent.
+ */
+@Slf4j
+@Service
+public class EmpresaDeletionService implements DisposableBean {
+
+    private static final List<String> ACTIVE = List.of(EmpresaDeletion.PENDIENTE, EmpresaDeletion.EN_PROCESO);
+
+    private final EmpresaRepository empresaRepository;
+    private final ProductoRepository productoRepository;
+    private final EmpresaDeletionRepository deletionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final DataVersionService dataVersionService;
+    private final EmpresaStatsService empresaStatsService;
+    private final ProductoFacetService productoFacetService;
+    private final ExecutorService executor;
+    // Lease owner written into the jobs this instance claims
+    private final String nodo = UUID.randomUUID().toString();
+    private final Set<Long> queued = ConcurrentHashMap.newKeySet();
+
+    @Value("${empresas.delete.async-threshold:5000}")
+    private long asyncThreshold = 5000;
+
+    @Value("${empresas.delete.chunk-size:1000}")
+    private int chunkSize = 1000;
+
+    @Value("${empresas.delete.lease-ms:600000}")
+    private long leaseMs = 600000;
+
+    public EmpresaDeletionService(EmpresaRepository empresaRepository,
+                                  ProductoRepository productoRepository,
+                                  EmpresaDeletionRepository deletionRepository,
+                                  TransactionTemplate transactionTemplate,
+                                  DataVersionService dataVersionService,
+                                  EmpresaStatsService empresaStatsService,
+                                  ProductoFacetService productoFacetService) {
+        this.empresaRepository = empresaRepository;
+        this.productoRepository = productoRepository;
+        this.deletionRepository = deletionRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.dataVersionService = dataVersionService;
+        this.empresaStatsService = empresaStatsService;
+        this.productoFacetService = productoFacetService;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "empresa-deletion");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Deletes the company now and returns a completed (unsaved) job, or returns the job that
+     * will delete it in the background. A second request for a company already being
+     * deleted returns the existing job.
+     */
+    public EmpresaDeletion delete(String nit) {
+        Optional<EmpresaDeletion> running = deletionRepository.findFirstByEmpresaNitAndEstadoIn(nit, ACTIVE);
+        if (running.isPresent()) {
+            return running.get();
+        }
+
+        EmpresaDeletion deletion = transactionTemplate.execute(status -> {
+            if (empresaRepository.lockByNit(nit).isEmpty()) {
+                throw new RuntimeException("Empresa no encontrada");
+            }
+            // Requests for the same company queue on the lock; the later ones find the job here
+            Optional<EmpresaDeletion> started = deletionRepository.findFirstByEmpresaNitAndEstadoIn(nit, ACTIVE);
+            if (started.isPresent()) {
+                return started.get();
+            }
+            long productos = productoRepository.countByEmpresaNit(nit);
+            EmpresaDeletion created = new EmpresaDeletion();
+            created.setEmpresaNit(nit);
+            created.setTotalProductos(productos);
+            if (productos > asyncThreshold) {
+                return deletionRepository.save(created);
+            }
+            long deleted = 0;
+            for (int chunk = deleteChunk(nit); chunk > 0; chunk = deleteChunk(nit)) {
+                deleted += chunk;
+            }
+            deleteEmpresa(nit);
+            created.setProductosEliminados(deleted);
+            created.setEstado(EmpresaDeletion.COMPLETADA);
+            return created;
+        });
+
+        if (deletion.getId() != null) {
+            schedule(deletion.getId());
+            log.info("Company {} has {} products, deleting in background job {}", nit, deletion.getTotalProductos(), deletion.getId());
+        }
+        return deletion;
+    }
+
+    /**
+     * Rejects a product write that touches a company with an active deletion job.
+     */
+    public void checkNotDeleting(String... nits) {
+        Set<String> deleting = findDeleting(Arrays.stream(nits).filter(Objects::nonNull).toList());
+        if (!deleting.isEmpty()) {
+            throw new ConflictException("La empresa " + deleting.iterator().next() + " se está eliminando");
+        }
+    }
+
+    /**
+     * The given companies that have an active deletion job.
+     */
+    public Set<String> findDeleting(Collection<String> nits) {
+        return nits.isEmpty() ? Set.of() : deletionRepository.findEmpresaNits(nits, ACTIVE);
+    }
+
+    public Optional<EmpresaDeletion> findJob(Long id) {
+        return deletionRepository.findById(id);
+    }
+
+    /**
+     * Runs a job to completion if this node can claim it. Each chunk commits with its
+     * progress and a renewed lease; the company row goes in the transaction that finds no
+     * products left.
+     */
+    public void process(Long id) {
+        LocalDateTime now = LocalDateTime.now();
+        Integer claimed = transactionTemplate.execute(status -> deletionRepository.claim(id, ACTIVE, nodo, now, leaseFrom(now)));
+        if (claimed == null || claimed == 0) {
+            return;
+        }
+        String nit = deletionRepository.findById(id).map(EmpresaDeletion::getEmpresaNit).orElseThrow();
+        try {
+            boolean done = false;
+            while (!done) {
+                done = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                    LocalDateTime chunkStart = LocalDateTime.now();
+                    if (deletionRepository.renewLease(id, nodo, leaseFrom(chunkStart)) == 0) {
+                        throw new CancellationException();
+                    }
+                    empresaRepository.lockByNit(nit);
+                    int deleted = deleteChunk(nit);
+                    if (deleted > 0) {
+                        deletionRepository.addProgress(id, deleted, chunkStart);
+                        return false;
+                    }
+                    deleteEmpresa(nit);
+                    return true;
+                }));
+            }
+            setEstado(id, EmpresaDeletion.COMPLETADA, null);
+            log.info("Company {} deleted by job {}", nit, id);
+        } catch (CancellationException e) {
+            log.info("Deletion job {} for company {} was taken over by another node", id, nit);
+        } catch (RuntimeException e) {
+            log.error("Deletion job {} for company {} failed", id, nit, e);
+            String message = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+            setEstado(id, EmpresaDeletion.FALLIDA, message.length() > 500 ? message.substring(0, 500) : message);
+        }
+    }
+
+    /**
+     * Queues the active jobs nobody holds: new ones not picked up yet and those whose node
+     * stopped before finishing them.
+     */
+    @Scheduled(fixedDelayString = "${empresas.delete.resume-interval-ms:60000}")
+    public void resume() {
+        for (Long id : deletionRepository.findUnleasedIds(ACTIVE, LocalDateTime.now())) {
+            if (schedule(id)) {
+                log.info("Resuming deletion job {}", id);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    // Must run inside a transaction
+    private int deleteChunk(String nit) {
+        List<Long> ids = productoRepository.findIdsByEmpresaNit(nit, chunkSize);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        productoFacetService.recordRemoved(nit, ids);
+        productoRepository.deleteCategoriaLinks(ids);
+        productoRepository.deleteOrdenLinks(ids);
+        int deleted = productoRepository.bulkDeleteByIds(ids);
+        dataVersionService.bump(DataVersionService.PRODUCTOS);
+        return deleted;
+    }
+
+    private void deleteEmpresa(String nit) {
+        empresaRepository.deleteById(nit);
+        dataVersionService.bump(DataVersionService.EMPRESAS);
+        // The recompute finds the company gone and drops its stats row
+        empresaStatsService.recordChange(nit);
+    }
+
+    private boolean schedule(Long id) {
+        if (!queued.add(id)) {
+            return false;
+        }
+        executor.execute(() -> {
+            try {
+                process(id);
+            } finally {
+                queued.remove(id);
+            }
+        });
+        return true;
+    }
+
+    private LocalDateTime leaseFrom(LocalDateTime now) {
+        return now.plus(Duration.ofMillis(leaseMs));
+    }
+
+    private void setEstado(Long id, String estado, String error) {
+        transactionTemplate.executeWithoutResult(status ->
+                deletionRepository.updateEstado(id, estado, error, LocalDateTime.now()));
+    }
+}
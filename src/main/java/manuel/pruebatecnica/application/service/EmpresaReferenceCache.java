@@ -0,0 +1,93 @@
+package manuel.pruebatecnica.application.service;
+
+import manuel.pruebatecnica.domain.model.Empresa;
+import manuel.pruebatecnica.infrastructure.cache.BoundedTtlCache;
+import manuel.pruebatecnica.infrastructure.repository.EmpresaRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Read-through cache of company reference data (no products) keyed by NIT, used to
+ * validate and resolve the NIT of product writes without a query. Unknown NITs are cached
+ * too. Each entry remembers the companies data version it was read at and is reloaded once
+ * that version moves, so writes on other nodes are picked up on the next version refresh;
+ * local writes also invalidate their NIT after commit.
+ */
+@Component
+public class EmpresaReferenceCache {
+
+    private final EmpresaRepository empresaRepository;
+    private final DataVersionService dataVersionService;
+    private final BoundedTtlCache<String, Cached> cache;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public EmpresaReferenceCache(EmpresaRepository empresaRepository,
+                                 DataVersionService dataVersionService,
+                                 @Value("${empresas.reference-cache.max-size:10000}") int maxSize,
+                                 @Value("${empresas.reference-cache.ttl-ms:600000}") long ttlMillis) {
+        this.empresaRepository = empresaRepository;
+        this.dataVersionService = dataVersionService;
+        this.cache = new BoundedTtlCache<>(maxSize, ttlMillis);
+    }
+
+    public record EmpresaReference(String nit, String nombre, String direccion, String telefono, Long version) {
+
+        public static EmpresaReference from(Empresa empresa) {
+            return new EmpresaReference(empresa.getNit(), empresa.getNombre(), empresa.getDireccion(),
+                    empresa.getTelefono(), empresa.getVersion());
+        }
+    }
+
+    public record Stats(long hits, long misses, int size) {
+    }
+
+    private record Cached(Optional<EmpresaReference> reference, long version) {
+    }
+
+    public Optional<EmpresaReference> find(String nit) {
+        if (nit == null) {
+            return Optional.empty();
+        }
+        // Read the version before the row so an entry can only be older than its stamp
+        long version = dataVersionService.current(DataVersionService.EMPRESAS);
+        Cached cached = cache.get(nit);
+        if (cached != null && cached.version() >= version) {
+            hits.increment();
+            return cached.reference();
+        }
+        misses.increment();
+        Optional<EmpresaReference> reference = empresaRepository.findById(nit).map(EmpresaReference::from);
+        cache.put(nit, new Cached(reference, version));
+        return reference;
+    }
+
+    public boolean exists(String nit) {
+        return find(nit).isPresent();
+    }
+
+    /**
+     * Drops the NIT now and again once the current transaction commits, so a read racing
+     * the write cannot keep the old row.
+     */
+    public void invalidate(String nit) {
+        cache.invalidate(nit);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.invalidate(nit);
+                }
+            });
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), cache.size());
+    }
+}
@@ -2,36 +2,95 @@ package manuel.pruebatecnica.application.service;
 
 import lombok.RequiredArgsConstructor;
 import manuel.pruebatecnica.domain.model.Empresa;
+import manuel.pruebatecnica.domain.model.EmpresaDeletion;
+import manuel.pruebatecnica.domain.model.Producto;
+import manuel.pruebatecnica.infrastructure.dto.EmpresaPatchDTO;
+import manuel.pruebatecnica.infrastructure.exception.ConflictException;
+import manuel.pruebatecnica.infrastructure.exception.PreconditionFailedException;
 import manuel.pruebatecnica.infrastructure.repository.EmpresaRepository;
+import manuel.pruebatecnica.infrastructure.repository.EmpresaSummary;
+import manuel.pruebatecnica.infrastructure.repository.ProductoRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
 public class EmpresaService {
 
+    private static final int NITS_PER_QUERY = 50;
+
     private final EmpresaRepository empresaRepository;
+    private final ProductoRepository productoRepository;
+    private final DataVersionService dataVersionService;
+    private final EmpresaDeletionService empresaDeletionService;
+    private final EmpresaReferenceCache empresaReferenceCache;
+
+    @Value("${empresas.expand.max-productos:100}")
+    private int maxProductosPerEmpresa = 100;
 
     public List<Empresa> findAll() {
         return empresaRepository.findAll();
     }
 
+    public List<EmpresaSummary> findSummaries() {
+        return empresaRepository.findAllSummaries();
+    }
+
+    /**
+     * First products of each company, at most empresas.expand.max-productos per company,
+     * with their categories. Companies are read in chunks, each with one window query for the
+     * products and one for their categories, regardless of how many products a company has.
+     */
+    @Transactional(readOnly = true)
+    public Map<String, List<Producto>> findProductosByEmpresa(List<String> nits) {
+        Map<String, List<Producto>> productos = new LinkedHashMap<>();
+        nits.forEach(nit -> productos.put(nit, new ArrayList<>()));
+        for (int from = 0; from < nits.size(); from += NITS_PER_QUERY) {
+            List<String> chunk = nits.subList(from, Math.min(from + NITS_PER_QUERY, nits.size()));
+            List<Producto> page = productoRepository.findFirstByEmpresaNits(chunk, maxProductosPerEmpresa);
+            if (!page.isEmpty()) {
+                productoRepository.fetchCategorias(page);
+            }
+            page.forEach(producto -> productos.get(producto.getEmpresa().getNit()).add(producto));
+        }
+        return productos;
+    }
+
     public Optional<Empresa> findByNit(String nit) {
         return empresaRepository.findById(nit);
     }
 
+    public EmpresaReferenceCache.Stats referenceCacheStats() {
+        return empresaReferenceCache.stats();
+    }
+
+    @Transactional
     public Empresa save(Empresa empresa) {
         if (empresaRepository.existsByNombre(empresa.getNombre())) {
             throw new RuntimeException("Ya existe una empresa con ese nombre");
         }
-        return empresaRepository.save(empresa);
+        Empresa saved = empresaRepository.save(empresa);
+        empresaReferenceCache.invalidate(saved.getNit());
+        dataVersionService.bump(DataVersionService.EMPRESAS);
+        return saved;
     }
 
     public Empresa update(String nit, Empresa empresaDetails) {
+        return update(nit, empresaDetails, null);
+    }
+
+    @Transactional
+    public Empresa update(String nit, Empresa empresaDetails, Long expectedVersion) {
         Empresa empresa = empresaRepository.findById(nit)
                 .orElseThrow(() -> new RuntimeException("Empresa no encontrada"));
+        checkVersion(empresa.getVersion(), expectedVersion);
         
         if (!empresa.getNombre().equals(empresaDetails.getNombre()) && 
             empresaRepository.existsByNombre(empresaDetails.getNombre())) {
@@ -42,13 +101,57 @@ public class EmpresaService {
         empresa.setDireccion(empresaDetails.getDireccion());
         empresa.setTelefono(empresaDetails.getTelefono());
         
-        return empresaRepository.save(empresa);
+        Empresa saved = empresaRepository.save(empresa);
+        empresaReferenceCache.invalidate(nit);
+        dataVersionService.bump(DataVersionService.EMPRESAS);
+        return saved;
+    }
+
+    /**
+     * Applies only the supplied fields; the version check catches concurrent edits.
+     */
+    @Transactional
+    public Empresa patch(String nit, EmpresaPatchDTO patch, Long expectedVersion) {
+        Empresa empresa = empresaRepository.findById(nit)
+                .orElseThrow(() -> new RuntimeException("Empresa no encontrada"));
+        checkVersion(empresa.getVersion(), expectedVersion);
+
+        if (patch.getNombre() != null && !patch.getNombre().equals(empresa.getNombre())) {
+            if (empresaRepository.existsByNombre(patch.getNombre())) {
+                throw new ConflictException("Ya existe una empresa con ese nombre");
+            }
+            empresa.setNombre(patch.getNombre());
+        }
+        if (patch.getDireccion() != null) {
+            empresa.setDireccion(patch.getDireccion());
+        }
+        if (patch.getTelefono() != null) {
+            empresa.setTelefono(patch.getTelefono());
+        }
+
+        Empresa saved = empresaRepository.saveAndFlush(empresa);
+        empresaReferenceCache.invalidate(nit);
+        dataVersionService.bump(DataVersionService.EMPRESAS);
+        return saved;
     }
 
-    public void deleteByNit(String nit) {
-        if (!empresaRepository.existsById(nit)) {
-            throw new RuntimeException("Empresa no encontrada");
+    private static void checkVersion(Long currentVersion, Long expectedVersion) {
+        if (expectedVersion != null && !expectedVersion.equals(currentVersion)) {
+            throw new PreconditionFailedException("La empresa fue modificada por otra operación");
         }
-        empresaRepository.deleteById(nit);
+    }
+
+    /**
+     * Not transactional: large companies are deleted by a background job that must see the
+     * job row committed.
+     */
+    public EmpresaDeletion deleteByNit(String nit) {
+        EmpresaDeletion deletion = empresaDeletionService.delete(nit);
+        empresaReferenceCache.invalidate(nit);
+        return deletion;
+    }
+
+    public Optional<EmpresaDeletion> findDeletion(Long id) {
+        return empresaDeletionService.findJob(id);
     }
 }
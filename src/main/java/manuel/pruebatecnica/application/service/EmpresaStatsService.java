@@ -0,0 +1,152 @@
+package manuel.pruebatecnica.application.service;
+
+import lombok.extern.slf4j.Slf4j;
+import manuel.pruebatecnica.domain.model.EmpresaStats;
+import manuel.pruebatecnica.domain.model.EmpresaStatsChange;
+import manuel.pruebatecnica.infrastructure.repository.EmpresaRepository;
+import manuel.pruebatecnica.infrastructure.repository.EmpresaStatsChangeRepository;
+import manuel.pruebatecnica.infrastructure.repository.EmpresaStatsRepository;
+import manuel.pruebatecnica.infrastructure.repository.ProductoRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Per-company inventory stats kept in empresa_stats. Product writes queue the affected
+ * NITs in empresa_stats_changes within their own transaction (an insert, so writers of the
+ * same company never contend on a row); a scheduled worker drains the queue and recomputes
+ * only those companies with grouped queries over the (empresa_nit, id) index. A write that
+ * moves a product queues both the previous and the new company. A nightly reconciliation
+ * queues every company. Reads are a single-row lookup.
+ */
+@Slf4j
+@Service
+public class EmpresaStatsService {
+
+    private final EmpresaStatsRepository statsRepository;
+    private final EmpresaStatsChangeRepository changeRepository;
+    private final EmpresaRepository empresaRepository;
+    private final ProductoRepository productoRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public EmpresaStatsService(EmpresaStatsRepository statsRepository,
+                               EmpresaStatsChangeRepository changeRepository,
+                               EmpresaRepository empresaRepository,
+                               ProductoRepository productoRepository,
+                               TransactionTemplate transactionTemplate) {
+        this.statsRepository = statsRepository;
+        this.changeRepository = changeRepository;
+        this.empresaRepository = empresaRepository;
+        this.productoRepository = productoRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    public record Snapshot(EmpresaStats stats, boolean pendiente) {
+    }
+
+    /**
+     * Queues the given companies for a recompute; call it inside the product write's
+     * transaction so the change and the queue entry commit together.
+     */
+    public void recordChange(String... nits) {
+        recordChange(Arrays.asList(nits));
+    }
+
+    public void recordChange(Collection<String> nits) {
+        Set<String> distinct = new LinkedHashSet<>(nits);
+        distinct.remove(null);
+        distinct.forEach(nit -> changeRepository.save(new EmpresaStatsChange(nit)));
+    }
+
+    /**
+     * Stored stats of the company, computed on the spot only the first time it is asked for.
+     * pendiente tells whether product changes are still waiting in the queue.
+     */
+    public Optional<Snapshot> find(String nit) {
+        Optional<EmpresaStats> stats = statsRepository.findWithDetailsByEmpresaNit(nit);
+        if (stats.isEmpty()) {
+            if (!empresaRepository.existsById(nit)) {
+                return Optional.empty();
+            }
+            transactionTemplate.executeWithoutResult(status -> recompute(nit));
+            stats = statsRepository.findWithDetailsByEmpresaNit(nit);
+        }
+        return stats.map(found -> new Snapshot(found, changeRepository.existsByEmpresaNit(nit)));
+    }
+
+    @Scheduled(fixedDelayString = "${empresas.stats.refresh-interval-ms:2000}")
+    public void drain() {
+        List<EmpresaStatsChange> changes = changeRepository.findTop500ByOrderByIdAsc();
+        while (!changes.isEmpty()) {
+            Set<String> nits = new LinkedHashSet<>();
+            changes.forEach(change -> nits.add(change.getEmpresaNit()));
+            for (String nit : nits) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> recompute(nit));
+                } catch (DataAccessException e) {
+                    // Another node recomputed the same company concurrently; its row is as fresh
+                    log.debug("Stats recompute of company {} skipped: {}", nit, e.getMessage());
+                }
+            }
+            // Only the entries read: changes queued meanwhile are picked up by the next round
+            List<EmpresaStatsChange> processed = changes;
+            transactionTemplate.executeWithoutResult(status -> changeRepository.deleteAllInBatch(processed));
+            log.debug("Stats recomputed for {} companies", nits.size());
+            changes = changeRepository.findTop500ByOrderByIdAsc();
+        }
+    }
+
+    @Scheduled(cron = "${empresas.stats.reconcile-cron:0 30 3 * * *}")
+    public void reconcile() {
+        int queued = Objects.requireNonNullElse(transactionTemplate.execute(status -> {
+            statsRepository.findOrphanNits().forEach(statsRepository::deleteById);
+            return changeRepository.enqueueAll();
+        }), 0);
+        log.info("Company stats reconciliation queued {} companies", queued);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        if (statsRepository.count() == 0) {
+            reconcile();
+        }
+    }
+
+    // Must run inside a transaction
+    private void recompute(String nit) {
+        if (!empresaRepository.existsById(nit)) {
+            statsRepository.findById(nit).ifPresent(statsRepository::delete);
+            return;
+        }
+        EmpresaStats stats = statsRepository.findById(nit).orElseGet(() -> {
+            EmpresaStats created = new EmpresaStats();
+            created.setEmpresaNit(nit);
+            return created;
+        });
+        stats.setProductos(productoRepository.countByEmpresaNit(nit));
+        stats.getValorPorMoneda().clear();
+        for (Object[] row : productoRepository.sumPrecioByMonedaForEmpresa(nit)) {
+            stats.getValorPorMoneda().put((String) row[0], (BigDecimal) row[1]);
+        }
+        stats.getProductosPorCategoria().clear();
+        for (Object[] row : productoRepository.countByCategoriaForEmpresa(nit)) {
+            stats.getProductosPorCategoria().put((Long) row[0], (Long) row[1]);
+        }
+        stats.setRevision(stats.getRevision() + 1);
+        stats.setFechaActualizacion(LocalDateTime.now());
+        statsRepository.save(stats);
+    }
+}
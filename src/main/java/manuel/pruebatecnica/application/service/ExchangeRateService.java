@@ -0,0 +1,276 @@
+package manuel.pruebatecnica.application.service;
+
+import lombok.extern.slf4j.Slf4j;
+import manuel.pruebatecnica.domain.model.ExchangeRate;
+import manuel.pruebatecnica.infrastructure.repository.ExchangeRateRepository;
+import manuel.pruebatecnica.infrastructure.repository.ProductoRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Exchange-rate table (value of one unit of each currency in USD) and the normalized price
+ * column derived from it. The table is stored in exchange_rates, seeded from the
+ * configuration with the currencies it does not have yet, and mirrored in memory; a change
+ * bumps the exchange_rates data version and every other node reloads the table on its next
+ * poll. Writes set productos.precio_usd from the mirrored table. Replacing a rate
+ * recomputes the affected rows in id-range batches, each in its own transaction that holds
+ * the rate's row lock and touches only rows whose stored value differs. A node that picks
+ * up a change runs the same recompute, which also rewrites any row it converted with the
+ * old rate before it noticed.
+ */
+@Slf4j
+@Service
+public class ExchangeRateService {
+
+    public static final String BASE_CURRENCY = "USD";
+    public static final int SCALE = 4;
+
+    private static final Pattern CURRENCY_CODE = Pattern.compile("[A-Z]{3}");
+
+    private final ProductoRepository productoRepository;
+    private final ExchangeRateRepository exchangeRateRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final DataVersionService dataVersionService;
+    // Resolved lazily: the facet service itself converts request bounds with this one
+    private final ObjectProvider<ProductoFacetService> productoFacetService;
+    private final Map<String, BigDecimal> configuredRates;
+
+    @Value("${exchange-rates.recompute-batch-size:1000}")
+    private int recomputeBatchSize = 1000;
+
+    private volatile Map<String, BigDecimal> rates;
+    // exchange_rates data version the mirror was loaded at; -1 until reconcile() loads it
+    private volatile long loadedVersion = -1;
+
+    public ExchangeRateService(ProductoRepository productoRepository,
+                               ExchangeRateRepository exchangeRateRepository,
+                               TransactionTemplate transactionTemplate,
+                               DataVersionService dataVersionService,
+                               ObjectProvider<ProductoFacetService> productoFacetService,
+                               @Value("${exchange-rates.rates:}") String initialRates) {
+        this.productoRepository = productoRepository;
+        this.exchangeRateRepository = exchangeRateRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.dataVersionService = dataVersionService;
+        this.productoFacetService = productoFacetService;
+        this.configuredRates = merge(Map.of(BASE_CURRENCY, BigDecimal.ONE), parse(initialRates));
+        this.rates = configuredRates;
+    }
+
+    public Map<String, BigDecimal> rates() {
+        return rates;
+    }
+
+    public boolean supports(String moneda) {
+        return moneda != null && rates.containsKey(moneda);
+    }
+
+    /**
+     * Converts an amount to USD with the current rate, rounded to the stored scale.
+     */
+    public BigDecimal toBase(BigDecimal amount, String moneda) {
+        if (amount == null) {
+            return null;
+        }
+        BigDecimal rate = moneda == null ? null : rates.get(moneda);
+        if (rate == null) {
+            throw new IllegalArgumentException("Moneda no soportada: " + moneda);
+        }
+        return amount.multiply(rate).setScale(SCALE, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Adds or replaces the given rates in the stored table and recomputes the normalized
+     * price of the products in the currencies whose rate changed. The new table is
+     * published before the recompute so concurrent writes already use it. Returns the
+     * number of rows rewritten.
+     */
+    public synchronized int updateRates(Map<String, BigDecimal> newRates) {
+        Map<String, BigDecimal> current = reload();
+        Map<String, BigDecimal> updated = merge(current, newRates);
+        List<String> changed = changed(current, updated);
+        transactionTemplate.executeWithoutResult(status -> {
+            changed.forEach(moneda -> exchangeRateRepository.save(new ExchangeRate(moneda, updated.get(moneda))));
+            dataVersionService.bump(DataVersionService.EXCHANGE_RATES);
+        });
+        rates = updated;
+
+        int rewritten = 0;
+        for (String moneda : changed) {
+            rewritten += recompute(moneda);
+        }
+        log.info("Exchange rates updated {}, {} product prices recomputed", newRates.keySet(), rewritten);
+        return rewritten;
+    }
+
+    /**
+     * Seeds the stored table with the configured currencies it lacks, loads it and brings
+     * the stored column in line with it after a restart; rows that already match are not
+     * written.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcile() {
+        seed();
+        synchronized (this) {
+            reload();
+        }
+        int rewritten = 0;
+        for (String moneda : rates.keySet()) {
+            rewritten += recompute(moneda);
+        }
+        long unconverted = productoRepository.countByPrecioUsdIsNull();
+        if (rewritten > 0 || unconverted > 0) {
+            log.info("Normalized prices reconciled: {} rewritten, {} products in unsupported currencies", rewritten, unconverted);
+        }
+    }
+
+    /**
+     * Picks up rates changed through another node once the polled data version moves.
+     */
+    @Scheduled(fixedDelayString = "${exchange-rates.poll-interval-ms:2000}")
+    public void refresh() {
+        long loaded = loadedVersion;
+        if (loaded < 0 || dataVersionService.current(DataVersionService.EXCHANGE_RATES) <= loaded) {
+            return;
+        }
+        List<String> changed;
+        synchronized (this) {
+            Map<String, BigDecimal> previous = rates;
+            changed = changed(previous, reload());
+        }
+        int rewritten = 0;
+        for (String moneda : changed) {
+            rewritten += recompute(moneda);
+        }
+        if (!changed.isEmpty()) {
+            log.info("Exchange rates reloaded {}, {} product prices recomputed", changed, rewritten);
+        }
+    }
+
+    private void seed() {
+        configuredRates.forEach((moneda, rate) -> {
+            if (BASE_CURRENCY.equals(moneda) || exchangeRateRepository.existsById(moneda)) {
+                return;
+            }
+            try {
+                exchangeRateRepository.saveAndFlush(new ExchangeRate(moneda, rate));
+            } catch (DataIntegrityViolationException e) {
+                // Another node seeded it first
+            }
+        });
+    }
+
+    // Replaces the mirror with the stored table and returns it; the version is read first so
+    // a change committed meanwhile is loaded again on the next poll
+    private Map<String, BigDecimal> reload() {
+        long version = dataVersionService.current(DataVersionService.EXCHANGE_RATES);
+        Map<String, BigDecimal> stored = new HashMap<>();
+        exchangeRateRepository.findAll().forEach(rate -> stored.put(rate.getMoneda(), rate.getTasa()));
+        rates = merge(Map.of(BASE_CURRENCY, BigDecimal.ONE), stored);
+        loadedVersion = version;
+        return rates;
+    }
+
+    private int recompute(String moneda) {
+        Long minId = productoRepository.findMinIdByMoneda(moneda);
+        Long maxId = productoRepository.findMaxIdByMoneda(moneda);
+        if (minId == null) {
+            return 0;
+        }
+        int rewritten = 0;
+        for (long from = minId - 1; from < maxId; from += recomputeBatchSize) {
+            long fromId = from;
+            long toId = Math.min(from + recomputeBatchSize, maxId);
+            Integer count = transactionTemplate.execute(status -> {
+                BigDecimal rate = lockRate(moneda);
+                if (rate == null) {
+                    return 0;
+                }
+                List<Object[]> rows = productoRepository.findPrecioUsdToRecompute(moneda, rate, fromId, toId);
+                if (rows.isEmpty()) {
+                    return 0;
+                }
+                List<Long> ids = new ArrayList<>();
+                List<BigDecimal> before = new ArrayList<>();
+                List<BigDecimal> after = new ArrayList<>();
+                for (Object[] row : rows) {
+                    ids.add(((Number) row[0]).longValue());
+                    before.add((BigDecimal) row[1]);
+                    after.add((BigDecimal) row[2]);
+                }
+                int updated = productoRepository.recomputePrecioUsd(rate, ids);
+                productoFacetService.getObject().recordPrecioChanges(before, after);
+                dataVersionService.bump(DataVersionService.PRODUCTOS);
+                return updated;
+            });
+            rewritten += count == null ? 0 : count;
+        }
+        return rewritten;
+    }
+
+    // Stored rate under its row lock; the base currency is fixed and has no row
+    private BigDecimal lockRate(String moneda) {
+        if (BASE_CURRENCY.equals(moneda)) {
+            return BigDecimal.ONE;
+        }
+        return exchangeRateRepository.lockByMoneda(moneda).map(ExchangeRate::getTasa).orElse(null);
+    }
+
+    private static List<String> changed(Map<String, BigDecimal> before, Map<String, BigDecimal> after) {
+        List<String> changed = new ArrayList<>();
+        after.forEach((moneda, rate) -> {
+            BigDecimal previous = before.get(moneda);
+            if (previous == null || previous.compareTo(rate) != 0) {
+                changed.add(moneda);
+            }
+        });
+        return changed;
+    }
+
+    private static Map<String, BigDecimal> merge(Map<String, BigDecimal> current, Map<String, BigDecimal> changes) {
+        Map<String, BigDecimal> merged = new HashMap<>(current);
+        changes.forEach((moneda, rate) -> {
+            if (moneda == null || !CURRENCY_CODE.matcher(moneda).matches()) {
+                throw new IllegalArgumentException("Código de moneda inválido: " + moneda);
+            }
+            if (rate == null || rate.signum() <= 0) {
+                throw new IllegalArgumentException("La tasa de " + moneda + " debe ser mayor a cero");
+            }
+            if (BASE_CURRENCY.equals(moneda) && rate.compareTo(BigDecimal.ONE) != 0) {
+                throw new IllegalArgumentException("La tasa de " + BASE_CURRENCY + " debe ser 1");
+            }
+            merged.put(moneda, rate);
+        });
+        return Map.copyOf(merged);
+    }
+
+    // "EUR=1.08,COP=0.00025"
+    private static Map<String, BigDecimal> parse(String value) {
+        Map<String, BigDecimal> parsed = new HashMap<>();
+        if (value == null || value.isBlank()) {
+            return parsed;
+        }
+        for (String pair : value.split(",")) {
+            String[] parts = pair.trim().split("=", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Tasa de cambio mal configurada: " + pair);
+            }
+            parsed.put(parts[0].trim(), new BigDecimal(parts[1].trim()));
+        }
+        return parsed;
+    }
+}
@@ -0,0 +1,330 @@
+package manuel.pruebatecnica.application.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Generated reports on local disk, named by the SHA-256 of what they were generated from,
+ * so an entry never goes stale: changed data means a different key. Entries older than
+ * reports.cache.max-age-ms are dropped, and once the directory grows past
+ * reports.cache.max-size-mb the least recently used go first. Concurrent requests for a
+ * key that is being generated wait for that generation instead of starting another.
+ * Callers that need a file of their own get a hard link to the entry, which costs no copy
+ * and survives the entry's eviction.
+ */
+@Slf4j
+@Component
+public class InventoryReportCache {
+
+    private static final String EXTENSION = ".pdf";
+    private static final String TEMP_EXTENSION = ".tmp";
+
+    @FunctionalInterface
+    public interface ReportWriter {
+        void write(OutputStream output) throws IOException;
+    }
+
+    public record Stats(long hits, long misses, int entries, long bytes) {
+    }
+
+    private record Entry(long size, long created, AtomicLong lastUsed) {
+    }
+
+    private final Path directory;
+    private final long maxBytes;
+    private final long maxAgeMillis;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public InventoryReportCache(@Value("${reports.cache.dir:${java.io.tmpdir}/inventory-report-cache}") Path directory,
+                                @Value("${reports.cache.max-size-mb:1024}") long maxSizeMb,
+                                @Value("${reports.cache.max-age-ms:86400000}") long maxAgeMillis) {
+        this.directory = directory;
+        this.maxBytes = maxSizeMb * 1024 * 1024;
+        this.maxAgeMillis = maxAgeMillis;
+        load();
+    }
+
+    public static String key(List<String> parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : parts) {
+                digest.update(part.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * A file of the caller's own (to move or delete) with the report for key, generated by
+     * writer only when the cache does not have it.
+     */
+    public Path copyOf(String key, ReportWriter writer) {
+        while (true) {
+            Path cached = getOrGenerate(key, writer, null);
+            Path copy = directory.resolve(UUID.randomUUID() + TEMP_EXTENSION);
+            try {
+                link(cached, copy);
+                return copy;
+            } catch (NoSuchFileException e) {
+                // Evicted between lookup and link
+                forget(key);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Writes the report for key to output: from disk when cached, otherwise while it is
+     * generated, so the first requester does not wait for the whole file.
+     */
+    public void streamTo(String key, ReportWriter writer, OutputStream output) throws IOException {
+        while (true) {
+            Path cached = getOrGenerate(key, writer, output);
+            if (cached == null) {
+                return;
+            }
+            try (InputStream input = Files.newInputStream(cached)) {
+                // Once open, the content stays readable even if the entry is evicted meanwhile
+                input.transferTo(output);
+                return;
+            } catch (NoSuchFileException e) {
+                forget(key);
+            }
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), entries.size(), totalBytes.get());
+    }
+
+    @Scheduled(fixedDelayString = "${reports.cache.sweep-interval-ms:600000}")
+    public void evictExpired() {
+        long oldest = System.currentTimeMillis() - maxAgeMillis;
+        entries.forEach((key, entry) -> {
+            if (entry.created() < oldest) {
+                remove(key, entry);
+            }
+        });
+    }
+
+    // Returns the cached file, or null when tee received the report while it was generated
+    private Path getOrGenerate(String key, ReportWriter writer, OutputStream tee) {
+        while (true) {
+            Path cached = lookup(key);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+            CompletableFuture<Path> generation = new CompletableFuture<>();
+            CompletableFuture<Path> running = inFlight.putIfAbsent(key, generation);
+            if (running != null) {
+                try {
+                    return running.join();
+                } catch (CompletionException | CancellationException e) {
+                    // That generation failed; try again, possibly generating here
+                    continue;
+                }
+            }
+            try {
+                Path raced = lookup(key);
+                if (raced != null) {
+                    // Another generation finished between the lookup above and putIfAbsent
+                    generation.complete(raced);
+                    hits.increment();
+                    return raced;
+                }
+                Path generated = generate(key, writer, tee);
+                generation.complete(generated);
+                misses.increment();
+                return tee == null ? generated : null;
+            } catch (RuntimeException e) {
+                generation.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(key, generation);
+            }
+        }
+    }
+
+    private Path generate(String key, ReportWriter writer, OutputStream tee) {
+        Path temp = directory.resolve(UUID.randomUUID() + TEMP_EXTENSION);
+        try {
+            Files.createDirectories(directory);
+            try (OutputStream file = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                writer.write(tee == null ? file : new TeeOutputStream(file, tee));
+            }
+            Path target = directory.resolve(key + EXTENSION);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            long size = Files.size(target);
+            long now = System.currentTimeMillis();
+            Entry previous = entries.put(key, new Entry(size, now, new AtomicLong(now)));
+            totalBytes.addAndGet(size - (previous == null ? 0 : previous.size()));
+            evictOverBudget();
+            return target;
+        } catch (IOException e) {
+            deleteQuietly(temp);
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            deleteQuietly(temp);
+            throw e;
+        }
+    }
+
+    private Path lookup(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (entry.created() < now - maxAgeMillis) {
+            remove(key, entry);
+            return null;
+        }
+        entry.lastUsed().set(now);
+        return directory.resolve(key + EXTENSION);
+    }
+
+    private void forget(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            remove(key, entry);
+        }
+    }
+
+    private synchronized void evictOverBudget() {
+        if (totalBytes.get() <= maxBytes) {
+            return;
+        }
+        List<Map.Entry<String, Entry>> byLastUse = new ArrayList<>(entries.entrySet());
+        byLastUse.sort(Comparator.comparingLong(candidate -> candidate.getValue().lastUsed().get()));
+        long target = maxBytes * 9 / 10;
+        for (Map.Entry<String, Entry> candidate : byLastUse) {
+            if (totalBytes.get() <= target) {
+                break;
+            }
+            remove(candidate.getKey(), candidate.getValue());
+        }
+    }
+
+    private void remove(String key, Entry entry) {
+        if (entries.remove(key, entry)) {
+            totalBytes.addAndGet(-entry.size());
+            deleteQuietly(directory.resolve(key + EXTENSION));
+        }
+    }
+
+    // Indexes the reports left by a previous run and clears half-written files
+    private void load() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                String name = file.getFileName().toString();
+                try {
+                    if (name.endsWith(EXTENSION)) {
+                        long modified = Files.getLastModifiedTime(file).toMillis();
+                        long size = Files.size(file);
+                        entries.put(name.substring(0, name.length() - EXTENSION.length()),
+                                new Entry(size, modified, new AtomicLong(modified)));
+                        totalBytes.addAndGet(size);
+                    } else if (name.endsWith(TEMP_EXTENSION)) {
+                        Files.deleteIfExists(file);
+                    }
+                } catch (IOException e) {
+                    log.warn("Skipping report cache file {}", file, e);
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Could not read report cache directory {}", directory, e);
+        }
+        log.info("Report cache at {} holds {} reports ({} bytes)", directory, entries.size(), totalBytes.get());
+        evictExpired();
+        evictOverBudget();
+    }
+
+    private static void link(Path source, Path target) throws IOException {
+        try {
+            Files.createLink(target, source);
+        } catch (NoSuchFileException e) {
+            throw e;
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            // No hard links here (or the directory spans file systems)
+            Files.copy(source, target);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete report cache file {}", file, e);
+        }
+    }
+
+    private static final class TeeOutputStream extends OutputStream {
+
+        private final OutputStream first;
+        private final OutputStream second;
+
+        TeeOutputStream(OutputStream first, OutputStream second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            first.write(b);
+            second.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            first.write(b, off, len);
+            second.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            first.flush();
+            second.flush();
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package manuel.pruebatecnica.application.service;
+
+import lombok.extern.slf4j.Slf4j;
+import manuel.pruebatecnica.domain.model.InventoryReportJob;
+import manuel.pruebatecnica.infrastructure.exception.ConflictException;
+import manuel.pruebatecnica.infrastructure.exception.ServiceUnavailableException;
+import manuel.pruebatecnica.infrastructure.repository.EmpresaSummary;
+import manuel.pruebatecnica.infrastructure.repository.InventoryReportJobRepository;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.IntSupplier;
+
+/**
+ * Runs emailed inventory reports as persisted jobs. Each job gets a virtual thread, which
+ * costs nothing while it waits on the database, the temporary file or the mail server; a
+ * semaphore caps how many render at once (reports.jobs.max-concurrent), the rest wait
+ * parked in arrival order. A request equal to a job still pending or running (same company
+ * and recipient) returns that job instead of queueing another; a partial unique index over
+ * the active jobs makes that hold across nodes. A job is rendered by the node holding its
+ * lease (reports.jobs.lease-ms). Progress is written every thousand products by an update
+ * that renews the lease and matches only the holder's running job, so a cancelled job, or
+ * one another node took over, notices at its next progress write. Each node polls for
+ * active jobs nobody holds, which resumes the jobs of a stopped node.
+ */
+@Slf4j
+@Service
+public class InventoryReportJobService implements DisposableBean {
+
+    private static final List<String> ACTIVE = List.of(InventoryReportJob.PENDIENTE, InventoryReportJob.EN_PROCESO);
+
+    private final InventoryReportJobRepository jobRepository;
+    private final InventoryService inventoryService;
+    private final TransactionTemplate transactionTemplate;
+    private final Semaphore permits;
+    private final ExecutorService executor;
+    // Lease owner written into the jobs this instance claims
+    private final String nodo = UUID.randomUUID().toString();
+    private final Set<Long> queued = ConcurrentHashMap.newKeySet();
+
+    @Value("${reports.jobs.lease-ms:600000}")
+    private long leaseMs = 600000;
+
+    public InventoryReportJobService(InventoryReportJobRepository jobRepository,
+                                     InventoryService inventoryService,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${reports.jobs.max-concurrent:2}") int maxConcurrent) {
+        this.jobRepository = jobRepository;
+        this.inventoryService = inventoryService;
+        // Progress is written from inside the report's read-only transaction
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("inventory-report-", 0).factory());
+    }
+
+    /**
+     * Queues a report, or returns the job already pending or running for the same company
+     * and recipient.
+     */
+    public InventoryReportJob submit(String toEmail, String subject, String body, String empresaNit) {
+        if (!inventoryService.emailAvailable()) {
+            throw new ServiceUnavailableException("El envío de correo no está configurado", 60);
+        }
+        String nit = empresaNit == null || empresaNit.isBlank() ? null : empresaNit.trim();
+        String clave = (nit == null ? "*" : nit) + "|" + toEmail.trim().toLowerCase(Locale.ROOT);
+        Optional<InventoryReportJob> inFlight = jobRepository.findFirstByClaveAndEstadoIn(clave, ACTIVE);
+        if (inFlight.isPresent()) {
+            return inFlight.get();
+        }
+        if (nit != null) {
+            // Fails now, rather than in the job, when the company does not exist
+            inventoryService.reportEmpresas(nit);
+        }
+
+        InventoryReportJob job = new InventoryReportJob();
+        job.setClave(clave);
+        job.setEmpresaNit(nit);
+        job.setDestinatario(toEmail.trim());
+        job.setAsunto(subject);
+        job.setCuerpo(body);
+        InventoryReportJob saved;
+        try {
+            saved = jobRepository.save(job);
+        } catch (DataIntegrityViolationException e) {
+            // The same report was queued meanwhile, possibly by another node
+            return jobRepository.findFirstByClaveAndEstadoIn(clave, ACTIVE).orElseThrow(() -> e);
+        }
+        schedule(saved.getId());
+        return saved;
+    }
+
+    public Optional<InventoryReportJob> findJob(Long id) {
+        return jobRepository.findById(id);
+    }
+
+    /**
+     * Cancels a pending or running job; a running one stops at its next progress write.
+     */
+    public Optional<InventoryReportJob> cancel(Long id) {
+        Optional<InventoryReportJob> job = jobRepository.findById(id);
+        if (job.isEmpty()) {
+            return job;
+        }
+        int updated = Objects.requireNonNullElse(transactionTemplate.execute(status ->
+                jobRepository.updateEstado(id, ACTIVE, InventoryReportJob.CANCELADA, null, LocalDateTime.now())), 0);
+        if (updated == 0) {
+            throw new ConflictException("El reporte ya finalizó");
+        }
+        return jobRepository.findById(id);
+    }
+
+    /**
+     * Renders the job's report in the calling thread and queues its email, if this node can
+     * claim the job.
+     */
+    public void process(Long id) {
+        LocalDateTime claimedAt = LocalDateTime.now();
+        if (!update(() -> jobRepository.claim(id, ACTIVE, nodo, claimedAt, leaseFrom(claimedAt)))) {
+            return;
+        }
+        InventoryReportJob job = jobRepository.findById(id).orElse(null);
+        if (job == null) {
+            return;
+        }
+        try {
+            List<EmpresaSummary> empresas = inventoryService.reportEmpresas(job.getEmpresaNit());
+            long total = empresas.stream().mapToLong(EmpresaSummary::productCount).sum();
+            LocalDateTime startedAt = LocalDateTime.now();
+            if (!update(() -> jobRepository.start(id, ACTIVE, nodo, total, startedAt, leaseFrom(startedAt)))) {
+                return;
+            }
+            Path report = inventoryService.renderInventoryReport(empresas, procesados -> {
+                LocalDateTime now = LocalDateTime.now();
+                if (!update(() -> jobRepository.updateProgress(id, nodo, procesados, now, leaseFrom(now)))) {
+                    throw new CancellationException();
+                }
+            });
+            try {
+                // The email is queued in the transaction that completes the job: both or neither
+                transactionTemplate.executeWithoutResult(status -> {
+                    if (jobRepository.updateEstado(id, ACTIVE, InventoryReportJob.COMPLETADA, null, LocalDateTime.now()) == 0) {
+                        throw new CancellationException();
+                    }
+                    inventoryService.mailInventoryReport(job.getDestinatario(), job.getAsunto(), job.getCuerpo(), report);
+                });
+            } finally {
+                InventoryService.deleteQuietly(report);
+            }
+            log.info("Inventory report job {} queued for {}", id, job.getDestinatario());
+        } catch (CancellationException e) {
+            log.info("Inventory report job {} cancelled or taken over by another node", id);
+        } catch (RuntimeException e) {
+            log.error("Inventory report job {} failed", id, e);
+            String message = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+            setEstado(id, InventoryReportJob.FALLIDA, message.length() > 500 ? message.substring(0, 500) : message);
+        }
+    }
+
+    /**
+     * Queues the active jobs nobody holds: those not picked up yet and those whose node
+     * stopped before finishing them.
+     */
+    @Scheduled(fixedDelayString = "${reports.jobs.resume-interval-ms:60000}")
+    public void resume() {
+        for (Long id : jobRepository.findUnleasedIds(ACTIVE, LocalDateTime.now())) {
+            if (schedule(id)) {
+                log.info("Resuming inventory report job {}", id);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private boolean schedule(Long id) {
+        if (!queued.add(id)) {
+            return false;
+        }
+        executor.execute(() -> run(id));
+        return true;
+    }
+
+    private void run(Long id) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            queued.remove(id);
+            Thread.currentThread().interrupt();
+            return;
+        }
+        try {
+            process(id);
+        } finally {
+            permits.release();
+            queued.remove(id);
+        }
+    }
+
+    private LocalDateTime leaseFrom(LocalDateTime now) {
+        return now.plus(Duration.ofMillis(leaseMs));
+    }
+
+    private boolean update(IntSupplier statement) {
+        return Objects.requireNonNullElse(transactionTemplate.execute(status -> statement.getAsInt()), 0) > 0;
+    }
+
+    private void setEstado(Long id, String estado, String error) {
+        update(() -> jobRepository.updateEstado(id, ACTIVE, estado, error, LocalDateTime.now()));
+    }
+}
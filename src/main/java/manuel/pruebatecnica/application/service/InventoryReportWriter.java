@@ -0,0 +1,20 @@
+package manuel.pruebatecnica.application.service;
+
+import manuel.pruebatecnica.infrastructure.repository.EmpresaSummary;
+import manuel.pruebatecnica.infrastructure.repository.InventoryReportRow;
+
+/**
+ * Receives the report content in order: for each company, startEmpresa, its products, then
+ * endEmpresa. Rendering errors surface as UncheckedIOException.
+ */
+public interface InventoryReportWriter extends AutoCloseable {
+
+    void startEmpresa(EmpresaSummary empresa);
+
+    void addProducto(InventoryReportRow producto);
+
+    void endEmpresa();
+
+    @Override
+    void close();
+}
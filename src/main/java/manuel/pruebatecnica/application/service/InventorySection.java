@@ -0,0 +1,12 @@
+package manuel.pruebatecnica.application.service;
+
+import manuel.pruebatecnica.infrastructure.repository.EmpresaSummary;
+
+import java.nio.file.Path;
+
+/**
+ * One company's part of a multi-company report, rendered on its own to file by a writer
+ * from PdfService.openInventorySection.
+ */
+public record InventorySection(EmpresaSummary empresa, long productos, Path file) {
+}
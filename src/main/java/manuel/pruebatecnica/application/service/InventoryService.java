@@ -1,26 +1,363 @@
 package manuel.pruebatecnica.application.service;
 
-import lombok.RequiredArgsConstructor;
-import manuel.pruebatecnica.domain.model.Empresa;
+import lombok.extern.slf4j.Slf4j;
+import manuel.pruebatecnica.infrastructure.exception.ServiceUnavailableException;
+import manuel.pruebatecnica.infrastructure.repository.EmpresaRepository;
+import manuel.pruebatecnica.infrastructure.repository.EmpresaSummary;
+import manuel.pruebatecnica.infrastructure.repository.InventoryReportRow;
+import manuel.pruebatecnica.infrastructure.repository.ProductoRepository;
+import manuel.pruebatecnica.infrastructure.repository.ReportFingerprint;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
 
+/**
+ * Renders the inventory report straight to an OutputStream. Each company's products are
+ * read through a scrolled projection (no entities, nothing kept by the persistence context)
+ * in a read-only transaction of its own and handed to the PDF writer one row at a time, so
+ * the heap holds at most one fetch of rows plus what the writer buffers, independent of
+ * the catalog size. Rendered reports are kept in InventoryReportCache under a key derived
+ * from the data they show, so an unchanged inventory is never rendered twice.
+ * <p>
+ * Reports covering several companies render each company's section to a file of its own
+ * on a pool of reports.inventory.parallelism threads, shared by all reports, so that many
+ * sections and read-only connections at most are in use at any time. The sections are
+ * then merged in NIT order behind a table of contents; since each section depends only on
+ * its company, the report is the same whatever the parallelism.
+ */
+@Slf4j
 @Service
-@RequiredArgsConstructor
-public class InventoryService {
+public class InventoryService implements DisposableBean {
 
+    private static final String REPORT_TITLE = "Reporte de inventario";
+    private static final String ATTACHMENT_NAME = "inventario.pdf";
+    private static final int PROGRESS_EVERY = 1000;
+    private static final LongConsumer NO_PROGRESS = productos -> { };
+    // Part of every cache key; change it whenever the report layout changes
+    private static final String REPORT_LAYOUT = "inventario-pdf-es-2";
 
-    public void sendInventoryReport(String toEmail) {
+    private final PdfService pdfService;
+    private final EmpresaRepository empresaRepository;
+    private final ProductoRepository productoRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectProvider<EmailService> emailService;
+    private final InventoryReportCache reportCache;
+    private final ExecutorService sectionExecutor;
 
-        
-        String subject = "Inventory Report - " + java.time.LocalDateTime.now().toLocalDate();
-        String body = "Please find attached the inventory report with all products by company.";
-        
+    public InventoryService(PdfService pdfService,
+                            EmpresaRepository empresaRepository,
+                            ProductoRepository productoRepository,
+                            PlatformTransactionManager transactionManager,
+                            ObjectProvider<EmailService> emailService,
+                            InventoryReportCache reportCache,
+                            @Value("${reports.inventory.parallelism:3}") int parallelism) {
+        this.pdfService = pdfService;
+        this.empresaRepository = empresaRepository;
+        this.productoRepository = productoRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.emailService = emailService;
+        this.reportCache = reportCache;
+        this.sectionExecutor = Executors.newFixedThreadPool(parallelism,
+                Thread.ofPlatform().name("inventory-section-", 0).daemon().factory());
+    }
+
+    /**
+     * Companies covered by the report: all of them, or only the given one.
+     */
+    public List<EmpresaSummary> reportEmpresas(String empresaNit) {
+        if (empresaNit == null || empresaNit.isBlank()) {
+            return empresaRepository.findAllSummaries();
+        }
+        return List.of(empresaRepository.findSummaryByNit(empresaNit)
+                .orElseThrow(() -> new RuntimeException("Empresa no encontrada")));
+    }
+
+    public boolean emailAvailable() {
+        return emailService.getIfAvailable() != null;
+    }
+
+    public long writeInventoryReport(String empresaNit, OutputStream output) {
+        return writeInventoryReport(reportEmpresas(empresaNit), output);
+    }
+
+    public long writeInventoryReport(List<EmpresaSummary> empresas, OutputStream output) {
+        return writeInventoryReport(empresas, output, NO_PROGRESS);
+    }
+
+    /**
+     * Writes the report for the given companies and returns the number of products listed.
+     * The stream is flushed but not closed. progress receives the running product count
+     * every thousand rows and after each company; an exception it throws aborts the report.
+     * With several companies progress may be called from the section threads, one at a time.
+     */
+    public long writeInventoryReport(List<EmpresaSummary> empresas, OutputStream output, LongConsumer progress) {
+        long written = empresas.size() > 1
+                ? writeSections(empresas, output, progress)
+                : writeSingle(empresas, output, progress);
+        try {
+            output.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return written;
+    }
+
+    private long writeSingle(List<EmpresaSummary> empresas, OutputStream output, LongConsumer progress) {
+        long[] written = {0};
+        try (InventoryReportWriter writer = pdfService.openInventoryReport(output, REPORT_TITLE)) {
+            for (EmpresaSummary empresa : empresas) {
+                writeEmpresa(writer, empresa, () -> {
+                    if (++written[0] % PROGRESS_EVERY == 0) {
+                        progress.accept(written[0]);
+                    }
+                });
+                progress.accept(written[0]);
+            }
+        }
+        return written[0];
+    }
+
+    private long writeSections(List<EmpresaSummary> empresas, OutputStream output, LongConsumer progress) {
+        List<EmpresaSummary> byNit = new ArrayList<>(empresas);
+        byNit.sort(Comparator.comparing(EmpresaSummary::nit));
+        // The first failure of any section; once set, the remaining sections stop
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        AtomicLong written = new AtomicLong();
+        Object progressLock = new Object();
+        Runnable reportProgress = () -> {
+            synchronized (progressLock) {
+                // Read under the lock so the reported count never goes backwards
+                progress.accept(written.get());
+            }
+        };
+
+        List<Future<InventorySection>> futures = new ArrayList<>(byNit.size());
+        try {
+            for (EmpresaSummary empresa : byNit) {
+                futures.add(sectionExecutor.submit(() -> renderSection(empresa, failure, written, reportProgress)));
+            }
+            List<InventorySection> sections = new ArrayList<>(futures.size());
+            for (Future<InventorySection> future : futures) {
+                sections.add(await(future, failure));
+            }
+            pdfService.mergeInventoryReport(output, REPORT_TITLE, sections);
+            return written.get();
+        } finally {
+            failure.compareAndSet(null, new CancellationException());
+            discardSections(futures);
+        }
+    }
+
+    private InventorySection renderSection(EmpresaSummary empresa, AtomicReference<Exception> failure,
+                                           AtomicLong written, Runnable reportProgress) throws IOException {
+        if (failure.get() != null) {
+            throw new CancellationException();
+        }
+        Path file = Files.createTempFile("inventario-seccion-", ".pdf");
+        try {
+            long productos;
+            try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(file));
+                 InventoryReportWriter writer = pdfService.openInventorySection(output)) {
+                productos = writeEmpresa(writer, empresa, () -> {
+                    if (failure.get() != null) {
+                        throw new CancellationException();
+                    }
+                    if (written.incrementAndGet() % PROGRESS_EVERY == 0) {
+                        reportProgress.run();
+                    }
+                });
+            }
+            reportProgress.run();
+            return new InventorySection(empresa, productos, file);
+        } catch (IOException | RuntimeException e) {
+            failure.compareAndSet(null, e);
+            deleteQuietly(file);
+            throw e;
+        }
+    }
+
+    // One company's products, read in a read-only transaction of its own; onRow runs after each
+    private long writeEmpresa(InventoryReportWriter writer, EmpresaSummary empresa, Runnable onRow) {
+        long[] rows = {0};
+        writer.startEmpresa(empresa);
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<InventoryReportRow> productos = productoRepository.streamForReport(empresa.nit())) {
+                for (InventoryReportRow producto : (Iterable<InventoryReportRow>) productos::iterator) {
+                    writer.addProducto(producto);
+                    rows[0]++;
+                    onRow.run();
+                }
+            }
+        });
+        writer.endEmpresa();
+        return rows[0];
+    }
+
+    // A section that failed only because another one did reports that other failure
+    private static InventorySection await(Future<InventorySection> future, AtomicReference<Exception> failure) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Reporte interrumpido");
+        } catch (ExecutionException e) {
+            Throwable cause = failure.get() != null ? failure.get() : e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof IOException io) {
+                throw new UncheckedIOException(io);
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    // Waits for every section task (they stop early after a failure) and deletes what they rendered
+    private static void discardSections(List<Future<InventorySection>> futures) {
+        boolean interrupted = false;
+        for (Future<InventorySection> future : futures) {
+            while (true) {
+                try {
+                    deleteQuietly(future.get().file());
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException | CancellationException e) {
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
 
+    public void sendInventoryReport(String toEmail) {
+        String subject = "Inventory Report - " + LocalDate.now();
+        String body = "Please find attached the inventory report with all products by company.";
+        sendInventoryReport(toEmail, subject, body, null);
     }
 
     public void sendInventoryReport(String toEmail, String subject, String body, String empresaNit) {
+        sendInventoryReport(toEmail, subject, body, reportEmpresas(empresaNit), NO_PROGRESS);
+    }
+
+    public void sendInventoryReport(String toEmail, String subject, String body, List<EmpresaSummary> empresas,
+                                    LongConsumer progress) {
+        requireEmailService();
+        Path file = renderInventoryReport(empresas, progress);
+        try {
+            mailInventoryReport(toEmail, subject, body, file);
+        } finally {
+            deleteQuietly(file);
+        }
+    }
+
+    /**
+     * The report as a file of the caller's own, which it must move or delete. Served from
+     * the report cache when nothing it covers has changed; progress is only called when the
+     * report is actually rendered.
+     */
+    public Path renderInventoryReport(List<EmpresaSummary> empresas, LongConsumer progress) {
+        return reportCache.copyOf(cacheKey(empresas), output -> {
+            long productos = writeInventoryReport(empresas, output, progress);
+            log.info("Inventory report with {} products rendered", productos);
+        });
+    }
+
+    /**
+     * Writes the report to output from the report cache, rendering it (and streaming it as
+     * it renders) when the cache does not have it.
+     */
+    public void streamInventoryReport(List<EmpresaSummary> empresas, OutputStream output) throws IOException {
+        reportCache.streamTo(cacheKey(empresas), stream -> writeInventoryReport(empresas, stream), output);
+        output.flush();
+    }
+
+    public InventoryReportCache.Stats reportCacheStats() {
+        return reportCache.stats();
+    }
+
+    // Covers everything printed: the generation date, company header fields (via the version) and
+    // product rows (via the fingerprint)
+    private String cacheKey(List<EmpresaSummary> empresas) {
+        List<ReportFingerprint> fingerprints = empresas.size() == 1
+                ? productoRepository.findReportFingerprints(List.of(empresas.get(0).nit()))
+                : productoRepository.findAllReportFingerprints();
+        Map<String, ReportFingerprint> byNit = new HashMap<>();
+        fingerprints.forEach(fingerprint -> byNit.put(fingerprint.empresaNit(), fingerprint));
+
+        List<String> parts = new ArrayList<>();
+        parts.add(REPORT_LAYOUT);
+        parts.add(LocalDate.now().toString());
+        for (EmpresaSummary empresa : empresas) {
+            ReportFingerprint fingerprint = byNit.get(empresa.nit());
+            parts.add(empresa.nit() + "/" + empresa.version() + "/" + (fingerprint == null ? "-"
+                    : fingerprint.productos() + "/" + fingerprint.sumaIds() + "/" + fingerprint.maxId() + "/" + fingerprint.sumaVersiones()));
+        }
+        return InventoryReportCache.key(parts);
+    }
+
+    /**
+     * Hands a rendered report to the EmailService. With the outbox implementation this only
+     * queues the message (with a copy of the file), so call it inside the transaction that
+     * should commit together with the message.
+     */
+    public void mailInventoryReport(String toEmail, String subject, String body, Path report) {
+        requireEmailService().sendEmailWithAttachment(toEmail,
+                subject == null || subject.isBlank() ? "Inventory Report - " + LocalDate.now() : subject,
+                body == null ? "" : body,
+                report,
+                ATTACHMENT_NAME);
+    }
+
+    private EmailService requireEmailService() {
+        EmailService sender = emailService.getIfAvailable();
+        if (sender == null) {
+            throw new ServiceUnavailableException("El envío de correo no está configurado", 60);
+        }
+        return sender;
+    }
+
+    @Override
+    public void destroy() {
+        sectionExecutor.shutdownNow();
+    }
 
+    public static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete temporary report {}", file, e);
+        }
     }
 }
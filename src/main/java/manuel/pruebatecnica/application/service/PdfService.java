@@ -1,9 +1,25 @@
 package manuel.pruebatecnica.application.service;
 
-import manuel.pruebatecnica.domain.model.Empresa;
-
+import java.io.OutputStream;
 import java.util.List;
 
 public interface PdfService {
-    byte[] generateInventoryReport(List<Empresa> empresas);
+
+    /**
+     * Starts an inventory report written to output as it is built. Closing the returned
+     * writer finishes the document; the output stream itself is left open.
+     */
+    InventoryReportWriter openInventoryReport(OutputStream output, String title);
+
+    /**
+     * Starts a single company's section of a report to be put together by
+     * mergeInventoryReport. Sections have no title and no page numbers; the merge adds them.
+     */
+    InventoryReportWriter openInventorySection(OutputStream output);
+
+    /**
+     * Writes to output a report made of the given sections in the order given, preceded by
+     * a table of contents and numbered across the whole document. The stream is left open.
+     */
+    void mergeInventoryReport(OutputStream output, String title, List<InventorySection> sections);
 }
@@ -0,0 +1,38 @@
+package manuel.pruebatecnica.application.service;
+
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque continuation token for keyset pagination: the sort it belongs to plus the
+ * sort value and id of the last row of the previous page.
+ */
+public record ProductoCursor(String sort, Sort.Direction direction, Long id, String value) {
+
+    public String encode() {
+        String raw = sort + "|" + direction.name() + "|" + id + "|" + (value == null ? "" : value);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ProductoCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 4);
+            return new ProductoCursor(parts[0], Sort.Direction.valueOf(parts[1]), Long.valueOf(parts[2]), parts[3]);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    public Comparable typedValue() {
+        return switch (sort) {
+            case "precio" -> new BigDecimal(value);
+            case "nombre" -> value;
+            default -> id;
+        };
+    }
+}
@@ -0,0 +1,72 @@
+package manuel.pruebatecnica.application.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import manuel.pruebatecnica.domain.model.Producto;
+import manuel.pruebatecnica.infrastructure.dto.ProductoDTO;
+import manuel.pruebatecnica.infrastructure.mapper.EntityMapper;
+import manuel.pruebatecnica.infrastructure.repository.ProductoRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes the catalog row by row from a database cursor. Each product is detached once
+ * written and the output is flushed periodically, so heap use stays flat and the client
+ * starts receiving data right away.
+ */
+@Service
+@RequiredArgsConstructor
+public class ProductoExportService {
+
+    private final ProductoRepository productoRepository;
+    private final EntityMapper entityMapper;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+
+    @Value("${productos.export.flush-every:500}")
+    private int flushEvery = 500;
+
+    @Transactional(readOnly = true)
+    public long export(String empresaNit, CatalogFormat format, OutputStream output) throws IOException {
+        long written = 0;
+        try (Stream<Producto> productos = productoRepository.streamForExport(empresaNit);
+             SequenceWriter writer = writer(format, output)) {
+            Iterator<Producto> iterator = productos.iterator();
+            while (iterator.hasNext()) {
+                Producto producto = iterator.next();
+                writer.write(entityMapper.toProductoDTO(producto));
+                entityManager.detach(producto);
+                if (++written % flushEvery == 0) {
+                    writer.flush();
+                }
+            }
+        }
+        if (format == CatalogFormat.NDJSON && written > 0) {
+            output.write('\n');
+        }
+        output.flush();
+        return written;
+    }
+
+    private SequenceWriter writer(CatalogFormat format, OutputStream output) throws IOException {
+        if (format == CatalogFormat.CSV) {
+            return CatalogFormat.CSV_MAPPER.writerFor(ProductoDTO.class)
+                    .with(CatalogFormat.CSV_SCHEMA)
+                    .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    .writeValues(output);
+        }
+        return objectMapper.writerFor(ProductoDTO.class)
+                .withRootValueSeparator("\n")
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .writeValues(output);
+    }
+}
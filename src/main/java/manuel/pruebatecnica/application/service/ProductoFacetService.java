@@ -0,0 +1,528 @@
+package manuel.pruebatecnica.application.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import manuel.pruebatecnica.domain.model.Categoria;
+import manuel.pruebatecnica.domain.model.Producto;
+import manuel.pruebatecnica.domain.model.ProductoFacetChange;
+import manuel.pruebatecnica.infrastructure.cache.BoundedTtlCache;
+import manuel.pruebatecnica.infrastructure.dto.ProductoPageRequest;
+import manuel.pruebatecnica.infrastructure.repository.ProductoFacetChangeRepository;
+import manuel.pruebatecnica.infrastructure.repository.ProductoRepository;
+import manuel.pruebatecnica.infrastructure.repository.ProductoSpecifications;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Facet counts for the product sidebar. Counts of the whole catalog are kept in memory on
+ * every node. Each product write appends its counter deltas to producto_facet_changes in
+ * its own transaction (an insert, so writers never contend on a row), and every node
+ * replays that log: its own entries right after commit, the others' on a short poll. Only
+ * the poll reads the log, and it does so without holding the lock, so requests just read
+ * the published counts. The catalog is recounted at startup, from one snapshot that also
+ * fixes the position in the log, and again whenever the replayed total stops matching
+ * COUNT(*), which productos.facets.verify-interval-ms checks. Filtered facets always come
+ * from grouped queries, cached per filter and data version.
+ * <p>
+ * Log ids are assigned on insert, not on commit, so an entry can become visible after one
+ * with a higher id. Skipped ids are remembered as gaps and looked up again until they show
+ * up or productos.facets.gap-timeout-ms passes (a rolled back write leaves a gap that never
+ * fills); the total check catches an insert or delete that committed later still. Price buckets travel by their lower bound; an entry with a bound this node does
+ * not use (bucket settings changed between nodes) makes it recount.
+ */
+@Slf4j
+@Service
+public class ProductoFacetService {
+
+    // Ids below the log position of a recount that are watched for late commits
+    private static final int SNAPSHOT_GAP_WINDOW = 1000;
+    // Largest jump in ids recorded as individual gaps
+    private static final int MAX_GAPS_PER_JUMP = 10000;
+
+    private final ProductoRepository productoRepository;
+    private final ProductoFacetChangeRepository changeRepository;
+    private final DataVersionService dataVersionService;
+    private final ExchangeRateService exchangeRateService;
+    private final TransactionTemplate snapshotTransaction;
+    private final ObjectMapper objectMapper;
+    private final List<BigDecimal> bucketBounds;
+    private final Map<String, Integer> bucketIndex = new HashMap<>();
+    private final BoundedTtlCache<String, ProductoFacets> filteredCache;
+
+    @Value("${productos.facets.gap-timeout-ms:60000}")
+    private long gapTimeoutMillis = 60000;
+
+    @Value("${productos.facets.change-retention-ms:3600000}")
+    private long changeRetentionMillis = 3600000;
+
+    private Counters counters;
+    private boolean stale = true;
+    // Highest log id applied, and the lower ids not seen yet with when they were first missed
+    private long lastSeq;
+    private final Map<Long, Long> gaps = new HashMap<>();
+    private volatile ProductoFacets snapshot;
+
+    public ProductoFacetService(ProductoRepository productoRepository,
+                                ProductoFacetChangeRepository changeRepository,
+                                DataVersionService dataVersionService,
+                                ExchangeRateService exchangeRateService,
+                                PlatformTransactionManager transactionManager,
+                                ObjectMapper objectMapper,
+                                @Value("${productos.facets.price-buckets:10,50,100,500,1000}") String priceBuckets,
+                                @Value("${productos.facets.cache-size:1000}") int cacheSize,
+                                @Value("${productos.facets.cache-ttl-ms:60000}") long cacheTtlMillis) {
+        this.productoRepository = productoRepository;
+        this.changeRepository = changeRepository;
+        this.dataVersionService = dataVersionService;
+        this.exchangeRateService = exchangeRateService;
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTransaction.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.bucketBounds = parseBounds(priceBuckets);
+        for (int i = 0; i <= bucketBounds.size(); i++) {
+            bucketIndex.put(bucketKey(i), i);
+        }
+        this.filteredCache = new BoundedTtlCache<>(cacheSize, cacheTtlMillis);
+        this.counters = new Counters();
+    }
+
+    /**
+     * Facet-relevant state of one product.
+     */
+    public record Entry(String empresaNit, Set<Long> categoriaIds, BigDecimal precioUsd) {
+
+        public static Entry of(Producto producto) {
+            Set<Long> categorias = producto.getCategorias() == null ? Set.of() : producto.getCategorias().stream()
+                    .map(Categoria::getId)
+                    .collect(Collectors.toSet());
+            String empresaNit = producto.getEmpresa() == null ? null : producto.getEmpresa().getNit();
+            return new Entry(empresaNit, categorias, producto.getPrecioUsd());
+        }
+    }
+
+    /**
+     * Counter deltas of one log entry; price buckets are keyed by their lower bound.
+     */
+    public record Delta(long total, Map<Long, Long> categorias, Map<String, Long> empresas, Map<String, Long> precios) {
+    }
+
+    public ProductoFacets facets(ProductoPageRequest request) {
+        String moneda = request.getMoneda() == null ? ExchangeRateService.BASE_CURRENCY : request.getMoneda();
+        BigDecimal min = exchangeRateService.toBase(request.getMinPrecio(), moneda);
+        BigDecimal max = exchangeRateService.toBase(request.getMaxPrecio(), moneda);
+        String empresaNit = request.getEmpresaNit();
+        Long categoriaId = request.getCategoriaId();
+
+        // Read the version before the data so a cached entry can only be older than its key
+        long version = dataVersionService.current(DataVersionService.PRODUCTOS);
+        ProductoFacets counted = snapshot;
+        boolean byPrecio = min != null || max != null;
+        if (counted != null && empresaNit == null && categoriaId == null && !byPrecio) {
+            return counted;
+        }
+
+        String key = version + "|" + empresaNit + "|" + categoriaId + "|" + min + "|" + max;
+        return filteredCache.getOrLoad(key, k -> {
+            Map<Long, Long> categorias = counted != null && empresaNit == null && !byPrecio
+                    ? counted.categorias()
+                    : sorted(productoRepository.countByCategoria(filter(empresaNit, null, min, max)));
+            Map<String, Long> empresas = counted != null && categoriaId == null && !byPrecio
+                    ? counted.empresas()
+                    : sorted(productoRepository.countByEmpresa(filter(null, categoriaId, min, max)));
+            List<ProductoFacets.PriceBucket> precios = counted != null && empresaNit == null && categoriaId == null
+                    ? counted.precios()
+                    : countBuckets(filter(empresaNit, categoriaId, null, null));
+            long total = productoRepository.count(filter(empresaNit, categoriaId, min, max));
+            return new ProductoFacets(total, categorias, empresas, precios);
+        });
+    }
+
+    /**
+     * Logs the change of one product; call it inside the write's transaction so the delta
+     * commits with it. before is null for a new product and after is null for a deleted one.
+     */
+    public void recordChange(Entry before, Entry after) {
+        Counters changes = new Counters();
+        if (before != null) {
+            changes.add(before, -1);
+        }
+        if (after != null) {
+            changes.add(after, 1);
+        }
+        append(changes);
+    }
+
+    public void recordCreated(List<Entry> created) {
+        Counters changes = new Counters();
+        created.forEach(entry -> changes.add(entry, 1));
+        append(changes);
+    }
+
+    /**
+     * Logs the removal of one company's products; call it inside the deleting transaction,
+     * before the delete and with the rows locked.
+     */
+    public void recordRemoved(String empresaNit, Collection<Long> ids) {
+        List<BigDecimal> precios = productoRepository.findPrecioUsdByIds(ids);
+        if (precios.isEmpty()) {
+            return;
+        }
+        Counters changes = new Counters();
+        changes.total = -precios.size();
+        changes.empresas.put(empresaNit, (long) -precios.size());
+        for (Object[] row : productoRepository.countByCategoriaForIds(ids)) {
+            changes.categorias.put(((Number) row[0]).longValue(), -((Number) row[1]).longValue());
+        }
+        precios.forEach(precio -> changes.addPrecio(precio, -1));
+        append(changes);
+    }
+
+    /**
+     * Logs a rewrite of normalized prices (old and new value of each rewritten row).
+     */
+    public void recordPrecioChanges(List<BigDecimal> before, List<BigDecimal> after) {
+        Counters changes = new Counters();
+        before.forEach(precio -> changes.addPrecio(precio, -1));
+        after.forEach(precio -> changes.addPrecio(precio, 1));
+        append(changes);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${productos.facets.refresh-interval-ms:1000}")
+    public void refresh() {
+        boolean rebuild;
+        synchronized (this) {
+            rebuild = stale;
+        }
+        if (rebuild) {
+            rebuild();
+        } else {
+            replay();
+        }
+    }
+
+    /**
+     * Compares the replayed total with the catalog and recounts on the next refresh when
+     * they differ. The log is replayed before and after the count; a total that moved in
+     * between means a write committed meanwhile, and the check waits for the next run.
+     */
+    @Scheduled(fixedDelayString = "${productos.facets.verify-interval-ms:60000}")
+    public void verify() {
+        replay();
+        Long before = replayedTotal();
+        long count = productoRepository.count();
+        replay();
+        Long after = replayedTotal();
+        if (before == null || !before.equals(after) || after == count) {
+            return;
+        }
+        log.warn("Product facet total {} differs from the catalog's {}, recounting", after, count);
+        synchronized (this) {
+            stale = true;
+            publish();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${productos.facets.prune-interval-ms:600000}")
+    @Transactional
+    public void prune() {
+        int deleted = changeRepository.deleteOlderThan(LocalDateTime.now().minus(Duration.ofMillis(changeRetentionMillis)));
+        log.debug("Pruned {} facet log entries", deleted);
+    }
+
+    /**
+     * Recounts the whole catalog. The counts and the log position come from one snapshot,
+     * so every entry after that position (or in a gap below it) is applied exactly once.
+     */
+    public void rebuild() {
+        Snapshot recount = snapshotTransaction.execute(status -> {
+            long position = changeRepository.findMaxId();
+            long windowStart = Math.max(0, position - SNAPSHOT_GAP_WINDOW);
+            Set<Long> visible = new HashSet<>(changeRepository.findIdsGreaterThan(windowStart));
+            Counters fresh = new Counters();
+            fresh.total = productoRepository.count();
+            fresh.categorias.putAll(productoRepository.countByCategoria(null));
+            fresh.empresas.putAll(productoRepository.countByEmpresa(null));
+            List<ProductoFacets.PriceBucket> buckets = countBuckets(null);
+            for (int i = 0; i < buckets.size(); i++) {
+                fresh.precios[i] = buckets.get(i).count();
+            }
+            List<Long> missing = new ArrayList<>();
+            for (long id = windowStart + 1; id <= position; id++) {
+                if (!visible.contains(id)) {
+                    missing.add(id);
+                }
+            }
+            return new Snapshot(fresh, position, missing);
+        });
+
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            counters = recount.counters();
+            lastSeq = recount.position();
+            gaps.clear();
+            recount.missing().forEach(id -> gaps.put(id, now));
+            stale = false;
+            publish();
+        }
+        log.debug("Product facets rebuilt at log position {} ({} products)", recount.position(), recount.counters().total);
+        replay();
+    }
+
+    /**
+     * Applies the log entries committed since the last replay. The log is read without the
+     * lock; entries this node applied meanwhile after its own commits are skipped by id.
+     */
+    private void replay() {
+        long from;
+        Set<Long> missing;
+        synchronized (this) {
+            if (stale) {
+                return;
+            }
+            from = lastSeq;
+            missing = Set.copyOf(gaps.keySet());
+        }
+        long now = System.currentTimeMillis();
+        List<ProductoFacetChange> late = missing.isEmpty() ? List.of() : changeRepository.findByIdIn(missing);
+        synchronized (this) {
+            late.forEach(change -> apply(change.getId(), decode(change.getDelta())));
+            gaps.values().removeIf(missedAt -> missedAt < now - gapTimeoutMillis);
+        }
+        boolean applied = !late.isEmpty();
+        List<ProductoFacetChange> changes = changeRepository.findTop500ByIdGreaterThanOrderByIdAsc(from);
+        while (!changes.isEmpty()) {
+            List<ProductoFacetChange> batch = changes;
+            synchronized (this) {
+                batch.forEach(change -> apply(change.getId(), decode(change.getDelta())));
+            }
+            applied = true;
+            changes = changeRepository.findTop500ByIdGreaterThanOrderByIdAsc(batch.get(batch.size() - 1).getId());
+        }
+        if (applied) {
+            synchronized (this) {
+                publish();
+            }
+        }
+    }
+
+    private synchronized void replayCommitted(long id, Delta delta) {
+        apply(id, delta);
+        publish();
+    }
+
+    // Null while a recount is pending
+    private synchronized Long replayedTotal() {
+        return stale ? null : counters.total;
+    }
+
+    // Called with the lock held
+    private void apply(long id, Delta delta) {
+        if (id <= lastSeq && gaps.remove(id) == null) {
+            // Already applied, or included in the recount
+            return;
+        }
+        if (id > lastSeq) {
+            long now = System.currentTimeMillis();
+            for (long missing = Math.max(lastSeq + 1, id - MAX_GAPS_PER_JUMP); missing < id; missing++) {
+                gaps.put(missing, now);
+            }
+            lastSeq = id;
+        }
+        if (!stale && !counters.add(delta)) {
+            log.warn("Facet log entry {} uses price buckets not configured here, recounting", id);
+            stale = true;
+        }
+    }
+
+    private void append(Counters changes) {
+        if (changes.isUnchanged()) {
+            return;
+        }
+        Delta delta = changes.toDelta();
+        long id = changeRepository.save(new ProductoFacetChange(encode(delta))).getId();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    replayCommitted(id, delta);
+                }
+            });
+        } else {
+            replayCommitted(id, delta);
+        }
+    }
+
+    // Called with the lock held
+    private void publish() {
+        if (stale) {
+            snapshot = null;
+            return;
+        }
+        List<ProductoFacets.PriceBucket> precios = new ArrayList<>();
+        for (int i = 0; i < counters.precios.length; i++) {
+            precios.add(bucket(i, counters.precios[i]));
+        }
+        snapshot = new ProductoFacets(counters.total, sorted(counters.categorias), sorted(counters.empresas), List.copyOf(precios));
+    }
+
+    private List<ProductoFacets.PriceBucket> countBuckets(Specification<Producto> filter) {
+        List<ProductoFacets.PriceBucket> precios = new ArrayList<>();
+        for (int i = 0; i <= bucketBounds.size(); i++) {
+            ProductoFacets.PriceBucket range = bucket(i, 0);
+            Specification<Producto> spec = ProductoSpecifications.precioUsdInRange(range.desde(), range.hasta());
+            precios.add(bucket(i, productoRepository.count(filter == null ? spec : filter.and(spec))));
+        }
+        return precios;
+    }
+
+    private ProductoFacets.PriceBucket bucket(int index, long count) {
+        BigDecimal desde = index == 0 ? BigDecimal.ZERO : bucketBounds.get(index - 1);
+        BigDecimal hasta = index < bucketBounds.size() ? bucketBounds.get(index) : null;
+        return new ProductoFacets.PriceBucket(desde, hasta, count);
+    }
+
+    private String bucketKey(int index) {
+        return bucket(index, 0).desde().toPlainString();
+    }
+
+    private int bucketOf(BigDecimal precioUsd) {
+        if (precioUsd == null) {
+            return -1;
+        }
+        int index = 0;
+        while (index < bucketBounds.size() && precioUsd.compareTo(bucketBounds.get(index)) >= 0) {
+            index++;
+        }
+        return index;
+    }
+
+    private String encode(Delta delta) {
+        try {
+            return objectMapper.writeValueAsString(delta);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar el cambio de facetas", e);
+        }
+    }
+
+    private Delta decode(String value) {
+        try {
+            return objectMapper.readValue(value, Delta.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cambio de facetas ilegible: " + value, e);
+        }
+    }
+
+    private static Specification<Producto> filter(String empresaNit, Long categoriaId, BigDecimal min, BigDecimal max) {
+        return Specification.where(ProductoSpecifications.hasEmpresa(empresaNit))
+                .and(ProductoSpecifications.hasCategoria(categoriaId))
+                .and(ProductoSpecifications.precioUsdBetween(min, max));
+    }
+
+    private static <K> Map<K, Long> sorted(Map<K, Long> counts) {
+        return Collections.unmodifiableMap(new TreeMap<>(counts));
+    }
+
+    private static List<BigDecimal> parseBounds(String value) {
+        List<BigDecimal> bounds = Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(bound -> !bound.isEmpty())
+                .map(BigDecimal::new)
+                .sorted()
+                .toList();
+        if (bounds.stream().anyMatch(bound -> bound.signum() <= 0)) {
+            throw new IllegalArgumentException("Los límites de precio deben ser mayores a cero");
+        }
+        return bounds;
+    }
+
+    private record Snapshot(Counters counters, long position, List<Long> missing) {
+    }
+
+    private final class Counters {
+        private long total;
+        private final Map<Long, Long> categorias = new HashMap<>();
+        private final Map<String, Long> empresas = new HashMap<>();
+        private final long[] precios = new long[bucketBounds.size() + 1];
+
+        void add(Entry entry, int sign) {
+            total += sign;
+            entry.categoriaIds().forEach(id -> categorias.merge(id, (long) sign, ProductoFacetService::sumOrRemove));
+            if (entry.empresaNit() != null) {
+                empresas.merge(entry.empresaNit(), (long) sign, ProductoFacetService::sumOrRemove);
+            }
+            addPrecio(entry.precioUsd(), sign);
+        }
+
+        void addPrecio(BigDecimal precioUsd, int sign) {
+            int bucket = bucketOf(precioUsd);
+            if (bucket >= 0) {
+                precios[bucket] += sign;
+            }
+        }
+
+        // False when the delta names a price bucket this node does not have
+        boolean add(Delta delta) {
+            for (String bound : delta.precios().keySet()) {
+                if (!bucketIndex.containsKey(bound)) {
+                    return false;
+                }
+            }
+            total += delta.total();
+            delta.categorias().forEach((id, count) -> categorias.merge(id, count, ProductoFacetService::sumOrRemove));
+            delta.empresas().forEach((nit, count) -> empresas.merge(nit, count, ProductoFacetService::sumOrRemove));
+            delta.precios().forEach((bound, count) -> precios[bucketIndex.get(bound)] += count);
+            return true;
+        }
+
+        boolean isUnchanged() {
+            return total == 0 && categorias.isEmpty() && empresas.isEmpty() && Arrays.stream(precios).allMatch(count -> count == 0);
+        }
+
+        Delta toDelta() {
+            Map<String, Long> buckets = new HashMap<>();
+            for (int i = 0; i < precios.length; i++) {
+                if (precios[i] != 0) {
+                    buckets.put(bucketKey(i), precios[i]);
+                }
+            }
+            return new Delta(total, Map.copyOf(categorias), Map.copyOf(empresas), buckets);
+        }
+    }
+
+    private static Long sumOrRemove(Long current, Long delta) {
+        long sum = current + delta;
+        return sum == 0 ? null : sum;
+    }
+}
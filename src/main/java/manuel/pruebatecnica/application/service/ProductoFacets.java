@@ -0,0 +1,16 @@
+package manuel.pruebatecnica.application.service;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Product counts per category, per company and per USD price bucket. Each facet applies
+ * every filter except its own, so a sidebar can show the alternatives to the current choice.
+ */
+public record ProductoFacets(long total, Map<Long, Long> categorias, Map<String, Long> empresas, List<PriceBucket> precios) {
+
+    // [desde, hasta) in USD; hasta is null for the last, open bucket
+    public record PriceBucket(BigDecimal desde, BigDecimal hasta, long count) {
+    }
+}
@@ -0,0 +1,9 @@
+package manuel.pruebatecnica.application.service;
+
+import java.util.List;
+
+public record ProductoImportReport(int totalRows, int imported, int rejected, List<RowError> errors, boolean errorsTruncated) {
+
+    public record RowError(int fila, String codigo, String mensaje) {
+    }
+}
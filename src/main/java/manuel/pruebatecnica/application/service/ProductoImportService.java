@@ -0,0 +1,233 @@
+package manuel.pruebatecnica.application.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import manuel.pruebatecnica.domain.model.Producto;
+import manuel.pruebatecnica.infrastructure.dto.ProductoDTO;
+import manuel.pruebatecnica.infrastructure.repository.CategoriaRepository;
+import manuel.pruebatecnica.infrastructure.repository.EmpresaRepository;
+import manuel.pruebatecnica.infrastructure.repository.ProductoRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Streams a product catalog (CSV with header or NDJSON) row by row and writes it in
+ * fixed-size batches, each in its own transaction. Only the current batch and a capped
+ * error list are kept in memory, so memory use does not grow with the file.
+ */
+@Service
+@RequiredArgsConstructor
+public class ProductoImportService {
+
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final ProductoRepository productoRepository;
+    private final EmpresaRepository empresaRepository;
+    private final CategoriaRepository categoriaRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final DataVersionService dataVersionService;
+    private final ExchangeRateService exchangeRateService;
+    private final ProductoFacetService productoFacetService;
+    private final EmpresaReferenceCache empresaReferenceCache;
+    private final EmpresaStatsService empresaStatsService;
+    private final EmpresaDeletionService empresaDeletionService;
+
+    @Value("${productos.import.batch-size:500}")
+    private int batchSize = 500;
+
+    @Value("${productos.import.max-errors:1000}")
+    private int maxErrors = 1000;
+
+    public ProductoImportReport importProductos(InputStream input, CatalogFormat format) throws IOException {
+        Set<Long> categoriaIds = categoriaRepository.findAllIds();
+        ImportState state = new ImportState(maxErrors);
+        List<Row> batch = new ArrayList<>(batchSize);
+        Set<String> batchCodigos = new HashSet<>();
+        int fila = 0;
+
+        try (MappingIterator<ProductoDTO> rows = reader(format).readValues(input)) {
+            while (true) {
+                ProductoDTO dto;
+                try {
+                    if (!rows.hasNextValue()) {
+                        break;
+                    }
+                    fila++;
+                    dto = rows.nextValue();
+                } catch (JsonMappingException e) {
+                    // The iterator resyncs to the next row on the following hasNextValue()
+                    state.reject(fila, null, "Fila inválida: " + e.getOriginalMessage());
+                    continue;
+                } catch (JsonProcessingException e) {
+                    state.reject(Math.max(fila, 1), null, "Contenido mal formado, importación detenida: " + e.getOriginalMessage());
+                    break;
+                }
+
+                String error = validate(dto, categoriaIds, batchCodigos);
+                if (error != null) {
+                    state.reject(fila, dto.getCodigo(), error);
+                    continue;
+                }
+                batch.add(new Row(fila, dto));
+                if (batch.size() >= batchSize) {
+                    writeBatch(batch, state);
+                    batchCodigos.clear();
+                }
+            }
+        }
+        writeBatch(batch, state);
+        state.totalRows = fila;
+        return state.toReport();
+    }
+
+    private ObjectReader reader(CatalogFormat format) {
+        if (format == CatalogFormat.CSV) {
+            return CatalogFormat.CSV_MAPPER.readerFor(ProductoDTO.class).with(CsvSchema.emptySchema().withHeader());
+        }
+        return objectMapper.readerFor(ProductoDTO.class);
+    }
+
+    // Codes repeated within a batch are rejected here; repeats across batches hit the database check
+    private String validate(ProductoDTO dto, Set<Long> categoriaIds, Set<String> batchCodigos) {
+        if (dto.getMoneda() == null || dto.getMoneda().isBlank()) {
+            dto.setMoneda("USD");
+        }
+        Set<ConstraintViolation<ProductoDTO>> violations = validator.validate(dto);
+        if (!violations.isEmpty()) {
+            return violations.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining("; "));
+        }
+        if (!exchangeRateService.supports(dto.getMoneda())) {
+            return "Moneda no soportada: " + dto.getMoneda();
+        }
+        if (!empresaReferenceCache.exists(dto.getEmpresaNit())) {
+            return "Empresa no encontrada: " + dto.getEmpresaNit();
+        }
+        if (dto.getCategoriaId() != null && !categoriaIds.contains(dto.getCategoriaId())) {
+            return "Categoría no encontrada: " + dto.getCategoriaId();
+        }
+        if (!batchCodigos.add(dto.getCodigo())) {
+            return "Código duplicado en el archivo: " + dto.getCodigo();
+        }
+        return null;
+    }
+
+    private void writeBatch(List<Row> batch, ImportState state) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Set<String> codigos = new HashSet<>();
+        Set<String> nits = new HashSet<>();
+        batch.forEach(row -> {
+            codigos.add(row.dto().getCodigo());
+            nits.add(row.dto().getEmpresaNit());
+        });
+
+        try {
+            // Rejected rows of the batch by fila
+            Map<Integer, String> rejected = transactionTemplate.execute(status -> {
+                Set<String> duplicated = productoRepository.findExistingCodigos(codigos);
+                Set<String> deleting = empresaDeletionService.findDeleting(nits);
+                Map<Integer, String> skipped = new HashMap<>();
+                List<ProductoFacetService.Entry> created = new ArrayList<>();
+                for (Row row : batch) {
+                    if (deleting.contains(row.dto().getEmpresaNit())) {
+                        skipped.put(row.fila(), "La empresa " + row.dto().getEmpresaNit() + " se está eliminando");
+                    } else if (duplicated.contains(row.dto().getCodigo())) {
+                        skipped.put(row.fila(), "Ya existe un producto con ese código");
+                    } else {
+                        Producto producto = toProducto(row.dto());
+                        entityManager.persist(producto);
+                        created.add(ProductoFacetService.Entry.of(producto));
+                    }
+                }
+                entityManager.flush();
+                entityManager.clear();
+                if (!created.isEmpty()) {
+                    dataVersionService.bump(DataVersionService.PRODUCTOS);
+                    productoFacetService.recordCreated(created);
+                    empresaStatsService.recordChange(created.stream().map(ProductoFacetService.Entry::empresaNit).toList());
+                }
+                return skipped;
+            });
+            for (Row row : batch) {
+                String reason = rejected == null ? null : rejected.get(row.fila());
+                if (reason != null) {
+                    state.reject(row.fila(), row.dto().getCodigo(), reason);
+                } else {
+                    state.imported++;
+                }
+            }
+        } catch (DataAccessException e) {
+            entityManager.clear();
+            for (Row row : batch) {
+                state.reject(row.fila(), row.dto().getCodigo(), "Lote rechazado por la base de datos: " + e.getMostSpecificCause().getMessage());
+            }
+        }
+        batch.clear();
+    }
+
+    private Producto toProducto(ProductoDTO dto) {
+        Producto producto = new Producto();
+        producto.setCodigo(dto.getCodigo());
+        producto.setNombre(dto.getNombre());
+        producto.setCaracteristicas(dto.getCaracteristicas());
+        producto.setPrecio(dto.getPrecio());
+        producto.setMoneda(dto.getMoneda());
+        producto.setPrecioUsd(exchangeRateService.toBase(dto.getPrecio(), dto.getMoneda()));
+        producto.setEmpresa(empresaRepository.getReferenceById(dto.getEmpresaNit()));
+        if (dto.getCategoriaId() != null) {
+            producto.setCategorias(List.of(categoriaRepository.getReferenceById(dto.getCategoriaId())));
+        }
+        return producto;
+    }
+
+    private record Row(int fila, ProductoDTO dto) {
+    }
+
+    private static final class ImportState {
+        private final int maxErrors;
+        private final List<ProductoImportReport.RowError> errors = new ArrayList<>();
+        private int totalRows;
+        private int imported;
+        private int rejected;
+        private boolean truncated;
+
+        ImportState(int maxErrors) {
+            this.maxErrors = maxErrors;
+        }
+
+        void reject(int fila, String codigo, String mensaje) {
+            rejected++;
+            if (errors.size() < maxErrors) {
+                errors.add(new ProductoImportReport.RowError(fila, codigo, mensaje));
+            } else {
+                truncated = true;
+            }
+        }
+
+        ProductoImportReport toReport() {
+            return new ProductoImportReport(totalRows, imported, rejected, List.copyOf(errors), truncated);
+        }
+    }
+}
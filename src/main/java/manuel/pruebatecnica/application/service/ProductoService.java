@@ -1,23 +1,199 @@
 package manuel.pruebatecnica.application.service;
 
 import lombok.RequiredArgsConstructor;
+import manuel.pruebatecnica.domain.model.Categoria;
+import manuel.pruebatecnica.domain.model.Empresa;
 import manuel.pruebatecnica.domain.model.Producto;
+import manuel.pruebatecnica.infrastructure.dto.ProductoPageRequest;
+import manuel.pruebatecnica.infrastructure.dto.ProductoPatchDTO;
+import manuel.pruebatecnica.infrastructure.exception.ConflictException;
+import manuel.pruebatecnica.infrastructure.exception.PreconditionFailedException;
+import manuel.pruebatecnica.infrastructure.repository.CategoriaRepository;
+import manuel.pruebatecnica.infrastructure.repository.EmpresaRepository;
 import manuel.pruebatecnica.infrastructure.repository.ProductoRepository;
+import manuel.pruebatecnica.infrastructure.repository.ProductoSpecifications;
+import manuel.pruebatecnica.infrastructure.repository.ProductoUpsertRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
 public class ProductoService {
 
+    // API sort name -> entity attribute; price sorts use the normalized USD price
+    private static final Map<String, String> SORTABLE_FIELDS = Map.of("id", "id", "nombre", "nombre", "precio", "precioUsd");
+
+    // SQLSTATEs shared by PostgreSQL and H2
+    private static final String UNIQUE_VIOLATION = "23505";
+    private static final String FOREIGN_KEY_VIOLATION = "23503";
+
     private final ProductoRepository productoRepository;
+    private final EmpresaRepository empresaRepository;
+    private final CategoriaRepository categoriaRepository;
+    private final DataVersionService dataVersionService;
+    private final ExchangeRateService exchangeRateService;
+    private final ProductoFacetService productoFacetService;
+    private final EmpresaReferenceCache empresaReferenceCache;
+    private final EmpresaStatsService empresaStatsService;
+    private final EmpresaDeletionService empresaDeletionService;
+
+    @Value("${productos.page.default-size:50}")
+    private int defaultPageSize = 50;
+
+    @Value("${productos.page.max-size:200}")
+    private int maxPageSize = 200;
 
     public List<Producto> findAll() {
         return productoRepository.findAll();
     }
 
+    /**
+     * Keyset page over products: filters and sort are applied in the database and the
+     * cursor continues right after the last row returned, so deep pages cost the same
+     * as the first one. One extra row is read to know whether another page exists.
+     * Categories of the page are loaded with one extra query instead of one per product.
+     * Price bounds and price order use the normalized USD column, so products in different
+     * currencies compare correctly and the query stays a range scan on its index.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<Producto> findPage(ProductoPageRequest request) {
+        String field = request.getSort() == null ? "id" : request.getSort();
+        String attribute = SORTABLE_FIELDS.get(field);
+        if (attribute == null) {
+            throw new IllegalArgumentException("Campo de ordenamiento no soportado: " + field);
+        }
+        Sort.Direction direction = Sort.Direction.fromOptionalString(request.getDirection())
+                .orElseThrow(() -> new IllegalArgumentException("Dirección de ordenamiento inválida"));
+        int size = request.getSize() == null ? defaultPageSize : request.getSize();
+        if (size < 1) {
+            throw new IllegalArgumentException("El tamaño de página debe ser mayor a cero");
+        }
+        size = Math.min(size, maxPageSize);
+
+        Specification<Producto> spec = Specification.where(ProductoSpecifications.hasEmpresa(request.getEmpresaNit()))
+                .and(ProductoSpecifications.hasCategoria(request.getCategoriaId()))
+                .and(ProductoSpecifications.precioUsdBetween(
+                        toBase(request.getMinPrecio(), request.getMoneda()),
+                        toBase(request.getMaxPrecio(), request.getMoneda())));
+        if ("precio".equals(field)) {
+            // Products in a currency without a rate have no normalized price and cannot be ordered by it
+            spec = spec.and(ProductoSpecifications.hasPrecioUsd());
+        }
+
+        if (request.getCursor() != null && !request.getCursor().isBlank()) {
+            ProductoCursor cursor = ProductoCursor.decode(request.getCursor());
+            if (!cursor.sort().equals(field) || cursor.direction() != direction) {
+                throw new IllegalArgumentException("El cursor no corresponde al ordenamiento solicitado");
+            }
+            spec = spec.and(ProductoSpecifications.after(attribute, direction, cursor.typedValue(), cursor.id()));
+        }
+
+        Sort sort = "id".equals(field)
+                ? Sort.by(direction, "id")
+                : Sort.by(direction, attribute).and(Sort.by(direction, "id"));
+        int limit = size + 1;
+        List<Producto> rows = productoRepository.findBy(spec, q -> q.sortBy(sort).limit(limit).all());
+
+        if (rows.size() <= size) {
+            fetchCategorias(rows);
+            return new CursorPage<>(rows, null);
+        }
+        List<Producto> items = rows.subList(0, size);
+        fetchCategorias(items);
+        Producto last = items.get(size - 1);
+        return new CursorPage<>(items, new ProductoCursor(field, direction, last.getId(), sortValue(last, field)).encode());
+    }
+
+    private BigDecimal toBase(BigDecimal amount, String moneda) {
+        return exchangeRateService.toBase(amount, moneda == null ? ExchangeRateService.BASE_CURRENCY : moneda);
+    }
+
+    private void normalizePrecio(Producto producto) {
+        producto.setPrecioUsd(exchangeRateService.toBase(producto.getPrecio(), producto.getMoneda()));
+    }
+
+    // Same rule as on create: the currency must have a rate. An edit that keeps a converted
+    // price skips the conversion; rates are never removed, so its currency still has one
+    private void renormalizePrecio(Producto producto, BigDecimal previousPrecio, String previousMoneda) {
+        boolean samePrecio = previousPrecio != null && producto.getPrecio() != null
+                && previousPrecio.compareTo(producto.getPrecio()) == 0;
+        if (samePrecio && Objects.equals(previousMoneda, producto.getMoneda()) && producto.getPrecioUsd() != null) {
+            return;
+        }
+        normalizePrecio(producto);
+    }
+
+    private static String empresaNit(Producto producto) {
+        return producto.getEmpresa() == null ? null : producto.getEmpresa().getNit();
+    }
+
+    private static void checkVersion(Long currentVersion, Long expectedVersion) {
+        if (expectedVersion != null && !expectedVersion.equals(currentVersion)) {
+            throw new PreconditionFailedException("El producto fue modificado por otra operación");
+        }
+    }
+
+    private Empresa resolveEmpresa(Empresa empresa) {
+        if (empresa == null || empresa.getNit() == null) {
+            return empresa;
+        }
+        return empresaRef(empresa.getNit());
+    }
+
+    // Validated against the reference cache; the proxy itself never hits the database
+    private Empresa empresaRef(String nit) {
+        if (!empresaReferenceCache.exists(nit)) {
+            throw new IllegalArgumentException("Empresa no encontrada: " + nit);
+        }
+        return empresaRepository.getReferenceById(nit);
+    }
+
+    private static Categoria categoriaRef(Long categoriaId) {
+        Categoria categoria = new Categoria();
+        categoria.setId(categoriaId);
+        return categoria;
+    }
+
+    private static RuntimeException translate(DataIntegrityViolationException e) {
+        if (NestedExceptionUtils.getMostSpecificCause(e) instanceof SQLException sql) {
+            if (UNIQUE_VIOLATION.equals(sql.getSQLState())) {
+                return new ConflictException("Ya existe un producto con ese código");
+            }
+            if (FOREIGN_KEY_VIOLATION.equals(sql.getSQLState())) {
+                return new IllegalArgumentException("La empresa o categoría indicada no existe");
+            }
+        }
+        return e;
+    }
+
+    private void fetchCategorias(List<Producto> productos) {
+        if (!productos.isEmpty()) {
+            productoRepository.fetchCategorias(productos);
+        }
+    }
+
+    private static String sortValue(Producto producto, String field) {
+        return switch (field) {
+            case "nombre" -> producto.getNombre();
+            case "precio" -> producto.getPrecioUsd().toPlainString();
+            default -> String.valueOf(producto.getId());
+        };
+    }
+
     public Optional<Producto> findById(Long id) {
         return productoRepository.findById(id);
     }
@@ -26,37 +202,147 @@ public class ProductoService {
         return productoRepository.findByEmpresaNit(empresaNit);
     }
 
+    @Transactional
     public Producto save(Producto producto) {
-        if (productoRepository.existsByCodigo(producto.getCodigo())) {
-            throw new RuntimeException("Ya existe un producto con ese código");
+        producto.setEmpresa(resolveEmpresa(producto.getEmpresa()));
+        empresaDeletionService.checkNotDeleting(empresaNit(producto));
+        normalizePrecio(producto);
+        try {
+            Producto saved = productoRepository.saveAndFlush(producto);
+            dataVersionService.bump(DataVersionService.PRODUCTOS);
+            ProductoFacetService.Entry after = ProductoFacetService.Entry.of(saved);
+            productoFacetService.recordChange(null, after);
+            empresaStatsService.recordChange(after.empresaNit());
+            return saved;
+        } catch (DataIntegrityViolationException e) {
+            throw translate(e);
         }
-        return productoRepository.save(producto);
     }
 
     public Producto update(Long id, Producto productoDetails) {
+        return update(id, productoDetails, null);
+    }
+
+    @Transactional
+    public Producto update(Long id, Producto productoDetails, Long expectedVersion) {
         Producto producto = productoRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Producto no encontrado"));
-        
-        if (!producto.getCodigo().equals(productoDetails.getCodigo()) && 
-            productoRepository.existsByCodigo(productoDetails.getCodigo())) {
-            throw new RuntimeException("Ya existe un producto con ese código");
-        }
+        checkVersion(producto.getVersion(), expectedVersion);
+        ProductoFacetService.Entry before = ProductoFacetService.Entry.of(producto);
+        BigDecimal previousPrecio = producto.getPrecio();
+        String previousMoneda = producto.getMoneda();
         
         producto.setCodigo(productoDetails.getCodigo());
         producto.setNombre(productoDetails.getNombre());
         producto.setCaracteristicas(productoDetails.getCaracteristicas());
         producto.setPrecio(productoDetails.getPrecio());
         producto.setMoneda(productoDetails.getMoneda());
-        producto.setEmpresa(productoDetails.getEmpresa());
+        producto.setEmpresa(resolveEmpresa(productoDetails.getEmpresa()));
         producto.setCategorias(productoDetails.getCategorias());
+        empresaDeletionService.checkNotDeleting(before.empresaNit(), empresaNit(producto));
+        renormalizePrecio(producto, previousPrecio, previousMoneda);
         
-        return productoRepository.save(producto);
+        try {
+            Producto saved = productoRepository.saveAndFlush(producto);
+            dataVersionService.bump(DataVersionService.PRODUCTOS);
+            ProductoFacetService.Entry after = ProductoFacetService.Entry.of(saved);
+            productoFacetService.recordChange(before, after);
+            empresaStatsService.recordChange(before.empresaNit(), after.empresaNit());
+            return saved;
+        } catch (DataIntegrityViolationException e) {
+            throw translate(e);
+        }
     }
 
-    public void deleteById(Long id) {
-        if (!productoRepository.existsById(id)) {
-            throw new RuntimeException("Producto no encontrado");
+    /**
+     * Applies only the supplied fields; with dynamic update the UPDATE statement touches just
+     * the changed columns and the version check catches concurrent edits.
+     */
+    @Transactional
+    public Producto patch(Long id, ProductoPatchDTO patch, Long expectedVersion) {
+        Producto producto = productoRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Producto no encontrado"));
+        checkVersion(producto.getVersion(), expectedVersion);
+        ProductoFacetService.Entry before = ProductoFacetService.Entry.of(producto);
+        BigDecimal previousPrecio = producto.getPrecio();
+        String previousMoneda = producto.getMoneda();
+
+        if (patch.getCodigo() != null) {
+            producto.setCodigo(patch.getCodigo());
+        }
+        if (patch.getNombre() != null) {
+            producto.setNombre(patch.getNombre());
+        }
+        if (patch.getCaracteristicas() != null) {
+            producto.setCaracteristicas(patch.getCaracteristicas());
+        }
+        if (patch.getPrecio() != null) {
+            producto.setPrecio(patch.getPrecio());
+        }
+        if (patch.getMoneda() != null) {
+            producto.setMoneda(patch.getMoneda());
+        }
+        if (patch.getEmpresaNit() != null) {
+            producto.setEmpresa(empresaRef(patch.getEmpresaNit()));
+        }
+        if (patch.getCategoriaId() != null) {
+            producto.setCategorias(new ArrayList<>(List.of(categoriaRepository.getReferenceById(patch.getCategoriaId()))));
+        }
+        empresaDeletionService.checkNotDeleting(before.empresaNit(), empresaNit(producto));
+        renormalizePrecio(producto, previousPrecio, previousMoneda);
+
+        try {
+            Producto saved = productoRepository.saveAndFlush(producto);
+            dataVersionService.bump(DataVersionService.PRODUCTOS);
+            ProductoFacetService.Entry after = ProductoFacetService.Entry.of(saved);
+            productoFacetService.recordChange(before, after);
+            empresaStatsService.recordChange(before.empresaNit(), after.empresaNit());
+            return saved;
+        } catch (DataIntegrityViolationException e) {
+            throw translate(e);
         }
-        productoRepository.deleteById(id);
+    }
+
+    /**
+     * Creates or updates the product identified by its codigo in a single statement, which
+     * returns the previous company and price for the facet delta; replacing the category
+     * links returns the previous categories.
+     */
+    @Transactional
+    public ProductoUpsertResult upsertByCodigo(Producto producto, Long categoriaId) {
+        producto.setEmpresa(resolveEmpresa(producto.getEmpresa()));
+        normalizePrecio(producto);
+        try {
+            var result = productoRepository.upsertByCodigo(producto);
+            Set<Long> previousCategorias = categoriaId != null || !result.created()
+                    ? productoRepository.replaceCategoria(result.id(), categoriaId)
+                    : Set.of();
+            dataVersionService.bump(DataVersionService.PRODUCTOS);
+            producto.setId(result.id());
+            producto.setVersion(result.version());
+            producto.setCategorias(categoriaId == null ? List.of() : List.of(categoriaRef(categoriaId)));
+            ProductoUpsertRepository.Previous previous = result.previous();
+            ProductoFacetService.Entry before = previous == null ? null
+                    : new ProductoFacetService.Entry(previous.empresaNit(), previousCategorias, previous.precioUsd());
+            ProductoFacetService.Entry after = ProductoFacetService.Entry.of(producto);
+            // Checked after the write, the only point the previous company is known; a throw rolls it back
+            empresaDeletionService.checkNotDeleting(before == null ? null : before.empresaNit(), after.empresaNit());
+            productoFacetService.recordChange(before, after);
+            empresaStatsService.recordChange(before == null ? null : before.empresaNit(), after.empresaNit());
+            return new ProductoUpsertResult(producto, result.created());
+        } catch (DataIntegrityViolationException e) {
+            throw translate(e);
+        }
+    }
+
+    @Transactional
+    public void deleteById(Long id) {
+        Producto producto = productoRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Producto no encontrado"));
+        ProductoFacetService.Entry before = ProductoFacetService.Entry.of(producto);
+        productoRepository.delete(producto);
+        dataVersionService.bump(DataVersionService.PRODUCTOS);
+        productoFacetService.recordChange(before, null);
+        empresaStatsService.recordChange(before.empresaNit());
     }
 }
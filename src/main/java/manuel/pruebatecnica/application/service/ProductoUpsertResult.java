@@ -0,0 +1,6 @@
+package manuel.pruebatecnica.application.service;
+
+import manuel.pruebatecnica.domain.model.Producto;
+
+public record ProductoUpsertResult(Producto producto, boolean created) {
+}
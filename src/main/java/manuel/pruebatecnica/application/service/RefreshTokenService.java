@@ -0,0 +1,113 @@
+package manuel.pruebatecnica.application.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import manuel.pruebatecnica.domain.model.RefreshToken;
+import manuel.pruebatecnica.domain.model.Usuario;
+import manuel.pruebatecnica.infrastructure.exception.InvalidRefreshTokenException;
+import manuel.pruebatecnica.infrastructure.repository.RefreshTokenRepository;
+import manuel.pruebatecnica.infrastructure.repository.UsuarioRepository;
+import manuel.pruebatecnica.security.JwtTokenUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.UUID;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RefreshTokenService {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final UsuarioRepository usuarioRepository;
+    private final JwtTokenUtil jwtTokenUtil;
+
+    @Value("${jwt.refresh-expiration:1209600000}")
+    private Long refreshExpiration;
+
+    public record IssuedTokens(String accessToken, String refreshToken, Usuario usuario) {
+    }
+
+    @Transactional
+    public String issue(Usuario usuario) {
+        return issue(usuarioRepository.getReferenceById(usuario.getId()), UUID.randomUUID().toString());
+    }
+
+    /**
+     * Exchanges a refresh token for a new access token and a new refresh token.
+     * Presenting an already rotated token revokes its whole family, since it means
+     * the token was copied.
+     */
+    @Transactional(noRollbackFor = InvalidRefreshTokenException.class)
+    public IssuedTokens rotate(String rawToken) {
+        RefreshToken current = refreshTokenRepository.findByTokenHashForUpdate(hash(rawToken))
+                .orElseThrow(() -> new InvalidRefreshTokenException("Refresh token inválido"));
+
+        if (current.isRevoked()) {
+            refreshTokenRepository.revokeFamily(current.getFamilyId());
+            log.warn("Refresh token reuse detected for family {}", current.getFamilyId());
+            throw new InvalidRefreshTokenException("Refresh token reutilizado, la sesión fue revocada");
+        }
+
+        if (current.getExpiresAt().isBefore(LocalDateTime.now())) {
+            throw new InvalidRefreshTokenException("Refresh token expirado");
+        }
+
+        current.setRevoked(true);
+
+        Usuario usuario = current.getUsuario();
+        String refreshToken = issue(usuario, current.getFamilyId());
+        String accessToken = jwtTokenUtil.generateToken(usuario.getEmail(), usuario.getRol().name());
+
+        return new IssuedTokens(accessToken, refreshToken, usuario);
+    }
+
+    @Transactional
+    public void revoke(String rawToken) {
+        refreshTokenRepository.findByTokenHash(hash(rawToken))
+                .ifPresent(token -> refreshTokenRepository.revokeFamily(token.getFamilyId()));
+    }
+
+    @Scheduled(cron = "${jwt.refresh-cleanup-cron:0 0 3 * * *}")
+    @Transactional
+    public void deleteExpired() {
+        int deleted = refreshTokenRepository.deleteExpired(LocalDateTime.now());
+        log.info("Deleted {} expired refresh tokens", deleted);
+    }
+
+    private String issue(Usuario usuario, String familyId) {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setTokenHash(hash(rawToken));
+        refreshToken.setFamilyId(familyId);
+        refreshToken.setUsuario(usuario);
+        refreshToken.setExpiresAt(LocalDateTime.now().plus(Duration.ofMillis(refreshExpiration)));
+        refreshTokenRepository.save(refreshToken);
+
+        return rawToken;
+    }
+
+    static String hash(String rawToken) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(rawToken.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
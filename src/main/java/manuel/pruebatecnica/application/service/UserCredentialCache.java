@@ -0,0 +1,45 @@
+package manuel.pruebatecnica.application.service;
+
+import manuel.pruebatecnica.domain.model.Usuario;
+import manuel.pruebatecnica.infrastructure.cache.BoundedTtlCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Read-through cache of the fields needed to check a login (email -> id, hash, role).
+ * Entries are invalidated locally on register and when a login re-hashes the password;
+ * other nodes pick the change up when their entry's TTL runs out.
+ */
+@Component
+public class UserCredentialCache {
+
+    private final BoundedTtlCache<String, UserCredential> cache;
+
+    public UserCredentialCache(@Value("${auth.credential-cache.max-size:10000}") int maxSize,
+                               @Value("${auth.credential-cache.ttl-ms:300000}") long ttlMillis) {
+        this.cache = new BoundedTtlCache<>(maxSize, ttlMillis);
+    }
+
+    public record UserCredential(Long id, String email, String passwordHash, Usuario.Role role) {
+
+        public static UserCredential from(Usuario usuario) {
+            return new UserCredential(usuario.getId(), usuario.getEmail(), usuario.getPassword(), usuario.getRol());
+        }
+
+        public Usuario toUsuario() {
+            return new Usuario(id, email, passwordHash, role);
+        }
+    }
+
+    public UserCredential get(String email) {
+        return cache.get(email);
+    }
+
+    public void put(UserCredential credential) {
+        cache.put(credential.email(), credential);
+    }
+
+    public void invalidate(String email) {
+        cache.invalidate(email);
+    }
+}
@@ -0,0 +1,60 @@
+package manuel.pruebatecnica.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Schema changes that spring.jpa.hibernate.ddl-auto=update cannot make on an existing
+ * database, applied at startup right after Hibernate has updated the tables. Every
+ * statement is idempotent, so each node runs them all on every start. Only PostgreSQL
+ * needs them; databases created from scratch by Hibernate (H2 in tests) start correct.
+ */
+@Slf4j
+@Component
+public class SchemaMigrations {
+
+    private static final List<String> POSTGRES = List.of(
+            // productos moved from IDENTITY to a pooled sequence (allocation 50): a sequence created
+            // on a populated table starts at 1, so move it past every existing id
+            """
+            SELECT setval('productos_seq', (SELECT MAX(id) FROM productos) + 50)
+            WHERE (SELECT MAX(id) FROM productos) + 50 > (SELECT last_value FROM productos_seq)
+            """,
+            // At most one pending or running report per company and recipient, whichever node queues it;
+            // duplicates queued before the index existed are cancelled first
+            """
+            UPDATE inventory_report_jobs j SET estado = 'CANCELADA', error = 'Duplicado de un reporte en curso'
+            WHERE j.estado IN ('PENDIENTE', 'EN_PROCESO') AND EXISTS (
+                SELECT 1 FROM inventory_report_jobs o
+                WHERE o.clave = j.clave AND o.estado IN ('PENDIENTE', 'EN_PROCESO') AND o.id < j.id)
+            """,
+            """
+            CREATE UNIQUE INDEX IF NOT EXISTS uk_inventory_report_jobs_clave_activa ON inventory_report_jobs (clave)
+            WHERE estado IN ('PENDIENTE', 'EN_PROCESO')
+            """
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // The EntityManagerFactory is only a dependency so that Hibernate's schema update runs first
+    public SchemaMigrations(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    void migrate() {
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        if (!"PostgreSQL".equals(database)) {
+            return;
+        }
+        POSTGRES.forEach(jdbcTemplate::execute);
+        log.info("Applied {} schema migrations", POSTGRES.size());
+    }
+}
@@ -10,8 +10,9 @@ public class WebConfig implements WebMvcConfigurer {
     public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/api/**") // Apply CORS to specific paths
                 .allowedOrigins("http://localhost:3000", "https://manuelninyo.github.io") // Allow requests from these origins
-                .allowedMethods("GET", "POST", "PUT", "DELETE") // Allowed HTTP methods
+                .allowedMethods("GET", "POST", "PUT", "PATCH", "DELETE") // Allowed HTTP methods
                 .allowedHeaders("*") // Allow all headers
+                .exposedHeaders("ETag") // Let clients read the version for If-Match
                 .allowCredentials(true) // Allow sending cookies and authentication headers
                 .maxAge(3600); // Cache preflight requests for 1 hour
     }
@@ -0,0 +1,23 @@
+package manuel.pruebatecnica.domain.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name = "data_versions")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DataVersion {
+    
+    // Aggregate name, e.g. "productos" or "empresas"
+    @Id
+    @Column(name = "aggregate", length = 50)
+    private String aggregate;
+    
+    // Bumped by every committed write to the aggregate
+    @Column(name = "version", nullable = false)
+    private long version;
+}
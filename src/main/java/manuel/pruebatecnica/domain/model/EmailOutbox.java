@@ -0,0 +1,66 @@
+package manuel.pruebatecnica.domain.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "email_outbox", indexes = {
+    @Index(name = "idx_email_outbox_estado_proximo", columnList = "estado, proximo_intento, id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmailOutbox {
+    
+    public static final String PENDIENTE = "PENDIENTE";
+    public static final String ENVIADO = "ENVIADO";
+    // Dead letter: out of attempts or rejected permanently by the server
+    public static final String MUERTO = "MUERTO";
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "destinatario", nullable = false)
+    private String destinatario;
+    
+    // Lowercased domain of the recipient; delivery concurrency is limited per domain
+    @Column(name = "dominio", nullable = false)
+    private String dominio;
+    
+    @Column(name = "asunto", nullable = false)
+    private String asunto;
+    
+    @Column(name = "cuerpo", columnDefinition = "TEXT")
+    private String cuerpo;
+    
+    // File name in the shared outbox attachment directory, removed once the message is sent or dead
+    @Column(name = "adjunto", length = 1000)
+    private String adjunto;
+    
+    @Column(name = "adjunto_nombre")
+    private String adjuntoNombre;
+    
+    @Column(name = "estado", nullable = false, length = 20)
+    private String estado = PENDIENTE;
+    
+    @Column(name = "intentos", nullable = false)
+    private int intentos;
+    
+    // Next delivery attempt; also moved forward while a dispatcher holds the message
+    @Column(name = "proximo_intento", nullable = false)
+    private LocalDateTime proximoIntento = LocalDateTime.now();
+    
+    @Column(name = "error", length = 500)
+    private String error;
+    
+    @Column(name = "fecha_creacion", nullable = false)
+    private LocalDateTime fechaCreacion = LocalDateTime.now();
+    
+    @Column(name = "fecha_envio")
+    private LocalDateTime fechaEnvio;
+}
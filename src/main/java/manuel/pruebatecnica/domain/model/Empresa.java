@@ -4,12 +4,13 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.util.List;
 
 @Entity
 @Table(name = "empresas")
+@DynamicUpdate
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -28,6 +29,11 @@ public class Empresa {
     @Column(name = "telefono", length = 50)
     private String telefono;
     
-    @OneToMany(mappedBy = "empresa", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @Version
+    @Column(name = "version", columnDefinition = "bigint default 0 not null")
+    private Long version;
+    
+    // Not cascaded: products are removed in bulk by EmpresaDeletionService
+    @OneToMany(mappedBy = "empresa", fetch = FetchType.LAZY)
     private List<Producto> productos;
 }
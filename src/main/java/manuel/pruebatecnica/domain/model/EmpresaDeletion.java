@@ -0,0 +1,57 @@
+package manuel.pruebatecnica.domain.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "empresa_deletions", indexes = {
+    @Index(name = "idx_empresa_deletions_estado", columnList = "estado, empresa_nit")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmpresaDeletion {
+    
+    public static final String PENDIENTE = "PENDIENTE";
+    public static final String EN_PROCESO = "EN_PROCESO";
+    public static final String COMPLETADA = "COMPLETADA";
+    public static final String FALLIDA = "FALLIDA";
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    // Not a foreign key: the company row is gone once the job completes
+    @Column(name = "empresa_nit", nullable = false, length = 20)
+    private String empresaNit;
+    
+    @Column(name = "estado", nullable = false, length = 20)
+    private String estado = PENDIENTE;
+    
+    // Products of the company when the job was created
+    @Column(name = "total_productos", nullable = false)
+    private long totalProductos;
+    
+    @Column(name = "productos_eliminados", nullable = false)
+    private long productosEliminados;
+    
+    @Column(name = "error", length = 500)
+    private String error;
+    
+    // Instance processing the job and until when; another node takes the job over once it lapses
+    @Column(name = "nodo", length = 36)
+    private String nodo;
+    
+    @Column(name = "lease_hasta")
+    private LocalDateTime leaseHasta;
+    
+    @Column(name = "fecha_creacion", nullable = false)
+    private LocalDateTime fechaCreacion = LocalDateTime.now();
+    
+    @Column(name = "fecha_actualizacion", nullable = false)
+    private LocalDateTime fechaActualizacion = LocalDateTime.now();
+}
@@ -0,0 +1,47 @@
+package manuel.pruebatecnica.domain.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+@Entity
+@Table(name = "empresa_stats")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmpresaStats {
+    
+    @Id
+    @Column(name = "empresa_nit", length = 20)
+    private String empresaNit;
+    
+    @Column(name = "productos", nullable = false)
+    private long productos;
+    
+    // Sum of precio per original currency
+    @ElementCollection(fetch = FetchType.LAZY)
+    @CollectionTable(name = "empresa_stats_monedas", joinColumns = @JoinColumn(name = "empresa_nit"))
+    @MapKeyColumn(name = "moneda", length = 3)
+    @Column(name = "valor", nullable = false, precision = 19, scale = 2)
+    private Map<String, BigDecimal> valorPorMoneda = new HashMap<>();
+    
+    // Products per category id
+    @ElementCollection(fetch = FetchType.LAZY)
+    @CollectionTable(name = "empresa_stats_categorias", joinColumns = @JoinColumn(name = "empresa_nit"))
+    @MapKeyColumn(name = "categoria_id")
+    @Column(name = "productos", nullable = false)
+    private Map<Long, Long> productosPorCategoria = new HashMap<>();
+    
+    // Incremented by every recompute
+    @Column(name = "revision", nullable = false)
+    private long revision;
+    
+    @Column(name = "fecha_actualizacion", nullable = false)
+    private LocalDateTime fechaActualizacion;
+}
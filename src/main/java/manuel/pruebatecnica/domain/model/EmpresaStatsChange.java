@@ -0,0 +1,33 @@
+package manuel.pruebatecnica.domain.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// A company whose products changed and whose stats row must be recomputed
+@Entity
+@Table(name = "empresa_stats_changes", indexes = {
+    @Index(name = "idx_empresa_stats_changes_nit", columnList = "empresa_nit")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmpresaStatsChange {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "empresa_nit", nullable = false, length = 20)
+    private String empresaNit;
+    
+    @Column(name = "fecha_registro", nullable = false)
+    private LocalDateTime fechaRegistro = LocalDateTime.now();
+    
+    public EmpresaStatsChange(String empresaNit) {
+        this.empresaNit = empresaNit;
+    }
+}
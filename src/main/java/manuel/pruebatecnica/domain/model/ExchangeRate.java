@@ -0,0 +1,24 @@
+package manuel.pruebatecnica.domain.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+// Value of one unit of the currency in USD, shared by every node; USD itself is implicit
+@Entity
+@Table(name = "exchange_rates")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExchangeRate {
+
+    @Id
+    @Column(name = "moneda", length = 3)
+    private String moneda;
+
+    @Column(name = "tasa", nullable = false, precision = 19, scale = 8)
+    private BigDecimal tasa;
+}
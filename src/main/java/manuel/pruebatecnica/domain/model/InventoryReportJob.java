@@ -0,0 +1,73 @@
+package manuel.pruebatecnica.domain.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "inventory_report_jobs", indexes = {
+    @Index(name = "idx_inventory_report_jobs_clave", columnList = "clave, estado"),
+    @Index(name = "idx_inventory_report_jobs_estado", columnList = "estado, id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryReportJob {
+    
+    public static final String PENDIENTE = "PENDIENTE";
+    public static final String EN_PROCESO = "EN_PROCESO";
+    public static final String COMPLETADA = "COMPLETADA";
+    public static final String FALLIDA = "FALLIDA";
+    public static final String CANCELADA = "CANCELADA";
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    // Company NIT (or * for all companies) and lowercased recipient; equal requests share a job
+    // (a partial unique index over the active jobs, see SchemaMigrations)
+    @Column(name = "clave", nullable = false)
+    private String clave;
+    
+    // Null for a report of all companies
+    @Column(name = "empresa_nit", length = 20)
+    private String empresaNit;
+    
+    @Column(name = "destinatario", nullable = false)
+    private String destinatario;
+    
+    @Column(name = "asunto", nullable = false)
+    private String asunto;
+    
+    @Column(name = "cuerpo", columnDefinition = "TEXT")
+    private String cuerpo;
+    
+    @Column(name = "estado", nullable = false, length = 20)
+    private String estado = PENDIENTE;
+    
+    // Products of the covered companies when the job started
+    @Column(name = "total_productos", nullable = false)
+    private long totalProductos;
+    
+    @Column(name = "productos_procesados", nullable = false)
+    private long productosProcesados;
+    
+    @Column(name = "error", length = 500)
+    private String error;
+    
+    // Instance rendering the job and until when; another node takes the job over once it lapses
+    @Column(name = "nodo", length = 36)
+    private String nodo;
+    
+    @Column(name = "lease_hasta")
+    private LocalDateTime leaseHasta;
+    
+    @Column(name = "fecha_creacion", nullable = false)
+    private LocalDateTime fechaCreacion = LocalDateTime.now();
+    
+    @Column(name = "fecha_actualizacion", nullable = false)
+    private LocalDateTime fechaActualizacion = LocalDateTime.now();
+}
@@ -5,19 +5,27 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.math.BigDecimal;
 import java.util.List;
 
 @Entity
-@Table(name = "productos")
+@Table(name = "productos", indexes = {
+    @Index(name = "idx_productos_empresa_id", columnList = "empresa_nit, id"),
+    @Index(name = "idx_productos_nombre_id", columnList = "nombre, id"),
+    @Index(name = "idx_productos_precio_usd_id", columnList = "precio_usd, id")
+})
+@DynamicUpdate
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Producto {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "productos_seq")
+    @SequenceGenerator(name = "productos_seq", sequenceName = "productos_seq", allocationSize = 50)
     private Long id;
     
     @Column(name = "codigo", nullable = false, length = 50, unique = true)
@@ -35,16 +43,26 @@ public class Producto {
     @Column(name = "moneda", nullable = false, length = 3)
     private String moneda = "USD";
     
+    // precio converted to USD; kept in sync by ExchangeRateService, used to filter and sort by price
+    @Column(name = "precio_usd", precision = 19, scale = 4)
+    private BigDecimal precioUsd;
+    
+    @Version
+    @Column(name = "version", columnDefinition = "bigint default 0 not null")
+    private Long version;
+    
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "empresa_nit", nullable = false)
     @JsonIgnore
     private Empresa empresa;
     
     @ManyToMany(fetch = FetchType.LAZY)
+    @BatchSize(size = 100)
     @JoinTable(
         name = "producto_categorias",
         joinColumns = @JoinColumn(name = "producto_id"),
-        inverseJoinColumns = @JoinColumn(name = "categoria_id")
+        inverseJoinColumns = @JoinColumn(name = "categoria_id"),
+        indexes = @Index(name = "idx_producto_categorias_categoria", columnList = "categoria_id, producto_id")
     )
     private List<Categoria> categorias;
     
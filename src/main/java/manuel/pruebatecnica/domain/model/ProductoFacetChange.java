@@ -0,0 +1,34 @@
+package manuel.pruebatecnica.domain.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Facet counter deltas of one committed product write, replayed by every node in id order
+@Entity
+@Table(name = "producto_facet_changes", indexes = {
+    @Index(name = "idx_producto_facet_changes_fecha", columnList = "fecha_registro")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductoFacetChange {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // JSON of the counter deltas (total, per category, per company, per price bucket)
+    @Column(name = "delta", nullable = false, columnDefinition = "TEXT")
+    private String delta;
+
+    @Column(name = "fecha_registro", nullable = false)
+    private LocalDateTime fechaRegistro = LocalDateTime.now();
+
+    public ProductoFacetChange(String delta) {
+        this.delta = delta;
+    }
+}
@@ -5,10 +5,16 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import manuel.pruebatecnica.application.service.AuthService;
+import manuel.pruebatecnica.application.service.RefreshTokenService;
 import manuel.pruebatecnica.domain.model.Usuario;
 import manuel.pruebatecnica.infrastructure.dto.*;
+import manuel.pruebatecnica.infrastructure.exception.InvalidRefreshTokenException;
+import manuel.pruebatecnica.infrastructure.exception.ServiceUnavailableException;
 import manuel.pruebatecnica.infrastructure.mapper.EntityMapper;
 import manuel.pruebatecnica.security.JwtTokenUtil;
+import manuel.pruebatecnica.security.TokenRevocationService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -19,7 +25,9 @@ import org.springframework.web.bind.annotation.*;
 public class AuthController {
 
     private final AuthService authService;
+    private final RefreshTokenService refreshTokenService;
     private final JwtTokenUtil jwtTokenUtil;
+    private final TokenRevocationService tokenRevocationService;
     private final EntityMapper entityMapper;
 
     @PostMapping("/login")
@@ -29,21 +37,62 @@ public class AuthController {
             Usuario usuario = authService.authenticate(authRequest.getEmail(), authRequest.getPassword());
             
             String token = jwtTokenUtil.generateToken(usuario.getEmail(), usuario.getRol().name());
+            String refreshToken = refreshTokenService.issue(usuario);
             
             AuthResponse response = new AuthResponse(
                 token, 
                 "Bearer", 
-                86400000L, 
+                jwtTokenUtil.getExpiration(), 
                 usuario.getRol().name(), 
-                usuario.getEmail()
+                usuario.getEmail(),
+                refreshToken
             );
             
             return ResponseEntity.ok(ApiResponse.success("Login successful", response));
+        } catch (ServiceUnavailableException e) {
+            return serviceUnavailable(e);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error("Invalid credentials: " + e.getMessage()));
         }
     }
 
+    @PostMapping("/refresh")
+    @Operation(summary = "Refresh token", description = "Exchange a refresh token for a new access token and a new refresh token")
+    public ResponseEntity<ApiResponse<AuthResponse>> refresh(@Valid @RequestBody RefreshTokenRequest refreshRequest) {
+        try {
+            RefreshTokenService.IssuedTokens tokens = refreshTokenService.rotate(refreshRequest.getRefreshToken());
+            Usuario usuario = tokens.usuario();
+            
+            AuthResponse response = new AuthResponse(
+                tokens.accessToken(),
+                "Bearer",
+                jwtTokenUtil.getExpiration(),
+                usuario.getRol().name(),
+                usuario.getEmail(),
+                tokens.refreshToken()
+            );
+            
+            return ResponseEntity.ok(ApiResponse.success("Token refreshed", response));
+        } catch (InvalidRefreshTokenException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    @PostMapping("/logout")
+    @Operation(summary = "Logout", description = "Revoke the current access token and, if provided, the refresh token family")
+    public ResponseEntity<ApiResponse<Void>> logout(
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+            @RequestBody(required = false) RefreshTokenRequest refreshRequest) {
+        if (authorization != null && authorization.startsWith("Bearer ")) {
+            jwtTokenUtil.verify(authorization.substring(7))
+                    .ifPresent(claims -> tokenRevocationService.revoke(claims.tokenId(), claims.expiration()));
+        }
+        if (refreshRequest != null && refreshRequest.getRefreshToken() != null) {
+            refreshTokenService.revoke(refreshRequest.getRefreshToken());
+        }
+        return ResponseEntity.ok(ApiResponse.success("Logout successful", null));
+    }
+
     @PostMapping("/register")
     @Operation(summary = "Register user", description = "Register a new user")
     public ResponseEntity<ApiResponse<UsuarioDTO>> register(@Valid @RequestBody UsuarioDTO usuarioDTO) {
@@ -55,8 +104,16 @@ public class AuthController {
             Usuario usuario = authService.register(usuarioDTO.getEmail(), "defaultPassword", role);
             
             return ResponseEntity.ok(ApiResponse.success("User registered successfully", entityMapper.toUsuarioDTO(usuario)));
+        } catch (ServiceUnavailableException e) {
+            return serviceUnavailable(e);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error("Registration failed: " + e.getMessage()));
         }
     }
+
+    private <T> ResponseEntity<ApiResponse<T>> serviceUnavailable(ServiceUnavailableException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(ApiResponse.error(e.getMessage()));
+    }
 }
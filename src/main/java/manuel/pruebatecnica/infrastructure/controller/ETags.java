@@ -0,0 +1,73 @@
+package manuel.pruebatecnica.infrastructure.controller;
+
+/**
+ * Strong ETags for the catalog endpoints.
+ * Lists use the aggregate stamp ("p17", "e5.p17"); single resources prefix it with the
+ * entity version ("3-p17") so If-Match can still check the row version and If-None-Match
+ * can be answered from the stamp alone.
+ */
+final class ETags {
+
+    private ETags() {
+    }
+
+    static String productosStamp(long productos) {
+        return "p" + productos;
+    }
+
+    static String empresasStamp(long empresas, long productos) {
+        return "e" + empresas + "." + productosStamp(productos);
+    }
+
+    static String ofStamp(String stamp) {
+        return "\"" + stamp + "\"";
+    }
+
+    static String of(Long version, String stamp) {
+        return "\"" + (version == null ? 0 : version) + "-" + stamp + "\"";
+    }
+
+    /**
+     * Returns the tag from If-None-Match whose stamp is still current, or null if none is.
+     */
+    static String currentDetailTag(String ifNoneMatch, String stamp) {
+        if (ifNoneMatch == null) {
+            return null;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            String value = unquote(tag);
+            int dash = value.indexOf('-');
+            if (dash > 0 && value.substring(dash + 1).equals(stamp)) {
+                return "\"" + value + "\"";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the entity version expected by the client, or null when no precondition was sent.
+     */
+    static Long parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String value = unquote(ifMatch);
+        int dash = value.indexOf('-');
+        if (dash > 0) {
+            value = value.substring(0, dash);
+        }
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Encabezado If-Match inválido");
+        }
+    }
+
+    private static String unquote(String tag) {
+        String value = tag.trim();
+        if (value.startsWith("W/")) {
+            value = value.substring(2);
+        }
+        return value.replace("\"", "");
+    }
+}
@@ -5,15 +5,33 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import manuel.pruebatecnica.application.service.DataVersionService;
+import manuel.pruebatecnica.application.service.EmpresaReferenceCache;
 import manuel.pruebatecnica.application.service.EmpresaService;
+import manuel.pruebatecnica.application.service.EmpresaStatsService;
 import manuel.pruebatecnica.domain.model.Empresa;
+import manuel.pruebatecnica.domain.model.EmpresaDeletion;
+import manuel.pruebatecnica.domain.model.Producto;
 import manuel.pruebatecnica.infrastructure.dto.ApiResponse;
 import manuel.pruebatecnica.infrastructure.dto.EmpresaDTO;
+import manuel.pruebatecnica.infrastructure.dto.EmpresaDeletionDTO;
+import manuel.pruebatecnica.infrastructure.dto.EmpresaPatchDTO;
+import manuel.pruebatecnica.infrastructure.dto.EmpresaStatsDTO;
+import manuel.pruebatecnica.infrastructure.exception.ConflictException;
+import manuel.pruebatecnica.infrastructure.exception.PreconditionFailedException;
+import manuel.pruebatecnica.infrastructure.repository.EmpresaSummary;
 import manuel.pruebatecnica.infrastructure.mapper.EntityMapper;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.net.URI;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/empresas")
@@ -23,20 +41,54 @@ public class EmpresaController {
 
     private final EmpresaService empresaService;
     private final EntityMapper entityMapper;
+    private final DataVersionService dataVersionService;
+    private final EmpresaStatsService empresaStatsService;
 
     @GetMapping
-    @Operation(summary = "Get all companies", description = "Retrieve all companies", security = @SecurityRequirement(name = "Bearer Authentication"))
-    public ResponseEntity<ApiResponse<List<EmpresaDTO>>> findAll() {
-        List<Empresa> empresas = empresaService.findAll();
-        List<EmpresaDTO> empresaDTOs = entityMapper.toEmpresaDTOList(empresas);
-        return ResponseEntity.ok(ApiResponse.success(empresaDTOs));
+    @Operation(summary = "Get all companies", description = "Retrieve all companies with their product count; expand=productos also includes each company's first products", security = @SecurityRequirement(name = "Bearer Authentication"))
+    public ResponseEntity<ApiResponse<List<EmpresaDTO>>> findAll(@RequestParam(required = false) String expand, WebRequest webRequest) {
+        if (expand != null && !"productos".equals(expand)) {
+            throw new IllegalArgumentException("Valor de expand no soportado: " + expand);
+        }
+        String etag = ETags.ofStamp(stamp());
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        List<EmpresaSummary> empresas = empresaService.findSummaries();
+        Map<String, List<Producto>> productos = expand == null
+                ? Map.of()
+                : empresaService.findProductosByEmpresa(empresas.stream().map(EmpresaSummary::nit).toList());
+        List<EmpresaDTO> empresaDTOs = empresas.stream()
+                .map(empresa -> entityMapper.toEmpresaDTO(empresa, productos.get(empresa.nit())))
+                .toList();
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(ApiResponse.success(empresaDTOs));
     }
 
     @GetMapping("/{nit}")
     @Operation(summary = "Get company by NIT", description = "Retrieve a specific company by its NIT", security = @SecurityRequirement(name = "Bearer Authentication"))
-    public ResponseEntity<ApiResponse<EmpresaDTO>> findByNit(@PathVariable String nit) {
+    public ResponseEntity<ApiResponse<EmpresaDTO>> findByNit(@PathVariable String nit, WebRequest webRequest) {
+        String stamp = stamp();
+        String current = ETags.currentDetailTag(webRequest.getHeader(HttpHeaders.IF_NONE_MATCH), stamp);
+        if (current != null && webRequest.checkNotModified(current)) {
+            return null;
+        }
         return empresaService.findByNit(nit)
-                .map(empresa -> ResponseEntity.ok(ApiResponse.success(entityMapper.toEmpresaDTO(empresa))))
+                .map(empresa -> ResponseEntity.ok()
+                        .eTag(ETags.of(empresa.getVersion(), stamp))
+                        .cacheControl(CacheControl.noCache().cachePrivate())
+                        .body(ApiResponse.success(entityMapper.toEmpresaDTO(empresa))))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/{nit}/stats")
+    @Operation(summary = "Get company stats", description = "Product count, inventory value per currency and products per category, from the stats summary", security = @SecurityRequirement(name = "Bearer Authentication"))
+    public ResponseEntity<ApiResponse<EmpresaStatsDTO>> findStats(@PathVariable String nit) {
+        return empresaStatsService.find(nit)
+                .map(snapshot -> ResponseEntity.ok(ApiResponse.success(
+                        entityMapper.toEmpresaStatsDTO(snapshot.stats(), snapshot.pendiente()))))
                 .orElse(ResponseEntity.notFound().build());
     }
 
@@ -54,24 +106,80 @@ public class EmpresaController {
 
     @PutMapping("/{nit}")
     @Operation(summary = "Update company", description = "Update an existing company", security = @SecurityRequirement(name = "Bearer Authentication"))
-    public ResponseEntity<ApiResponse<EmpresaDTO>> update(@PathVariable String nit, @Valid @RequestBody EmpresaDTO empresaDTO) {
+    public ResponseEntity<ApiResponse<EmpresaDTO>> update(@PathVariable String nit,
+                                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                          @Valid @RequestBody EmpresaDTO empresaDTO) {
         try {
             Empresa empresa = entityMapper.toEmpresa(empresaDTO);
-            Empresa updatedEmpresa = empresaService.update(nit, empresa);
-            return ResponseEntity.ok(ApiResponse.success("Company updated successfully", entityMapper.toEmpresaDTO(updatedEmpresa)));
+            Empresa updatedEmpresa = empresaService.update(nit, empresa, ETags.parseIfMatch(ifMatch));
+            return ResponseEntity.ok()
+                    .eTag(ETags.of(updatedEmpresa.getVersion(), stamp()))
+                    .body(ApiResponse.success("Company updated successfully", entityMapper.toEmpresaDTO(updatedEmpresa)));
+        } catch (PreconditionFailedException | OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(ApiResponse.error("Failed to update company: " + e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to update company: " + e.getMessage()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @PatchMapping("/{nit}")
+    @Operation(summary = "Patch company", description = "Update only the supplied fields; send the ETag in If-Match to reject concurrent edits with 412", security = @SecurityRequirement(name = "Bearer Authentication"))
+    public ResponseEntity<ApiResponse<EmpresaDTO>> patch(@PathVariable String nit,
+                                                         @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                         @Valid @RequestBody EmpresaPatchDTO patch) {
+        try {
+            Empresa patched = empresaService.patch(nit, patch, ETags.parseIfMatch(ifMatch));
+            return ResponseEntity.ok()
+                    .eTag(ETags.of(patched.getVersion(), stamp()))
+                    .body(ApiResponse.success("Company updated successfully", entityMapper.toEmpresaDTO(patched)));
+        } catch (PreconditionFailedException | OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(ApiResponse.error("Failed to update company: " + e.getMessage()));
+        } catch (ConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(ApiResponse.error("Failed to update company: " + e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to update company: " + e.getMessage()));
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
     }
 
     @DeleteMapping("/{nit}")
-    @Operation(summary = "Delete company", description = "Delete a company by its NIT", security = @SecurityRequirement(name = "Bearer Authentication"))
-    public ResponseEntity<ApiResponse<Void>> delete(@PathVariable String nit) {
+    @Operation(summary = "Delete company", description = "Delete a company and its products; large companies are deleted by a background job (202, follow Location for its status)", security = @SecurityRequirement(name = "Bearer Authentication"))
+    public ResponseEntity<ApiResponse<EmpresaDeletionDTO>> delete(@PathVariable String nit) {
         try {
-            empresaService.deleteByNit(nit);
-            return ResponseEntity.ok(ApiResponse.success("Company deleted successfully", null));
+            EmpresaDeletion deletion = empresaService.deleteByNit(nit);
+            EmpresaDeletionDTO dto = entityMapper.toEmpresaDeletionDTO(deletion);
+            if (EmpresaDeletion.COMPLETADA.equals(deletion.getEstado())) {
+                return ResponseEntity.ok(ApiResponse.success("Company deleted successfully", dto));
+            }
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/empresas/deletions/" + deletion.getId()))
+                    .body(ApiResponse.success("Company deletion started", dto));
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
     }
+
+    @GetMapping("/reference-cache")
+    @Operation(summary = "Get company reference cache stats", description = "Hits, misses and size of the NIT cache used by product writes and imports", security = @SecurityRequirement(name = "Bearer Authentication"))
+    public ResponseEntity<ApiResponse<EmpresaReferenceCache.Stats>> referenceCacheStats() {
+        return ResponseEntity.ok(ApiResponse.success(empresaService.referenceCacheStats()));
+    }
+
+    @GetMapping("/deletions/{id}")
+    @Operation(summary = "Get company deletion status", description = "Progress of a background company deletion", security = @SecurityRequirement(name = "Bearer Authentication"))
+    public ResponseEntity<ApiResponse<EmpresaDeletionDTO>> findDeletion(@PathVariable Long id) {
+        return empresaService.findDeletion(id)
+                .map(deletion -> ResponseEntity.ok(ApiResponse.success(entityMapper.toEmpresaDeletionDTO(deletion))))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // Company responses embed their products, so both stamps are part of the tag
+    private String stamp() {
+        return ETags.empresasStamp(
+                dataVersionService.current(DataVersionService.EMPRESAS),
+                dataVersionService.current(DataVersionService.PRODUCTOS));
+    }
 }
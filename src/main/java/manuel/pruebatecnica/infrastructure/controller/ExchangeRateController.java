@@ -0,0 +1,40 @@
+package manuel.pruebatecnica.infrastructure.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import manuel.pruebatecnica.application.service.ExchangeRateService;
+import manuel.pruebatecnica.infrastructure.dto.ApiResponse;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.TreeMap;
+
+@RestController
+@RequestMapping("/api/exchange-rates")
+@RequiredArgsConstructor
+@Tag(name = "Exchange rates", description = "Exchange rates used to normalize product prices to USD")
+public class ExchangeRateController {
+
+    private final ExchangeRateService exchangeRateService;
+
+    @GetMapping
+    @Operation(summary = "Get exchange rates", description = "Value of one unit of each supported currency in USD", security = @SecurityRequirement(name = "Bearer Authentication"))
+    public ResponseEntity<ApiResponse<Map<String, BigDecimal>>> findAll() {
+        return ResponseEntity.ok(ApiResponse.success(new TreeMap<>(exchangeRateService.rates())));
+    }
+
+    @PutMapping
+    @Operation(summary = "Update exchange rates", description = "Add or replace rates and recompute the normalized price of affected products", security = @SecurityRequirement(name = "Bearer Authentication"))
+    public ResponseEntity<ApiResponse<Integer>> update(@RequestBody Map<String, BigDecimal> rates) {
+        try {
+            int recomputed = exchangeRateService.updateRates(rates);
+            return ResponseEntity.ok(ApiResponse.success("Exchange rates updated successfully", recomputed));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+}
@@ -5,11 +5,24 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import manuel.pruebatecnica.application.service.InventoryReportCache;
+import manuel.pruebatecnica.application.service.InventoryReportJobService;
 import manuel.pruebatecnica.application.service.InventoryService;
+import manuel.pruebatecnica.domain.model.InventoryReportJob;
 import manuel.pruebatecnica.infrastructure.dto.ApiResponse;
+import manuel.pruebatecnica.infrastructure.dto.InventoryReportJobDTO;
 import manuel.pruebatecnica.infrastructure.dto.InventoryReportRequest;
+import manuel.pruebatecnica.infrastructure.mapper.EntityMapper;
+import manuel.pruebatecnica.infrastructure.repository.EmpresaSummary;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.net.URI;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/inventory")
@@ -18,21 +31,57 @@ import org.springframework.web.bind.annotation.*;
 public class InventoryController {
 
     private final InventoryService inventoryService;
+    private final InventoryReportJobService inventoryReportJobService;
+    private final EntityMapper entityMapper;
+
+    @GetMapping("/report")
+    @Operation(summary = "Download inventory report", description = "Stream the inventory PDF for all companies, or for one company; served from the report cache while the inventory is unchanged", security = @SecurityRequirement(name = "Bearer Authentication"))
+    public ResponseEntity<StreamingResponseBody> downloadInventoryReport(@RequestParam(required = false) String empresaNit) {
+        List<EmpresaSummary> empresas = inventoryService.reportEmpresas(empresaNit);
+        StreamingResponseBody body = output -> inventoryService.streamInventoryReport(empresas, output);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_PDF)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("inventario.pdf")
+                        .build()
+                        .toString())
+                .body(body);
+    }
+
+    @GetMapping("/report/cache")
+    @Operation(summary = "Get report cache stats", description = "Hits, misses, entries and bytes of the on-disk cache of generated reports", security = @SecurityRequirement(name = "Bearer Authentication"))
+    public ResponseEntity<ApiResponse<InventoryReportCache.Stats>> reportCacheStats() {
+        return ResponseEntity.ok(ApiResponse.success(inventoryService.reportCacheStats()));
+    }
 
     @PostMapping("/report/send")
-    @Operation(summary = "Send inventory report", description = "Generate and send inventory report via email", security = @SecurityRequirement(name = "Bearer Authentication"))
-    public ResponseEntity<ApiResponse<String>> sendInventoryReport(@Valid @RequestBody InventoryReportRequest request) {
-        try {
-            inventoryService.sendInventoryReport(
-                request.getToEmail(), 
-                request.getSubject(), 
+    @Operation(summary = "Send inventory report", description = "Queue the inventory report to be generated and emailed (202, follow Location for its status); an equal request still in flight returns the same job", security = @SecurityRequirement(name = "Bearer Authentication"))
+    public ResponseEntity<ApiResponse<InventoryReportJobDTO>> sendInventoryReport(@Valid @RequestBody InventoryReportRequest request) {
+        InventoryReportJob job = inventoryReportJobService.submit(
+                request.getToEmail(),
+                request.getSubject(),
                 request.getBody(),
                 request.getEmpresaNit()
-            );
-            return ResponseEntity.ok(ApiResponse.success("Inventory report sent successfully to " + request.getToEmail()));
-        } catch (Exception e) {
-            return ResponseEntity.internalServerError()
-                    .body(ApiResponse.error("Failed to send inventory report: " + e.getMessage()));
-        }
+        );
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/inventory/report/jobs/" + job.getId()))
+                .body(ApiResponse.success("Inventory report queued for " + job.getDestinatario(),
+                        entityMapper.toInventoryReportJobDTO(job)));
+    }
+
+    @GetMapping("/report/jobs/{id}")
+    @Operation(summary = "Get inventory report job", description = "Status and progress of a queued inventory report", security = @SecurityRequirement(name = "Bearer Authentication"))
+    public ResponseEntity<ApiResponse<InventoryReportJobDTO>> findJob(@PathVariable Long id) {
+        return inventoryReportJobService.findJob(id)
+                .map(job -> ResponseEntity.ok(ApiResponse.success(entityMapper.toInventoryReportJobDTO(job))))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @DeleteMapping("/report/jobs/{id}")
+    @Operation(summary = "Cancel inventory report job", description = "Cancel a pending or running inventory report", security = @SecurityRequirement(name = "Bearer Authentication"))
+    public ResponseEntity<ApiResponse<InventoryReportJobDTO>> cancelJob(@PathVariable Long id) {
+        return inventoryReportJobService.cancel(id)
+                .map(job -> ResponseEntity.ok(ApiResponse.success("Inventory report cancelled", entityMapper.toInventoryReportJobDTO(job))))
+                .orElse(ResponseEntity.notFound().build());
     }
 }
@@ -5,14 +5,36 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import manuel.pruebatecnica.application.service.CatalogFormat;
+import manuel.pruebatecnica.application.service.CursorPage;
+import manuel.pruebatecnica.application.service.DataVersionService;
+import manuel.pruebatecnica.application.service.ProductoExportService;
+import manuel.pruebatecnica.application.service.ProductoFacetService;
+import manuel.pruebatecnica.application.service.ProductoFacets;
+import manuel.pruebatecnica.application.service.ProductoImportReport;
+import manuel.pruebatecnica.application.service.ProductoImportService;
 import manuel.pruebatecnica.application.service.ProductoService;
+import manuel.pruebatecnica.application.service.ProductoUpsertResult;
 import manuel.pruebatecnica.domain.model.Producto;
 import manuel.pruebatecnica.infrastructure.dto.ApiResponse;
+import manuel.pruebatecnica.infrastructure.dto.CursorPageDTO;
 import manuel.pruebatecnica.infrastructure.dto.ProductoDTO;
+import manuel.pruebatecnica.infrastructure.dto.ProductoPageRequest;
+import manuel.pruebatecnica.infrastructure.dto.ProductoPatchDTO;
+import manuel.pruebatecnica.infrastructure.exception.ConflictException;
+import manuel.pruebatecnica.infrastructure.exception.PreconditionFailedException;
 import manuel.pruebatecnica.infrastructure.mapper.EntityMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
@@ -22,30 +44,81 @@ import java.util.List;
 public class ProductoController {
 
     private final ProductoService productoService;
+    private final ProductoImportService productoImportService;
+    private final ProductoExportService productoExportService;
+    private final ProductoFacetService productoFacetService;
+    private final DataVersionService dataVersionService;
     private final EntityMapper entityMapper;
 
     @GetMapping
-    @Operation(summary = "Get all products", description = "Retrieve all products", security = @SecurityRequirement(name = "Bearer Authentication"))
-    public ResponseEntity<ApiResponse<List<ProductoDTO>>> findAll() {
-        List<Producto> productos = productoService.findAll();
-        List<ProductoDTO> productoDTOs = entityMapper.toProductoDTOList(productos);
-        return ResponseEntity.ok(ApiResponse.success(productoDTOs));
+    @Operation(summary = "Get products", description = "Retrieve a page of products using a cursor, with optional sort (id, nombre, precio) and filters by company, category and price range", security = @SecurityRequirement(name = "Bearer Authentication"))
+    public ResponseEntity<ApiResponse<CursorPageDTO<ProductoDTO>>> findAll(ProductoPageRequest pageRequest, WebRequest webRequest) {
+        String etag = ETags.ofStamp(stamp());
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(ApiResponse.success(toPageDTO(productoService.findPage(pageRequest))));
+    }
+
+    @GetMapping("/export")
+    @Operation(summary = "Export products", description = "Stream the whole catalog, or one company's products, as NDJSON or CSV", security = @SecurityRequirement(name = "Bearer Authentication"))
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(defaultValue = "ndjson") String format,
+                                                        @RequestParam(required = false) String empresaNit) {
+        CatalogFormat catalogFormat = CatalogFormat.fromParameter(format);
+        StreamingResponseBody body = output -> productoExportService.export(empresaNit, catalogFormat, output);
+        return ResponseEntity.ok()
+                .contentType(catalogFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("productos." + catalogFormat.getExtension())
+                        .build()
+                        .toString())
+                .body(body);
+    }
+
+    @GetMapping("/facets")
+    @Operation(summary = "Get product facets", description = "Product counts per category, company and USD price bucket for the given filters", security = @SecurityRequirement(name = "Bearer Authentication"))
+    public ResponseEntity<ApiResponse<ProductoFacets>> facets(ProductoPageRequest filter, WebRequest webRequest) {
+        String etag = ETags.ofStamp(stamp());
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(ApiResponse.success(productoFacetService.facets(filter)));
     }
 
     @GetMapping("/{id}")
     @Operation(summary = "Get product by ID", description = "Retrieve a specific product by its ID", security = @SecurityRequirement(name = "Bearer Authentication"))
-    public ResponseEntity<ApiResponse<ProductoDTO>> findById(@PathVariable Long id) {
+    public ResponseEntity<ApiResponse<ProductoDTO>> findById(@PathVariable Long id, WebRequest webRequest) {
+        String stamp = stamp();
+        String current = ETags.currentDetailTag(webRequest.getHeader(HttpHeaders.IF_NONE_MATCH), stamp);
+        if (current != null && webRequest.checkNotModified(current)) {
+            return null;
+        }
         return productoService.findById(id)
-                .map(producto -> ResponseEntity.ok(ApiResponse.success(entityMapper.toProductoDTO(producto))))
+                .map(producto -> ResponseEntity.ok()
+                        .eTag(ETags.of(producto.getVersion(), stamp))
+                        .cacheControl(CacheControl.noCache().cachePrivate())
+                        .body(ApiResponse.success(entityMapper.toProductoDTO(producto))))
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/empresa/{empresaNit}")
-    @Operation(summary = "Get products by company", description = "Retrieve all products for a specific company", security = @SecurityRequirement(name = "Bearer Authentication"))
-    public ResponseEntity<ApiResponse<List<ProductoDTO>>> findByEmpresaNit(@PathVariable String empresaNit) {
-        List<Producto> productos = productoService.findByEmpresaNit(empresaNit);
-        List<ProductoDTO> productoDTOs = entityMapper.toProductoDTOList(productos);
-        return ResponseEntity.ok(ApiResponse.success(productoDTOs));
+    @Operation(summary = "Get products by company", description = "Retrieve a page of products for a specific company", security = @SecurityRequirement(name = "Bearer Authentication"))
+    public ResponseEntity<ApiResponse<CursorPageDTO<ProductoDTO>>> findByEmpresaNit(@PathVariable String empresaNit, ProductoPageRequest pageRequest, WebRequest webRequest) {
+        String etag = ETags.ofStamp(stamp());
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        pageRequest.setEmpresaNit(empresaNit);
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(ApiResponse.success(toPageDTO(productoService.findPage(pageRequest))));
     }
 
     @PostMapping
@@ -55,23 +128,80 @@ public class ProductoController {
             Producto producto = entityMapper.toProducto(productoDTO);
             Producto createdProducto = productoService.save(producto);
             return ResponseEntity.ok(ApiResponse.success("Product created successfully", entityMapper.toProductoDTO(createdProducto)));
+        } catch (ConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(ApiResponse.error("Failed to create product: " + e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error("Failed to create product: " + e.getMessage()));
         }
     }
 
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    @Operation(summary = "Bulk import products", description = "Stream a CSV (with header) or NDJSON catalog; rows are validated and written in batches and a per-row error report is returned", security = @SecurityRequirement(name = "Bearer Authentication"))
+    public ResponseEntity<ApiResponse<ProductoImportReport>> importProductos(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream body) {
+        try {
+            ProductoImportReport report = productoImportService.importProductos(body, CatalogFormat.fromContentType(contentType));
+            return ResponseEntity.ok(ApiResponse.success("Import completed", report));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to import products: " + e.getMessage()));
+        }
+    }
+
     @PutMapping("/{id}")
     @Operation(summary = "Update product", description = "Update an existing product", security = @SecurityRequirement(name = "Bearer Authentication"))
-    public ResponseEntity<ApiResponse<ProductoDTO>> update(@PathVariable Long id, @Valid @RequestBody ProductoDTO productoDTO) {
+    public ResponseEntity<ApiResponse<ProductoDTO>> update(@PathVariable Long id,
+                                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                           @Valid @RequestBody ProductoDTO productoDTO) {
         try {
             Producto producto = entityMapper.toProducto(productoDTO);
-            Producto updatedProducto = productoService.update(id, producto);
-            return ResponseEntity.ok(ApiResponse.success("Product updated successfully", entityMapper.toProductoDTO(updatedProducto)));
+            Producto updatedProducto = productoService.update(id, producto, ETags.parseIfMatch(ifMatch));
+            return ResponseEntity.ok()
+                    .eTag(ETags.of(updatedProducto.getVersion(), stamp()))
+                    .body(ApiResponse.success("Product updated successfully", entityMapper.toProductoDTO(updatedProducto)));
+        } catch (PreconditionFailedException | OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(ApiResponse.error("Failed to update product: " + e.getMessage()));
+        } catch (ConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(ApiResponse.error("Failed to update product: " + e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to update product: " + e.getMessage()));
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
     }
 
+    @PatchMapping("/{id}")
+    @Operation(summary = "Patch product", description = "Update only the supplied fields; send the ETag in If-Match to reject concurrent edits with 412", security = @SecurityRequirement(name = "Bearer Authentication"))
+    public ResponseEntity<ApiResponse<ProductoDTO>> patch(@PathVariable Long id,
+                                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                          @Valid @RequestBody ProductoPatchDTO patch) {
+        try {
+            Producto patched = productoService.patch(id, patch, ETags.parseIfMatch(ifMatch));
+            return ResponseEntity.ok()
+                    .eTag(ETags.of(patched.getVersion(), stamp()))
+                    .body(ApiResponse.success("Product updated successfully", entityMapper.toProductoDTO(patched)));
+        } catch (PreconditionFailedException | OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(ApiResponse.error("Failed to update product: " + e.getMessage()));
+        } catch (ConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(ApiResponse.error("Failed to update product: " + e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to update product: " + e.getMessage()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @PutMapping("/by-codigo/{codigo}")
+    @Operation(summary = "Upsert product by code", description = "Idempotently create or update the product with the given code in a single statement", security = @SecurityRequirement(name = "Bearer Authentication"))
+    public ResponseEntity<ApiResponse<ProductoDTO>> upsertByCodigo(@PathVariable String codigo, @Valid @RequestBody ProductoDTO productoDTO) {
+        if (!codigo.equals(productoDTO.getCodigo())) {
+            return ResponseEntity.badRequest().body(ApiResponse.error("El código del cuerpo no coincide con el de la ruta"));
+        }
+        ProductoUpsertResult result = productoService.upsertByCodigo(entityMapper.toProducto(productoDTO), productoDTO.getCategoriaId());
+        String message = result.created() ? "Product created successfully" : "Product updated successfully";
+        return ResponseEntity.ok()
+                .eTag(ETags.of(result.producto().getVersion(), stamp()))
+                .body(ApiResponse.success(message, entityMapper.toProductoDTO(result.producto())));
+    }
+
     @DeleteMapping("/{id}")
     @Operation(summary = "Delete product", description = "Delete a product by its ID", security = @SecurityRequirement(name = "Bearer Authentication"))
     public ResponseEntity<ApiResponse<Void>> delete(@PathVariable Long id) {
@@ -82,4 +212,14 @@ public class ProductoController {
             return ResponseEntity.notFound().build();
         }
     }
+
+    // Read before the data so a concurrent write can only make the tag older, never newer
+    private String stamp() {
+        return ETags.productosStamp(dataVersionService.current(DataVersionService.PRODUCTOS));
+    }
+
+    private CursorPageDTO<ProductoDTO> toPageDTO(CursorPage<Producto> page) {
+        List<ProductoDTO> items = entityMapper.toProductoDTOList(page.items());
+        return new CursorPageDTO<>(items, page.nextCursor(), page.hasNext(), items.size());
+    }
 }
@@ -11,4 +11,5 @@ public class AuthResponse {
     private Long expiresIn;
     private String role;
     private String email;
+    private String refreshToken;
 }
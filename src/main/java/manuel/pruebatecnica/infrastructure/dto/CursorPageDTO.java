@@ -0,0 +1,21 @@
+package manuel.pruebatecnica.infrastructure.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageDTO<T> {
+    
+    private List<T> items;
+    
+    private String nextCursor;
+    
+    private boolean hasNext;
+    
+    private int size;
+}
@@ -25,5 +25,12 @@ public class EmpresaDTO {
     @Size(max = 50, message = "Phone must not exceed 50 characters")
     private String telefono;
     
+    // Detail responses carry all products; the list only with ?expand=productos (first ones)
     private List<ProductoDTO> productos;
+    
+    // Read-only; total number of products of the company
+    private Long productCount;
+    
+    // Read-only; send it back in If-Match to detect concurrent edits
+    private Long version;
 }
@@ -0,0 +1,29 @@
+package manuel.pruebatecnica.infrastructure.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmpresaDeletionDTO {
+    
+    // Null when the company was deleted within the request
+    private Long id;
+    
+    private String empresaNit;
+    
+    // PENDIENTE, EN_PROCESO, COMPLETADA or FALLIDA
+    private String estado;
+    
+    private long totalProductos;
+    
+    private long productosEliminados;
+    
+    private String error;
+    
+    private LocalDateTime fechaActualizacion;
+}
@@ -0,0 +1,24 @@
+package manuel.pruebatecnica.infrastructure.dto;
+
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Partial company update: only non-null fields are applied.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmpresaPatchDTO {
+    
+    @Size(min = 1, max = 200, message = "Company name must be between 1 and 200 characters")
+    private String nombre;
+    
+    @Size(max = 500, message = "Address must not exceed 500 characters")
+    private String direccion;
+    
+    @Size(max = 50, message = "Phone must not exceed 50 characters")
+    private String telefono;
+}
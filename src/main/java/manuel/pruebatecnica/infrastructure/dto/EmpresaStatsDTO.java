@@ -0,0 +1,32 @@
+package manuel.pruebatecnica.infrastructure.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmpresaStatsDTO {
+    
+    private String empresaNit;
+    
+    private long productos;
+    
+    // Inventory value per original currency
+    private Map<String, BigDecimal> valorPorMoneda;
+    
+    // Products per category id
+    private Map<Long, Long> productosPorCategoria;
+    
+    private long revision;
+    
+    private LocalDateTime fechaActualizacion;
+    
+    // True while product changes are still waiting to be applied
+    private boolean pendiente;
+}
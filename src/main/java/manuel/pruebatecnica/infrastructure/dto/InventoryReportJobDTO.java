@@ -0,0 +1,36 @@
+package manuel.pruebatecnica.infrastructure.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryReportJobDTO {
+    
+    private Long id;
+    
+    // Null for a report of all companies
+    private String empresaNit;
+    
+    private String destinatario;
+    
+    // PENDIENTE, EN_PROCESO, COMPLETADA, FALLIDA or CANCELADA
+    private String estado;
+    
+    private long totalProductos;
+    
+    private long productosProcesados;
+    
+    // 0-100; 100 once the report has been sent
+    private int porcentaje;
+    
+    private String error;
+    
+    private LocalDateTime fechaCreacion;
+    
+    private LocalDateTime fechaActualizacion;
+}
@@ -28,6 +28,9 @@ public class ProductoDTO {
     @Pattern(regexp = "^[A-Z]{3}$", message = "Currency code must be 3 uppercase letters (e.g., USD, EUR)")
     private String moneda = "USD";
     
+    // Read-only; precio converted to USD with the current exchange rate
+    private BigDecimal precioUsd;
+    
     @Size(max = 1000, message = "Characteristics must not exceed 1000 characters")
     private String caracteristicas;
     
@@ -35,4 +38,7 @@ public class ProductoDTO {
     private String empresaNit;
     
     private Long categoriaId;
+    
+    // Read-only; send it back in If-Match to detect concurrent edits
+    private Long version;
 }
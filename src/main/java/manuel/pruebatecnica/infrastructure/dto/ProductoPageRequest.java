@@ -0,0 +1,33 @@
+package manuel.pruebatecnica.infrastructure.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductoPageRequest {
+    
+    private String cursor;
+    
+    private Integer size;
+    
+    // id, nombre or precio
+    private String sort = "id";
+    
+    private String direction = "asc";
+    
+    private String empresaNit;
+    
+    private Long categoriaId;
+    
+    private BigDecimal minPrecio;
+    
+    private BigDecimal maxPrecio;
+    
+    // Currency of minPrecio/maxPrecio; prices are compared after conversion to USD
+    private String moneda = "USD";
+}
@@ -0,0 +1,36 @@
+package manuel.pruebatecnica.infrastructure.dto;
+
+import jakarta.validation.constraints.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Partial product update: only non-null fields are applied.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductoPatchDTO {
+    
+    @Size(min = 1, max = 50, message = "Product code must be between 1 and 50 characters")
+    private String codigo;
+    
+    @Size(min = 1, max = 200, message = "Product name must be between 1 and 200 characters")
+    private String nombre;
+    
+    @Positive(message = "Price must be positive")
+    private BigDecimal precio;
+    
+    @Pattern(regexp = "^[A-Z]{3}$", message = "Currency code must be 3 uppercase letters (e.g., USD, EUR)")
+    private String moneda;
+    
+    @Size(max = 1000, message = "Characteristics must not exceed 1000 characters")
+    private String caracteristicas;
+    
+    private String empresaNit;
+    
+    private Long categoriaId;
+}
@@ -0,0 +1,8 @@
+package manuel.pruebatecnica.infrastructure.exception;
+
+public class ConflictException extends RuntimeException {
+
+    public ConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package manuel.pruebatecnica.infrastructure.exception;
+
+public class InvalidRefreshTokenException extends RuntimeException {
+
+    public InvalidRefreshTokenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package manuel.pruebatecnica.infrastructure.exception;
+
+public class PreconditionFailedException extends RuntimeException {
+
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+}
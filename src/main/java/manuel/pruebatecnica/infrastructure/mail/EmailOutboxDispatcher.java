@@ -0,0 +1,272 @@
+package manuel.pruebatecnica.infrastructure.mail;
+
+import jakarta.mail.Address;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.internet.AddressException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import manuel.pruebatecnica.domain.model.EmailOutbox;
+import manuel.pruebatecnica.infrastructure.repository.EmailOutboxRepository;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Delivers the email outbox. Each round leases up to email.outbox.batch-size due messages,
+ * groups them by recipient domain and sends each group in chunks of
+ * email.outbox.messages-per-session over a single SMTP session (JavaMailSender opens one
+ * connection per send call and reuses it for every message in it). Sessions run on
+ * virtual threads; at most email.outbox.max-connections are open at once and at most
+ * email.outbox.max-per-domain against the same domain, so one slow or throttling domain
+ * cannot hold back the rest. A failed message is retried with exponential backoff and
+ * dead-lettered after email.outbox.max-attempts, or at once when the server rejects it
+ * permanently. Attachments are streamed from email.outbox.attachments-dir while the
+ * message is written to the connection. The database is only touched from the dispatching
+ * thread.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "spring.mail", name = "host")
+public class EmailOutboxDispatcher implements DisposableBean {
+
+    private record Outcome(EmailOutbox email, Exception error) {
+    }
+
+    private final EmailOutboxRepository outboxRepository;
+    private final JavaMailSender mailSender;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("email-outbox-", 0).factory());
+    private final Map<String, Semaphore> domainPermits = new ConcurrentHashMap<>();
+    private final Semaphore connections;
+    private final Path attachmentsDir;
+
+    @Value("${email.outbox.from:no-reply@pruebatecnica.local}")
+    private String from = "no-reply@pruebatecnica.local";
+
+    @Value("${email.outbox.batch-size:200}")
+    private int batchSize = 200;
+
+    @Value("${email.outbox.messages-per-session:50}")
+    private int messagesPerSession = 50;
+
+    @Value("${email.outbox.max-per-domain:2}")
+    private int maxPerDomain = 2;
+
+    @Value("${email.outbox.max-attempts:8}")
+    private int maxAttempts = 8;
+
+    @Value("${email.outbox.backoff-initial-ms:30000}")
+    private long backoffInitialMs = 30000;
+
+    @Value("${email.outbox.backoff-max-ms:3600000}")
+    private long backoffMaxMs = 3600000;
+
+    @Value("${email.outbox.lease-ms:600000}")
+    private long leaseMs = 600000;
+
+    public EmailOutboxDispatcher(EmailOutboxRepository outboxRepository,
+                                 JavaMailSender mailSender,
+                                 TransactionTemplate transactionTemplate,
+                                 @Value("${email.outbox.max-connections:4}") int maxConnections,
+                                 @Value("${email.outbox.attachments-dir:}") String attachmentsDir) {
+        this.outboxRepository = outboxRepository;
+        this.mailSender = mailSender;
+        this.transactionTemplate = transactionTemplate;
+        this.connections = new Semaphore(maxConnections);
+        this.attachmentsDir = OutboxEmailService.attachmentsDir(attachmentsDir);
+    }
+
+    @Scheduled(fixedDelayString = "${email.outbox.poll-interval-ms:5000}")
+    public void dispatch() {
+        // Keeps going while rounds come back full, so a backlog drains without waiting for the next tick
+        while (dispatchBatch() == batchSize) {
+            log.debug("Email outbox round full, dispatching the next one");
+        }
+    }
+
+    /**
+     * Runs one delivery round and returns how many messages it leased.
+     */
+    public int dispatchBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime lease = now.plus(Duration.ofMillis(leaseMs));
+        List<EmailOutbox> leased = transactionTemplate.execute(status -> {
+            List<EmailOutbox> claimed = new ArrayList<>();
+            for (EmailOutbox email : outboxRepository.findByEstadoAndProximoIntentoLessThanEqualOrderById(
+                    EmailOutbox.PENDIENTE, now, PageRequest.of(0, batchSize))) {
+                if (outboxRepository.claim(email.getId(), now, lease) > 0) {
+                    claimed.add(email);
+                }
+            }
+            return claimed;
+        });
+        if (leased == null || leased.isEmpty()) {
+            return 0;
+        }
+
+        Map<String, List<EmailOutbox>> byDomain = new LinkedHashMap<>();
+        leased.forEach(email -> byDomain.computeIfAbsent(email.getDominio(), domain -> new ArrayList<>()).add(email));
+        List<Callable<List<Outcome>>> sessions = new ArrayList<>();
+        byDomain.forEach((domain, emails) -> {
+            for (int start = 0; start < emails.size(); start += messagesPerSession) {
+                List<EmailOutbox> chunk = emails.subList(start, Math.min(emails.size(), start + messagesPerSession));
+                sessions.add(() -> sendSession(domain, chunk));
+            }
+        });
+
+        List<Outcome> outcomes = new ArrayList<>();
+        try {
+            for (Future<List<Outcome>> session : executor.invokeAll(sessions)) {
+                outcomes.addAll(session.get());
+            }
+        } catch (InterruptedException e) {
+            // Leased messages become due again when the lease runs out
+            Thread.currentThread().interrupt();
+            return 0;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Envío de correos interrumpido", e.getCause());
+        }
+
+        List<Path> finished = new ArrayList<>();
+        transactionTemplate.executeWithoutResult(status -> outcomes.forEach(outcome -> {
+            if (record(outcome) && outcome.email().getAdjunto() != null) {
+                finished.add(attachmentsDir.resolve(outcome.email().getAdjunto()));
+            }
+        }));
+        finished.forEach(OutboxEmailService::delete);
+        return leased.size();
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private List<Outcome> sendSession(String domain, List<EmailOutbox> emails) throws InterruptedException {
+        Semaphore domainPermit = domainPermits.computeIfAbsent(domain, key -> new Semaphore(maxPerDomain));
+        domainPermit.acquire();
+        try {
+            connections.acquire();
+            try {
+                return send(emails);
+            } finally {
+                connections.release();
+            }
+        } finally {
+            domainPermit.release();
+        }
+    }
+
+    private List<Outcome> send(List<EmailOutbox> emails) {
+        List<Outcome> outcomes = new ArrayList<>();
+        Map<MimeMessage, EmailOutbox> messages = new IdentityHashMap<>();
+        for (EmailOutbox email : emails) {
+            try {
+                messages.put(toMessage(email), email);
+            } catch (MessagingException | RuntimeException e) {
+                outcomes.add(new Outcome(email, e));
+            }
+        }
+        if (messages.isEmpty()) {
+            return outcomes;
+        }
+
+        Map<Object, Exception> failed = Map.of();
+        try {
+            mailSender.send(messages.keySet().toArray(MimeMessage[]::new));
+        } catch (MailSendException e) {
+            failed = e.getFailedMessages();
+        } catch (MailException e) {
+            // Authentication or connection failure: nothing in the session went out
+            messages.values().forEach(email -> outcomes.add(new Outcome(email, e)));
+            return outcomes;
+        }
+        for (Map.Entry<MimeMessage, EmailOutbox> entry : messages.entrySet()) {
+            outcomes.add(new Outcome(entry.getValue(), failed.get(entry.getKey())));
+        }
+        return outcomes;
+    }
+
+    private MimeMessage toMessage(EmailOutbox email) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, email.getAdjunto() != null, StandardCharsets.UTF_8.name());
+        helper.setFrom(from);
+        helper.setTo(email.getDestinatario());
+        helper.setSubject(email.getAsunto());
+        helper.setText(email.getCuerpo() == null ? "" : email.getCuerpo());
+        if (email.getAdjunto() != null) {
+            Path attachment = attachmentsDir.resolve(email.getAdjunto());
+            if (!Files.exists(attachment)) {
+                // Retried like any other failure: shared storage may be briefly unavailable
+                throw new MessagingException("Adjunto no encontrado: " + attachment);
+            }
+            // Streamed from disk while the message is written to the connection
+            helper.addAttachment(email.getAdjuntoNombre(), new FileSystemResource(attachment));
+        }
+        return message;
+    }
+
+    // Must run inside a transaction; returns true when the message is done with (sent or dead)
+    private boolean record(Outcome outcome) {
+        EmailOutbox email = outcome.email();
+        if (outcome.error() == null) {
+            outboxRepository.markSent(email.getId(), LocalDateTime.now());
+            return true;
+        }
+
+        int attempts = email.getIntentos() + 1;
+        String message = describe(outcome.error());
+        if (attempts >= maxAttempts || isPermanent(outcome.error())) {
+            log.error("Email {} to {} dead-lettered after {} attempts: {}", email.getId(), email.getDestinatario(), attempts, message);
+            outboxRepository.markFailed(email.getId(), EmailOutbox.MUERTO, message, LocalDateTime.now());
+            return true;
+        }
+        long delay = Math.min(backoffMaxMs, backoffInitialMs << Math.min(attempts - 1, 20));
+        log.warn("Email {} to {} failed (attempt {}), retrying in {} ms: {}", email.getId(), email.getDestinatario(), attempts, delay, message);
+        outboxRepository.markFailed(email.getId(), EmailOutbox.PENDIENTE, message,
+                LocalDateTime.now().plus(Duration.ofMillis(delay)));
+        return false;
+    }
+
+    // Rejected recipients and malformed addresses will not succeed on retry
+    private static boolean isPermanent(Exception error) {
+        if (error instanceof SendFailedException failed) {
+            Address[] invalid = failed.getInvalidAddresses();
+            return invalid != null && invalid.length > 0;
+        }
+        return error instanceof AddressException;
+    }
+
+    private static String describe(Exception error) {
+        String message = error.getMessage() == null ? error.getClass().getSimpleName() : error.getMessage();
+        return message.length() > 500 ? message.substring(0, 500) : message;
+    }
+}
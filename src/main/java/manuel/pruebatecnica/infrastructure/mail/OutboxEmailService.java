@@ -0,0 +1,100 @@
+package manuel.pruebatecnica.infrastructure.mail;
+
+import lombok.extern.slf4j.Slf4j;
+import manuel.pruebatecnica.application.service.EmailService;
+import manuel.pruebatecnica.domain.model.EmailOutbox;
+import manuel.pruebatecnica.infrastructure.repository.EmailOutboxRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * EmailService that only writes the message to the email_outbox table, in the caller's
+ * transaction when there is one, so the message exists exactly when the work that
+ * produced it commits. The attachment is copied into email.outbox.attachments-dir, which
+ * must be storage every node mounts, and the message keeps only the file name; a rollback
+ * removes the copy again. EmailOutboxDispatcher delivers, streaming the file from there.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "spring.mail", name = "host")
+public class OutboxEmailService implements EmailService {
+
+    private final EmailOutboxRepository outboxRepository;
+    private final Path attachmentsDir;
+
+    public OutboxEmailService(EmailOutboxRepository outboxRepository,
+                              @Value("${email.outbox.attachments-dir:}") String attachmentsDir) {
+        this.outboxRepository = outboxRepository;
+        this.attachmentsDir = attachmentsDir(attachmentsDir);
+    }
+
+    @Override
+    public void sendEmailWithAttachment(String to, String subject, String body, Path attachment, String attachmentName) {
+        String destinatario = to.trim();
+        int at = destinatario.lastIndexOf('@');
+        if (at < 0) {
+            throw new IllegalArgumentException("Correo inválido: " + to);
+        }
+
+        EmailOutbox email = new EmailOutbox();
+        email.setDestinatario(destinatario);
+        email.setDominio(destinatario.substring(at + 1).toLowerCase(Locale.ROOT));
+        email.setAsunto(subject);
+        email.setCuerpo(body);
+        if (attachment != null) {
+            email.setAdjunto(spool(attachment));
+            email.setAdjuntoNombre(attachmentName);
+        }
+        outboxRepository.save(email);
+    }
+
+    // Stored relative to the directory, so nodes may mount it at different paths
+    static Path attachmentsDir(String configured) {
+        if (configured == null || configured.isBlank()) {
+            throw new IllegalStateException("email.outbox.attachments-dir debe indicar un directorio compartido por todos los nodos");
+        }
+        return Path.of(configured);
+    }
+
+    private String spool(Path attachment) {
+        String name = UUID.randomUUID() + ".bin";
+        Path spooled = attachmentsDir.resolve(name);
+        try {
+            Files.createDirectories(attachmentsDir);
+            // Streamed copy; the caller keeps and removes its own file
+            Files.copy(attachment, spooled);
+        } catch (IOException e) {
+            delete(spooled);
+            throw new UncheckedIOException(e);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        delete(spooled);
+                    }
+                }
+            });
+        }
+        return name;
+    }
+
+    static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete outbox attachment {}", file, e);
+        }
+    }
+}
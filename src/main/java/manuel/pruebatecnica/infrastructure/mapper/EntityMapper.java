@@ -2,9 +2,11 @@ package manuel.pruebatecnica.infrastructure.mapper;
 
 import manuel.pruebatecnica.domain.model.*;
 import manuel.pruebatecnica.infrastructure.dto.*;
+import manuel.pruebatecnica.infrastructure.repository.EmpresaSummary;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 @Component
@@ -19,6 +21,7 @@ public class EntityMapper {
         dto.setNombre(empresa.getNombre());
         dto.setDireccion(empresa.getDireccion());
         dto.setTelefono(empresa.getTelefono());
+        dto.setVersion(empresa.getVersion());
         
         if (empresa.getProductos() != null) {
             dto.setProductos(empresa.getProductos().stream()
@@ -45,6 +48,73 @@ public class EntityMapper {
         return empresas.stream().map(this::toEmpresaDTO).collect(Collectors.toList());
     }
 
+    public EmpresaDTO toEmpresaDTO(EmpresaSummary summary, List<Producto> productos) {
+        if (summary == null) return null;
+
+        EmpresaDTO dto = new EmpresaDTO();
+        dto.setNit(summary.nit());
+        dto.setNombre(summary.nombre());
+        dto.setDireccion(summary.direccion());
+        dto.setTelefono(summary.telefono());
+        dto.setVersion(summary.version());
+        dto.setProductCount(summary.productCount());
+        if (productos != null) {
+            dto.setProductos(toProductoDTOList(productos));
+        }
+        return dto;
+    }
+
+    public EmpresaDeletionDTO toEmpresaDeletionDTO(EmpresaDeletion deletion) {
+        if (deletion == null) return null;
+
+        return new EmpresaDeletionDTO(
+                deletion.getId(),
+                deletion.getEmpresaNit(),
+                deletion.getEstado(),
+                deletion.getTotalProductos(),
+                deletion.getProductosEliminados(),
+                deletion.getError(),
+                deletion.getFechaActualizacion());
+    }
+
+    public InventoryReportJobDTO toInventoryReportJobDTO(InventoryReportJob job) {
+        if (job == null) return null;
+
+        int porcentaje;
+        if (InventoryReportJob.COMPLETADA.equals(job.getEstado())) {
+            porcentaje = 100;
+        } else if (job.getTotalProductos() == 0) {
+            porcentaje = 0;
+        } else {
+            // Capped below 100 until the email has gone out
+            porcentaje = (int) Math.min(99, job.getProductosProcesados() * 100 / job.getTotalProductos());
+        }
+        return new InventoryReportJobDTO(
+                job.getId(),
+                job.getEmpresaNit(),
+                job.getDestinatario(),
+                job.getEstado(),
+                job.getTotalProductos(),
+                job.getProductosProcesados(),
+                porcentaje,
+                job.getError(),
+                job.getFechaCreacion(),
+                job.getFechaActualizacion());
+    }
+
+    public EmpresaStatsDTO toEmpresaStatsDTO(EmpresaStats stats, boolean pendiente) {
+        if (stats == null) return null;
+
+        return new EmpresaStatsDTO(
+                stats.getEmpresaNit(),
+                stats.getProductos(),
+                new TreeMap<>(stats.getValorPorMoneda()),
+                new TreeMap<>(stats.getProductosPorCategoria()),
+                stats.getRevision(),
+                stats.getFechaActualizacion(),
+                pendiente);
+    }
+
     // Producto mappings
     public ProductoDTO toProductoDTO(Producto producto) {
         if (producto == null) return null;
@@ -55,7 +125,9 @@ public class EntityMapper {
         dto.setNombre(producto.getNombre());
         dto.setPrecio(producto.getPrecio());
         dto.setMoneda(producto.getMoneda());
+        dto.setPrecioUsd(producto.getPrecioUsd());
         dto.setCaracteristicas(producto.getCaracteristicas());
+        dto.setVersion(producto.getVersion());
         
         if (producto.getEmpresa() != null) {
             dto.setEmpresaNit(producto.getEmpresa().getNit());
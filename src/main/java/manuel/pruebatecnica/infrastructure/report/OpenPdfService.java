@@ -0,0 +1,327 @@
+package manuel.pruebatecnica.infrastructure.report;
+
+import com.lowagie.text.Document;
+import com.lowagie.text.DocumentException;
+import com.lowagie.text.Element;
+import com.lowagie.text.Font;
+import com.lowagie.text.PageSize;
+import com.lowagie.text.Paragraph;
+import com.lowagie.text.Phrase;
+import com.lowagie.text.Rectangle;
+import com.lowagie.text.pdf.BaseFont;
+import com.lowagie.text.pdf.PdfContentByte;
+import com.lowagie.text.pdf.PdfCopy;
+import com.lowagie.text.pdf.PdfImportedPage;
+import com.lowagie.text.pdf.PdfPCell;
+import com.lowagie.text.pdf.PdfPTable;
+import com.lowagie.text.pdf.PdfPageEventHelper;
+import com.lowagie.text.pdf.PdfReader;
+import com.lowagie.text.pdf.PdfWriter;
+import com.lowagie.text.pdf.RandomAccessFileOrArray;
+import manuel.pruebatecnica.application.service.InventoryReportWriter;
+import manuel.pruebatecnica.application.service.InventorySection;
+import manuel.pruebatecnica.application.service.PdfService;
+import manuel.pruebatecnica.infrastructure.repository.EmpresaSummary;
+import manuel.pruebatecnica.infrastructure.repository.InventoryReportRow;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.awt.Color;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * OpenPDF report engine. Each company's products go into a table marked incomplete, which
+ * is handed to the document every reports.inventory.rows-per-flush rows: OpenPDF then lays
+ * out the finished rows, writes every completed page to the output and drops those rows.
+ * Memory is bounded by that many rows plus the page being filled, whatever the size of
+ * the report. Fonts and the cell template are created once and shared by all pages.
+ * <p>
+ * Multi-company reports are rendered as one section file per company and put together by
+ * mergeInventoryReport, which copies the section pages as they are (reading each file
+ * incrementally, not into memory) behind a table of contents, stamps the page numbers and
+ * adds a bookmark per company. The result depends only on the sections and their order.
+ */
+@Component
+public class OpenPdfService implements PdfService {
+
+    private static final Font TITLE_FONT = new Font(Font.HELVETICA, 16, Font.BOLD);
+    private static final Font EMPRESA_FONT = new Font(Font.HELVETICA, 12, Font.BOLD);
+    private static final Font TEXT_FONT = new Font(Font.HELVETICA, 9, Font.NORMAL);
+    private static final Font HEADER_FONT = new Font(Font.HELVETICA, 9, Font.BOLD, Color.WHITE);
+    private static final Color HEADER_COLOR = new Color(55, 65, 81);
+    private static final float[] COLUMN_WIDTHS = {2f, 5f, 2f, 1f};
+    private static final float[] CONTENTS_WIDTHS = {6f, 2f, 1.5f, 1f};
+    private static final BaseFont FOOTER_FONT = footerFont();
+
+    @Value("${reports.inventory.rows-per-flush:200}")
+    private int rowsPerFlush = 200;
+
+    @Override
+    public InventoryReportWriter openInventoryReport(OutputStream output, String title) {
+        return new Writer(output, title);
+    }
+
+    @Override
+    public InventoryReportWriter openInventorySection(OutputStream output) {
+        return new Writer(output, null);
+    }
+
+    @Override
+    public void mergeInventoryReport(OutputStream output, String title, List<InventorySection> sections) {
+        try {
+            int[] pages = new int[sections.size()];
+            for (int i = 0; i < pages.length; i++) {
+                PdfReader reader = sectionReader(sections.get(i));
+                try {
+                    pages[i] = reader.getNumberOfPages();
+                } finally {
+                    reader.close();
+                }
+            }
+            PdfReader contents = new PdfReader(tableOfContents(title, sections, pages));
+
+            Document document = new Document(PageSize.A4);
+            PdfCopy copy = new PdfCopy(document, output);
+            copy.setCloseStream(false);
+            copy.setFullCompression();
+            document.addTitle(title);
+            document.open();
+            int page = copyPages(copy, contents, 0);
+            contents.close();
+            List<Map<String, Object>> bookmarks = new ArrayList<>();
+            for (InventorySection section : sections) {
+                bookmarks.add(bookmark(section.empresa(), page + 1));
+                PdfReader reader = sectionReader(section);
+                try {
+                    page = copyPages(copy, reader, page);
+                } finally {
+                    reader.close();
+                }
+            }
+            copy.setOutlines(bookmarks);
+            document.close();
+        } catch (DocumentException e) {
+            throw new UncheckedIOException(new IOException("No se pudo generar el reporte", e));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Start pages depend on the length of the contents themselves, so render until that is stable
+    private byte[] tableOfContents(String title, List<InventorySection> sections, int[] pages) throws IOException {
+        int contentsPages = 1;
+        byte[] contents = null;
+        for (int attempt = 0; attempt < 3; attempt++) {
+            contents = renderContents(title, sections, pages, contentsPages);
+            PdfReader reader = new PdfReader(contents);
+            int rendered = reader.getNumberOfPages();
+            reader.close();
+            if (rendered == contentsPages) {
+                break;
+            }
+            contentsPages = rendered;
+        }
+        return contents;
+    }
+
+    private byte[] renderContents(String title, List<InventorySection> sections, int[] pages, int contentsPages) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (Writer writer = new Writer(output, title)) {
+            PdfPTable table = new PdfPTable(CONTENTS_WIDTHS);
+            table.setWidthPercentage(100);
+            table.setSpacingBefore(14);
+            table.setHeaderRows(1);
+            table.getDefaultCell().setPadding(3);
+            for (String column : new String[]{"Empresa", "NIT", "Productos", "Página"}) {
+                PdfPCell cell = new PdfPCell(new Phrase(column, HEADER_FONT));
+                cell.setBackgroundColor(HEADER_COLOR);
+                cell.setPadding(4);
+                table.addCell(cell);
+            }
+            PdfPCell cell = table.getDefaultCell();
+            int start = contentsPages + 1;
+            long productos = 0;
+            for (int i = 0; i < pages.length; i++) {
+                InventorySection section = sections.get(i);
+                cell.setHorizontalAlignment(Element.ALIGN_LEFT);
+                table.addCell(new Phrase(section.empresa().nombre(), TEXT_FONT));
+                table.addCell(new Phrase(section.empresa().nit(), TEXT_FONT));
+                cell.setHorizontalAlignment(Element.ALIGN_RIGHT);
+                table.addCell(new Phrase(String.valueOf(section.productos()), TEXT_FONT));
+                table.addCell(new Phrase(String.valueOf(start), TEXT_FONT));
+                start += pages[i];
+                productos += section.productos();
+            }
+            writer.add(table);
+
+            Paragraph summary = new Paragraph("Empresas: " + sections.size() + "   Productos: " + productos, TEXT_FONT);
+            summary.setSpacingBefore(4);
+            writer.add(summary);
+        }
+        return output.toByteArray();
+    }
+
+    // Copies every page of reader, numbering it after page; returns the last page number used
+    private static int copyPages(PdfCopy copy, PdfReader reader, int page) throws IOException, DocumentException {
+        for (int i = 1; i <= reader.getNumberOfPages(); i++) {
+            PdfImportedPage imported = copy.getImportedPage(reader, i);
+            Rectangle size = reader.getPageSize(i);
+            PdfCopy.PageStamp stamp = copy.createPageStamp(imported);
+            PdfContentByte canvas = stamp.getOverContent();
+            canvas.beginText();
+            canvas.setFontAndSize(FOOTER_FONT, 8);
+            canvas.showTextAligned(Element.ALIGN_CENTER, "Página " + ++page, size.getWidth() / 2, 24, 0);
+            canvas.endText();
+            stamp.alterContents();
+            copy.addPage(imported);
+        }
+        // Drops what was read from this file before moving on to the next
+        copy.freeReader(reader);
+        return page;
+    }
+
+    private static PdfReader sectionReader(InventorySection section) throws IOException {
+        return new PdfReader(new RandomAccessFileOrArray(section.file().toString(), false, true), null);
+    }
+
+    private static Map<String, Object> bookmark(EmpresaSummary empresa, int page) {
+        Map<String, Object> bookmark = new HashMap<>();
+        bookmark.put("Title", empresa.nombre() + " (NIT " + empresa.nit() + ")");
+        bookmark.put("Action", "GoTo");
+        bookmark.put("Page", page + " Fit");
+        return bookmark;
+    }
+
+    private final class Writer implements InventoryReportWriter {
+
+        private final Document document = new Document(PageSize.A4, 36, 36, 36, 48);
+        private final Map<String, BigDecimal> totals = new TreeMap<>();
+        private PdfPTable table;
+        private int pendingRows;
+        private long empresaRows;
+
+        // Without a title this is a section: the title and page numbers come from the merge
+        Writer(OutputStream output, String title) {
+            PdfWriter writer = PdfWriter.getInstance(document, output);
+            writer.setCloseStream(false);
+            writer.setFullCompression();
+            if (title == null) {
+                document.open();
+                return;
+            }
+            writer.setPageEvent(new PageNumbers());
+            document.addTitle(title);
+            document.open();
+            add(new Paragraph(title, TITLE_FONT));
+            add(new Paragraph("Generado el " + LocalDate.now(), TEXT_FONT));
+        }
+
+        @Override
+        public void startEmpresa(EmpresaSummary empresa) {
+            Paragraph header = new Paragraph(empresa.nombre() + " (NIT " + empresa.nit() + ")", EMPRESA_FONT);
+            header.setSpacingBefore(14);
+            header.setSpacingAfter(6);
+            add(header);
+            if (empresa.direccion() != null || empresa.telefono() != null) {
+                add(new Paragraph(nullToEmpty(empresa.direccion()) + "  " + nullToEmpty(empresa.telefono()), TEXT_FONT));
+            }
+
+            table = new PdfPTable(COLUMN_WIDTHS);
+            table.setWidthPercentage(100);
+            table.setSpacingBefore(6);
+            table.setHeaderRows(1);
+            table.setComplete(false);
+            table.getDefaultCell().setPadding(3);
+            for (String column : new String[]{"Código", "Nombre", "Precio", "Moneda"}) {
+                PdfPCell cell = new PdfPCell(new Phrase(column, HEADER_FONT));
+                cell.setBackgroundColor(HEADER_COLOR);
+                cell.setPadding(4);
+                table.addCell(cell);
+            }
+            totals.clear();
+            pendingRows = 0;
+            empresaRows = 0;
+        }
+
+        @Override
+        public void addProducto(InventoryReportRow producto) {
+            PdfPCell cell = table.getDefaultCell();
+            cell.setHorizontalAlignment(Element.ALIGN_LEFT);
+            table.addCell(new Phrase(producto.codigo(), TEXT_FONT));
+            table.addCell(new Phrase(producto.nombre(), TEXT_FONT));
+            cell.setHorizontalAlignment(Element.ALIGN_RIGHT);
+            table.addCell(new Phrase(producto.precio().toPlainString(), TEXT_FONT));
+            cell.setHorizontalAlignment(Element.ALIGN_CENTER);
+            table.addCell(new Phrase(producto.moneda(), TEXT_FONT));
+
+            totals.merge(producto.moneda(), producto.precio(), BigDecimal::add);
+            empresaRows++;
+            if (++pendingRows >= rowsPerFlush) {
+                // Lays out the buffered rows and releases them; completed pages go to the output
+                add(table);
+                pendingRows = 0;
+            }
+        }
+
+        @Override
+        public void endEmpresa() {
+            table.setComplete(true);
+            add(table);
+            table = null;
+
+            StringBuilder summary = new StringBuilder("Productos: ").append(empresaRows);
+            totals.forEach((moneda, total) -> summary.append("   Total ").append(moneda).append(": ").append(total.toPlainString()));
+            Paragraph footer = new Paragraph(summary.toString(), TEXT_FONT);
+            footer.setSpacingBefore(4);
+            add(footer);
+        }
+
+        @Override
+        public void close() {
+            document.close();
+        }
+
+        private void add(Element element) {
+            try {
+                document.add(element);
+            } catch (DocumentException e) {
+                throw new UncheckedIOException(new IOException("No se pudo generar el reporte", e));
+            }
+        }
+    }
+
+    private static final class PageNumbers extends PdfPageEventHelper {
+
+        @Override
+        public void onEndPage(PdfWriter writer, Document document) {
+            PdfContentByte canvas = writer.getDirectContent();
+            canvas.beginText();
+            canvas.setFontAndSize(FOOTER_FONT, 8);
+            canvas.showTextAligned(Element.ALIGN_CENTER, "Página " + writer.getPageNumber(),
+                    (document.left() + document.right()) / 2, document.bottom() - 24, 0);
+            canvas.endText();
+        }
+    }
+
+    private static BaseFont footerFont() {
+        try {
+            return BaseFont.createFont(BaseFont.HELVETICA, BaseFont.WINANSI, BaseFont.NOT_EMBEDDED);
+        } catch (DocumentException | IOException e) {
+            throw new IllegalStateException("No se pudo cargar la fuente del reporte", e);
+        }
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+}
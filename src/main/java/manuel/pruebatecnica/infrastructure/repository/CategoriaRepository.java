@@ -2,12 +2,17 @@ package manuel.pruebatecnica.infrastructure.repository;
 
 import manuel.pruebatecnica.domain.model.Categoria;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
+import java.util.Set;
 
 @Repository
 public interface CategoriaRepository extends JpaRepository<Categoria, Long> {
     Optional<Categoria> findByNombre(String nombre);
     boolean existsByNombre(String nombre);
+
+    @Query("SELECT c.id FROM Categoria c")
+    Set<Long> findAllIds();
 }
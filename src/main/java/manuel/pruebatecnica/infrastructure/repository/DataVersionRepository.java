@@ -0,0 +1,19 @@
+package manuel.pruebatecnica.infrastructure.repository;
+
+import manuel.pruebatecnica.domain.model.DataVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface DataVersionRepository extends JpaRepository<DataVersion, String> {
+    
+    @Modifying
+    @Query("UPDATE DataVersion d SET d.version = d.version + 1 WHERE d.aggregate = :aggregate")
+    int increment(@Param("aggregate") String aggregate);
+    
+    @Query("SELECT d.version FROM DataVersion d WHERE d.aggregate = :aggregate")
+    long findVersion(@Param("aggregate") String aggregate);
+}
@@ -0,0 +1,35 @@
+package manuel.pruebatecnica.infrastructure.repository;
+
+import manuel.pruebatecnica.domain.model.EmailOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+    List<EmailOutbox> findByEstadoAndProximoIntentoLessThanEqualOrderById(String estado, LocalDateTime now, Pageable pageable);
+    long countByEstado(String estado);
+    
+    // Leases a due message to the caller; matches nothing if another dispatcher leased it first
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.proximoIntento = :lease " +
+           "WHERE e.id = :id AND e.estado = 'PENDIENTE' AND e.proximoIntento <= :now")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("lease") LocalDateTime lease);
+    
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.estado = 'ENVIADO', e.intentos = e.intentos + 1, e.error = null, " +
+           "e.fechaEnvio = :now WHERE e.id = :id")
+    int markSent(@Param("id") Long id, @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.estado = :estado, e.intentos = e.intentos + 1, e.error = :error, " +
+           "e.proximoIntento = :proximoIntento WHERE e.id = :id")
+    int markFailed(@Param("id") Long id, @Param("estado") String estado, @Param("error") String error,
+                   @Param("proximoIntento") LocalDateTime proximoIntento);
+}
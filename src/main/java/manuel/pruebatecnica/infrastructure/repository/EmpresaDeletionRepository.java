@@ -0,0 +1,50 @@
+package manuel.pruebatecnica.infrastructure.repository;
+
+import manuel.pruebatecnica.domain.model.EmpresaDeletion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+@Repository
+public interface EmpresaDeletionRepository extends JpaRepository<EmpresaDeletion, Long> {
+    Optional<EmpresaDeletion> findFirstByEmpresaNitAndEstadoIn(String empresaNit, Collection<String> estados);
+    
+    @Query("SELECT d.empresaNit FROM EmpresaDeletion d WHERE d.empresaNit IN :nits AND d.estado IN :estados")
+    Set<String> findEmpresaNits(@Param("nits") Collection<String> nits, @Param("estados") Collection<String> estados);
+    
+    @Query("SELECT d.id FROM EmpresaDeletion d WHERE d.estado IN :estados " +
+           "AND (d.leaseHasta IS NULL OR d.leaseHasta < :now) ORDER BY d.id")
+    List<Long> findUnleasedIds(@Param("estados") Collection<String> estados, @Param("now") LocalDateTime now);
+    
+    // Takes a job that nobody holds or whose lease lapsed; matches nothing while another node holds it
+    @Modifying
+    @Query("UPDATE EmpresaDeletion d SET d.estado = 'EN_PROCESO', d.nodo = :nodo, d.leaseHasta = :lease, " +
+           "d.fechaActualizacion = :now WHERE d.id = :id AND d.estado IN :desde " +
+           "AND (d.leaseHasta IS NULL OR d.leaseHasta < :now)")
+    int claim(@Param("id") Long id, @Param("desde") Collection<String> desde, @Param("nodo") String nodo,
+              @Param("now") LocalDateTime now, @Param("lease") LocalDateTime lease);
+    
+    // Matches nothing once another node has taken the job over
+    @Modifying
+    @Query("UPDATE EmpresaDeletion d SET d.leaseHasta = :lease WHERE d.id = :id AND d.nodo = :nodo " +
+           "AND d.estado = 'EN_PROCESO'")
+    int renewLease(@Param("id") Long id, @Param("nodo") String nodo, @Param("lease") LocalDateTime lease);
+    
+    @Modifying
+    @Query("UPDATE EmpresaDeletion d SET d.productosEliminados = d.productosEliminados + :deleted, " +
+           "d.fechaActualizacion = :now WHERE d.id = :id")
+    int addProgress(@Param("id") Long id, @Param("deleted") long deleted, @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Query("UPDATE EmpresaDeletion d SET d.estado = :estado, d.error = :error, d.fechaActualizacion = :now WHERE d.id = :id")
+    int updateEstado(@Param("id") Long id, @Param("estado") String estado, @Param("error") String error,
+                     @Param("now") LocalDateTime now);
+}
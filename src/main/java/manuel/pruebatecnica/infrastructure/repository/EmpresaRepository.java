@@ -2,12 +2,32 @@ package manuel.pruebatecnica.infrastructure.repository;
 
 import manuel.pruebatecnica.domain.model.Empresa;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface EmpresaRepository extends JpaRepository<Empresa, String> {
     Optional<Empresa> findByNombre(String nombre);
     boolean existsByNombre(String nombre);
+
+    // Conflicts with the key-share lock a product insert or move takes on the referenced company
+    @Query(value = "SELECT nit FROM empresas WHERE nit = :nit FOR UPDATE", nativeQuery = true)
+    Optional<String> lockByNit(@Param("nit") String nit);
+
+    // One grouped query over the (empresa_nit, id) index; products themselves are never loaded
+    @Query("SELECT new manuel.pruebatecnica.infrastructure.repository.EmpresaSummary(" +
+           "e.nit, e.nombre, e.direccion, e.telefono, e.version, COUNT(p.id)) " +
+           "FROM Empresa e LEFT JOIN e.productos p " +
+           "GROUP BY e.nit, e.nombre, e.direccion, e.telefono, e.version ORDER BY e.nombre")
+    List<EmpresaSummary> findAllSummaries();
+
+    @Query("SELECT new manuel.pruebatecnica.infrastructure.repository.EmpresaSummary(" +
+           "e.nit, e.nombre, e.direccion, e.telefono, e.version, COUNT(p.id)) " +
+           "FROM Empresa e LEFT JOIN e.productos p WHERE e.nit = :nit " +
+           "GROUP BY e.nit, e.nombre, e.direccion, e.telefono, e.version")
+    Optional<EmpresaSummary> findSummaryByNit(@Param("nit") String nit);
 }
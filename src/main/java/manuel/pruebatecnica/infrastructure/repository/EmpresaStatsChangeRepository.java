@@ -0,0 +1,21 @@
+package manuel.pruebatecnica.infrastructure.repository;
+
+import manuel.pruebatecnica.domain.model.EmpresaStatsChange;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface EmpresaStatsChangeRepository extends JpaRepository<EmpresaStatsChange, Long> {
+    List<EmpresaStatsChange> findTop500ByOrderByIdAsc();
+    boolean existsByEmpresaNit(String empresaNit);
+    
+    // Queues every company for a full reconciliation
+    @Modifying
+    @Query(value = "INSERT INTO empresa_stats_changes (empresa_nit, fecha_registro) " +
+                   "SELECT e.nit, CURRENT_TIMESTAMP FROM empresas e", nativeQuery = true)
+    int enqueueAll();
+}
@@ -0,0 +1,21 @@
+package manuel.pruebatecnica.infrastructure.repository;
+
+import manuel.pruebatecnica.domain.model.EmpresaStats;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface EmpresaStatsRepository extends JpaRepository<EmpresaStats, String> {
+    
+    // One statement; both collections are bounded by the number of currencies and categories
+    @EntityGraph(attributePaths = {"valorPorMoneda", "productosPorCategoria"})
+    Optional<EmpresaStats> findWithDetailsByEmpresaNit(String empresaNit);
+    
+    @Query("SELECT s.empresaNit FROM EmpresaStats s WHERE s.empresaNit NOT IN (SELECT e.nit FROM Empresa e)")
+    List<String> findOrphanNits();
+}
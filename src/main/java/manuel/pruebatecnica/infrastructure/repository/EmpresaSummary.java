@@ -0,0 +1,7 @@
+package manuel.pruebatecnica.infrastructure.repository;
+
+/**
+ * Company row with its product count, read without loading any product.
+ */
+public record EmpresaSummary(String nit, String nombre, String direccion, String telefono, Long version, Long productCount) {
+}
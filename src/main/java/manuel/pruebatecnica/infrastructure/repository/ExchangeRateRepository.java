@@ -0,0 +1,20 @@
+package manuel.pruebatecnica.infrastructure.repository;
+
+import jakarta.persistence.LockModeType;
+import manuel.pruebatecnica.domain.model.ExchangeRate;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface ExchangeRateRepository extends JpaRepository<ExchangeRate, String> {
+
+    // Held by each recompute batch, so a batch always converts with the latest committed rate
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM ExchangeRate r WHERE r.moneda = :moneda")
+    Optional<ExchangeRate> lockByMoneda(@Param("moneda") String moneda);
+}
@@ -0,0 +1,50 @@
+package manuel.pruebatecnica.infrastructure.repository;
+
+import manuel.pruebatecnica.domain.model.InventoryReportJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface InventoryReportJobRepository extends JpaRepository<InventoryReportJob, Long> {
+    Optional<InventoryReportJob> findFirstByClaveAndEstadoIn(String clave, Collection<String> estados);
+    
+    @Query("SELECT j.id FROM InventoryReportJob j WHERE j.estado IN :estados " +
+           "AND (j.leaseHasta IS NULL OR j.leaseHasta < :now) ORDER BY j.id")
+    List<Long> findUnleasedIds(@Param("estados") Collection<String> estados, @Param("now") LocalDateTime now);
+    
+    // Takes a job that nobody holds or whose lease lapsed; matches nothing while another node holds it
+    @Modifying
+    @Query("UPDATE InventoryReportJob j SET j.nodo = :nodo, j.leaseHasta = :lease, j.fechaActualizacion = :now " +
+           "WHERE j.id = :id AND j.estado IN :desde AND (j.leaseHasta IS NULL OR j.leaseHasta < :now)")
+    int claim(@Param("id") Long id, @Param("desde") Collection<String> desde, @Param("nodo") String nodo,
+              @Param("now") LocalDateTime now, @Param("lease") LocalDateTime lease);
+    
+    // Renews the lease; matches nothing once the job has been cancelled or taken over by another
+    // node, which is how the worker notices
+    @Modifying
+    @Query("UPDATE InventoryReportJob j SET j.productosProcesados = :procesados, j.leaseHasta = :lease, " +
+           "j.fechaActualizacion = :now WHERE j.id = :id AND j.nodo = :nodo AND j.estado = 'EN_PROCESO'")
+    int updateProgress(@Param("id") Long id, @Param("nodo") String nodo, @Param("procesados") long procesados,
+                       @Param("now") LocalDateTime now, @Param("lease") LocalDateTime lease);
+    
+    @Modifying
+    @Query("UPDATE InventoryReportJob j SET j.estado = :estado, j.error = :error, j.fechaActualizacion = :now " +
+           "WHERE j.id = :id AND j.estado IN :desde")
+    int updateEstado(@Param("id") Long id, @Param("desde") Collection<String> desde, @Param("estado") String estado,
+                     @Param("error") String error, @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Query("UPDATE InventoryReportJob j SET j.estado = 'EN_PROCESO', j.totalProductos = :total, " +
+           "j.productosProcesados = 0, j.leaseHasta = :lease, j.fechaActualizacion = :now " +
+           "WHERE j.id = :id AND j.nodo = :nodo AND j.estado IN :desde")
+    int start(@Param("id") Long id, @Param("desde") Collection<String> desde, @Param("nodo") String nodo,
+              @Param("total") long total, @Param("now") LocalDateTime now, @Param("lease") LocalDateTime lease);
+}
@@ -0,0 +1,7 @@
+package manuel.pruebatecnica.infrastructure.repository;
+
+import java.math.BigDecimal;
+
+// Product columns printed in the inventory report; read as a projection, never as an entity
+public record InventoryReportRow(String codigo, String nombre, BigDecimal precio, String moneda) {
+}
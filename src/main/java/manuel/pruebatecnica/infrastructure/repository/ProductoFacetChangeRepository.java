@@ -0,0 +1,28 @@
+package manuel.pruebatecnica.infrastructure.repository;
+
+import manuel.pruebatecnica.domain.model.ProductoFacetChange;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ProductoFacetChangeRepository extends JpaRepository<ProductoFacetChange, Long> {
+    List<ProductoFacetChange> findTop500ByIdGreaterThanOrderByIdAsc(long id);
+    List<ProductoFacetChange> findByIdIn(Collection<Long> ids);
+
+    @Query("SELECT COALESCE(MAX(c.id), 0) FROM ProductoFacetChange c")
+    long findMaxId();
+
+    @Query("SELECT c.id FROM ProductoFacetChange c WHERE c.id > :id")
+    List<Long> findIdsGreaterThan(@Param("id") long id);
+
+    @Modifying
+    @Query("DELETE FROM ProductoFacetChange c WHERE c.fechaRegistro < :before")
+    int deleteOlderThan(@Param("before") LocalDateTime before);
+}
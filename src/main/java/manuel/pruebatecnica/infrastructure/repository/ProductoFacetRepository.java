@@ -0,0 +1,19 @@
+package manuel.pruebatecnica.infrastructure.repository;
+
+import manuel.pruebatecnica.domain.model.Producto;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Map;
+
+public interface ProductoFacetRepository {
+
+    /**
+     * Number of products per category among those matching the filter (all products when null).
+     */
+    Map<Long, Long> countByCategoria(Specification<Producto> filter);
+
+    /**
+     * Number of products per company among those matching the filter (all products when null).
+     */
+    Map<String, Long> countByEmpresa(Specification<Producto> filter);
+}
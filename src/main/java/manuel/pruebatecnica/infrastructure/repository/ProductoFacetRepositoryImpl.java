@@ -0,0 +1,68 @@
+package manuel.pruebatecnica.infrastructure.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import manuel.pruebatecnica.domain.model.Producto;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class ProductoFacetRepositoryImpl implements ProductoFacetRepository {
+
+    // Unfiltered category counts come straight from the join table's (categoria_id, producto_id) index
+    private static final String COUNT_ALL_BY_CATEGORIA =
+            "SELECT categoria_id, COUNT(*) FROM producto_categorias GROUP BY categoria_id";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<Long, Long> countByCategoria(Specification<Producto> filter) {
+        if (filter == null) {
+            List<Object[]> rows = entityManager.createNativeQuery(COUNT_ALL_BY_CATEGORIA).getResultList();
+            Map<Long, Long> counts = new HashMap<>();
+            rows.forEach(row -> counts.put(((Number) row[0]).longValue(), ((Number) row[1]).longValue()));
+            return counts;
+        }
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Object[]> query = cb.createQuery(Object[].class);
+        Root<Producto> root = query.from(Producto.class);
+        Expression<Long> categoriaId = root.join("categorias").get("id");
+        return group(query, root, cb, filter, categoriaId);
+    }
+
+    @Override
+    public Map<String, Long> countByEmpresa(Specification<Producto> filter) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Object[]> query = cb.createQuery(Object[].class);
+        Root<Producto> root = query.from(Producto.class);
+        Expression<String> empresaNit = root.get("empresa").get("nit");
+        return group(query, root, cb, filter, empresaNit);
+    }
+
+    private <K> Map<K, Long> group(CriteriaQuery<Object[]> query, Root<Producto> root, CriteriaBuilder cb,
+                                   Specification<Producto> filter, Expression<K> key) {
+        query.multiselect(key, cb.count(root)).groupBy(key);
+        if (filter != null) {
+            Predicate predicate = filter.toPredicate(root, query, cb);
+            if (predicate != null) {
+                query.where(predicate);
+            }
+        }
+        Map<K, Long> counts = new HashMap<>();
+        for (Object[] row : entityManager.createQuery(query).getResultList()) {
+            @SuppressWarnings("unchecked")
+            K value = (K) row[0];
+            counts.put(value, (Long) row[1]);
+        }
+        return counts;
+    }
+}
@@ -1,18 +1,128 @@
 package manuel.pruebatecnica.infrastructure.repository;
 
+import jakarta.persistence.QueryHint;
 import manuel.pruebatecnica.domain.model.Producto;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @Repository
-public interface ProductoRepository extends JpaRepository<Producto, Long> {
+public interface ProductoRepository extends JpaRepository<Producto, Long>, JpaSpecificationExecutor<Producto>, ProductoUpsertRepository, ProductoFacetRepository {
+    @Override
+    @EntityGraph(attributePaths = "categorias")
+    List<Producto> findAll();
+
+    @EntityGraph(attributePaths = "categorias")
     List<Producto> findByEmpresaNit(String empresaNit);
     boolean existsByCodigo(String codigo);
+
+    @Query("SELECT p.codigo FROM Producto p WHERE p.codigo IN :codigos")
+    Set<String> findExistingCodigos(@Param("codigos") Collection<String> codigos);
     
+    @EntityGraph(attributePaths = "categorias")
     @Query("SELECT p FROM Producto p WHERE p.empresa.nit = :empresaNit ORDER BY p.nombre")
     List<Producto> findByEmpresaNitOrderByNombre(@Param("empresaNit") String empresaNit);
+
+    // Forward-only cursor over the catalog for exports; must be consumed inside a transaction
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p FROM Producto p LEFT JOIN FETCH p.categorias " +
+           "WHERE (:empresaNit IS NULL OR p.empresa.nit = :empresaNit) ORDER BY p.id")
+    Stream<Producto> streamForExport(@Param("empresaNit") String empresaNit);
+
+    // Forward-only cursor over one company's report rows; must be consumed inside a transaction
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new manuel.pruebatecnica.infrastructure.repository.InventoryReportRow(p.codigo, p.nombre, p.precio, p.moneda) " +
+           "FROM Producto p WHERE p.empresa.nit = :empresaNit ORDER BY p.id")
+    Stream<InventoryReportRow> streamForReport(@Param("empresaNit") String empresaNit);
+
+    @Query("SELECT new manuel.pruebatecnica.infrastructure.repository.ReportFingerprint(" +
+           "p.empresa.nit, COUNT(p), SUM(p.id), MAX(p.id), SUM(p.version)) " +
+           "FROM Producto p WHERE p.empresa.nit IN :nits GROUP BY p.empresa.nit")
+    List<ReportFingerprint> findReportFingerprints(@Param("nits") Collection<String> nits);
+
+    @Query("SELECT new manuel.pruebatecnica.infrastructure.repository.ReportFingerprint(" +
+           "p.empresa.nit, COUNT(p), SUM(p.id), MAX(p.id), SUM(p.version)) " +
+           "FROM Producto p GROUP BY p.empresa.nit")
+    List<ReportFingerprint> findAllReportFingerprints();
+
+    // Initializes the categorias of already-loaded products in a single query
+    @Query("SELECT DISTINCT p FROM Producto p LEFT JOIN FETCH p.categorias WHERE p IN :productos")
+    List<Producto> fetchCategorias(@Param("productos") List<Producto> productos);
+
+    // First products (by id) of each given company, at most :limit per company
+    @Query(value = "SELECT * FROM (" +
+                   "SELECT p.*, ROW_NUMBER() OVER (PARTITION BY p.empresa_nit ORDER BY p.id) AS rn " +
+                   "FROM productos p WHERE p.empresa_nit IN (:nits)) ranked " +
+                   "WHERE ranked.rn <= :limit ORDER BY ranked.empresa_nit, ranked.id", nativeQuery = true)
+    List<Producto> findFirstByEmpresaNits(@Param("nits") Collection<String> nits, @Param("limit") int limit);
+
+    long countByEmpresaNit(String empresaNit);
+
+    // (moneda, sum of precio) rows of one company
+    @Query("SELECT p.moneda, SUM(p.precio) FROM Producto p WHERE p.empresa.nit = :empresaNit GROUP BY p.moneda")
+    List<Object[]> sumPrecioByMonedaForEmpresa(@Param("empresaNit") String empresaNit);
+
+    // (categoria id, products) rows of one company
+    @Query("SELECT c.id, COUNT(p.id) FROM Producto p JOIN p.categorias c WHERE p.empresa.nit = :empresaNit GROUP BY c.id")
+    List<Object[]> countByCategoriaForEmpresa(@Param("empresaNit") String empresaNit);
+
+    // Next chunk of a company's products for set-based deletion, over the (empresa_nit, id) index;
+    // the rows stay locked so the facet delta read before the delete matches what is deleted
+    @Query(value = "SELECT p.id FROM productos p WHERE p.empresa_nit = :empresaNit ORDER BY p.id LIMIT :limit FOR UPDATE", nativeQuery = true)
+    List<Long> findIdsByEmpresaNit(@Param("empresaNit") String empresaNit, @Param("limit") int limit);
+
+    @Query("SELECT p.precioUsd FROM Producto p WHERE p.id IN :ids")
+    List<BigDecimal> findPrecioUsdByIds(@Param("ids") Collection<Long> ids);
+
+    // (categoria id, products) rows of the given products
+    @Query("SELECT c.id, COUNT(p.id) FROM Producto p JOIN p.categorias c WHERE p.id IN :ids GROUP BY c.id")
+    List<Object[]> countByCategoriaForIds(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query(value = "DELETE FROM producto_categorias WHERE producto_id IN (:ids)", nativeQuery = true)
+    int deleteCategoriaLinks(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query(value = "DELETE FROM orden_productos WHERE producto_id IN (:ids)", nativeQuery = true)
+    int deleteOrdenLinks(@Param("ids") Collection<Long> ids);
+
+    // Join-table rows must be removed first (deleteCategoriaLinks, deleteOrdenLinks)
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM Producto p WHERE p.id IN :ids")
+    int bulkDeleteByIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT MIN(p.id) FROM Producto p WHERE p.moneda = :moneda")
+    Long findMinIdByMoneda(@Param("moneda") String moneda);
+
+    @Query("SELECT MAX(p.id) FROM Producto p WHERE p.moneda = :moneda")
+    Long findMaxIdByMoneda(@Param("moneda") String moneda);
+
+    long countByPrecioUsdIsNull();
+
+    // (id, stored precio_usd, recomputed precio_usd) of the rows of one id range whose stored value
+    // differs from the rate; the rows stay locked until recomputePrecioUsd rewrites them
+    @Query(value = "SELECT p.id, p.precio_usd, ROUND(p.precio * :rate, 4) FROM productos p " +
+                   "WHERE p.moneda = :moneda AND p.id > :fromId AND p.id <= :toId " +
+                   "AND (p.precio_usd IS NULL OR p.precio_usd <> ROUND(p.precio * :rate, 4)) FOR UPDATE", nativeQuery = true)
+    List<Object[]> findPrecioUsdToRecompute(@Param("moneda") String moneda, @Param("rate") BigDecimal rate,
+                                            @Param("fromId") long fromId, @Param("toId") long toId);
+
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Producto p SET p.precioUsd = ROUND(p.precio * :rate, 4) WHERE p.id IN :ids")
+    int recomputePrecioUsd(@Param("rate") BigDecimal rate, @Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,77 @@
+package manuel.pruebatecnica.infrastructure.repository;
+
+import jakarta.persistence.criteria.Path;
+import manuel.pruebatecnica.domain.model.Producto;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+
+public final class ProductoSpecifications {
+
+    private ProductoSpecifications() {
+    }
+
+    public static Specification<Producto> hasEmpresa(String empresaNit) {
+        return (root, query, cb) -> empresaNit == null ? null : cb.equal(root.get("empresa").get("nit"), empresaNit);
+    }
+
+    public static Specification<Producto> hasCategoria(Long categoriaId) {
+        return (root, query, cb) -> categoriaId == null ? null : cb.equal(root.join("categorias").get("id"), categoriaId);
+    }
+
+    // Bounds are in USD and compared against the normalized price
+    public static Specification<Producto> precioUsdBetween(BigDecimal min, BigDecimal max) {
+        return (root, query, cb) -> {
+            if (min != null && max != null) {
+                return cb.between(root.get("precioUsd"), min, max);
+            }
+            if (min != null) {
+                return cb.greaterThanOrEqualTo(root.get("precioUsd"), min);
+            }
+            if (max != null) {
+                return cb.lessThanOrEqualTo(root.get("precioUsd"), max);
+            }
+            return null;
+        };
+    }
+
+    // Half-open price bucket [from, to); an open upper bound when to is null
+    public static Specification<Producto> precioUsdInRange(BigDecimal from, BigDecimal to) {
+        return (root, query, cb) -> to == null
+                ? cb.greaterThanOrEqualTo(root.get("precioUsd"), from)
+                : cb.and(cb.greaterThanOrEqualTo(root.get("precioUsd"), from), cb.lessThan(root.get("precioUsd"), to));
+    }
+
+    public static Specification<Producto> hasPrecioUsd() {
+        return (root, query, cb) -> cb.isNotNull(root.get("precioUsd"));
+    }
+
+    /**
+     * Keyset predicate: rows strictly after (value, id) in the given order.
+     * With field == "id" only the id comparison is used.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static Specification<Producto> after(String field, Sort.Direction direction, Comparable value, Long id) {
+        return (root, query, cb) -> {
+            if (id == null) {
+                return null;
+            }
+            Path<Long> idPath = root.get("id");
+            boolean asc = direction.isAscending();
+
+            if ("id".equals(field)) {
+                return asc ? cb.greaterThan(idPath, id) : cb.lessThan(idPath, id);
+            }
+
+            Path<Comparable> fieldPath = root.get(field);
+            return cb.or(
+                    asc ? cb.greaterThan(fieldPath, value) : cb.lessThan(fieldPath, value),
+                    cb.and(
+                            cb.equal(fieldPath, value),
+                            asc ? cb.greaterThan(idPath, id) : cb.lessThan(idPath, id)
+                    )
+            );
+        };
+    }
+}
@@ -0,0 +1,30 @@
+package manuel.pruebatecnica.infrastructure.repository;
+
+import manuel.pruebatecnica.domain.model.Producto;
+
+import java.math.BigDecimal;
+import java.util.Set;
+
+public interface ProductoUpsertRepository {
+
+    /**
+     * Inserts the product or updates the row with the same codigo in one atomic statement,
+     * which also returns the previous state of an updated row.
+     */
+    UpsertResult upsertByCodigo(Producto producto);
+
+    /**
+     * Replaces the category links of a product with the given category (none when null) and
+     * returns the categories it was linked to before.
+     */
+    Set<Long> replaceCategoria(Long productoId, Long categoriaId);
+
+    /**
+     * previous is the state the row had before an update, null when the product was created.
+     */
+    record UpsertResult(Long id, Long version, boolean created, Previous previous) {
+    }
+
+    record Previous(String empresaNit, BigDecimal precioUsd) {
+    }
+}
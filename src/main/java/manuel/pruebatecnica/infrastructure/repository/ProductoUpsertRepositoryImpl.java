@@ -0,0 +1,163 @@
+package manuel.pruebatecnica.infrastructure.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import manuel.pruebatecnica.domain.model.Producto;
+import manuel.pruebatecnica.infrastructure.exception.ConflictException;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+class ProductoUpsertRepositoryImpl implements ProductoUpsertRepository {
+
+    // Ids come from the same sequence Hibernate uses (pooled, increment 50). Hibernate's pooled
+    // optimizer does hand out the value nextval returns, as the top of the block it reserved
+    // (value - 49 .. value). There is no collision only because this native nextval consumes
+    // that whole block: no node's optimizer ever receives it, and this insert alone uses its
+    // top id. Never give the sequence a different increment than the allocationSize on Producto.
+    //
+    // old locks the existing row and keeps its values; the insert reads it first, so the lock
+    // is held before the insert meets the conflict. In READ COMMITTED the lock returns the
+    // latest committed version of a row a concurrent writer just changed.
+    private static final String POSTGRES_UPSERT = """
+            WITH old AS (
+                SELECT id, empresa_nit, precio_usd FROM productos WHERE codigo = :codigo FOR UPDATE
+            ), up AS (
+                INSERT INTO productos (id, codigo, nombre, caracteristicas, precio, moneda, precio_usd, empresa_nit, version)
+                SELECT nextval('productos_seq'),
+                       CAST(:codigo AS VARCHAR(50)),
+                       CAST(:nombre AS VARCHAR(200)),
+                       CAST(:caracteristicas AS TEXT),
+                       CAST(:precio AS NUMERIC(10, 2)),
+                       CAST(:moneda AS VARCHAR(3)),
+                       CAST(:precioUsd AS NUMERIC(19, 4)),
+                       CAST(:empresaNit AS VARCHAR(255)),
+                       0
+                FROM (SELECT 1) one LEFT JOIN old ON TRUE
+                ON CONFLICT (codigo) DO UPDATE SET
+                    nombre = EXCLUDED.nombre,
+                    caracteristicas = EXCLUDED.caracteristicas,
+                    precio = EXCLUDED.precio,
+                    moneda = EXCLUDED.moneda,
+                    precio_usd = EXCLUDED.precio_usd,
+                    empresa_nit = EXCLUDED.empresa_nit,
+                    version = productos.version + 1
+                RETURNING id, version, (xmax = 0) AS inserted
+            )
+            SELECT up.id, up.version, up.inserted, old.id AS old_id, old.empresa_nit, old.precio_usd
+            FROM up LEFT JOIN old ON old.id = up.id
+            """;
+
+    // Portable fallback (H2): MERGE is atomic, the previous row is locked and read first
+    private static final String MERGE_UPSERT = """
+            MERGE INTO productos t
+            USING (SELECT CAST(:codigo AS VARCHAR(50)) AS codigo,
+                          CAST(:nombre AS VARCHAR(200)) AS nombre,
+                          CAST(:caracteristicas AS VARCHAR(1000000)) AS caracteristicas,
+                          CAST(:precio AS NUMERIC(10, 2)) AS precio,
+                          CAST(:moneda AS VARCHAR(3)) AS moneda,
+                          CAST(:precioUsd AS NUMERIC(19, 4)) AS precio_usd,
+                          CAST(:empresaNit AS VARCHAR(255)) AS empresa_nit) s
+            ON t.codigo = s.codigo
+            WHEN MATCHED THEN UPDATE SET
+                nombre = s.nombre,
+                caracteristicas = s.caracteristicas,
+                precio = s.precio,
+                moneda = s.moneda,
+                precio_usd = s.precio_usd,
+                empresa_nit = s.empresa_nit,
+                version = t.version + 1
+            WHEN NOT MATCHED THEN INSERT (id, codigo, nombre, caracteristicas, precio, moneda, precio_usd, empresa_nit, version)
+                VALUES (NEXT VALUE FOR productos_seq, s.codigo, s.nombre, s.caracteristicas, s.precio, s.moneda, s.precio_usd, s.empresa_nit, 0)
+            """;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private volatile Boolean postgres;
+
+    @Override
+    @Transactional
+    public UpsertResult upsertByCodigo(Producto producto) {
+        if (isPostgres()) {
+            Object[] row = (Object[]) bind(entityManager.createNativeQuery(POSTGRES_UPSERT), producto).getSingleResult();
+            boolean inserted = (Boolean) row[2];
+            if (!inserted && row[3] == null) {
+                // A concurrent writer created the codigo after this statement's snapshot; its
+                // values were overwritten unseen, so the facet delta cannot be computed
+                throw new ConflictException("El producto fue modificado por otra operación");
+            }
+            Previous previous = inserted ? null : new Previous((String) row[4], (BigDecimal) row[5]);
+            return new UpsertResult(((Number) row[0]).longValue(), ((Number) row[1]).longValue(), inserted, previous);
+        }
+
+        Object[] old = (Object[]) entityManager.createNativeQuery(
+                        "SELECT empresa_nit, precio_usd FROM productos WHERE codigo = :codigo FOR UPDATE")
+                .setParameter("codigo", producto.getCodigo())
+                .getResultStream()
+                .findFirst()
+                .orElse(null);
+        bind(entityManager.createNativeQuery(MERGE_UPSERT), producto).executeUpdate();
+        Object[] stored = findIdAndVersion(producto.getCodigo());
+        Previous previous = old == null ? null : new Previous((String) old[0], (BigDecimal) old[1]);
+        return new UpsertResult((Long) stored[0], (Long) stored[1], old == null, previous);
+    }
+
+    @Override
+    @Transactional
+    @SuppressWarnings("unchecked")
+    public Set<Long> replaceCategoria(Long productoId, Long categoriaId) {
+        List<Number> removed;
+        if (isPostgres()) {
+            removed = entityManager.createNativeQuery("DELETE FROM producto_categorias WHERE producto_id = :productoId RETURNING categoria_id")
+                    .setParameter("productoId", productoId)
+                    .getResultList();
+        } else {
+            removed = entityManager.createNativeQuery("SELECT categoria_id FROM OLD TABLE (DELETE FROM producto_categorias WHERE producto_id = :productoId)")
+                    .setParameter("productoId", productoId)
+                    .getResultList();
+        }
+        if (categoriaId != null) {
+            entityManager.createNativeQuery("INSERT INTO producto_categorias (producto_id, categoria_id) VALUES (:productoId, :categoriaId)")
+                    .setParameter("productoId", productoId)
+                    .setParameter("categoriaId", categoriaId)
+                    .executeUpdate();
+        }
+        return removed.stream().map(Number::longValue).collect(Collectors.toSet());
+    }
+
+    private Query bind(Query query, Producto producto) {
+        return query
+                .setParameter("codigo", producto.getCodigo())
+                .setParameter("nombre", producto.getNombre())
+                .setParameter("caracteristicas", producto.getCaracteristicas())
+                .setParameter("precio", producto.getPrecio())
+                .setParameter("moneda", producto.getMoneda())
+                .setParameter("precioUsd", producto.getPrecioUsd())
+                .setParameter("empresaNit", producto.getEmpresa() != null ? producto.getEmpresa().getNit() : null);
+    }
+
+    private Object[] findIdAndVersion(String codigo) {
+        return entityManager.createQuery("SELECT p.id, p.version FROM Producto p WHERE p.codigo = :codigo", Object[].class)
+                .setParameter("codigo", codigo)
+                .getResultStream()
+                .findFirst()
+                .orElse(null);
+    }
+
+    private boolean isPostgres() {
+        if (postgres == null) {
+            postgres = entityManager.getEntityManagerFactory()
+                    .unwrap(SessionFactoryImplementor.class)
+                    .getJdbcServices()
+                    .getDialect() instanceof PostgreSQLDialect;
+        }
+        return postgres;
+    }
+}
@@ -0,0 +1,6 @@
+package manuel.pruebatecnica.infrastructure.repository;
+
+// Aggregates over one company's products that change whenever any of them is added, removed,
+// moved or updated (every write bumps the product's version)
+public record ReportFingerprint(String empresaNit, Long productos, Long sumaIds, Long maxId, Long sumaVersiones) {
+}
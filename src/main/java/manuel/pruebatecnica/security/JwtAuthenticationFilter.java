@@ -19,6 +19,7 @@ import java.util.List;
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtTokenUtil jwtTokenUtil;
+    private final TokenRevocationService tokenRevocationService;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
@@ -26,16 +27,17 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         
         String token = getTokenFromRequest(request);
         
-        if (token != null && jwtTokenUtil.validateToken(token)) {
-            String email = jwtTokenUtil.getEmailFromToken(token);
-            String role = jwtTokenUtil.getRoleFromToken(token);
-            
-            List<SimpleGrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_" + role));
-            
-            UsernamePasswordAuthenticationToken authentication = 
-                new UsernamePasswordAuthenticationToken(email, null, authorities);
-            
-            SecurityContextHolder.getContext().setAuthentication(authentication);
+        if (token != null) {
+            jwtTokenUtil.verify(token)
+                    .filter(claims -> !tokenRevocationService.isRevoked(claims.tokenId()))
+                    .ifPresent(claims -> {
+                        List<SimpleGrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_" + claims.role()));
+
+                        UsernamePasswordAuthenticationToken authentication =
+                            new UsernamePasswordAuthenticationToken(claims.email(), null, authorities);
+
+                        SecurityContextHolder.getContext().setAuthentication(authentication);
+                    });
         }
         
         filterChain.doFilter(request, response);
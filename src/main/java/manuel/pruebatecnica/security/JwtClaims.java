@@ -0,0 +1,6 @@
+package manuel.pruebatecnica.security;
+
+import java.time.Instant;
+
+public record JwtClaims(String email, String role, String tokenId, Instant expiration) {
+}
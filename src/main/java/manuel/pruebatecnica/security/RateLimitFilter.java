@@ -0,0 +1,131 @@
+package manuel.pruebatecnica.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import manuel.pruebatecnica.infrastructure.dto.ApiResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-user rate limiting that runs right after JwtAuthenticationFilter. Each user gets a
+ * token bucket per policy: ADMIN and EXTERNO have separate budgets, and expensive routes
+ * (such as the inventory report) draw from their own, much smaller bucket. Buckets live
+ * in a ConcurrentHashMap, whose bins are locked independently, and idle ones are evicted.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private record Policy(String name, double capacity, double refillPerNano) {
+
+        static Policy of(String name, double capacity, double refillPerSecond) {
+            return new Policy(name, capacity, refillPerSecond / TimeUnit.SECONDS.toNanos(1));
+        }
+    }
+
+    private final ObjectMapper objectMapper;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    private final boolean enabled;
+    private final Policy adminPolicy;
+    private final Policy externoPolicy;
+    private final Policy expensivePolicy;
+    private final List<String> expensivePaths;
+    private final long idleEvictionNanos;
+
+    public RateLimitFilter(
+            ObjectMapper objectMapper,
+            @Value("${rate-limit.enabled:true}") boolean enabled,
+            @Value("${rate-limit.admin.capacity:200}") double adminCapacity,
+            @Value("${rate-limit.admin.refill-per-second:50}") double adminRefill,
+            @Value("${rate-limit.externo.capacity:60}") double externoCapacity,
+            @Value("${rate-limit.externo.refill-per-second:10}") double externoRefill,
+            @Value("${rate-limit.expensive.capacity:3}") double expensiveCapacity,
+            @Value("${rate-limit.expensive.refill-per-second:0.01}") double expensiveRefill,
+            @Value("${rate-limit.expensive.paths:/api/inventory/report,/api/inventory/report/send,/api/productos/import,/api/productos/export}") List<String> expensivePaths,
+            @Value("${rate-limit.idle-eviction-ms:600000}") long idleEvictionMillis) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.adminPolicy = Policy.of("ADMIN", adminCapacity, adminRefill);
+        this.externoPolicy = Policy.of("EXTERNO", externoCapacity, externoRefill);
+        this.expensivePolicy = Policy.of("EXPENSIVE", expensiveCapacity, expensiveRefill);
+        this.expensivePaths = expensivePaths;
+        this.idleEvictionNanos = TimeUnit.MILLISECONDS.toNanos(idleEvictionMillis);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (!enabled || authentication == null || authentication instanceof AnonymousAuthenticationToken) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        Policy policy = resolvePolicy(request, authentication);
+        String key = policy.name() + ":" + authentication.getName();
+        long now = System.nanoTime();
+
+        TokenBucket bucket = buckets.computeIfAbsent(key, k -> new TokenBucket(policy.capacity(), now));
+        long waitNanos = bucket.tryConsume(policy.capacity(), policy.refillPerNano(), now);
+
+        if (waitNanos > 0) {
+            reject(response, waitNanos);
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    @Scheduled(fixedDelayString = "${rate-limit.eviction-interval-ms:60000}")
+    public void evictIdleBuckets() {
+        long threshold = System.nanoTime() - idleEvictionNanos;
+        buckets.values().removeIf(bucket -> bucket.getLastAccess() < threshold);
+    }
+
+    private Policy resolvePolicy(HttpServletRequest request, Authentication authentication) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        for (String pattern : expensivePaths) {
+            if (pathMatcher.match(pattern, path)) {
+                return expensivePolicy;
+            }
+        }
+
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            if ("ROLE_ADMIN".equals(authority.getAuthority())) {
+                return adminPolicy;
+            }
+        }
+        return externoPolicy;
+    }
+
+    private void reject(HttpServletResponse response, long waitNanos) throws IOException {
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        objectMapper.writeValue(response.getWriter(),
+                ApiResponse.error("Demasiadas solicitudes, intente de nuevo en " + retryAfterSeconds + " segundos"));
+    }
+}
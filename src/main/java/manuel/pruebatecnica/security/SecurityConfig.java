@@ -1,17 +1,19 @@
 package manuel.pruebatecnica.security;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
 @Configuration
@@ -20,10 +22,23 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 public class SecurityConfig {
 
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
+    private final RateLimitFilter rateLimitFilter;
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(
+            @Value("${security.password-hashing.strength:0}") int fixedStrength,
+            @Value("${security.password-hashing.target-millis:250}") long targetMillis,
+            @Value("${security.password-hashing.min-strength:10}") int minStrength,
+            @Value("${security.password-hashing.max-strength:14}") int maxStrength,
+            @Value("${security.password-hashing.threads:0}") int threads,
+            @Value("${security.password-hashing.queue-capacity:64}") int queueCapacity,
+            @Value("${security.password-hashing.timeout-millis:5000}") long timeoutMillis) {
+        // Calibration is per node; a pinned strength keeps every node hashing at the same cost
+        int strength = fixedStrength > 0
+                ? fixedStrength
+                : OffloadingPasswordEncoder.calibrateStrength(targetMillis, minStrength, maxStrength);
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return new OffloadingPasswordEncoder(strength, poolSize, queueCapacity, timeoutMillis);
     }
 
     @Bean
@@ -37,23 +52,29 @@ public class SecurityConfig {
                 .csrf(csrf -> csrf.disable())
                 .cors(cors -> cors.configure(http))
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                // Missing or expired tokens answer 401 so clients know to refresh
+                .exceptionHandling(exceptions -> exceptions.authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED)))
                 .authorizeHttpRequests(auth -> auth
                         // Public endpoints
                         .requestMatchers("/api/auth/**").permitAll()
                         .requestMatchers("/swagger-ui/**", "/api-docs/**").permitAll()
                         
                         // Role-based access
+                        .requestMatchers(HttpMethod.GET, "/api/empresas/deletions/**", "/api/empresas/reference-cache").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.GET, "/api/empresas/**").hasAnyRole("ADMIN", "EXTERNO")
                         .requestMatchers(HttpMethod.POST, "/api/empresas/**").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.PUT, "/api/empresas/**").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.PATCH, "/api/empresas/**").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.DELETE, "/api/empresas/**").hasRole("ADMIN")
                         
                         .requestMatchers("/api/productos/**").hasRole("ADMIN")
                         .requestMatchers("/api/inventory/**").hasRole("ADMIN")
+                        .requestMatchers("/api/exchange-rates/**").hasRole("ADMIN")
                         
                         .anyRequest().authenticated()
                 )
                 .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+                .addFilterAfter(rateLimitFilter, JwtAuthenticationFilter.class)
                 .build();
     }
 }
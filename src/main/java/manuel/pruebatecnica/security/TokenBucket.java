@@ -0,0 +1,44 @@
+package manuel.pruebatecnica.security;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free token bucket. The whole state is swapped with a single CAS, so concurrent
+ * requests for the same key never block each other.
+ */
+final class TokenBucket {
+
+    private record State(double tokens, long refilledAt) {
+    }
+
+    private final AtomicReference<State> state;
+    private volatile long lastAccess;
+
+    TokenBucket(double capacity, long nowNanos) {
+        this.state = new AtomicReference<>(new State(capacity, nowNanos));
+        this.lastAccess = nowNanos;
+    }
+
+    /**
+     * Takes one token if available. Returns 0 when granted, otherwise the nanoseconds
+     * until the next token becomes available.
+     */
+    long tryConsume(double capacity, double refillPerNano, long nowNanos) {
+        lastAccess = nowNanos;
+        while (true) {
+            State current = state.get();
+            long refilledAt = Math.max(current.refilledAt(), nowNanos);
+            double available = Math.min(capacity, current.tokens() + (refilledAt - current.refilledAt()) * refillPerNano);
+            if (available < 1) {
+                return (long) Math.ceil((1 - available) / refillPerNano);
+            }
+            if (state.compareAndSet(current, new State(available - 1, refilledAt))) {
+                return 0;
+            }
+        }
+    }
+
+    long getLastAccess() {
+        return lastAccess;
+    }
+}
@@ -0,0 +1,157 @@
+package manuel.pruebatecnica.security;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import manuel.pruebatecnica.domain.model.RevokedToken;
+import manuel.pruebatecnica.infrastructure.cache.BloomFilter;
+import manuel.pruebatecnica.infrastructure.repository.RevokedTokenRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps revoked access-token ids in memory so the request path never hits the database.
+ * A Bloom filter answers the common "not revoked" case with a single probe; the exact set
+ * resolves its false positives. Other nodes' revocations are picked up by polling the
+ * revoked_tokens table for seq values above the highest one seen, and expired ids are
+ * compacted away periodically.
+ * <p>
+ * seq is assigned on insert, not on commit, so a revocation can become visible after one
+ * with a higher seq. Skipped values are remembered as gaps and looked up again on every
+ * poll until they show up or jwt.revocation.gap-timeout-ms passes (a rolled back insert
+ * leaves a gap that never fills).
+ */
+@Slf4j
+@Component
+public class TokenRevocationService {
+
+    private static final double FALSE_POSITIVE_RATE = 0.001;
+    // Values below the startup high-water mark that are watched for late commits
+    private static final int STARTUP_GAP_WINDOW = 1000;
+    // Largest jump in seq recorded as individual gaps
+    private static final int MAX_GAPS_PER_JUMP = 10000;
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final Map<String, Instant> revoked = new ConcurrentHashMap<>();
+    private final Object writeLock = new Object();
+
+    @Value("${jwt.revocation.initial-capacity:10000}")
+    private int initialCapacity;
+
+    @Value("${jwt.revocation.gap-timeout-ms:60000}")
+    private long gapTimeoutMillis;
+
+    private volatile BloomFilter bloomFilter;
+    // Highest seq seen, and the lower values not seen yet with when they were first missed
+    private long lastSeq;
+    private final Map<Long, Long> gaps = new HashMap<>();
+
+    public TokenRevocationService(RevokedTokenRepository revokedTokenRepository) {
+        this.revokedTokenRepository = revokedTokenRepository;
+    }
+
+    @PostConstruct
+    synchronized void init() {
+        bloomFilter = new BloomFilter(Math.max(initialCapacity, 1), FALSE_POSITIVE_RATE);
+        lastSeq = revokedTokenRepository.findMaxSeq();
+        Set<Long> loaded = new HashSet<>();
+        for (RevokedToken token : revokedTokenRepository.findByExpiresAtAfter(LocalDateTime.now())) {
+            remember(token);
+            loaded.add(token.getSeq());
+        }
+        // Revocations still committing while this node starts sit just below the high-water mark
+        long now = System.currentTimeMillis();
+        for (long seq = Math.max(1, lastSeq - STARTUP_GAP_WINDOW + 1); seq <= lastSeq; seq++) {
+            if (!loaded.contains(seq)) {
+                gaps.put(seq, now);
+            }
+        }
+        log.info("Loaded {} revoked tokens", revoked.size());
+    }
+
+    public boolean isRevoked(String jti) {
+        if (jti == null) {
+            return false;
+        }
+        return bloomFilter.mightContain(jti) && revoked.containsKey(jti);
+    }
+
+    @Transactional
+    public void revoke(String jti, Instant expiresAt) {
+        if (jti == null || expiresAt.isBefore(Instant.now())) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        revokedTokenRepository.save(new RevokedToken(jti, toLocalDateTime(expiresAt), now, null));
+        remember(jti, expiresAt);
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.sync-interval-ms:5000}")
+    public synchronized void syncFromDatabase() {
+        long now = System.currentTimeMillis();
+        if (!gaps.isEmpty()) {
+            for (RevokedToken late : revokedTokenRepository.findBySeqIn(Set.copyOf(gaps.keySet()))) {
+                remember(late);
+                gaps.remove(late.getSeq());
+            }
+            gaps.values().removeIf(missedAt -> missedAt < now - gapTimeoutMillis);
+        }
+        for (RevokedToken token : revokedTokenRepository.findBySeqGreaterThanOrderBySeq(lastSeq)) {
+            long seq = token.getSeq();
+            for (long missing = Math.max(lastSeq + 1, seq - MAX_GAPS_PER_JUMP); missing < seq; missing++) {
+                gaps.put(missing, now);
+            }
+            remember(token);
+            lastSeq = Math.max(lastSeq, seq);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.compaction-interval-ms:600000}")
+    @Transactional
+    public void compact() {
+        Instant now = Instant.now();
+        synchronized (writeLock) {
+            revoked.values().removeIf(expiresAt -> expiresAt.isBefore(now));
+            rebuildBloomFilter();
+        }
+        int deleted = revokedTokenRepository.deleteExpired(LocalDateTime.now());
+        log.debug("Revocation compaction kept {} ids, deleted {} expired rows", revoked.size(), deleted);
+    }
+
+    private void remember(RevokedToken token) {
+        remember(token.getJti(), token.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    private void remember(String jti, Instant expiresAt) {
+        synchronized (writeLock) {
+            if (revoked.put(jti, expiresAt) == null) {
+                bloomFilter.put(jti);
+                if (revoked.size() > bloomFilter.getExpectedInsertions()) {
+                    rebuildBloomFilter();
+                }
+            }
+        }
+    }
+
+    // Callers must hold writeLock so no concurrent add is missed by the new filter
+    private void rebuildBloomFilter() {
+        BloomFilter rebuilt = new BloomFilter(Math.max(initialCapacity, revoked.size() * 2), FALSE_POSITIVE_RATE);
+        revoked.keySet().forEach(rebuilt::put);
+        bloomFilter = rebuilt;
+    }
+
+    private static LocalDateTime toLocalDateTime(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
+    }
+}
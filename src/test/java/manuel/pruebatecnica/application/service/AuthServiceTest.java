@@ -9,6 +9,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.util.Optional;
@@ -30,6 +31,9 @@ class AuthServiceTest {
     @Mock
     private JwtTokenUtil jwtTokenUtil;
 
+    @Mock
+    private UserCredentialCache credentialCache;
+
     @InjectMocks
     private AuthService authService;
 
@@ -101,6 +105,42 @@ class AuthServiceTest {
         verify(passwordEncoder, times(1)).matches(TEST_PASSWORD, testUsuario.getPassword());
     }
 
+    @Test
+    void authenticate_ShouldReencodePassword_WhenHashCostDiffers() {
+        when(usuarioRepository.findByEmail(TEST_EMAIL)).thenReturn(Optional.of(testUsuario));
+        when(passwordEncoder.matches(TEST_PASSWORD, ENCODED_PASSWORD)).thenReturn(true);
+        when(passwordEncoder.upgradeEncoding(ENCODED_PASSWORD)).thenReturn(true);
+        when(passwordEncoder.encode(TEST_PASSWORD)).thenReturn("reencodedPassword");
+
+        Usuario result = authService.authenticate(TEST_EMAIL, TEST_PASSWORD);
+
+        assertEquals("reencodedPassword", result.getPassword());
+        verify(usuarioRepository, times(1)).updatePassword(1L, "reencodedPassword");
+        verify(credentialCache, times(1)).invalidate(TEST_EMAIL);
+    }
+
+    @Test
+    void authenticate_ShouldNotQueryRepository_WhenCredentialIsCached() {
+        when(credentialCache.get(TEST_EMAIL)).thenReturn(UserCredentialCache.UserCredential.from(testUsuario));
+        when(passwordEncoder.matches(TEST_PASSWORD, ENCODED_PASSWORD)).thenReturn(true);
+
+        Usuario result = authService.authenticate(TEST_EMAIL, TEST_PASSWORD);
+
+        assertEquals(TEST_EMAIL, result.getEmail());
+        assertEquals(Usuario.Role.ADMIN, result.getRol());
+        verify(usuarioRepository, never()).findByEmail(anyString());
+    }
+
+    @Test
+    void authenticate_ShouldCacheCredential_WhenLoadedFromRepository() {
+        when(usuarioRepository.findByEmail(TEST_EMAIL)).thenReturn(Optional.of(testUsuario));
+        when(passwordEncoder.matches(TEST_PASSWORD, ENCODED_PASSWORD)).thenReturn(true);
+
+        authService.authenticate(TEST_EMAIL, TEST_PASSWORD);
+
+        verify(credentialCache, times(1)).put(UserCredentialCache.UserCredential.from(testUsuario));
+    }
+
     @Test
     void authenticate_ShouldThrowException_WhenUserNotFound() {
         when(usuarioRepository.findByEmail(TEST_EMAIL)).thenReturn(Optional.empty());
@@ -130,48 +170,59 @@ class AuthServiceTest {
 
     @Test
     void register_ShouldCreateUser_WhenEmailIsNotRegistered() {
-        when(usuarioRepository.existsByEmail(TEST_EMAIL)).thenReturn(false);
         when(passwordEncoder.encode(TEST_PASSWORD)).thenReturn(ENCODED_PASSWORD);
-        when(usuarioRepository.save(any(Usuario.class))).thenReturn(testUsuario);
+        when(usuarioRepository.saveAndFlush(any(Usuario.class))).thenReturn(testUsuario);
 
         Usuario result = authService.register(TEST_EMAIL, TEST_PASSWORD, Usuario.Role.valueOf("ADMIN"));
 
         assertNotNull(result);
         assertEquals(TEST_EMAIL, result.getEmail());
 
-        verify(usuarioRepository, times(1)).existsByEmail(TEST_EMAIL);
+        verify(usuarioRepository, never()).existsByEmail(anyString());
         verify(passwordEncoder, times(1)).encode(TEST_PASSWORD);
-        verify(usuarioRepository, times(1)).save(any(Usuario.class));
+        verify(usuarioRepository, times(1)).saveAndFlush(any(Usuario.class));
+        verify(credentialCache, times(1)).invalidate(TEST_EMAIL);
     }
 
     @Test
     void register_ShouldThrowException_WhenEmailIsAlreadyRegistered() {
-        when(usuarioRepository.existsByEmail(TEST_EMAIL)).thenReturn(true);
+        when(passwordEncoder.encode(TEST_PASSWORD)).thenReturn(ENCODED_PASSWORD);
+        when(usuarioRepository.saveAndFlush(any(Usuario.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate key value violates unique constraint"));
+
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> {
+            authService.register(TEST_EMAIL, TEST_PASSWORD, Usuario.Role.ADMIN);
+        });
+
+        assertEquals("El email ya está registrado", exception.getMessage());
+        verify(usuarioRepository, never()).existsByEmail(anyString());
+    }
+
+    @Test
+    void register_ShouldThrowException_WhenEmailIsCached() {
+        when(credentialCache.get(TEST_EMAIL)).thenReturn(UserCredentialCache.UserCredential.from(testUsuario));
 
         RuntimeException exception = assertThrows(RuntimeException.class, () -> {
             authService.register(TEST_EMAIL, TEST_PASSWORD, Usuario.Role.ADMIN);
         });
 
         assertEquals("El email ya está registrado", exception.getMessage());
-        verify(usuarioRepository, times(1)).existsByEmail(TEST_EMAIL);
         verify(passwordEncoder, never()).encode(anyString());
-        verify(usuarioRepository, never()).save(any(Usuario.class));
+        verify(usuarioRepository, never()).saveAndFlush(any(Usuario.class));
     }
 
     @Test
     void register_ShouldCreateAdminUser_WhenRoleIsAdmin() {
-        when(usuarioRepository.existsByEmail(TEST_EMAIL)).thenReturn(false);
         when(passwordEncoder.encode(TEST_PASSWORD)).thenReturn(ENCODED_PASSWORD);
-        when(usuarioRepository.save(any(Usuario.class))).thenReturn(testUsuario);
+        when(usuarioRepository.saveAndFlush(any(Usuario.class))).thenReturn(testUsuario);
 
         Usuario result = authService.register(TEST_EMAIL, TEST_PASSWORD, Usuario.Role.ADMIN);
 
         assertNotNull(result);
         assertEquals(TEST_EMAIL, result.getEmail());
         assertEquals(Usuario.Role.ADMIN, result.getRol());
-        verify(usuarioRepository, times(1)).existsByEmail(TEST_EMAIL);
         verify(passwordEncoder, times(1)).encode(TEST_PASSWORD);
-        verify(usuarioRepository, times(1)).save(any(Usuario.class));
+        verify(usuarioRepository, times(1)).saveAndFlush(any(Usuario.class));
     }
 
     private Usuario createTestUsuario() {
@@ -0,0 +1,105 @@
+package manuel.pruebatecnica.application.service;
+
+import manuel.pruebatecnica.domain.model.DataVersion;
+import manuel.pruebatecnica.infrastructure.repository.DataVersionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DataVersionServiceTest {
+
+    @Mock
+    private DataVersionRepository dataVersionRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private DataVersionService dataVersionService;
+
+    @BeforeEach
+    void setUp() {
+        dataVersionService = new DataVersionService(dataVersionRepository, transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void bump_ShouldAdvanceImmediately_WhenNoTransactionIsActive() {
+        when(dataVersionRepository.findVersion(DataVersionService.PRODUCTOS)).thenReturn(5L);
+
+        dataVersionService.bump(DataVersionService.PRODUCTOS);
+
+        verify(dataVersionRepository).increment(DataVersionService.PRODUCTOS);
+        assertEquals(5L, dataVersionService.current(DataVersionService.PRODUCTOS));
+    }
+
+    @Test
+    void bump_ShouldIncrementOnlyAfterCommit() {
+        when(dataVersionRepository.findVersion(DataVersionService.EMPRESAS)).thenReturn(3L);
+        TransactionSynchronizationManager.initSynchronization();
+
+        dataVersionService.bump(DataVersionService.EMPRESAS);
+        verify(dataVersionRepository, never()).increment(any());
+        assertEquals(0L, dataVersionService.current(DataVersionService.EMPRESAS));
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        verify(dataVersionRepository).increment(DataVersionService.EMPRESAS);
+        assertEquals(3L, dataVersionService.current(DataVersionService.EMPRESAS));
+    }
+
+    @Test
+    void bump_ShouldIncrementOncePerTransaction() {
+        when(dataVersionRepository.findVersion(DataVersionService.PRODUCTOS)).thenReturn(4L);
+        TransactionSynchronizationManager.initSynchronization();
+
+        dataVersionService.bump(DataVersionService.PRODUCTOS);
+        dataVersionService.bump(DataVersionService.PRODUCTOS);
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        assertEquals(1, TransactionSynchronizationManager.getSynchronizations().size());
+        verify(dataVersionRepository, times(1)).increment(DataVersionService.PRODUCTOS);
+    }
+
+    @Test
+    void refresh_ShouldPickUpAnotherNodesBump() {
+        when(dataVersionRepository.findAll()).thenReturn(List.of(
+                new DataVersion(DataVersionService.PRODUCTOS, 6L)));
+
+        assertEquals(0L, dataVersionService.current(DataVersionService.PRODUCTOS));
+        dataVersionService.refresh();
+
+        assertEquals(6L, dataVersionService.current(DataVersionService.PRODUCTOS));
+        verify(dataVersionRepository, never()).findVersion(any());
+    }
+
+    @Test
+    void refresh_ShouldNeverMoveVersionBackwards() {
+        when(dataVersionRepository.findVersion(DataVersionService.PRODUCTOS)).thenReturn(9L);
+        dataVersionService.bump(DataVersionService.PRODUCTOS);
+        when(dataVersionRepository.findAll()).thenReturn(List.of(
+                new DataVersion(DataVersionService.PRODUCTOS, 8L),
+                new DataVersion(DataVersionService.EMPRESAS, 2L)));
+
+        dataVersionService.refresh();
+
+        assertEquals(9L, dataVersionService.current(DataVersionService.PRODUCTOS));
+        assertEquals(2L, dataVersionService.current(DataVersionService.EMPRESAS));
+    }
+}
@@ -0,0 +1,202 @@
+package manuel.pruebatecnica.application.service;
+
+import manuel.pruebatecnica.domain.model.Categoria;
+import manuel.pruebatecnica.domain.model.Cliente;
+import manuel.pruebatecnica.domain.model.Empresa;
+import manuel.pruebatecnica.domain.model.EmpresaDeletion;
+import manuel.pruebatecnica.domain.model.Orden;
+import manuel.pruebatecnica.domain.model.Producto;
+import manuel.pruebatecnica.infrastructure.exception.ConflictException;
+import manuel.pruebatecnica.infrastructure.repository.EmpresaDeletionRepository;
+import manuel.pruebatecnica.infrastructure.repository.EmpresaRepository;
+import manuel.pruebatecnica.infrastructure.repository.ProductoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+class EmpresaDeletionServiceTest {
+
+    private static final String NIT = "900123456";
+
+    @Autowired
+    private EmpresaRepository empresaRepository;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private EmpresaDeletionRepository deletionRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final ProductoFacetService productoFacetService = Mockito.mock(ProductoFacetService.class);
+
+    private EmpresaDeletionService deletionService;
+    private Categoria categoria;
+    private Orden orden;
+
+    @BeforeEach
+    void setUp() {
+        deletionService = new EmpresaDeletionService(empresaRepository, productoRepository, deletionRepository,
+                new TransactionTemplate(transactionManager), Mockito.mock(DataVersionService.class),
+                Mockito.mock(EmpresaStatsService.class), productoFacetService);
+        ReflectionTestUtils.setField(deletionService, "chunkSize", 2);
+
+        Empresa empresa = new Empresa();
+        empresa.setNit(NIT);
+        empresa.setNombre("Empresa Test");
+        entityManager.persist(empresa);
+
+        categoria = new Categoria();
+        categoria.setNombre("Herramientas");
+        entityManager.persist(categoria);
+
+        List<Producto> productos = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Producto producto = new Producto();
+            producto.setCodigo("PROD-" + i);
+            producto.setNombre("Producto " + i);
+            producto.setPrecio(BigDecimal.TEN);
+            producto.setEmpresa(empresa);
+            producto.setCategorias(List.of(categoria));
+            productos.add(entityManager.persist(producto));
+        }
+
+        Cliente cliente = new Cliente();
+        cliente.setNombre("Cliente Test");
+        entityManager.persist(cliente);
+        orden = new Orden();
+        orden.setCliente(cliente);
+        orden.setTotal(BigDecimal.TEN);
+        orden.setProductos(List.of(productos.get(0)));
+        entityManager.persist(orden);
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void delete_ShouldRemoveCompanyProductsAndLinks_WhenBelowThreshold() {
+        EmpresaDeletion deletion = deletionService.delete(NIT);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(EmpresaDeletion.COMPLETADA, deletion.getEstado());
+        assertEquals(5, deletion.getProductosEliminados());
+        assertNull(deletion.getId());
+        assertFalse(empresaRepository.existsById(NIT));
+        assertEquals(0, productoRepository.count());
+        // Orders and categories survive, without the deleted products
+        assertTrue(entityManager.find(Orden.class, orden.getId()).getProductos().isEmpty());
+        assertNotNull(entityManager.find(Categoria.class, categoria.getId()));
+        assertEquals(0, deletionRepository.count());
+        // One facet delta per chunk of two products
+        verify(productoFacetService, times(3)).recordRemoved(eq(NIT), anyCollection());
+    }
+
+    @Test
+    void process_ShouldDeleteInChunksAndRecordProgress() {
+        EmpresaDeletion job = new EmpresaDeletion();
+        job.setEmpresaNit(NIT);
+        job.setTotalProductos(5);
+        Long id = deletionRepository.save(job).getId();
+
+        deletionService.process(id);
+        entityManager.flush();
+        entityManager.clear();
+
+        EmpresaDeletion done = deletionRepository.findById(id).orElseThrow();
+        assertEquals(EmpresaDeletion.COMPLETADA, done.getEstado());
+        assertEquals(5, done.getProductosEliminados());
+        assertFalse(empresaRepository.existsById(NIT));
+        assertEquals(0, productoRepository.count());
+    }
+
+    @Test
+    void process_ShouldLeaveJobAlone_WhileAnotherNodeHoldsItsLease() {
+        EmpresaDeletion job = new EmpresaDeletion();
+        job.setEmpresaNit(NIT);
+        job.setEstado(EmpresaDeletion.EN_PROCESO);
+        job.setNodo("otro-nodo");
+        job.setLeaseHasta(LocalDateTime.now().plusMinutes(5));
+        Long id = deletionRepository.save(job).getId();
+
+        deletionService.process(id);
+
+        assertEquals(5, productoRepository.count());
+        assertTrue(deletionService.findDeleting(List.of(NIT)).contains(NIT));
+    }
+
+    @Test
+    void process_ShouldTakeOverJob_WhenItsLeaseLapsed() {
+        EmpresaDeletion job = new EmpresaDeletion();
+        job.setEmpresaNit(NIT);
+        job.setEstado(EmpresaDeletion.EN_PROCESO);
+        job.setNodo("otro-nodo");
+        job.setLeaseHasta(LocalDateTime.now().minusMinutes(1));
+        Long id = deletionRepository.save(job).getId();
+
+        deletionService.process(id);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(EmpresaDeletion.COMPLETADA, deletionRepository.findById(id).orElseThrow().getEstado());
+        assertEquals(0, productoRepository.count());
+    }
+
+    @Test
+    void checkNotDeleting_ShouldRejectWrites_WhileTheCompanyHasAnActiveJob() {
+        EmpresaDeletion job = new EmpresaDeletion();
+        job.setEmpresaNit(NIT);
+        deletionRepository.save(job);
+
+        assertThrows(ConflictException.class, () -> deletionService.checkNotDeleting(null, NIT));
+        assertDoesNotThrow(() -> deletionService.checkNotDeleting("000000000"));
+    }
+
+    @Test
+    void delete_ShouldReturnRunningJob_WhenCompanyIsAlreadyBeingDeleted() {
+        EmpresaDeletion job = new EmpresaDeletion();
+        job.setEmpresaNit(NIT);
+        job.setEstado(EmpresaDeletion.EN_PROCESO);
+        Long id = deletionRepository.save(job).getId();
+
+        EmpresaDeletion deletion = deletionService.delete(NIT);
+
+        assertEquals(id, deletion.getId());
+        assertTrue(empresaRepository.existsById(NIT));
+        assertEquals(5, productoRepository.count());
+    }
+
+    @Test
+    void delete_ShouldThrowException_WhenEmpresaNotExists() {
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> deletionService.delete("000000000"));
+
+        assertEquals("Empresa no encontrada", exception.getMessage());
+    }
+}
@@ -0,0 +1,81 @@
+package manuel.pruebatecnica.application.service;
+
+import manuel.pruebatecnica.domain.model.Empresa;
+import manuel.pruebatecnica.infrastructure.repository.EmpresaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EmpresaReferenceCacheTest {
+
+    @Mock
+    private EmpresaRepository empresaRepository;
+
+    @Mock
+    private DataVersionService dataVersionService;
+
+    private EmpresaReferenceCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new EmpresaReferenceCache(empresaRepository, dataVersionService, 100, 60000);
+    }
+
+    @Test
+    void find_ShouldQueryOnce_ThenServeFromCache() {
+        when(empresaRepository.findById("123456789")).thenReturn(Optional.of(createEmpresa()));
+
+        assertEquals("Test Company", cache.find("123456789").orElseThrow().nombre());
+        assertTrue(cache.exists("123456789"));
+
+        verify(empresaRepository, times(1)).findById("123456789");
+        assertEquals(new EmpresaReferenceCache.Stats(1, 1, 1), cache.stats());
+    }
+
+    @Test
+    void exists_ShouldCacheUnknownNits() {
+        when(empresaRepository.findById("000000000")).thenReturn(Optional.empty());
+
+        assertFalse(cache.exists("000000000"));
+        assertFalse(cache.exists("000000000"));
+
+        verify(empresaRepository, times(1)).findById("000000000");
+    }
+
+    @Test
+    void find_ShouldReload_WhenCompaniesVersionMoves() {
+        when(empresaRepository.findById("123456789")).thenReturn(Optional.of(createEmpresa()));
+        cache.find("123456789");
+
+        when(dataVersionService.current(DataVersionService.EMPRESAS)).thenReturn(1L);
+        cache.find("123456789");
+        cache.find("123456789");
+
+        verify(empresaRepository, times(2)).findById("123456789");
+    }
+
+    @Test
+    void invalidate_ShouldForceReload() {
+        when(empresaRepository.findById("123456789")).thenReturn(Optional.empty(), Optional.of(createEmpresa()));
+        assertFalse(cache.exists("123456789"));
+
+        cache.invalidate("123456789");
+
+        assertTrue(cache.exists("123456789"));
+    }
+
+    private Empresa createEmpresa() {
+        Empresa empresa = new Empresa();
+        empresa.setNit("123456789");
+        empresa.setNombre("Test Company");
+        return empresa;
+    }
+}
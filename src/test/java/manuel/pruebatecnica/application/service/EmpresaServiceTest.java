@@ -1,7 +1,13 @@
 package manuel.pruebatecnica.application.service;
 
 import manuel.pruebatecnica.domain.model.Empresa;
+import manuel.pruebatecnica.domain.model.EmpresaDeletion;
+import manuel.pruebatecnica.domain.model.Producto;
+import manuel.pruebatecnica.infrastructure.dto.EmpresaPatchDTO;
+import manuel.pruebatecnica.infrastructure.exception.ConflictException;
+import manuel.pruebatecnica.infrastructure.exception.PreconditionFailedException;
 import manuel.pruebatecnica.infrastructure.repository.EmpresaRepository;
+import manuel.pruebatecnica.infrastructure.repository.ProductoRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -11,10 +17,13 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -24,6 +33,18 @@ class EmpresaServiceTest {
     @Mock
     private EmpresaRepository empresaRepository;
 
+    @Mock
+    private ProductoRepository productoRepository;
+
+    @Mock
+    private DataVersionService dataVersionService;
+
+    @Mock
+    private EmpresaDeletionService empresaDeletionService;
+
+    @Mock
+    private EmpresaReferenceCache empresaReferenceCache;
+
     @InjectMocks
     private EmpresaService empresaService;
 
@@ -49,6 +70,23 @@ class EmpresaServiceTest {
         verify(empresaRepository, times(1)).findAll();
     }
 
+    @Test
+    void findProductosByEmpresa_ShouldGroupProductsAndKeepEmptyCompanies() {
+        Empresa otra = createUpdatedEmpresa();
+        otra.setNit("987654321");
+        Producto producto = new Producto();
+        producto.setId(1L);
+        producto.setEmpresa(testEmpresa);
+        when(productoRepository.findFirstByEmpresaNits(anyList(), anyInt())).thenReturn(List.of(producto));
+
+        Map<String, List<Producto>> result = empresaService.findProductosByEmpresa(List.of("123456789", "987654321"));
+
+        assertEquals(List.of("123456789", "987654321"), List.copyOf(result.keySet()));
+        assertEquals(List.of(producto), result.get("123456789"));
+        assertTrue(result.get("987654321").isEmpty());
+        verify(productoRepository, times(1)).fetchCategorias(List.of(producto));
+    }
+
     @Test
     void findByNit_ShouldReturnEmpresa_WhenExists() {
         when(empresaRepository.findById("123456789")).thenReturn(Optional.of(testEmpresa));
@@ -82,6 +120,7 @@ class EmpresaServiceTest {
         assertEquals(testEmpresa.getNombre(), result.getNombre());
         verify(empresaRepository, times(1)).existsByNombre(testEmpresa.getNombre());
         verify(empresaRepository, times(1)).save(testEmpresa);
+        verify(empresaReferenceCache, times(1)).invalidate(testEmpresa.getNit());
     }
 
     @Test
@@ -162,26 +201,61 @@ class EmpresaServiceTest {
     }
 
     @Test
-    void deleteByNit_ShouldDeleteEmpresa_WhenExists() {
-        when(empresaRepository.existsById("123456789")).thenReturn(true);
-        doNothing().when(empresaRepository).deleteById("123456789");
+    void patch_ShouldOnlyTouchSuppliedFields() {
+        testEmpresa.setVersion(1L);
+        String nombreOriginal = testEmpresa.getNombre();
+        EmpresaPatchDTO patch = new EmpresaPatchDTO(null, null, "3001234567");
+        when(empresaRepository.findById(testEmpresa.getNit())).thenReturn(Optional.of(testEmpresa));
+        when(empresaRepository.saveAndFlush(testEmpresa)).thenReturn(testEmpresa);
+
+        Empresa result = empresaService.patch(testEmpresa.getNit(), patch, 1L);
+
+        assertEquals("3001234567", result.getTelefono());
+        assertEquals(nombreOriginal, result.getNombre());
+        verify(empresaRepository, never()).existsByNombre(anyString());
+    }
+
+    @Test
+    void patch_ShouldThrowPreconditionFailed_WhenVersionDoesNotMatch() {
+        testEmpresa.setVersion(3L);
+        when(empresaRepository.findById(testEmpresa.getNit())).thenReturn(Optional.of(testEmpresa));
+
+        assertThrows(PreconditionFailedException.class,
+                () -> empresaService.patch(testEmpresa.getNit(), new EmpresaPatchDTO(), 2L));
+        verify(empresaRepository, never()).saveAndFlush(any(Empresa.class));
+    }
+
+    @Test
+    void patch_ShouldThrowConflict_WhenNombreBelongsToAnotherEmpresa() {
+        when(empresaRepository.findById(testEmpresa.getNit())).thenReturn(Optional.of(testEmpresa));
+        when(empresaRepository.existsByNombre("Otra")).thenReturn(true);
+
+        assertThrows(ConflictException.class,
+                () -> empresaService.patch(testEmpresa.getNit(), new EmpresaPatchDTO("Otra", null, null), null));
+    }
+
+    @Test
+    void deleteByNit_ShouldDelegateToDeletionService() {
+        EmpresaDeletion deletion = new EmpresaDeletion();
+        deletion.setEstado(EmpresaDeletion.COMPLETADA);
+        when(empresaDeletionService.delete("123456789")).thenReturn(deletion);
 
-        empresaService.deleteByNit("123456789");
+        EmpresaDeletion result = empresaService.deleteByNit("123456789");
 
-        verify(empresaRepository, times(1)).existsById("123456789");
-        verify(empresaRepository, times(1)).deleteById("123456789");
+        assertSame(deletion, result);
+        verify(empresaDeletionService, times(1)).delete("123456789");
+        verify(empresaReferenceCache, times(1)).invalidate("123456789");
     }
 
     @Test
-    void deleteByNit_ShouldThrowException_WhenEmpresaNotExists() {
-        when(empresaRepository.existsById("123456789")).thenReturn(false);
+    void deleteByNit_ShouldPropagateException_WhenEmpresaNotExists() {
+        when(empresaDeletionService.delete("123456789")).thenThrow(new RuntimeException("Empresa no encontrada"));
 
         RuntimeException exception = assertThrows(RuntimeException.class, () -> {
             empresaService.deleteByNit("123456789");
         });
 
         assertEquals("Empresa no encontrada", exception.getMessage());
-        verify(empresaRepository, times(1)).existsById("123456789");
         verify(empresaRepository, never()).deleteById(anyString());
     }
 
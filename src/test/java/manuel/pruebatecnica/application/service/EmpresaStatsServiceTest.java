@@ -0,0 +1,148 @@
+package manuel.pruebatecnica.application.service;
+
+import manuel.pruebatecnica.domain.model.Categoria;
+import manuel.pruebatecnica.domain.model.Empresa;
+import manuel.pruebatecnica.domain.model.EmpresaStats;
+import manuel.pruebatecnica.domain.model.EmpresaStatsChange;
+import manuel.pruebatecnica.domain.model.Producto;
+import manuel.pruebatecnica.infrastructure.repository.EmpresaRepository;
+import manuel.pruebatecnica.infrastructure.repository.EmpresaStatsChangeRepository;
+import manuel.pruebatecnica.infrastructure.repository.EmpresaStatsRepository;
+import manuel.pruebatecnica.infrastructure.repository.ProductoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+class EmpresaStatsServiceTest {
+
+    private static final String NIT = "900123456";
+
+    @Autowired
+    private EmpresaStatsRepository statsRepository;
+
+    @Autowired
+    private EmpresaStatsChangeRepository changeRepository;
+
+    @Autowired
+    private EmpresaRepository empresaRepository;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private EmpresaStatsService statsService;
+    private Categoria herramientas;
+    private Categoria pinturas;
+
+    @BeforeEach
+    void setUp() {
+        statsService = new EmpresaStatsService(statsRepository, changeRepository, empresaRepository,
+                productoRepository, new TransactionTemplate(transactionManager));
+
+        Empresa empresa = new Empresa();
+        empresa.setNit(NIT);
+        empresa.setNombre("Empresa Test");
+        entityManager.persist(empresa);
+        herramientas = persistCategoria("Herramientas");
+        pinturas = persistCategoria("Pinturas");
+
+        persistProducto("A-1", "10.00", "USD", herramientas);
+        persistProducto("A-2", "5.50", "USD", pinturas);
+        persistProducto("A-3", "20.00", "EUR", herramientas);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void find_ShouldComputeOnFirstRequest() {
+        EmpresaStatsService.Snapshot snapshot = statsService.find(NIT).orElseThrow();
+
+        EmpresaStats stats = snapshot.stats();
+        assertEquals(3, stats.getProductos());
+        assertEquals(0, new BigDecimal("15.50").compareTo(stats.getValorPorMoneda().get("USD")));
+        assertEquals(0, new BigDecimal("20.00").compareTo(stats.getValorPorMoneda().get("EUR")));
+        assertEquals(2L, stats.getProductosPorCategoria().get(herramientas.getId()));
+        assertEquals(1L, stats.getProductosPorCategoria().get(pinturas.getId()));
+        assertEquals(1, stats.getRevision());
+        assertFalse(snapshot.pendiente());
+    }
+
+    @Test
+    void drain_ShouldRecomputeOnlyQueuedCompanies() {
+        statsService.find(NIT);
+        persistProducto("A-4", "4.50", "USD", pinturas);
+        statsService.recordChange(NIT, NIT, null);
+        entityManager.flush();
+        assertTrue(statsService.find(NIT).orElseThrow().pendiente());
+
+        statsService.drain();
+        entityManager.flush();
+        entityManager.clear();
+
+        EmpresaStatsService.Snapshot snapshot = statsService.find(NIT).orElseThrow();
+        assertEquals(4, snapshot.stats().getProductos());
+        assertEquals(0, new BigDecimal("20.00").compareTo(snapshot.stats().getValorPorMoneda().get("USD")));
+        assertEquals(2L, snapshot.stats().getProductosPorCategoria().get(pinturas.getId()));
+        assertEquals(2, snapshot.stats().getRevision());
+        assertFalse(snapshot.pendiente());
+        assertEquals(0, changeRepository.count());
+    }
+
+    @Test
+    void drain_ShouldDropStatsOfDeletedCompany() {
+        statsService.find(NIT);
+        productoRepository.deleteAll(productoRepository.findByEmpresaNit(NIT));
+        empresaRepository.deleteById(NIT);
+        statsService.recordChange(NIT);
+        entityManager.flush();
+
+        statsService.drain();
+        entityManager.flush();
+        entityManager.clear();
+
+        assertFalse(statsRepository.existsById(NIT));
+        assertTrue(statsService.find(NIT).isEmpty());
+    }
+
+    @Test
+    void reconcile_ShouldQueueEveryCompany() {
+        statsService.reconcile();
+
+        assertEquals(List.of(NIT), changeRepository.findAll().stream().map(EmpresaStatsChange::getEmpresaNit).toList());
+    }
+
+    private Categoria persistCategoria(String nombre) {
+        Categoria categoria = new Categoria();
+        categoria.setNombre(nombre);
+        return entityManager.persist(categoria);
+    }
+
+    private void persistProducto(String codigo, String precio, String moneda, Categoria categoria) {
+        Producto producto = new Producto();
+        producto.setCodigo(codigo);
+        producto.setNombre("Producto " + codigo);
+        producto.setPrecio(new BigDecimal(precio));
+        producto.setMoneda(moneda);
+        producto.setEmpresa(entityManager.find(Empresa.class, NIT));
+        producto.setCategorias(List.of(categoria));
+        entityManager.persist(producto);
+    }
+}
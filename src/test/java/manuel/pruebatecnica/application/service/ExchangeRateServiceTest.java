@@ -0,0 +1,165 @@
+package manuel.pruebatecnica.application.service;
+
+import manuel.pruebatecnica.domain.model.Empresa;
+import manuel.pruebatecnica.domain.model.Producto;
+import manuel.pruebatecnica.infrastructure.dto.ProductoPageRequest;
+import manuel.pruebatecnica.infrastructure.repository.CategoriaRepository;
+import manuel.pruebatecnica.infrastructure.repository.EmpresaRepository;
+import manuel.pruebatecnica.infrastructure.repository.ExchangeRateRepository;
+import manuel.pruebatecnica.infrastructure.repository.ProductoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+class ExchangeRateServiceTest {
+
+    private static final String NIT = "900123456";
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private ExchangeRateRepository exchangeRateRepository;
+
+    @Autowired
+    private EmpresaRepository empresaRepository;
+
+    @Autowired
+    private CategoriaRepository categoriaRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private final DataVersionService dataVersionService = Mockito.mock(DataVersionService.class);
+
+    private ExchangeRateService exchangeRateService;
+
+    @BeforeEach
+    void setUp() {
+        exchangeRateService = newNode("EUR=2");
+
+        Empresa empresa = new Empresa();
+        empresa.setNit(NIT);
+        empresa.setNombre("Empresa Test");
+        entityManager.persist(empresa);
+        for (int i = 0; i < 3; i++) {
+            persistProducto("PROD-" + i, String.valueOf(i), "USD");
+        }
+        entityManager.flush();
+    }
+
+    @Test
+    void updateRates_ShouldRecomputeOnlyRowsOfChangedCurrency() {
+        Long eurId = persistProducto("EUR-1", "10.00", "EUR").getId();
+        exchangeRateService.reconcile();
+        entityManager.clear();
+        assertEquals(new BigDecimal("20.0000"), productoRepository.findById(eurId).orElseThrow().getPrecioUsd());
+
+        assertEquals(0, exchangeRateService.updateRates(Map.of("EUR", new BigDecimal("2.00"))));
+        assertEquals(1, exchangeRateService.updateRates(Map.of("EUR", new BigDecimal("1.10"))));
+        entityManager.clear();
+
+        assertEquals(new BigDecimal("11.0000"), productoRepository.findById(eurId).orElseThrow().getPrecioUsd());
+        assertEquals(new BigDecimal("2.0000"), productoRepository.findByEmpresaNit(NIT).stream()
+                .filter(p -> p.getCodigo().equals("PROD-2")).findFirst().orElseThrow().getPrecioUsd());
+        assertEquals(0, new BigDecimal("1.10").compareTo(exchangeRateRepository.findById("EUR").orElseThrow().getTasa()));
+    }
+
+    @Test
+    void reconcile_ShouldKeepStoredRates_OverTheConfiguredOnes() {
+        Long eurId = persistProducto("EUR-1", "10.00", "EUR").getId();
+        exchangeRateService.reconcile();
+        exchangeRateService.updateRates(Map.of("EUR", new BigDecimal("1.10")));
+
+        ExchangeRateService restarted = newNode("EUR=2,MXN=0.05");
+        restarted.reconcile();
+        entityManager.clear();
+
+        assertEquals(0, new BigDecimal("1.10").compareTo(restarted.rates().get("EUR")));
+        assertTrue(restarted.supports("MXN"));
+        assertEquals(new BigDecimal("11.0000"), productoRepository.findById(eurId).orElseThrow().getPrecioUsd());
+    }
+
+    @Test
+    void refresh_ShouldPickUpRatesChangedByAnotherNode_WhenTheDataVersionMoved() {
+        ExchangeRateService otherNode = newNode("EUR=2");
+        exchangeRateService.reconcile();
+        otherNode.reconcile();
+
+        exchangeRateService.updateRates(Map.of("EUR", new BigDecimal("1.10")));
+        otherNode.refresh();
+        assertEquals(0, new BigDecimal("2").compareTo(otherNode.rates().get("EUR")));
+
+        when(dataVersionService.current(DataVersionService.EXCHANGE_RATES)).thenReturn(1L);
+        otherNode.refresh();
+
+        assertEquals(0, new BigDecimal("1.10").compareTo(otherNode.rates().get("EUR")));
+    }
+
+    @Test
+    void findPage_ShouldFilterAndSortByNormalizedPriceAcrossCurrencies() {
+        persistProducto("PROD-998", "998", "USD");
+        persistProducto("PROD-999", "999", "USD");
+        persistProducto("EUR-1", "600.00", "EUR");
+        persistProducto("EUR-2", "1.00", "EUR");
+        exchangeRateService.reconcile();
+        entityManager.clear();
+        ProductoService productoService = new ProductoService(productoRepository, empresaRepository, categoriaRepository,
+                dataVersionService, exchangeRateService, Mockito.mock(ProductoFacetService.class),
+                Mockito.mock(EmpresaReferenceCache.class), Mockito.mock(EmpresaStatsService.class),
+                Mockito.mock(EmpresaDeletionService.class));
+
+        ProductoPageRequest expensive = new ProductoPageRequest();
+        expensive.setSort("precio");
+        expensive.setDirection("desc");
+        expensive.setMinPrecio(new BigDecimal("998"));
+        List<String> expensiveCodes = productoService.findPage(expensive).items().stream().map(Producto::getCodigo).toList();
+
+        ProductoPageRequest cheapInEur = new ProductoPageRequest();
+        cheapInEur.setSort("precio");
+        cheapInEur.setMoneda("EUR");
+        cheapInEur.setMaxPrecio(new BigDecimal("1"));
+        List<String> cheapCodes = productoService.findPage(cheapInEur).items().stream().map(Producto::getCodigo).toList();
+
+        assertEquals(List.of("EUR-1", "PROD-999", "PROD-998"), expensiveCodes);
+        assertEquals(List.of("PROD-0", "PROD-1", "PROD-2", "EUR-2"), cheapCodes);
+    }
+
+    @SuppressWarnings("unchecked")
+    private ExchangeRateService newNode(String configuredRates) {
+        ObjectProvider<ProductoFacetService> facetProvider = Mockito.mock(ObjectProvider.class);
+        when(facetProvider.getObject()).thenReturn(Mockito.mock(ProductoFacetService.class));
+        return new ExchangeRateService(productoRepository, exchangeRateRepository, new TransactionTemplate(transactionManager),
+                dataVersionService, facetProvider, configuredRates);
+    }
+
+    private Producto persistProducto(String codigo, String precio, String moneda) {
+        Producto producto = new Producto();
+        producto.setCodigo(codigo);
+        producto.setNombre("Producto " + codigo);
+        producto.setPrecio(new BigDecimal(precio));
+        producto.setMoneda(moneda);
+        producto.setEmpresa(entityManager.find(Empresa.class, NIT));
+        return entityManager.persistAndFlush(producto);
+    }
+}
@@ -0,0 +1,90 @@
+package manuel.pruebatecnica.application.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InventoryReportCacheTest {
+
+    private static final int MB = 1024 * 1024;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void streamTo_ShouldGenerateOnceAndServeFromDiskAfterwards() throws Exception {
+        InventoryReportCache cache = new InventoryReportCache(directory, 64, 3600000);
+        AtomicInteger generations = new AtomicInteger();
+        InventoryReportCache.ReportWriter writer = output -> {
+            generations.incrementAndGet();
+            output.write("reporte".getBytes(StandardCharsets.UTF_8));
+        };
+
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+        cache.streamTo("clave", writer, first);
+        cache.streamTo("clave", writer, second);
+
+        assertEquals(1, generations.get());
+        assertEquals("reporte", first.toString(StandardCharsets.UTF_8));
+        assertEquals("reporte", second.toString(StandardCharsets.UTF_8));
+        assertEquals(1, cache.stats().hits());
+    }
+
+    @Test
+    void copyOf_ShouldSurviveEvictionOfTheEntry() throws Exception {
+        InventoryReportCache cache = new InventoryReportCache(directory, 64, 0);
+
+        Path copy = cache.copyOf("clave", output -> output.write(new byte[]{1, 2, 3}));
+        Thread.sleep(5);
+        cache.evictExpired();
+
+        assertEquals(0, cache.stats().entries());
+        assertArrayEquals(new byte[]{1, 2, 3}, Files.readAllBytes(copy));
+    }
+
+    @Test
+    void copyOf_ShouldEvictLeastRecentlyUsed_WhenOverSizeBudget() throws Exception {
+        InventoryReportCache cache = new InventoryReportCache(directory, 2, 3600000);
+        byte[] halfMb = new byte[MB / 2];
+
+        for (String key : List.of("a", "b", "c")) {
+            Files.delete(cache.copyOf(key, output -> output.write(halfMb)));
+            Thread.sleep(5);
+        }
+        // a becomes the most recently used
+        Files.delete(cache.copyOf("a", output -> fail("a is cached")));
+        Thread.sleep(5);
+        Files.delete(cache.copyOf("d", output -> output.write(halfMb)));
+        Thread.sleep(5);
+        Files.delete(cache.copyOf("e", output -> output.write(halfMb)));
+
+        assertEquals(3, cache.stats().entries());
+        assertTrue(Files.exists(directory.resolve("a.pdf")));
+        assertFalse(Files.exists(directory.resolve("b.pdf")));
+        assertFalse(Files.exists(directory.resolve("c.pdf")));
+        assertTrue(Files.exists(directory.resolve("e.pdf")));
+    }
+
+    @Test
+    void constructor_ShouldIndexReportsLeftOnDisk() throws Exception {
+        new InventoryReportCache(directory, 64, 3600000)
+                .copyOf(InventoryReportCache.key(List.of("inventario", "900123456")), output -> output.write(1));
+
+        InventoryReportCache reloaded = new InventoryReportCache(directory, 64, 3600000);
+
+        assertEquals(1, reloaded.stats().entries());
+        // The caller's copy from the first instance is cleared as a leftover
+        try (var files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package manuel.pruebatecnica.application.service;
+
+import manuel.pruebatecnica.domain.model.InventoryReportJob;
+import manuel.pruebatecnica.infrastructure.exception.ConflictException;
+import manuel.pruebatecnica.infrastructure.exception.ServiceUnavailableException;
+import manuel.pruebatecnica.infrastructure.repository.EmpresaSummary;
+import manuel.pruebatecnica.infrastructure.repository.InventoryReportJobRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.LongConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class InventoryReportJobServiceTest {
+
+    private static final String NIT = "900123456";
+
+    @Mock
+    private InventoryReportJobRepository jobRepository;
+
+    @Mock
+    private InventoryService inventoryService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private InventoryReportJobService jobService;
+    private InventoryReportJob job;
+
+    @BeforeEach
+    void setUp() {
+        jobService = new InventoryReportJobService(jobRepository, inventoryService, transactionManager, 1);
+
+        job = new InventoryReportJob();
+        job.setId(1L);
+        job.setClave(NIT + "|admin@example.com");
+        job.setEmpresaNit(NIT);
+        job.setDestinatario("admin@example.com");
+        job.setAsunto("Inventario");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jobService.destroy();
+    }
+
+    @Test
+    void submit_ShouldReturnJobInFlight_WhenSameCompanyAndRecipient() {
+        when(inventoryService.emailAvailable()).thenReturn(true);
+        when(jobRepository.findFirstByClaveAndEstadoIn(eq(NIT + "|admin@example.com"), anyCollection()))
+                .thenReturn(Optional.of(job));
+
+        InventoryReportJob result = jobService.submit("Admin@Example.com", "Otro asunto", null, NIT);
+
+        assertSame(job, result);
+        verify(jobRepository, never()).save(any());
+    }
+
+    @Test
+    void submit_ShouldReturnJobQueuedByAnotherNode_WhenTheInsertHitsTheActiveJobIndex() {
+        when(inventoryService.emailAvailable()).thenReturn(true);
+        when(jobRepository.findFirstByClaveAndEstadoIn(eq(NIT + "|admin@example.com"), anyCollection()))
+                .thenReturn(Optional.empty(), Optional.of(job));
+        when(jobRepository.save(any())).thenThrow(new DataIntegrityViolationException("uk_inventory_report_jobs_clave_activa"));
+
+        InventoryReportJob result = jobService.submit("admin@example.com", "Inventario", null, NIT);
+
+        assertSame(job, result);
+    }
+
+    @Test
+    void submit_ShouldThrowServiceUnavailable_WhenEmailIsNotConfigured() {
+        when(inventoryService.emailAvailable()).thenReturn(false);
+
+        assertThrows(ServiceUnavailableException.class,
+                () -> jobService.submit("admin@example.com", "Inventario", null, NIT));
+        verify(jobRepository, never()).save(any());
+    }
+
+    @Test
+    void process_ShouldRenderReportAndQueueEmailOnCompletion() throws Exception {
+        List<EmpresaSummary> empresas = List.of(new EmpresaSummary(NIT, "Empresa Test", null, null, 0L, 1500L));
+        Path report = Files.createTempFile("inventario-", ".pdf");
+        when(jobRepository.claim(eq(1L), anyCollection(), anyString(), any(), any())).thenReturn(1);
+        when(jobRepository.findById(1L)).thenReturn(Optional.of(job));
+        when(inventoryService.reportEmpresas(NIT)).thenReturn(empresas);
+        when(jobRepository.start(eq(1L), anyCollection(), anyString(), eq(1500L), any(), any())).thenReturn(1);
+        when(jobRepository.updateProgress(eq(1L), anyString(), anyLong(), any(), any())).thenReturn(1);
+        when(jobRepository.updateEstado(eq(1L), anyCollection(), eq(InventoryReportJob.COMPLETADA), isNull(), any()))
+                .thenReturn(1);
+        when(inventoryService.renderInventoryReport(eq(empresas), any())).thenAnswer(invocation -> {
+            invocation.<LongConsumer>getArgument(1).accept(1000);
+            return report;
+        });
+
+        jobService.process(1L);
+
+        verify(jobRepository).updateProgress(eq(1L), anyString(), eq(1000L), any(), any());
+        verify(inventoryService).mailInventoryReport("admin@example.com", "Inventario", null, report);
+        assertFalse(Files.exists(report));
+    }
+
+    @Test
+    void process_ShouldStop_WhenJobIsCancelledWhileRendering() {
+        when(jobRepository.claim(eq(1L), anyCollection(), anyString(), any(), any())).thenReturn(1);
+        when(jobRepository.findById(1L)).thenReturn(Optional.of(job));
+        when(inventoryService.reportEmpresas(NIT)).thenReturn(List.of());
+        when(jobRepository.start(eq(1L), anyCollection(), anyString(), eq(0L), any(), any())).thenReturn(1);
+        when(jobRepository.updateProgress(eq(1L), anyString(), anyLong(), any(), any())).thenReturn(0);
+        when(inventoryService.renderInventoryReport(anyList(), any())).thenAnswer(invocation -> {
+            invocation.<LongConsumer>getArgument(1).accept(0);
+            return fail("The report should stop once the job is cancelled");
+        });
+
+        jobService.process(1L);
+
+        verify(jobRepository, never()).updateEstado(anyLong(), anyCollection(), anyString(), any(), any());
+        verify(inventoryService, never()).mailInventoryReport(any(), any(), any(), any());
+    }
+
+    @Test
+    void process_ShouldSkipJob_WhenAnotherNodeHoldsIt() {
+        when(jobRepository.claim(eq(1L), anyCollection(), anyString(), any(), any())).thenReturn(0);
+
+        jobService.process(1L);
+
+        verify(jobRepository, never()).findById(anyLong());
+        verifyNoInteractions(inventoryService);
+    }
+
+    @Test
+    void cancel_ShouldThrowConflict_WhenJobAlreadyFinished() {
+        job.setEstado(InventoryReportJob.COMPLETADA);
+        when(jobRepository.findById(1L)).thenReturn(Optional.of(job));
+        when(jobRepository.updateEstado(eq(1L), anyCollection(), eq(InventoryReportJob.CANCELADA), isNull(), any()))
+                .thenReturn(0);
+
+        assertThrows(ConflictException.class, () -> jobService.cancel(1L));
+    }
+}
@@ -0,0 +1,235 @@
+package manuel.pruebatecnica.application.service;
+
+import com.lowagie.text.pdf.PdfReader;
+import com.lowagie.text.pdf.SimpleBookmark;
+import com.lowagie.text.pdf.parser.PdfTextExtractor;
+import manuel.pruebatecnica.domain.model.Empresa;
+import manuel.pruebatecnica.domain.model.Producto;
+import manuel.pruebatecnica.infrastructure.exception.ServiceUnavailableException;
+import manuel.pruebatecnica.infrastructure.report.OpenPdfService;
+import manuel.pruebatecnica.infrastructure.repository.EmpresaRepository;
+import manuel.pruebatecnica.infrastructure.repository.EmpresaSummary;
+import manuel.pruebatecnica.infrastructure.repository.InventoryReportRow;
+import manuel.pruebatecnica.infrastructure.repository.ProductoRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+class InventoryServiceTest {
+
+    private static final String NIT = "900123456";
+
+    @Autowired
+    private EmpresaRepository empresaRepository;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @SuppressWarnings("unchecked")
+    private final ObjectProvider<EmailService> emailProvider = Mockito.mock(ObjectProvider.class);
+
+    @TempDir
+    Path tempDir;
+
+    private InventoryReportCache reportCache;
+    private InventoryService inventoryService;
+
+    @BeforeEach
+    void setUp() {
+        OpenPdfService pdfService = new OpenPdfService();
+        ReflectionTestUtils.setField(pdfService, "rowsPerFlush", 50);
+        reportCache = new InventoryReportCache(tempDir, 64, 3600000);
+        inventoryService = new InventoryService(pdfService, empresaRepository, productoRepository,
+                transactionManager, emailProvider, reportCache, 2);
+
+        Empresa empresa = new Empresa();
+        empresa.setNit(NIT);
+        empresa.setNombre("Empresa Test");
+        entityManager.persist(empresa);
+        for (int i = 0; i < 300; i++) {
+            Producto producto = new Producto();
+            producto.setCodigo("PROD-" + i);
+            producto.setNombre("Producto " + i);
+            producto.setPrecio(BigDecimal.TEN);
+            producto.setMoneda("USD");
+            producto.setEmpresa(empresa);
+            entityManager.persist(producto);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        inventoryService.destroy();
+    }
+
+    @Test
+    void writeInventoryReport_ShouldRenderEveryProductAcrossPages() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long written = inventoryService.writeInventoryReport(NIT, output);
+
+        assertEquals(300, written);
+        PdfReader reader = new PdfReader(output.toByteArray());
+        try {
+            assertTrue(reader.getNumberOfPages() > 1);
+            PdfTextExtractor extractor = new PdfTextExtractor(reader);
+            assertTrue(extractor.getTextFromPage(1).contains("Empresa Test"));
+            assertTrue(extractor.getTextFromPage(reader.getNumberOfPages()).contains("Total USD: 3000.00"));
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    void renderInventoryReport_ShouldReuseCachedReport_UntilProductsChange() throws Exception {
+        List<EmpresaSummary> empresas = inventoryService.reportEmpresas(NIT);
+
+        Path first = inventoryService.renderInventoryReport(empresas, productos -> { });
+        Path second = inventoryService.renderInventoryReport(empresas, productos -> fail("Should be served from the cache"));
+
+        assertEquals(1, reportCache.stats().misses());
+        assertEquals(1, reportCache.stats().hits());
+        assertArrayEquals(Files.readAllBytes(first), Files.readAllBytes(second));
+
+        Producto producto = productoRepository.findByEmpresaNit(NIT).get(0);
+        producto.setPrecio(BigDecimal.ONE);
+        productoRepository.saveAndFlush(producto);
+        long[] rendered = {0};
+        inventoryService.renderInventoryReport(empresas, productos -> rendered[0] = productos);
+
+        assertEquals(2, reportCache.stats().misses());
+        assertEquals(300, rendered[0]);
+    }
+
+    @Test
+    void writeInventoryReport_ShouldMergeCompaniesInNitOrder_WithSameOutputAtAnyParallelism() throws Exception {
+        List<EmpresaSummary> empresas = List.of(
+                new EmpresaSummary("900000003", "Gamma", null, null, 0L, 120L),
+                new EmpresaSummary("900000001", "Alfa", null, null, 0L, 120L),
+                new EmpresaSummary("900000002", "Beta", null, null, 0L, 120L));
+
+        byte[] sequential = renderWithParallelism(empresas, 1);
+        byte[] parallel = renderWithParallelism(empresas, 3);
+
+        List<String> pages = pagesOf(sequential);
+        assertEquals(pages, pagesOf(parallel));
+        String contents = pages.get(0);
+        assertTrue(contents.indexOf("Alfa") < contents.indexOf("Beta"));
+        assertTrue(contents.indexOf("Beta") < contents.indexOf("Gamma"));
+        assertTrue(contents.contains("Productos: 360"));
+        assertTrue(pages.get(1).contains("Alfa (NIT 900000001)"));
+        assertTrue(pages.get(pages.size() - 1).contains("Página " + pages.size()));
+
+        PdfReader reader = new PdfReader(parallel);
+        try {
+            List<Map<String, Object>> bookmarks = SimpleBookmark.getBookmarkList(reader);
+            assertEquals(List.of("Alfa (NIT 900000001)", "Beta (NIT 900000002)", "Gamma (NIT 900000003)"),
+                    bookmarks.stream().map(bookmark -> bookmark.get("Title")).toList());
+            assertTrue(bookmarks.get(0).get("Page").toString().startsWith("2 "));
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    void writeInventoryReport_ShouldThrowException_WhenEmpresaNotExists() {
+        RuntimeException exception = assertThrows(RuntimeException.class,
+                () -> inventoryService.writeInventoryReport("000000000", new ByteArrayOutputStream()));
+
+        assertEquals("Empresa no encontrada", exception.getMessage());
+    }
+
+    @Test
+    void sendInventoryReport_ShouldAttachRenderedFileAndDeleteIt() {
+        EmailService emailService = Mockito.mock(EmailService.class);
+        when(emailProvider.getIfAvailable()).thenReturn(emailService);
+        Path[] attachment = new Path[1];
+        doAnswer(invocation -> {
+            attachment[0] = invocation.getArgument(3);
+            assertTrue(Files.size(attachment[0]) > 0);
+            return null;
+        }).when(emailService).sendEmailWithAttachment(eq("admin@example.com"), eq("Inventario"), eq("Adjunto"),
+                any(Path.class), eq("inventario.pdf"));
+
+        inventoryService.sendInventoryReport("admin@example.com", "Inventario", "Adjunto", NIT);
+
+        assertNotNull(attachment[0]);
+        assertFalse(Files.exists(attachment[0]));
+    }
+
+    @Test
+    void sendInventoryReport_ShouldThrowServiceUnavailable_WhenEmailIsNotConfigured() {
+        assertThrows(ServiceUnavailableException.class,
+                () -> inventoryService.sendInventoryReport("admin@example.com"));
+    }
+
+    // Products come from a mocked repository: the section threads cannot see this test's uncommitted data
+    private byte[] renderWithParallelism(List<EmpresaSummary> empresas, int parallelism) {
+        ProductoRepository productos = Mockito.mock(ProductoRepository.class);
+        when(productos.streamForReport(any())).thenAnswer(invocation -> {
+            String nit = invocation.getArgument(0);
+            return IntStream.range(0, 120)
+                    .mapToObj(i -> new InventoryReportRow(nit + "-" + i, "Producto " + i, BigDecimal.TEN, "USD"));
+        });
+        OpenPdfService pdfService = new OpenPdfService();
+        ReflectionTestUtils.setField(pdfService, "rowsPerFlush", 50);
+        InventoryService service = new InventoryService(pdfService, empresaRepository, productos,
+                Mockito.mock(PlatformTransactionManager.class), emailProvider, reportCache, parallelism);
+        try {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            assertEquals(360, service.writeInventoryReport(empresas, output));
+            return output.toByteArray();
+        } finally {
+            service.destroy();
+        }
+    }
+
+    private static List<String> pagesOf(byte[] pdf) throws Exception {
+        PdfReader reader = new PdfReader(pdf);
+        try {
+            PdfTextExtractor extractor = new PdfTextExtractor(reader);
+            List<String> pages = new ArrayList<>();
+            for (int page = 1; page <= reader.getNumberOfPages(); page++) {
+                pages.add(extractor.getTextFromPage(page));
+            }
+            return pages;
+        } finally {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package manuel.pruebatecnica.application.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import manuel.pruebatecnica.domain.model.Categoria;
+import manuel.pruebatecnica.domain.model.Empresa;
+import manuel.pruebatecnica.domain.model.Producto;
+import manuel.pruebatecnica.infrastructure.dto.ProductoDTO;
+import manuel.pruebatecnica.infrastructure.mapper.EntityMapper;
+import manuel.pruebatecnica.infrastructure.repository.ProductoRepository;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.EntityKey;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+class ProductoExportServiceTest {
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private TestEntityManager testEntityManager;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private ProductoExportService exportService;
+    private Long categoriaId;
+
+    @BeforeEach
+    void setUp() {
+        exportService = new ProductoExportService(productoRepository, new EntityMapper(), objectMapper, entityManager);
+
+        Empresa norte = persistEmpresa("900000001", "Norte");
+        Empresa sur = persistEmpresa("900000002", "Sur");
+
+        Categoria categoria = new Categoria();
+        categoria.setNombre("Herramientas");
+        categoriaId = testEntityManager.persist(categoria).getId();
+
+        persistProducto("A-1", "Martillo", norte, categoria);
+        persistProducto("A-2", "Sierra, grande", norte, null);
+        persistProducto("B-1", "Taladro", sur, null);
+        testEntityManager.flush();
+        testEntityManager.clear();
+    }
+
+    @Test
+    void exportNdjson_ShouldWriteOneJsonDocumentPerLine() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long written = exportService.export(null, CatalogFormat.NDJSON, output);
+
+        List<String> lines = output.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(3, written);
+        assertEquals(3, lines.size());
+        ProductoDTO first = objectMapper.readValue(lines.get(0), ProductoDTO.class);
+        assertEquals("A-1", first.getCodigo());
+        assertEquals("900000001", first.getEmpresaNit());
+        assertEquals(categoriaId, first.getCategoriaId());
+        assertTrue(entityManager.unwrap(Session.class).getStatistics().getEntityKeys().stream()
+                .map(EntityKey.class::cast)
+                .noneMatch(key -> key.getEntityName().equals(Producto.class.getName())));
+    }
+
+    @Test
+    void exportCsv_ShouldWriteHeaderAndFilterByEmpresa() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long written = exportService.export("900000001", CatalogFormat.CSV, output);
+
+        List<String> lines = output.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(2, written);
+        assertEquals("id,codigo,nombre,precio,moneda,precioUsd,caracteristicas,empresaNit,categoriaId,version", lines.get(0));
+        assertTrue(lines.get(1).contains("A-1,Martillo"));
+        assertTrue(lines.get(2).contains("\"Sierra, grande\""));
+    }
+
+    @Test
+    void export_ShouldWriteNothing_WhenCatalogIsEmpty() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long written = exportService.export("no-existe", CatalogFormat.NDJSON, output);
+
+        assertEquals(0, written);
+        assertEquals(0, output.size());
+    }
+
+    private Empresa persistEmpresa(String nit, String nombre) {
+        Empresa empresa = new Empresa();
+        empresa.setNit(nit);
+        empresa.setNombre(nombre);
+        return testEntityManager.persist(empresa);
+    }
+
+    private void persistProducto(String codigo, String nombre, Empresa empresa, Categoria categoria) {
+        Producto producto = new Producto();
+        producto.setCodigo(codigo);
+        producto.setNombre(nombre);
+        producto.setPrecio(BigDecimal.TEN);
+        producto.setEmpresa(empresa);
+        producto.setCategorias(categoria == null ? List.of() : List.of(categoria));
+        testEntityManager.persist(producto);
+    }
+}
@@ -0,0 +1,209 @@
+package manuel.pruebatecnica.application.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import manuel.pruebatecnica.domain.model.Categoria;
+import manuel.pruebatecnica.domain.model.Empresa;
+import manuel.pruebatecnica.domain.model.Producto;
+import manuel.pruebatecnica.infrastructure.dto.ProductoPageRequest;
+import manuel.pruebatecnica.infrastructure.repository.ProductoFacetChangeRepository;
+import manuel.pruebatecnica.infrastructure.repository.ProductoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+class ProductoFacetServiceTest {
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private ProductoFacetChangeRepository changeRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private final DataVersionService dataVersionService = Mockito.mock(DataVersionService.class);
+
+    private ProductoFacetService facetService;
+    private Categoria herramientas;
+    private Categoria pinturas;
+
+    @BeforeEach
+    void setUp() {
+        facetService = newNode();
+
+        Empresa acme = persistEmpresa("900000001", "Acme");
+        Empresa globex = persistEmpresa("900000002", "Globex");
+        herramientas = persistCategoria("Herramientas");
+        pinturas = persistCategoria("Pinturas");
+
+        persistProducto("A-1", "5.00", acme, herramientas);
+        persistProducto("A-2", "50.00", acme, pinturas);
+        persistProducto("G-1", "500.00", globex, herramientas);
+        entityManager.flush();
+        entityManager.clear();
+
+        facetService.rebuild();
+    }
+
+    @Test
+    void facets_ShouldServeWholeCatalogFromCounters() {
+        ProductoFacets facets = facetService.facets(new ProductoPageRequest());
+
+        assertEquals(3, facets.total());
+        assertEquals(2L, facets.categorias().get(herramientas.getId()));
+        assertEquals(1L, facets.categorias().get(pinturas.getId()));
+        assertEquals(2L, facets.empresas().get("900000001"));
+        assertEquals(List.of(1L, 1L, 1L), facets.precios().stream().map(ProductoFacets.PriceBucket::count).toList());
+        assertNull(facets.precios().get(2).hasta());
+    }
+
+    @Test
+    void recordChange_ShouldAdjustCounters_WhenTheLogIsReplayed() {
+        facetService.recordChange(null, new ProductoFacetService.Entry("900000002", Set.of(pinturas.getId()), new BigDecimal("20.0000")));
+        facetService.recordChange(new ProductoFacetService.Entry("900000001", Set.of(herramientas.getId()), new BigDecimal("5.0000")), null);
+        // The test transaction never commits; the poll reads the entries it wrote
+        facetService.refresh();
+
+        ProductoFacets facets = facetService.facets(new ProductoPageRequest());
+
+        assertEquals(3, facets.total());
+        assertEquals(1L, facets.categorias().get(herramientas.getId()));
+        assertEquals(2L, facets.categorias().get(pinturas.getId()));
+        assertEquals(2L, facets.empresas().get("900000002"));
+        assertEquals(List.of(0L, 2L, 1L), facets.precios().stream().map(ProductoFacets.PriceBucket::count).toList());
+    }
+
+    @Test
+    void refresh_ShouldReplayAnotherNodesChanges_WhichRequestsOnlyReadAfterwards() {
+        newNode().recordChange(null, new ProductoFacetService.Entry("900000002", Set.of(pinturas.getId()), new BigDecimal("700.0000")));
+
+        assertEquals(3, facetService.facets(new ProductoPageRequest()).total());
+        facetService.refresh();
+        ProductoFacets facets = facetService.facets(new ProductoPageRequest());
+
+        assertEquals(4, facets.total());
+        assertEquals(2L, facets.empresas().get("900000002"));
+        assertEquals(2L, facets.categorias().get(pinturas.getId()));
+        assertEquals(List.of(1L, 1L, 2L), facets.precios().stream().map(ProductoFacets.PriceBucket::count).toList());
+    }
+
+    @Test
+    void recordRemoved_ShouldSubtractTheDeletedProducts() {
+        List<Long> ids = productoRepository.findIdsByEmpresaNit("900000001", 10);
+
+        facetService.recordRemoved("900000001", ids);
+        facetService.refresh();
+        ProductoFacets facets = facetService.facets(new ProductoPageRequest());
+
+        assertEquals(1, facets.total());
+        assertFalse(facets.empresas().containsKey("900000001"));
+        assertEquals(1L, facets.categorias().get(herramientas.getId()));
+        assertFalse(facets.categorias().containsKey(pinturas.getId()));
+        assertEquals(List.of(0L, 0L, 1L), facets.precios().stream().map(ProductoFacets.PriceBucket::count).toList());
+    }
+
+    @Test
+    void rebuild_ShouldNotApplyAgainChangesIncludedInTheRecount() {
+        persistProducto("G-2", "7.00", entityManager.find(Empresa.class, "900000002"), pinturas);
+        entityManager.flush();
+        facetService.recordChange(null, new ProductoFacetService.Entry("900000002", Set.of(pinturas.getId()), new BigDecimal("7.0000")));
+
+        facetService.rebuild();
+        facetService.refresh();
+        ProductoFacets facets = facetService.facets(new ProductoPageRequest());
+
+        assertEquals(4, facets.total());
+        assertEquals(2L, facets.categorias().get(pinturas.getId()));
+        assertEquals(List.of(2L, 1L, 1L), facets.precios().stream().map(ProductoFacets.PriceBucket::count).toList());
+    }
+
+    @Test
+    void verify_ShouldRecount_WhenAWriteWasNeverReplayed() {
+        persistProducto("G-2", "7.00", entityManager.find(Empresa.class, "900000002"), pinturas);
+        entityManager.flush();
+
+        facetService.verify();
+        facetService.refresh();
+        ProductoFacets facets = facetService.facets(new ProductoPageRequest());
+
+        assertEquals(4, facets.total());
+        assertEquals(2L, facets.categorias().get(pinturas.getId()));
+    }
+
+    @Test
+    void verify_ShouldKeepCounters_WhenTotalMatchesTheCatalog() {
+        ProductoFacets counted = facetService.facets(new ProductoPageRequest());
+
+        facetService.verify();
+
+        assertSame(counted, facetService.facets(new ProductoPageRequest()));
+    }
+
+    @Test
+    void facets_ShouldApplyEveryFilterExceptTheFacetsOwn() {
+        ProductoPageRequest request = new ProductoPageRequest();
+        request.setCategoriaId(herramientas.getId());
+        request.setMaxPrecio(new BigDecimal("100"));
+
+        ProductoFacets facets = facetService.facets(request);
+
+        assertEquals(1, facets.total());
+        // Category counts ignore the category filter but keep the price one
+        assertEquals(1L, facets.categorias().get(herramientas.getId()));
+        assertEquals(1L, facets.categorias().get(pinturas.getId()));
+        // Company counts keep both filters
+        assertEquals(1L, facets.empresas().get("900000001"));
+        assertFalse(facets.empresas().containsKey("900000002"));
+        // Price buckets ignore the price filter but keep the category one
+        assertEquals(List.of(1L, 0L, 1L), facets.precios().stream().map(ProductoFacets.PriceBucket::count).toList());
+    }
+
+    private ProductoFacetService newNode() {
+        ExchangeRateService exchangeRateService = new ExchangeRateService(productoRepository, null, null, dataVersionService, null, "");
+        return new ProductoFacetService(productoRepository, changeRepository, dataVersionService, exchangeRateService,
+                transactionManager, new ObjectMapper(), "10,100", 100, 60000);
+    }
+
+    private Empresa persistEmpresa(String nit, String nombre) {
+        Empresa empresa = new Empresa();
+        empresa.setNit(nit);
+        empresa.setNombre(nombre);
+        return entityManager.persist(empresa);
+    }
+
+    private Categoria persistCategoria(String nombre) {
+        Categoria categoria = new Categoria();
+        categoria.setNombre(nombre);
+        return entityManager.persist(categoria);
+    }
+
+    private void persistProducto(String codigo, String precio, Empresa empresa, Categoria categoria) {
+        Producto producto = new Producto();
+        producto.setCodigo(codigo);
+        producto.setNombre("Producto " + codigo);
+        producto.setPrecio(new BigDecimal(precio));
+        producto.setPrecioUsd(new BigDecimal(precio));
+        producto.setMoneda("USD");
+        producto.setEmpresa(empresa);
+        producto.setCategorias(List.of(categoria));
+        entityManager.persist(producto);
+    }
+}
@@ -0,0 +1,155 @@
+package manuel.pruebatecnica.application.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validation;
+import manuel.pruebatecnica.domain.model.Categoria;
+import manuel.pruebatecnica.domain.model.Empresa;
+import manuel.pruebatecnica.domain.model.Producto;
+import manuel.pruebatecnica.infrastructure.repository.CategoriaRepository;
+import manuel.pruebatecnica.infrastructure.repository.EmpresaRepository;
+import manuel.pruebatecnica.infrastructure.repository.ProductoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+class ProductoImportServiceTest {
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private EmpresaRepository empresaRepository;
+
+    @Autowired
+    private CategoriaRepository categoriaRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private ProductoImportService importService;
+    private Long categoriaId;
+
+    @BeforeEach
+    void setUp() {
+        importService = new ProductoImportService(
+                new ObjectMapper(),
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                productoRepository,
+                empresaRepository,
+                categoriaRepository,
+                entityManager,
+                new TransactionTemplate(transactionManager),
+                Mockito.mock(DataVersionService.class),
+                new ExchangeRateService(productoRepository, null, new TransactionTemplate(transactionManager),
+                        Mockito.mock(DataVersionService.class), null, "EUR=1.08"),
+                Mockito.mock(ProductoFacetService.class),
+                new EmpresaReferenceCache(empresaRepository, Mockito.mock(DataVersionService.class), 100, 60000),
+                Mockito.mock(EmpresaStatsService.class),
+                Mockito.mock(EmpresaDeletionService.class)
+        );
+        ReflectionTestUtils.setField(importService, "batchSize", 2);
+
+        Empresa empresa = new Empresa();
+        empresa.setNit("900123456");
+        empresa.setNombre("Empresa Test");
+        empresaRepository.save(empresa);
+
+        Categoria categoria = new Categoria();
+        categoria.setNombre("Herramientas");
+        categoriaId = categoriaRepository.save(categoria).getId();
+
+        Producto existente = new Producto();
+        existente.setCodigo("EXISTE");
+        existente.setNombre("Producto existente");
+        existente.setPrecio(BigDecimal.TEN);
+        existente.setEmpresa(empresa);
+        productoRepository.saveAndFlush(existente);
+    }
+
+    @Test
+    void importCsv_ShouldWriteValidRowsAndReportInvalidOnes() throws Exception {
+        String csv = """
+                codigo,nombre,precio,moneda,caracteristicas,empresaNit,categoriaId
+                P-1,Martillo,12.50,USD,Acero,900123456,%d
+                P-2,Destornillador,abc,USD,,900123456,
+                P-3,Taladro,99.90,,,999999999,
+                P-4,Llave,8.00,EUR,,900123456,
+                P-4,Llave repetida,8.00,EUR,,900123456,
+                EXISTE,Duplicado,1.00,USD,,900123456,
+                P-5,Sierra,15.00,USD,,900123456,
+                """.formatted(categoriaId);
+
+        ProductoImportReport report = importService.importProductos(stream(csv), CatalogFormat.CSV);
+
+        assertEquals(7, report.totalRows());
+        assertEquals(3, report.imported());
+        assertEquals(4, report.rejected());
+        assertFalse(report.errorsTruncated());
+        assertEquals(List.of(2, 3, 5, 6), report.errors().stream().map(ProductoImportReport.RowError::fila).sorted().toList());
+        assertTrue(productoRepository.existsByCodigo("P-1"));
+        assertTrue(productoRepository.existsByCodigo("P-4"));
+        assertTrue(productoRepository.existsByCodigo("P-5"));
+        assertEquals(4, productoRepository.count());
+    }
+
+    @Test
+    void importNdjson_ShouldResolveCategoriaAndDefaultCurrency() throws Exception {
+        String ndjson = """
+                {"codigo":"N-1","nombre":"Tornillo","precio":0.10,"empresaNit":"900123456","categoriaId":%d}
+                {"codigo":"N-2","nombre":"Tuerca","precio":0.05,"empresaNit":"900123456","categoriaId":12345}
+                """.formatted(categoriaId);
+
+        ProductoImportReport report = importService.importProductos(stream(ndjson), CatalogFormat.NDJSON);
+
+        assertEquals(2, report.totalRows());
+        assertEquals(1, report.imported());
+        assertEquals("Categoría no encontrada: 12345", report.errors().get(0).mensaje());
+
+        entityManager.clear();
+        Producto importado = productoRepository.findAll().stream()
+                .filter(p -> p.getCodigo().equals("N-1"))
+                .findFirst()
+                .orElseThrow();
+        assertEquals("USD", importado.getMoneda());
+        assertEquals(categoriaId, importado.getCategorias().get(0).getId());
+    }
+
+    @Test
+    void import_ShouldCapErrorReport() throws Exception {
+        ReflectionTestUtils.setField(importService, "maxErrors", 1);
+        String ndjson = """
+                {"codigo":"X-1","nombre":"Sin empresa","precio":1}
+                {"codigo":"X-2","nombre":"Sin empresa","precio":1}
+                """;
+
+        ProductoImportReport report = importService.importProductos(stream(ndjson), CatalogFormat.NDJSON);
+
+        assertEquals(2, report.rejected());
+        assertEquals(1, report.errors().size());
+        assertTrue(report.errorsTruncated());
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
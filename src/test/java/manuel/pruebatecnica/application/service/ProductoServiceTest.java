@@ -1,22 +1,38 @@
 package manuel.pruebatecnica.application.service;
 
+import manuel.pruebatecnica.domain.model.Empresa;
 import manuel.pruebatecnica.domain.model.Producto;
+import manuel.pruebatecnica.infrastructure.dto.ProductoPageRequest;
+import manuel.pruebatecnica.infrastructure.dto.ProductoPatchDTO;
+import manuel.pruebatecnica.infrastructure.exception.ConflictException;
+import manuel.pruebatecnica.infrastructure.exception.PreconditionFailedException;
+import manuel.pruebatecnica.infrastructure.repository.CategoriaRepository;
+import manuel.pruebatecnica.infrastructure.repository.EmpresaRepository;
 import manuel.pruebatecnica.infrastructure.repository.ProductoRepository;
+import manuel.pruebatecnica.infrastructure.repository.ProductoUpsertRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 
 import java.math.BigDecimal;
+import java.sql.SQLException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -25,6 +41,30 @@ class ProductoServiceTest {
     @Mock
     private ProductoRepository productoRepository;
 
+    @Mock
+    private EmpresaRepository empresaRepository;
+
+    @Mock
+    private CategoriaRepository categoriaRepository;
+
+    @Mock
+    private DataVersionService dataVersionService;
+
+    @Mock
+    private ExchangeRateService exchangeRateService;
+
+    @Mock
+    private ProductoFacetService productoFacetService;
+
+    @Mock
+    private EmpresaReferenceCache empresaReferenceCache;
+
+    @Mock
+    private EmpresaStatsService empresaStatsService;
+
+    @Mock
+    private EmpresaDeletionService empresaDeletionService;
+
     @InjectMocks
     private ProductoService productoService;
 
@@ -84,37 +124,140 @@ class ProductoServiceTest {
         verify(productoRepository, times(1)).findByEmpresaNit("123456789");
     }
 
+    @Test
+    void findPage_ShouldReturnNextCursor_WhenMoreRowsExist() {
+        List<Producto> rows = LongStream.rangeClosed(1, 3).mapToObj(this::productoWithId).toList();
+        doReturn(rows).when(productoRepository).findBy(any(Specification.class), any(Function.class));
+
+        CursorPage<Producto> page = productoService.findPage(new ProductoPageRequest(null, 2, "precio", "desc", null, null, null, null, "USD"));
+
+        assertEquals(2, page.items().size());
+        assertTrue(page.hasNext());
+        ProductoCursor cursor = ProductoCursor.decode(page.nextCursor());
+        assertEquals("precio", cursor.sort());
+        assertEquals(Sort.Direction.DESC, cursor.direction());
+        assertEquals(2L, cursor.id());
+        assertEquals(new BigDecimal("102.00"), cursor.typedValue());
+    }
+
+    @Test
+    void findPage_ShouldReturnLastPage_WhenNoMoreRows() {
+        doReturn(List.of(testProducto)).when(productoRepository).findBy(any(Specification.class), any(Function.class));
+
+        CursorPage<Producto> page = productoService.findPage(new ProductoPageRequest());
+
+        assertEquals(1, page.items().size());
+        assertFalse(page.hasNext());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void findPage_ShouldRejectUnsupportedSort() {
+        ProductoPageRequest request = new ProductoPageRequest(null, 10, "caracteristicas", "asc", null, null, null, null, "USD");
+
+        assertThrows(IllegalArgumentException.class, () -> productoService.findPage(request));
+        verifyNoInteractions(productoRepository);
+    }
+
+    @Test
+    void findPage_ShouldRejectCursorFromDifferentSort() {
+        String cursor = new ProductoCursor("nombre", Sort.Direction.ASC, 5L, "Tornillo").encode();
+        ProductoPageRequest request = new ProductoPageRequest(cursor, 10, "precio", "asc", null, null, null, null, "USD");
+
+        assertThrows(IllegalArgumentException.class, () -> productoService.findPage(request));
+    }
+
+    @Test
+    void findPage_ShouldRejectMalformedCursor() {
+        ProductoPageRequest request = new ProductoPageRequest("no-es-un-cursor", 10, "id", "asc", null, null, null, null, "USD");
+
+        assertThrows(IllegalArgumentException.class, () -> productoService.findPage(request));
+    }
+
     @Test
     void save_ShouldSaveProducto_WhenCodigoDoesNotExist() {
-        when(productoRepository.existsByCodigo(testProducto.getCodigo())).thenReturn(false);
-        when(productoRepository.save(any(Producto.class))).thenReturn(testProducto);
+        when(productoRepository.saveAndFlush(any(Producto.class))).thenReturn(testProducto);
 
         Producto result = productoService.save(testProducto);
 
         assertNotNull(result);
         assertEquals(testProducto.getCodigo(), result.getCodigo());
-        verify(productoRepository, times(1)).existsByCodigo(testProducto.getCodigo());
-        verify(productoRepository, times(1)).save(testProducto);
+        verify(productoRepository, never()).existsByCodigo(anyString());
+        verify(productoRepository, times(1)).saveAndFlush(testProducto);
     }
 
     @Test
-    void save_ShouldThrowException_WhenCodigoAlreadyExists() {
-        when(productoRepository.existsByCodigo(testProducto.getCodigo())).thenReturn(true);
+    void save_ShouldStoreNormalizedPrice() {
+        testProducto.setMoneda("EUR");
+        when(exchangeRateService.toBase(testProducto.getPrecio(), "EUR")).thenReturn(new BigDecimal("108.0000"));
+        when(productoRepository.saveAndFlush(any(Producto.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
-        RuntimeException exception = assertThrows(RuntimeException.class, () -> {
+        Producto result = productoService.save(testProducto);
+
+        assertEquals(new BigDecimal("108.0000"), result.getPrecioUsd());
+    }
+
+    @Test
+    void saveAndUpdate_ShouldRejectCurrencyWithoutRate() {
+        when(exchangeRateService.toBase(any(), eq("XYZ"))).thenThrow(new IllegalArgumentException("Moneda no soportada: XYZ"));
+        Producto nuevo = new Producto();
+        nuevo.setCodigo("PROD002");
+        nuevo.setPrecio(BigDecimal.TEN);
+        nuevo.setMoneda("XYZ");
+        testProducto.setPrecioUsd(new BigDecimal("100.0000"));
+        updatedProducto.setMoneda("XYZ");
+        when(productoRepository.findById(1L)).thenReturn(Optional.of(testProducto));
+
+        assertThrows(IllegalArgumentException.class, () -> productoService.save(nuevo));
+        assertThrows(IllegalArgumentException.class, () -> productoService.update(1L, updatedProducto));
+        verify(productoRepository, never()).saveAndFlush(any(Producto.class));
+    }
+
+    @Test
+    void save_ShouldRejectProductOfCompanyBeingDeleted() {
+        doThrow(new ConflictException("La empresa 900123456 se está eliminando"))
+                .when(empresaDeletionService).checkNotDeleting((String) null);
+
+        assertThrows(ConflictException.class, () -> productoService.save(testProducto));
+        verify(productoRepository, never()).saveAndFlush(any(Producto.class));
+    }
+
+    @Test
+    void save_ShouldThrowConflict_WhenCodigoAlreadyExists() {
+        when(productoRepository.saveAndFlush(any(Producto.class))).thenThrow(integrityViolation("23505"));
+
+        ConflictException exception = assertThrows(ConflictException.class, () -> {
             productoService.save(testProducto);
         });
 
         assertEquals("Ya existe un producto con ese código", exception.getMessage());
-        verify(productoRepository, times(1)).existsByCodigo(testProducto.getCodigo());
-        verify(productoRepository, never()).save(any(Producto.class));
+    }
+
+    @Test
+    void save_ShouldThrowIllegalArgument_WhenEmpresaDoesNotExist() {
+        when(productoRepository.saveAndFlush(any(Producto.class))).thenThrow(integrityViolation("23503"));
+
+        assertThrows(IllegalArgumentException.class, () -> productoService.save(testProducto));
+    }
+
+    @Test
+    void save_ShouldRejectUnknownEmpresa_BeforeWriting() {
+        Empresa empresa = new Empresa();
+        empresa.setNit("000000000");
+        testProducto.setEmpresa(empresa);
+        when(empresaReferenceCache.exists("000000000")).thenReturn(false);
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> productoService.save(testProducto));
+
+        assertEquals("Empresa no encontrada: 000000000", exception.getMessage());
+        verify(productoRepository, never()).saveAndFlush(any(Producto.class));
+        verify(empresaRepository, never()).getReferenceById(anyString());
     }
 
     @Test
     void update_ShouldUpdateProducto_WhenExistsAndCodigoIsSame() {
         when(productoRepository.findById(1L)).thenReturn(Optional.of(testProducto));
-        when(productoRepository.existsByCodigo(updatedProducto.getCodigo())).thenReturn(false);
-        when(productoRepository.save(any(Producto.class))).thenReturn(updatedProducto);
+        when(productoRepository.saveAndFlush(any(Producto.class))).thenReturn(updatedProducto);
 
         Producto result = productoService.update(1L, updatedProducto);
 
@@ -122,7 +265,7 @@ class ProductoServiceTest {
         assertEquals(updatedProducto.getCodigo(), result.getCodigo());
         assertEquals(updatedProducto.getNombre(), result.getNombre());
         verify(productoRepository, times(1)).findById(1L);
-        verify(productoRepository, times(1)).save(testProducto);
+        verify(productoRepository, times(1)).saveAndFlush(testProducto);
     }
 
     @Test
@@ -131,16 +274,15 @@ class ProductoServiceTest {
         updatedProducto.setCodigo("NEW001");
         
         when(productoRepository.findById(1L)).thenReturn(Optional.of(testProducto));
-        when(productoRepository.existsByCodigo("NEW001")).thenReturn(false);
-        when(productoRepository.save(any(Producto.class))).thenReturn(updatedProducto);
+        when(productoRepository.saveAndFlush(any(Producto.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         Producto result = productoService.update(1L, updatedProducto);
 
         assertNotNull(result);
-        assertEquals(updatedProducto.getCodigo(), result.getCodigo());
+        assertEquals("NEW001", result.getCodigo());
         verify(productoRepository, times(1)).findById(1L);
-        verify(productoRepository, times(1)).existsByCodigo("NEW001");
-        verify(productoRepository, times(1)).save(testProducto);
+        verify(productoRepository, never()).existsByCodigo(anyString());
+        verify(productoRepository, times(1)).saveAndFlush(testProducto);
     }
 
     @Test
@@ -153,49 +295,141 @@ class ProductoServiceTest {
 
         assertEquals("Producto no encontrado", exception.getMessage());
         verify(productoRepository, times(1)).findById(1L);
-        verify(productoRepository, never()).save(any(Producto.class));
+        verify(productoRepository, never()).saveAndFlush(any(Producto.class));
     }
 
     @Test
-    void update_ShouldThrowException_WhenCodigoAlreadyExistsAndIsDifferent() {
+    void update_ShouldThrowConflict_WhenCodigoAlreadyExistsAndIsDifferent() {
         testProducto.setCodigo("OLD001");
         updatedProducto.setCodigo("EXIST001");
         
         when(productoRepository.findById(1L)).thenReturn(Optional.of(testProducto));
-        when(productoRepository.existsByCodigo("EXIST001")).thenReturn(true);
+        when(productoRepository.saveAndFlush(any(Producto.class))).thenThrow(integrityViolation("23505"));
 
-        RuntimeException exception = assertThrows(RuntimeException.class, () -> {
+        ConflictException exception = assertThrows(ConflictException.class, () -> {
             productoService.update(1L, updatedProducto);
         });
 
         assertEquals("Ya existe un producto con ese código", exception.getMessage());
         verify(productoRepository, times(1)).findById(1L);
-        verify(productoRepository, times(1)).existsByCodigo("EXIST001");
-        verify(productoRepository, never()).save(any(Producto.class));
     }
 
     @Test
-    void deleteById_ShouldDeleteProducto_WhenExists() {
-        when(productoRepository.existsById(1L)).thenReturn(true);
-        doNothing().when(productoRepository).deleteById(1L);
+    void patch_ShouldOnlyTouchSuppliedFields() {
+        testProducto.setVersion(2L);
+        ProductoPatchDTO patch = new ProductoPatchDTO();
+        patch.setPrecio(BigDecimal.valueOf(250));
+        when(productoRepository.findById(1L)).thenReturn(Optional.of(testProducto));
+        when(productoRepository.saveAndFlush(testProducto)).thenReturn(testProducto);
+
+        Producto result = productoService.patch(1L, patch, 2L);
+
+        assertEquals(BigDecimal.valueOf(250), result.getPrecio());
+        assertEquals("PROD001", result.getCodigo());
+        assertEquals("Test Product", result.getNombre());
+        verifyNoInteractions(empresaRepository, categoriaRepository);
+    }
+
+    @Test
+    void patch_ShouldKeepNormalizedPrice_WhenPriceAndCurrencyAreUnchanged() {
+        testProducto.setMoneda("EUR");
+        testProducto.setPrecioUsd(new BigDecimal("108.0000"));
+        ProductoPatchDTO patch = new ProductoPatchDTO();
+        patch.setNombre("Renamed");
+        when(productoRepository.findById(1L)).thenReturn(Optional.of(testProducto));
+        when(productoRepository.saveAndFlush(testProducto)).thenReturn(testProducto);
+
+        Producto result = productoService.patch(1L, patch, null);
+
+        assertEquals("Renamed", result.getNombre());
+        verifyNoInteractions(exchangeRateService);
+    }
+
+    @Test
+    void patch_ShouldRejectEdit_WhenStoredCurrencyHasNoRate() {
+        testProducto.setMoneda("XYZ");
+        testProducto.setPrecioUsd(null);
+        ProductoPatchDTO patch = new ProductoPatchDTO();
+        patch.setNombre("Renamed");
+        when(productoRepository.findById(1L)).thenReturn(Optional.of(testProducto));
+        when(exchangeRateService.toBase(any(), eq("XYZ"))).thenThrow(new IllegalArgumentException("Moneda no soportada: XYZ"));
+
+        assertThrows(IllegalArgumentException.class, () -> productoService.patch(1L, patch, null));
+        verify(productoRepository, never()).saveAndFlush(any(Producto.class));
+    }
+
+    @Test
+    void patch_ShouldThrowPreconditionFailed_WhenVersionDoesNotMatch() {
+        testProducto.setVersion(5L);
+        when(productoRepository.findById(1L)).thenReturn(Optional.of(testProducto));
+
+        assertThrows(PreconditionFailedException.class, () -> productoService.patch(1L, new ProductoPatchDTO(), 4L));
+        verify(productoRepository, never()).saveAndFlush(any(Producto.class));
+    }
+
+    @Test
+    void upsertByCodigo_ShouldCreateAndLinkCategoria() {
+        when(productoRepository.upsertByCodigo(testProducto)).thenReturn(new ProductoUpsertRepository.UpsertResult(7L, 0L, true, null));
+
+        ProductoUpsertResult result = productoService.upsertByCodigo(testProducto, 3L);
+
+        assertTrue(result.created());
+        assertEquals(7L, result.producto().getId());
+        assertEquals(3L, result.producto().getCategorias().get(0).getId());
+        verify(productoRepository).replaceCategoria(7L, 3L);
+        verify(productoRepository, never()).existsByCodigo(anyString());
+    }
+
+    @Test
+    void upsertByCodigo_ShouldRecordChangesFromPreviousState_WhenUpdated() {
+        ProductoUpsertRepository.Previous previous = new ProductoUpsertRepository.Previous("800000001", new BigDecimal("5.0000"));
+        when(productoRepository.upsertByCodigo(testProducto)).thenReturn(new ProductoUpsertRepository.UpsertResult(7L, 4L, false, previous));
+        when(productoRepository.replaceCategoria(7L, 3L)).thenReturn(Set.of(2L));
+
+        productoService.upsertByCodigo(testProducto, 3L);
+
+        verify(productoFacetService).recordChange(
+                new ProductoFacetService.Entry("800000001", Set.of(2L), new BigDecimal("5.0000")),
+                ProductoFacetService.Entry.of(testProducto));
+        verify(empresaStatsService).recordChange("800000001", null);
+    }
+
+    @Test
+    void upsertByCodigo_ShouldSkipCategoryStatements_WhenCreatedWithoutCategoria() {
+        when(productoRepository.upsertByCodigo(testProducto)).thenReturn(new ProductoUpsertRepository.UpsertResult(7L, 0L, true, null));
+
+        productoService.upsertByCodigo(testProducto, null);
+
+        verify(productoRepository, never()).replaceCategoria(anyLong(), any());
+    }
+
+    @Test
+    void upsertByCodigo_ShouldTranslateMissingEmpresa() {
+        when(productoRepository.upsertByCodigo(testProducto)).thenThrow(integrityViolation("23503"));
+
+        assertThrows(IllegalArgumentException.class, () -> productoService.upsertByCodigo(testProducto, null));
+    }
+
+    @Test
+    void deleteById_ShouldDeleteProductoAndRecordFacetChange_WhenExists() {
+        when(productoRepository.findById(1L)).thenReturn(Optional.of(testProducto));
 
         productoService.deleteById(1L);
 
-        verify(productoRepository, times(1)).existsById(1L);
-        verify(productoRepository, times(1)).deleteById(1L);
+        verify(productoRepository, times(1)).delete(testProducto);
+        verify(productoFacetService).recordChange(ProductoFacetService.Entry.of(testProducto), null);
     }
 
     @Test
     void deleteById_ShouldThrowException_WhenProductoNotExists() {
-        when(productoRepository.existsById(1L)).thenReturn(false);
+        when(productoRepository.findById(1L)).thenReturn(Optional.empty());
 
         RuntimeException exception = assertThrows(RuntimeException.class, () -> {
             productoService.deleteById(1L);
         });
 
         assertEquals("Producto no encontrado", exception.getMessage());
-        verify(productoRepository, times(1)).existsById(1L);
-        verify(productoRepository, never()).deleteById(anyLong());
+        verify(productoRepository, never()).delete(any(Producto.class));
     }
 
     private Producto createTestProducto() {
@@ -219,4 +453,16 @@ class ProductoServiceTest {
         producto.setCaracteristicas("Updated characteristics");
         return producto;
     }
+
+    private Producto productoWithId(long id) {
+        Producto producto = createTestProducto();
+        producto.setId(id);
+        producto.setPrecio(new BigDecimal("100.00").add(BigDecimal.valueOf(id)));
+        producto.setPrecioUsd(producto.getPrecio());
+        return producto;
+    }
+
+    private static DataIntegrityViolationException integrityViolation(String sqlState) {
+        return new DataIntegrityViolationException("constraint", new SQLException("violation", sqlState));
+    }
 }
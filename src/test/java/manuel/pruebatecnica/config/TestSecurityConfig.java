@@ -1,6 +1,9 @@
 package manuel.pruebatecnica.config;
 
+import manuel.pruebatecnica.security.JwtClaims;
 import manuel.pruebatecnica.security.JwtTokenUtil;
+import manuel.pruebatecnica.security.TokenRevocationService;
+import org.mockito.Mockito;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Primary;
@@ -8,6 +11,9 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.web.SecurityFilterChain;
 
+import java.time.Instant;
+import java.util.Optional;
+
 @TestConfiguration
 @EnableWebSecurity
 public class TestSecurityConfig {
@@ -21,6 +27,11 @@ public class TestSecurityConfig {
         return http.build();
     }
 
+    @Bean
+    public TokenRevocationService testTokenRevocationService() {
+        return Mockito.mock(TokenRevocationService.class);
+    }
+
     @Bean
     @Primary
     public JwtTokenUtil testJwtTokenUtil() {
@@ -44,6 +55,11 @@ public class TestSecurityConfig {
             public boolean validateToken(String token) {
                 return true;
             }
+
+            @Override
+            public Optional<JwtClaims> verify(String token) {
+                return Optional.of(new JwtClaims("test@example.com", "ADMIN", "test-jti", Instant.now().plusSeconds(3600)));
+            }
         };
     }
 }
@@ -2,9 +2,12 @@ package manuel.pruebatecnica.infrastructure.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import manuel.pruebatecnica.application.service.AuthService;
+import manuel.pruebatecnica.application.service.RefreshTokenService;
 import manuel.pruebatecnica.domain.model.Usuario;
 import manuel.pruebatecnica.infrastructure.dto.AuthRequest;
+import manuel.pruebatecnica.infrastructure.dto.RefreshTokenRequest;
 import manuel.pruebatecnica.infrastructure.dto.UsuarioDTO;
+import manuel.pruebatecnica.infrastructure.exception.InvalidRefreshTokenException;
 import manuel.pruebatecnica.infrastructure.mapper.EntityMapper;
 import manuel.pruebatecnica.security.JwtTokenUtil;
 import org.junit.jupiter.api.BeforeEach;
@@ -34,6 +37,9 @@ class AuthControllerTest {
     @MockBean
     private AuthService authService;
 
+    @MockBean
+    private RefreshTokenService refreshTokenService;
+
     @MockBean
     private JwtTokenUtil jwtTokenUtil;
 
@@ -58,6 +64,7 @@ class AuthControllerTest {
     void login_ShouldReturnAuthResponse_WhenCredentialsAreValid() throws Exception {
         when(authService.authenticate(authRequest.getEmail(), authRequest.getPassword())).thenReturn(testUsuario);
         when(jwtTokenUtil.generateToken(testUsuario.getEmail(), testUsuario.getRol().name())).thenReturn("jwt.token.here");
+        when(refreshTokenService.issue(testUsuario)).thenReturn("refresh.token.here");
 
         mockMvc.perform(post("/api/auth/login")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -67,6 +74,7 @@ class AuthControllerTest {
                 .andExpect(jsonPath("$.success").value(true))
                 .andExpect(jsonPath("$.message").value("Login successful"))
                 .andExpect(jsonPath("$.data.token").value("jwt.token.here"))
+                .andExpect(jsonPath("$.data.refreshToken").value("refresh.token.here"))
                 .andExpect(jsonPath("$.data.type").value("Bearer"))
                 .andExpect(jsonPath("$.data.role").value("ADMIN"))
                 .andExpect(jsonPath("$.data.email").value(testUsuario.getEmail()));
@@ -86,6 +94,33 @@ class AuthControllerTest {
                 .andExpect(jsonPath("$.message").value("Invalid credentials: Invalid credentials"));
     }
 
+    @Test
+    void refresh_ShouldReturnNewTokens_WhenRefreshTokenIsValid() throws Exception {
+        when(refreshTokenService.rotate("refresh.token.old"))
+                .thenReturn(new RefreshTokenService.IssuedTokens("jwt.token.new", "refresh.token.new", testUsuario));
+
+        mockMvc.perform(post("/api/auth/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new RefreshTokenRequest("refresh.token.old"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.data.token").value("jwt.token.new"))
+                .andExpect(jsonPath("$.data.refreshToken").value("refresh.token.new"))
+                .andExpect(jsonPath("$.data.email").value(testUsuario.getEmail()));
+    }
+
+    @Test
+    void refresh_ShouldReturnUnauthorized_WhenRefreshTokenIsInvalid() throws Exception {
+        when(refreshTokenService.rotate("refresh.token.reused"))
+                .thenThrow(new InvalidRefreshTokenException("Refresh token reutilizado, la sesión fue revocada"));
+
+        mockMvc.perform(post("/api/auth/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new RefreshTokenRequest("refresh.token.reused"))))
+                .andExpect(status().isUnauthorized())
+                .andExpect(jsonPath("$.success").value(false));
+    }
+
     @Test
     void register_ShouldReturnUsuarioDTO_WhenRegistrationIsSuccessful() throws Exception {
         Usuario registeredUsuario = createTestUsuario();
@@ -1,10 +1,23 @@
 package manuel.pruebatecnica.infrastructure.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import manuel.pruebatecnica.application.service.CatalogFormat;
+import manuel.pruebatecnica.application.service.CursorPage;
+import manuel.pruebatecnica.application.service.DataVersionService;
+import manuel.pruebatecnica.application.service.ProductoExportService;
+import manuel.pruebatecnica.application.service.ProductoFacetService;
+import manuel.pruebatecnica.application.service.ProductoFacets;
+import manuel.pruebatecnica.application.service.ProductoImportReport;
+import manuel.pruebatecnica.application.service.ProductoImportService;
 import manuel.pruebatecnica.application.service.ProductoService;
+import manuel.pruebatecnica.application.service.ProductoUpsertResult;
 import manuel.pruebatecnica.domain.model.Producto;
 import manuel.pruebatecnica.domain.model.Empresa;
 import manuel.pruebatecnica.infrastructure.dto.ProductoDTO;
+import manuel.pruebatecnica.infrastructure.dto.ProductoPageRequest;
+import manuel.pruebatecnica.infrastructure.dto.ProductoPatchDTO;
+import manuel.pruebatecnica.infrastructure.exception.ConflictException;
+import manuel.pruebatecnica.infrastructure.exception.PreconditionFailedException;
 import manuel.pruebatecnica.infrastructure.mapper.EntityMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -16,15 +29,21 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -39,9 +58,21 @@ class ProductoControllerTest {
     @MockBean
     private ProductoService productoService;
 
+    @MockBean
+    private ProductoImportService productoImportService;
+
+    @MockBean
+    private ProductoExportService productoExportService;
+
+    @MockBean
+    private ProductoFacetService productoFacetService;
+
     @MockBean
     private EntityMapper entityMapper;
 
+    @MockBean
+    private DataVersionService dataVersionService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -59,15 +90,45 @@ class ProductoControllerTest {
         List<Producto> productos = Arrays.asList(testProducto);
         List<ProductoDTO> productoDTOs = Arrays.asList(testProductoDTO);
 
-        when(productoService.findAll()).thenReturn(productos);
+        when(productoService.findPage(any(ProductoPageRequest.class))).thenReturn(new CursorPage<>(productos, "next"));
         when(entityMapper.toProductoDTOList(productos)).thenReturn(productoDTOs);
 
         mockMvc.perform(get("/api/productos"))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$.success").value(true))
-                .andExpect(jsonPath("$.data").isArray())
-                .andExpect(jsonPath("$.data[0].codigo").value(testProductoDTO.getCodigo()));
+                .andExpect(jsonPath("$.data.items").isArray())
+                .andExpect(jsonPath("$.data.items[0].codigo").value(testProductoDTO.getCodigo()))
+                .andExpect(jsonPath("$.data.nextCursor").value("next"))
+                .andExpect(jsonPath("$.data.hasNext").value(true))
+                .andExpect(jsonPath("$.data.size").value(1));
+    }
+
+    @Test
+    void findAll_ShouldBindPagingAndFilterParameters() throws Exception {
+        when(productoService.findPage(any(ProductoPageRequest.class))).thenReturn(new CursorPage<>(List.of(), null));
+        when(entityMapper.toProductoDTOList(List.of())).thenReturn(List.of());
+
+        mockMvc.perform(get("/api/productos")
+                        .param("size", "20")
+                        .param("sort", "precio")
+                        .param("direction", "desc")
+                        .param("categoriaId", "3")
+                        .param("minPrecio", "10.50"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.hasNext").value(false));
+
+        verify(productoService).findPage(argThat(r ->
+                r.getSize() == 20 && "precio".equals(r.getSort()) && "desc".equals(r.getDirection())
+                        && r.getCategoriaId() == 3L && new BigDecimal("10.50").equals(r.getMinPrecio())));
+    }
+
+    @Test
+    void findAll_ShouldReturnBadRequest_WhenCursorIsInvalid() throws Exception {
+        when(productoService.findPage(any(ProductoPageRequest.class))).thenThrow(new IllegalArgumentException("Cursor inválido"));
+
+        mockMvc.perform(get("/api/productos").param("cursor", "garbage"))
+                .andExpect(status().isBadRequest());
     }
 
     @Test
@@ -95,15 +156,17 @@ class ProductoControllerTest {
         List<Producto> productos = Arrays.asList(testProducto);
         List<ProductoDTO> productoDTOs = Arrays.asList(testProductoDTO);
 
-        when(productoService.findByEmpresaNit("123456789")).thenReturn(productos);
+        when(productoService.findPage(argThat(r -> "123456789".equals(r.getEmpresaNit()))))
+                .thenReturn(new CursorPage<>(productos, null));
         when(entityMapper.toProductoDTOList(productos)).thenReturn(productoDTOs);
 
         mockMvc.perform(get("/api/productos/empresa/123456789"))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$.success").value(true))
-                .andExpect(jsonPath("$.data").isArray())
-                .andExpect(jsonPath("$.data[0].codigo").value(testProductoDTO.getCodigo()));
+                .andExpect(jsonPath("$.data.items").isArray())
+                .andExpect(jsonPath("$.data.items[0].codigo").value(testProductoDTO.getCodigo()))
+                .andExpect(jsonPath("$.data.hasNext").value(false));
     }
 
     @Test
@@ -139,6 +202,83 @@ class ProductoControllerTest {
                 .andExpect(jsonPath("$.message").value("Failed to create product: Product code already exists"));
     }
 
+    @Test
+    void importProductos_ShouldStreamCsvAndReturnReport() throws Exception {
+        ProductoImportReport report = new ProductoImportReport(2, 1, 1,
+                List.of(new ProductoImportReport.RowError(2, "PROD002", "Empresa no encontrada: 1")), false);
+        when(productoImportService.importProductos(any(), eq(CatalogFormat.CSV)))
+                .thenReturn(report);
+
+        mockMvc.perform(post("/api/productos/import")
+                        .contentType("text/csv")
+                        .content("codigo,nombre,precio,empresaNit\nPROD001,Test,1.00,123456789\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.data.imported").value(1))
+                .andExpect(jsonPath("$.data.errors[0].fila").value(2));
+    }
+
+    @Test
+    void export_ShouldStreamCsvAttachment() throws Exception {
+        when(productoExportService.export(eq("123456789"), eq(CatalogFormat.CSV), any())).thenAnswer(invocation -> {
+            java.io.OutputStream output = invocation.getArgument(2);
+            output.write("id,codigo\n1,PROD001\n".getBytes());
+            return 1L;
+        });
+
+        MvcResult result = mockMvc.perform(get("/api/productos/export")
+                        .param("format", "csv")
+                        .param("empresaNit", "123456789"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"productos.csv\""))
+                .andExpect(content().string("id,codigo\n1,PROD001\n"));
+    }
+
+    @Test
+    void export_ShouldReturnBadRequest_WhenFormatIsUnknown() throws Exception {
+        mockMvc.perform(get("/api/productos/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void create_ShouldReturnConflict_WhenCodigoAlreadyExists() throws Exception {
+        when(entityMapper.toProducto(any(ProductoDTO.class))).thenReturn(testProducto);
+        when(productoService.save(any(Producto.class))).thenThrow(new ConflictException("Ya existe un producto con ese código"));
+
+        mockMvc.perform(post("/api/productos")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(testProductoDTO)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.success").value(false));
+    }
+
+    @Test
+    void upsertByCodigo_ShouldReturnCreatedMessage_WhenProductIsNew() throws Exception {
+        when(entityMapper.toProducto(any(ProductoDTO.class))).thenReturn(testProducto);
+        when(productoService.upsertByCodigo(testProducto, null)).thenReturn(new ProductoUpsertResult(testProducto, true));
+        when(entityMapper.toProductoDTO(testProducto)).thenReturn(testProductoDTO);
+
+        mockMvc.perform(put("/api/productos/by-codigo/PROD001")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(testProductoDTO)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("Product created successfully"))
+                .andExpect(jsonPath("$.data.codigo").value("PROD001"));
+    }
+
+    @Test
+    void upsertByCodigo_ShouldReturnBadRequest_WhenPathAndBodyCodigoDiffer() throws Exception {
+        mockMvc.perform(put("/api/productos/by-codigo/OTRO")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(testProductoDTO)))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void update_ShouldReturnUpdatedProducto() throws Exception {
         Producto updatedProducto = createTestProducto();
@@ -148,7 +288,7 @@ class ProductoControllerTest {
         updatedDTO.setNombre("Updated Product");
 
         when(entityMapper.toProducto(any(ProductoDTO.class))).thenReturn(testProducto);
-        when(productoService.update(anyLong(), any(Producto.class))).thenReturn(updatedProducto);
+        when(productoService.update(anyLong(), any(Producto.class), any())).thenReturn(updatedProducto);
         when(entityMapper.toProductoDTO(updatedProducto)).thenReturn(updatedDTO);
 
         mockMvc.perform(put("/api/productos/1")
@@ -164,7 +304,7 @@ class ProductoControllerTest {
     @Test
     void update_ShouldReturnNotFound_WhenRuntimeExceptionOccurs() throws Exception {
         when(entityMapper.toProducto(any(ProductoDTO.class))).thenReturn(testProducto);
-        when(productoService.update(anyLong(), any(Producto.class))).thenThrow(new RuntimeException("Product not found"));
+        when(productoService.update(anyLong(), any(Producto.class), any())).thenThrow(new RuntimeException("Product not found"));
 
         mockMvc.perform(put("/api/productos/1")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -172,6 +312,97 @@ class ProductoControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void facets_ShouldReturnCountsForFilter() throws Exception {
+        ProductoFacets facets = new ProductoFacets(2, Map.of(3L, 2L), Map.of("123456789", 2L),
+                List.of(new ProductoFacets.PriceBucket(BigDecimal.ZERO, null, 2)));
+        when(productoFacetService.facets(argThat(request -> Long.valueOf(3L).equals(request.getCategoriaId())))).thenReturn(facets);
+
+        mockMvc.perform(get("/api/productos/facets").param("categoriaId", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.total").value(2))
+                .andExpect(jsonPath("$.data.categorias.3").value(2))
+                .andExpect(jsonPath("$.data.empresas.123456789").value(2))
+                .andExpect(jsonPath("$.data.precios[0].count").value(2));
+    }
+
+    @Test
+    void findById_ShouldReturnETag() throws Exception {
+        testProducto.setVersion(4L);
+        when(dataVersionService.current(DataVersionService.PRODUCTOS)).thenReturn(7L);
+        when(productoService.findById(1L)).thenReturn(Optional.of(testProducto));
+        when(entityMapper.toProductoDTO(testProducto)).thenReturn(testProductoDTO);
+
+        mockMvc.perform(get("/api/productos/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4-p7\""))
+                .andExpect(header().string("Cache-Control", "no-cache, private"));
+    }
+
+    @Test
+    void findById_ShouldReturnNotModified_WhenStampIsCurrent() throws Exception {
+        when(dataVersionService.current(DataVersionService.PRODUCTOS)).thenReturn(7L);
+
+        mockMvc.perform(get("/api/productos/1").header("If-None-Match", "\"4-p7\""))
+                .andExpect(status().isNotModified());
+
+        verify(productoService, never()).findById(anyLong());
+    }
+
+    @Test
+    void findAll_ShouldReturnNotModified_WhenStampIsCurrent() throws Exception {
+        when(dataVersionService.current(DataVersionService.PRODUCTOS)).thenReturn(7L);
+
+        mockMvc.perform(get("/api/productos").header("If-None-Match", "\"p7\""))
+                .andExpect(status().isNotModified());
+
+        verify(productoService, never()).findPage(any(ProductoPageRequest.class));
+    }
+
+    @Test
+    void findAll_ShouldReturnFreshPage_WhenStampChanged() throws Exception {
+        when(dataVersionService.current(DataVersionService.PRODUCTOS)).thenReturn(8L);
+        when(productoService.findPage(any(ProductoPageRequest.class))).thenReturn(new CursorPage<>(List.of(testProducto), null));
+        when(entityMapper.toProductoDTO(testProducto)).thenReturn(testProductoDTO);
+
+        mockMvc.perform(get("/api/productos").header("If-None-Match", "\"p7\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"p8\""));
+    }
+
+    @Test
+    void patch_ShouldApplyPartialUpdateAndReturnNewETag() throws Exception {
+        Producto patched = createTestProducto();
+        patched.setPrecio(BigDecimal.valueOf(150));
+        patched.setVersion(3L);
+        ProductoPatchDTO patch = new ProductoPatchDTO();
+        patch.setPrecio(BigDecimal.valueOf(150));
+
+        when(productoService.patch(eq(1L), any(ProductoPatchDTO.class), eq(2L))).thenReturn(patched);
+        when(entityMapper.toProductoDTO(patched)).thenReturn(testProductoDTO);
+
+        mockMvc.perform(patch("/api/productos/1")
+                        .header("If-Match", "\"2\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(patch)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"3-p0\""))
+                .andExpect(jsonPath("$.success").value(true));
+    }
+
+    @Test
+    void patch_ShouldReturnPreconditionFailed_WhenVersionIsStale() throws Exception {
+        when(productoService.patch(eq(1L), any(ProductoPatchDTO.class), eq(1L)))
+                .thenThrow(new PreconditionFailedException("El producto fue modificado por otra operación"));
+
+        mockMvc.perform(patch("/api/productos/1")
+                        .header("If-Match", "\"1\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"nombre\":\"Nuevo\"}"))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.success").value(false));
+    }
+
     @Test
     void delete_ShouldReturnSuccess_WhenProductoExists() throws Exception {
         mockMvc.perform(delete("/api/productos/1"))
@@ -0,0 +1,142 @@
+package manuel.pruebatecnica.infrastructure.mail;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import jakarta.mail.internet.MimeMessage;
+import manuel.pruebatecnica.domain.model.EmailOutbox;
+import manuel.pruebatecnica.infrastructure.repository.EmailOutboxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+class EmailOutboxDispatcherTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    @Autowired
+    private EmailOutboxRepository outboxRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path tempDir;
+
+    private OutboxEmailService emailService;
+
+    @BeforeEach
+    void setUp() {
+        emailService = new OutboxEmailService(outboxRepository, tempDir.resolve("outbox").toString());
+    }
+
+    @Test
+    void dispatchBatch_ShouldDeliverQueuedMessagesOverSmtp() throws Exception {
+        Path report = Files.writeString(tempDir.resolve("reporte.pdf"), "%PDF-1.4 contenido");
+        emailService.sendEmailWithAttachment("admin@example.com", "Inventario", "Adjunto", report, "inventario.pdf");
+        emailService.sendEmailWithAttachment("ventas@example.com", "Aviso", "Sin adjunto", null, null);
+        emailService.sendEmailWithAttachment("gerencia@otro.com", "Aviso", "Otro dominio", null, null);
+        assertTrue(Files.exists(report));
+
+        int leased = dispatcher(ServerSetupTest.SMTP.getPort()).dispatchBatch();
+        entityManager.clear();
+
+        assertEquals(3, leased);
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertEquals(3, received.length);
+        assertTrue(Arrays.stream(received).anyMatch(message -> subject(message).equals("Inventario")));
+        assertEquals(3, outboxRepository.countByEstado(EmailOutbox.ENVIADO));
+        try (var spooled = Files.list(tempDir.resolve("outbox"))) {
+            assertEquals(0, spooled.count());
+        }
+    }
+
+    @Test
+    void dispatchBatch_ShouldRetry_WhenAttachmentIsMissing() throws Exception {
+        Path report = Files.writeString(tempDir.resolve("reporte.pdf"), "%PDF-1.4 contenido");
+        emailService.sendEmailWithAttachment("admin@example.com", "Inventario", "Adjunto", report, "inventario.pdf");
+        try (var spooled = Files.list(tempDir.resolve("outbox"))) {
+            spooled.forEach(OutboxEmailService::delete);
+        }
+
+        dispatcher(ServerSetupTest.SMTP.getPort()).dispatchBatch();
+        entityManager.clear();
+
+        EmailOutbox retried = outboxRepository.findAll().get(0);
+        assertEquals(EmailOutbox.PENDIENTE, retried.getEstado());
+        assertEquals(1, retried.getIntentos());
+        assertTrue(retried.getError().contains("Adjunto no encontrado"));
+        assertEquals(0, greenMail.getReceivedMessages().length);
+    }
+
+    @Test
+    void constructor_ShouldRequireAttachmentsDir() {
+        assertThrows(IllegalStateException.class, () -> new OutboxEmailService(outboxRepository, ""));
+    }
+
+    @Test
+    void dispatchBatch_ShouldBackOffAndThenDeadLetter_WhenServerIsUnreachable() {
+        emailService.sendEmailWithAttachment("admin@example.com", "Inventario", "Adjunto", null, null);
+        EmailOutboxDispatcher dispatcher = dispatcher(1);
+
+        dispatcher.dispatchBatch();
+        entityManager.clear();
+
+        EmailOutbox retried = outboxRepository.findAll().get(0);
+        assertEquals(EmailOutbox.PENDIENTE, retried.getEstado());
+        assertEquals(1, retried.getIntentos());
+        assertTrue(retried.getProximoIntento().isAfter(LocalDateTime.now()));
+        assertNotNull(retried.getError());
+        assertEquals(0, dispatcher.dispatchBatch());
+
+        retried.setProximoIntento(LocalDateTime.now().minusSeconds(1));
+        outboxRepository.saveAndFlush(retried);
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 2);
+        dispatcher.dispatchBatch();
+        entityManager.clear();
+
+        List<EmailOutbox> emails = outboxRepository.findAll();
+        assertEquals(EmailOutbox.MUERTO, emails.get(0).getEstado());
+        assertEquals(2, emails.get(0).getIntentos());
+        assertEquals(0, greenMail.getReceivedMessages().length);
+    }
+
+    private EmailOutboxDispatcher dispatcher(int port) {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(port);
+        return new EmailOutboxDispatcher(outboxRepository, mailSender, new TransactionTemplate(transactionManager), 2,
+                tempDir.resolve("outbox").toString());
+    }
+
+    private static String subject(MimeMessage message) {
+        try {
+            return message.getSubject();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
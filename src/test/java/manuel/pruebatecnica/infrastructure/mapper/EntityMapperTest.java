@@ -2,6 +2,7 @@ package manuel.pruebatecnica.infrastructure.mapper;
 
 import manuel.pruebatecnica.domain.model.*;
 import manuel.pruebatecnica.infrastructure.dto.*;
+import manuel.pruebatecnica.infrastructure.repository.EmpresaSummary;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -43,6 +44,17 @@ class EntityMapperTest {
         assertNull(result);
     }
 
+    @Test
+    void toEmpresaDTO_ShouldMapSummaryWithoutProducts_WhenNotExpanded() {
+        EmpresaSummary summary = new EmpresaSummary("123456789", "Test Empresa", "Test Address", "123456789", 2L, 40L);
+        EmpresaDTO result = entityMapper.toEmpresaDTO(summary, null);
+
+        assertEquals("123456789", result.getNit());
+        assertEquals(2L, result.getVersion());
+        assertEquals(40L, result.getProductCount());
+        assertNull(result.getProductos());
+    }
+
     @Test
     void toEmpresa_ShouldMapDTOToEmpresa() {
         EmpresaDTO dto = createTestEmpresaDTO();
@@ -0,0 +1,94 @@
+package manuel.pruebatecnica.infrastructure.repository;
+
+import jakarta.persistence.EntityManagerFactory;
+import manuel.pruebatecnica.application.service.DataVersionService;
+import manuel.pruebatecnica.application.service.EmpresaDeletionService;
+import manuel.pruebatecnica.application.service.EmpresaReferenceCache;
+import manuel.pruebatecnica.application.service.EmpresaService;
+import manuel.pruebatecnica.domain.model.Empresa;
+import manuel.pruebatecnica.domain.model.Producto;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show-sql=false"
+})
+class EmpresaRepositoryTest {
+
+    private static final int PRODUCT_COUNT = 40;
+
+    @Autowired
+    private EmpresaRepository empresaRepository;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private EmpresaService empresaService;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        empresaService = new EmpresaService(empresaRepository, productoRepository, Mockito.mock(DataVersionService.class),
+                Mockito.mock(EmpresaDeletionService.class), Mockito.mock(EmpresaReferenceCache.class));
+        ReflectionTestUtils.setField(empresaService, "maxProductosPerEmpresa", 25);
+
+        Empresa empresa = persistEmpresa("900123456", "Empresa Test");
+        persistEmpresa("900000000", "Empresa Vacia");
+        for (int i = 0; i < PRODUCT_COUNT; i++) {
+            Producto producto = new Producto();
+            producto.setCodigo("PROD-" + i);
+            producto.setNombre("Producto " + i);
+            producto.setPrecio(BigDecimal.valueOf(i));
+            producto.setMoneda("USD");
+            producto.setEmpresa(empresa);
+            entityManager.persist(producto);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void empresaSummaries_ShouldCountProductsAndExpandUpToLimit_WithConstantStatements() {
+        List<EmpresaSummary> summaries = empresaService.findSummaries();
+        Map<String, List<Producto>> productos = empresaService.findProductosByEmpresa(
+                summaries.stream().map(EmpresaSummary::nit).toList());
+
+        assertEquals(List.of("Empresa Test", "Empresa Vacia"), summaries.stream().map(EmpresaSummary::nombre).toList());
+        assertEquals(List.of((long) PRODUCT_COUNT, 0L), summaries.stream().map(EmpresaSummary::productCount).toList());
+        assertEquals(25, productos.get("900123456").size());
+        assertEquals("PROD-0", productos.get("900123456").get(0).getCodigo());
+        assertTrue(productos.get("900000000").isEmpty());
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+
+    private Empresa persistEmpresa(String nit, String nombre) {
+        Empresa empresa = new Empresa();
+        empresa.setNit(nit);
+        empresa.setNombre(nombre);
+        return entityManager.persist(empresa);
+    }
+}
@@ -0,0 +1,182 @@
+package manuel.pruebatecnica.infrastructure.repository;
+
+import jakarta.persistence.EntityManagerFactory;
+import manuel.pruebatecnica.application.service.CursorPage;
+import manuel.pruebatecnica.application.service.DataVersionService;
+import manuel.pruebatecnica.application.service.EmpresaDeletionService;
+import manuel.pruebatecnica.application.service.EmpresaReferenceCache;
+import manuel.pruebatecnica.application.service.EmpresaStatsService;
+import manuel.pruebatecnica.application.service.ExchangeRateService;
+import manuel.pruebatecnica.application.service.ProductoFacetService;
+import manuel.pruebatecnica.application.service.ProductoService;
+import manuel.pruebatecnica.domain.model.Categoria;
+import manuel.pruebatecnica.domain.model.Empresa;
+import manuel.pruebatecnica.domain.model.Producto;
+import manuel.pruebatecnica.infrastructure.dto.ProductoDTO;
+import manuel.pruebatecnica.infrastructure.dto.ProductoPageRequest;
+import manuel.pruebatecnica.infrastructure.mapper.EntityMapper;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show-sql=false"
+})
+class ProductoRepositoryTest {
+
+    private static final int PRODUCT_COUNT = 1000;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private EmpresaRepository empresaRepository;
+
+    @Autowired
+    private CategoriaRepository categoriaRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final EntityMapper entityMapper = new EntityMapper();
+
+    private ProductoService productoService;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        productoService = new ProductoService(productoRepository, empresaRepository, categoriaRepository,
+                Mockito.mock(DataVersionService.class), Mockito.mock(ExchangeRateService.class), Mockito.mock(ProductoFacetService.class),
+                Mockito.mock(EmpresaReferenceCache.class), Mockito.mock(EmpresaStatsService.class),
+                Mockito.mock(EmpresaDeletionService.class));
+        ReflectionTestUtils.setField(productoService, "maxPageSize", PRODUCT_COUNT);
+
+        Empresa empresa = new Empresa();
+        empresa.setNit("900123456");
+        empresa.setNombre("Empresa Test");
+        entityManager.persist(empresa);
+
+        Categoria herramientas = persistCategoria("Herramientas");
+        Categoria tornilleria = persistCategoria("Tornilleria");
+
+        for (int i = 0; i < PRODUCT_COUNT; i++) {
+            Producto producto = new Producto();
+            producto.setCodigo("PROD-" + i);
+            producto.setNombre("Producto " + i);
+            producto.setPrecio(BigDecimal.valueOf(i));
+            producto.setMoneda("USD");
+            producto.setEmpresa(empresa);
+            producto.setCategorias(List.of(i % 2 == 0 ? herramientas : tornilleria));
+            entityManager.persist(producto);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void findAll_ShouldLoadProductsAndCategoriesInOneStatement() {
+        List<ProductoDTO> dtos = entityMapper.toProductoDTOList(productoRepository.findAll());
+
+        assertEquals(PRODUCT_COUNT, dtos.size());
+        assertTrue(dtos.stream().allMatch(dto -> dto.getCategoriaId() != null));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void findPage_ShouldUseConstantStatementCount_RegardlessOfPageSize() {
+        List<ProductoDTO> small = listPage(10);
+        long smallPageStatements = statistics.getPrepareStatementCount();
+
+        entityManager.clear();
+        statistics.clear();
+
+        List<ProductoDTO> full = listPage(PRODUCT_COUNT);
+        long fullPageStatements = statistics.getPrepareStatementCount();
+
+        assertEquals(10, small.size());
+        assertEquals(PRODUCT_COUNT, full.size());
+        assertTrue(full.stream().allMatch(dto -> dto.getCategoriaId() != null));
+        assertEquals(2, fullPageStatements);
+        assertEquals(smallPageStatements, fullPageStatements);
+    }
+
+    @Test
+    void upsertByCodigo_ShouldInsertThenUpdateSameRow() {
+        Producto nuevo = upsertCandidate("UPSERT-1", "Primero", BigDecimal.ONE);
+
+        ProductoUpsertRepository.UpsertResult inserted = productoRepository.upsertByCodigo(nuevo);
+        ProductoUpsertRepository.UpsertResult updated = productoRepository.upsertByCodigo(
+                upsertCandidate("UPSERT-1", "Segundo", BigDecimal.TEN));
+        entityManager.clear();
+
+        assertTrue(inserted.created());
+        assertNull(inserted.previous());
+        assertFalse(updated.created());
+        assertEquals(inserted.id(), updated.id());
+        assertEquals(inserted.version() + 1, updated.version());
+        assertEquals("900123456", updated.previous().empresaNit());
+        Producto stored = productoRepository.findById(inserted.id()).orElseThrow();
+        assertEquals("Segundo", stored.getNombre());
+        assertEquals(0, BigDecimal.TEN.compareTo(stored.getPrecio()));
+        assertEquals(PRODUCT_COUNT + 1, productoRepository.count());
+    }
+
+    @Test
+    void replaceCategoria_ShouldLeaveSingleCategoryLink() {
+        Producto producto = productoRepository.findAll().get(0);
+        Long otraCategoria = persistCategoria("Electricidad").getId();
+
+        Set<Long> previous = producto.getCategorias().stream().map(Categoria::getId).collect(Collectors.toSet());
+
+        assertEquals(previous, productoRepository.replaceCategoria(producto.getId(), otraCategoria));
+        entityManager.clear();
+
+        List<Categoria> categorias = productoRepository.findById(producto.getId()).orElseThrow().getCategorias();
+        assertEquals(1, categorias.size());
+        assertEquals(otraCategoria, categorias.get(0).getId());
+    }
+
+    private Producto upsertCandidate(String codigo, String nombre, BigDecimal precio) {
+        Producto producto = new Producto();
+        producto.setCodigo(codigo);
+        producto.setNombre(nombre);
+        producto.setPrecio(precio);
+        producto.setMoneda("USD");
+        producto.setEmpresa(empresaRepository.getReferenceById("900123456"));
+        return producto;
+    }
+
+    private List<ProductoDTO> listPage(int size) {
+        ProductoPageRequest request = new ProductoPageRequest();
+        request.setSize(size);
+        CursorPage<Producto> page = productoService.findPage(request);
+        return entityMapper.toProductoDTOList(page.items());
+    }
+
+    private Categoria persistCategoria(String nombre) {
+        Categoria categoria = new Categoria();
+        categoria.setNombre(nombre);
+        return entityManager.persist(categoria);
+    }
+}
@@ -0,0 +1,86 @@
+package manuel.pruebatecnica.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtTokenUtilTest {
+
+    private JwtTokenUtil jwtTokenUtil;
+
+    @BeforeEach
+    void setUp() {
+        jwtTokenUtil = createJwtTokenUtil(3600000L);
+    }
+
+    @Test
+    void verify_ShouldReturnClaims_WhenTokenIsValid() {
+        String token = jwtTokenUtil.generateToken("test@example.com", "ADMIN");
+
+        Optional<JwtClaims> result = jwtTokenUtil.verify(token);
+
+        assertTrue(result.isPresent());
+        assertEquals("test@example.com", result.get().email());
+        assertEquals("ADMIN", result.get().role());
+        assertNotNull(result.get().tokenId());
+        assertNotNull(result.get().expiration());
+    }
+
+    @Test
+    void verify_ShouldReturnSameClaims_WhenTokenIsVerifiedTwice() {
+        String token = jwtTokenUtil.generateToken("test@example.com", "EXTERNO");
+
+        JwtClaims first = jwtTokenUtil.verify(token).orElseThrow();
+        JwtClaims second = jwtTokenUtil.verify(token).orElseThrow();
+
+        assertSame(first, second);
+    }
+
+    @Test
+    void generateToken_ShouldAssignUniqueTokenIds() {
+        String first = jwtTokenUtil.generateToken("test@example.com", "ADMIN");
+        String second = jwtTokenUtil.generateToken("test@example.com", "ADMIN");
+
+        assertNotEquals(jwtTokenUtil.verify(first).orElseThrow().tokenId(), jwtTokenUtil.verify(second).orElseThrow().tokenId());
+    }
+
+    @Test
+    void verify_ShouldReturnEmpty_WhenTokenIsTampered() {
+        String token = jwtTokenUtil.generateToken("test@example.com", "ADMIN");
+        String tampered = token.substring(0, token.length() - 2) + "xx";
+
+        assertTrue(jwtTokenUtil.verify(tampered).isEmpty());
+        assertTrue(jwtTokenUtil.verify("not-a-token").isEmpty());
+        assertTrue(jwtTokenUtil.verify(null).isEmpty());
+    }
+
+    @Test
+    void verify_ShouldReturnEmpty_WhenTokenIsExpired() {
+        JwtTokenUtil expiredUtil = createJwtTokenUtil(-1000L);
+        String token = expiredUtil.generateToken("test@example.com", "ADMIN");
+
+        assertTrue(expiredUtil.verify(token).isEmpty());
+    }
+
+    @Test
+    void verify_ShouldBeConsistentWithLegacyAccessors() {
+        String token = jwtTokenUtil.generateToken("test@example.com", "ADMIN");
+
+        assertTrue(jwtTokenUtil.validateToken(token));
+        assertEquals(jwtTokenUtil.getEmailFromToken(token), jwtTokenUtil.verify(token).orElseThrow().email());
+        assertEquals(jwtTokenUtil.getRoleFromToken(token), jwtTokenUtil.verify(token).orElseThrow().role());
+    }
+
+    private JwtTokenUtil createJwtTokenUtil(long expiration) {
+        JwtTokenUtil util = new JwtTokenUtil();
+        ReflectionTestUtils.setField(util, "jwtSecret", "testSecretKey123456789012345678901234567890");
+        ReflectionTestUtils.setField(util, "jwtExpiration", expiration);
+        ReflectionTestUtils.setField(util, "verifiedCacheMaxSize", 100);
+        util.init();
+        return util;
+    }
+}
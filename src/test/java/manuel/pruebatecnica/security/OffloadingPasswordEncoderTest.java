@@ -0,0 +1,117 @@
+package manuel.pruebatecnica.security;
+
+import manuel.pruebatecnica.infrastructure.dto.ApiResponse;
+import manuel.pruebatecnica.infrastructure.exception.GlobalExceptionHandler;
+import manuel.pruebatecnica.infrastructure.exception.ServiceUnavailableException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffloadingPasswordEncoderTest {
+
+    private OffloadingPasswordEncoder passwordEncoder;
+
+    @BeforeEach
+    void setUp() {
+        passwordEncoder = new OffloadingPasswordEncoder(4, 2, 8, 5000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        passwordEncoder.destroy();
+    }
+
+    @Test
+    void encode_ShouldProduceHashThatMatches() {
+        String encoded = passwordEncoder.encode("password123");
+
+        assertTrue(passwordEncoder.matches("password123", encoded));
+        assertFalse(passwordEncoder.matches("wrongPassword", encoded));
+    }
+
+    @Test
+    void upgradeEncoding_ShouldDetectDifferentCost() {
+        String sameCost = passwordEncoder.encode("password123");
+        String otherCost = new BCryptPasswordEncoder(5).encode("password123");
+
+        assertFalse(passwordEncoder.upgradeEncoding(sameCost));
+        assertTrue(passwordEncoder.upgradeEncoding(otherCost));
+        assertFalse(passwordEncoder.upgradeEncoding("not-a-bcrypt-hash"));
+    }
+
+    @Test
+    void calibrateStrength_ShouldStayWithinBounds() {
+        int strength = OffloadingPasswordEncoder.calibrateStrength(1, 4, 6);
+
+        assertTrue(strength >= 4 && strength <= 6);
+    }
+
+    @Test
+    void encode_ShouldRejectWith503_WhenPoolAndQueueAreFull() throws Exception {
+        OffloadingPasswordEncoder saturated = new OffloadingPasswordEncoder(4, 1, 1, 5000);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread running = new Thread(() -> saturated.encode(new BlockingPassword(started, release)));
+        Thread queued = new Thread(() -> saturated.encode("password123"));
+        try {
+            running.start();
+            started.await();
+            queued.start();
+            while (saturated.getQueueDepth() < 1) {
+                Thread.sleep(1);
+            }
+
+            ServiceUnavailableException exception = assertThrows(ServiceUnavailableException.class,
+                    () -> saturated.encode("password123"));
+
+            assertEquals(1, exception.getRetryAfterSeconds());
+            ResponseEntity<ApiResponse<String>> response =
+                    new GlobalExceptionHandler().handleServiceUnavailableException(exception);
+            assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+            assertEquals("1", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        } finally {
+            release.countDown();
+            running.join();
+            queued.join();
+            saturated.destroy();
+        }
+    }
+
+    // Holds the only hashing thread until released
+    private record BlockingPassword(CountDownLatch started, CountDownLatch release) implements CharSequence {
+
+        @Override
+        public String toString() {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "password123";
+        }
+
+        @Override
+        public int length() {
+            return toString().length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return toString().charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().subSequence(start, end);
+        }
+    }
+}
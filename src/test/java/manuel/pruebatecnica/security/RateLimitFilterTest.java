@@ -0,0 +1,91 @@
+package manuel.pruebatecnica.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitFilterTest {
+
+    private RateLimitFilter rateLimitFilter;
+
+    @BeforeEach
+    void setUp() {
+        rateLimitFilter = new RateLimitFilter(new ObjectMapper().findAndRegisterModules(), true,
+                5, 0.001, 2, 0.001, 1, 0.001,
+                List.of("/api/inventory/report/**"), 600000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void shouldRejectWith429_WhenBudgetIsExhausted() throws Exception {
+        authenticate("externo@example.com", "EXTERNO");
+
+        assertEquals(200, perform("/api/empresas").getStatus());
+        assertEquals(200, perform("/api/empresas").getStatus());
+        MockHttpServletResponse rejected = perform("/api/empresas");
+
+        assertEquals(429, rejected.getStatus());
+        assertNotNull(rejected.getHeader("Retry-After"));
+        assertTrue(Long.parseLong(rejected.getHeader("Retry-After")) >= 1);
+    }
+
+    @Test
+    void shouldUseSeparateBudgets_PerUserAndRole() throws Exception {
+        authenticate("externo@example.com", "EXTERNO");
+        perform("/api/empresas");
+        perform("/api/empresas");
+        assertEquals(429, perform("/api/empresas").getStatus());
+
+        authenticate("otro@example.com", "EXTERNO");
+        assertEquals(200, perform("/api/empresas").getStatus());
+
+        authenticate("admin@example.com", "ADMIN");
+        for (int i = 0; i < 5; i++) {
+            assertEquals(200, perform("/api/productos").getStatus());
+        }
+        assertEquals(429, perform("/api/productos").getStatus());
+    }
+
+    @Test
+    void shouldApplyExpensiveBudget_ToReportRoutes() throws Exception {
+        authenticate("admin@example.com", "ADMIN");
+
+        assertEquals(200, perform("/api/inventory/report/send").getStatus());
+        assertEquals(429, perform("/api/inventory/report/send").getStatus());
+        assertEquals(200, perform("/api/productos").getStatus());
+    }
+
+    @Test
+    void shouldSkip_WhenRequestIsNotAuthenticated() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            assertEquals(200, perform("/api/auth/login").getStatus());
+        }
+    }
+
+    private void authenticate(String email, String role) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                email, null, List.of(new SimpleGrantedAuthority("ROLE_" + role))));
+    }
+
+    private MockHttpServletResponse perform(String path) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        rateLimitFilter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
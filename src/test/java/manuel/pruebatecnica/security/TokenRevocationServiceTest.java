@@ -0,0 +1,120 @@
+package manuel.pruebatecnica.security;
+
+import manuel.pruebatecnica.domain.model.RevokedToken;
+import manuel.pruebatecnica.infrastructure.repository.RevokedTokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TokenRevocationServiceTest {
+
+    @Mock
+    private RevokedTokenRepository revokedTokenRepository;
+
+    private TokenRevocationService tokenRevocationService;
+
+    @BeforeEach
+    void setUp() {
+        tokenRevocationService = new TokenRevocationService(revokedTokenRepository);
+        ReflectionTestUtils.setField(tokenRevocationService, "initialCapacity", 16);
+        ReflectionTestUtils.setField(tokenRevocationService, "gapTimeoutMillis", 60000L);
+        when(revokedTokenRepository.findMaxSeq()).thenReturn(1L);
+        when(revokedTokenRepository.findByExpiresAtAfter(any(LocalDateTime.class)))
+                .thenReturn(List.of(token("loaded-jti", LocalDateTime.now().plusHours(1), 1L)));
+        ReflectionTestUtils.invokeMethod(tokenRevocationService, "init");
+    }
+
+    @Test
+    void isRevoked_ShouldReturnTrue_ForTokensLoadedAtStartup() {
+        assertTrue(tokenRevocationService.isRevoked("loaded-jti"));
+        assertFalse(tokenRevocationService.isRevoked("other-jti"));
+        assertFalse(tokenRevocationService.isRevoked(null));
+    }
+
+    @Test
+    void revoke_ShouldPersistAndRevokeImmediately() {
+        tokenRevocationService.revoke("new-jti", Instant.now().plusSeconds(600));
+
+        assertTrue(tokenRevocationService.isRevoked("new-jti"));
+        verify(revokedTokenRepository, times(1)).save(any(RevokedToken.class));
+    }
+
+    @Test
+    void revoke_ShouldIgnoreAlreadyExpiredTokens() {
+        tokenRevocationService.revoke("expired-jti", Instant.now().minusSeconds(1));
+
+        assertFalse(tokenRevocationService.isRevoked("expired-jti"));
+        verify(revokedTokenRepository, never()).save(any(RevokedToken.class));
+    }
+
+    @Test
+    void syncFromDatabase_ShouldPickUpRevocationsFromOtherNodes() {
+        when(revokedTokenRepository.findBySeqGreaterThanOrderBySeq(1L))
+                .thenReturn(List.of(token("remote-jti", LocalDateTime.now().plusHours(1), 2L)));
+
+        tokenRevocationService.syncFromDatabase();
+
+        assertTrue(tokenRevocationService.isRevoked("remote-jti"));
+    }
+
+    @Test
+    void syncFromDatabase_ShouldPickUpRevocationCommittedAfterAHigherSeq() {
+        LocalDateTime expiresAt = LocalDateTime.now().plusHours(1);
+        when(revokedTokenRepository.findBySeqGreaterThanOrderBySeq(1L))
+                .thenReturn(List.of(token("fast-jti", expiresAt, 3L)));
+        when(revokedTokenRepository.findBySeqGreaterThanOrderBySeq(3L)).thenReturn(List.of());
+        tokenRevocationService.syncFromDatabase();
+
+        // seq 2 was assigned first but its transaction commits only now
+        when(revokedTokenRepository.findBySeqIn(Set.of(2L))).thenReturn(List.of(token("slow-jti", expiresAt, 2L)));
+        tokenRevocationService.syncFromDatabase();
+
+        assertTrue(tokenRevocationService.isRevoked("fast-jti"));
+        assertTrue(tokenRevocationService.isRevoked("slow-jti"));
+        tokenRevocationService.syncFromDatabase();
+        verify(revokedTokenRepository, times(1)).findBySeqIn(anyCollection());
+    }
+
+    @Test
+    void revoke_ShouldKeepAllIds_WhenCapacityIsExceeded() {
+        for (int i = 0; i < 100; i++) {
+            tokenRevocationService.revoke("jti-" + i, Instant.now().plusSeconds(600));
+        }
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(tokenRevocationService.isRevoked("jti-" + i));
+        }
+    }
+
+    @Test
+    void compact_ShouldDropExpiredIds() {
+        when(revokedTokenRepository.findBySeqGreaterThanOrderBySeq(anyLong()))
+                .thenReturn(List.of(token("stale-jti", LocalDateTime.now().minusMinutes(1), 2L)));
+        tokenRevocationService.syncFromDatabase();
+
+        tokenRevocationService.compact();
+
+        assertFalse(tokenRevocationService.isRevoked("stale-jti"));
+        assertTrue(tokenRevocationService.isRevoked("loaded-jti"));
+        verify(revokedTokenRepository, times(1)).deleteExpired(any(LocalDateTime.class));
+    }
+
+    private static RevokedToken token(String jti, LocalDateTime expiresAt, long seq) {
+        return new RevokedToken(jti, expiresAt, LocalDateTime.now(), seq);
+    }
+}